@@ -0,0 +1,78 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector;
+
+import org.jooq.Record;
+import org.jooq.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import space.arim.libertybans.api.punish.Punishment;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures mapping of fetched records to punishments, excluding query execution
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4G")
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RecordMappingBenchmark {
+
+	@Param({"BY_VICTIM", "BY_APPLICABILITY", "BY_APPLICABILITY_UNION_ALL", "LIST_PAGE"})
+	public SelectionShape shape;
+
+	private Supplier<List<Punishment>> mapping;
+
+	@Setup(Level.Trial)
+	public void setup(SeededDatabase database) {
+		SelectionBaseSQL selection = shape.createSelection(database);
+		mapping = prefetch(shape.query(selection, database.context()));
+	}
+
+	private static <R extends Record> Supplier<List<Punishment>> prefetch(SelectionBaseSQL.Query<R> query) {
+		Result<R> result = query.select().fetch();
+		if (result.isEmpty()) {
+			throw new IllegalStateException("Query yielded no records; the benchmark would be meaningless");
+		}
+		return () -> result.map(query.mapper());
+	}
+
+	@Benchmark
+	public List<Punishment> mapRecords() {
+		return mapping.get();
+	}
+
+}
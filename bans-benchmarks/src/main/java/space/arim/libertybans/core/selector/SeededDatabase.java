@@ -0,0 +1,245 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.jooq.DSLContext;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import space.arim.libertybans.api.ConsoleOperator;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim.VictimType;
+import space.arim.libertybans.core.database.Vendor;
+import space.arim.libertybans.core.database.execute.JooqQueryExecutor;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.database.flyway.MigrateWithFlyway;
+import space.arim.libertybans.core.database.flyway.MigrationFailedException;
+import space.arim.libertybans.core.database.jooq.JooqContext;
+import space.arim.libertybans.core.database.sql.EmptyData;
+import space.arim.libertybans.core.database.sql.TableForType;
+import space.arim.libertybans.core.punish.SecurePunishmentCreator;
+import space.arim.libertybans.core.scope.InternalScopeManager;
+import space.arim.libertybans.core.scope.ScopeParsing;
+import space.arim.libertybans.core.scope.ScopeType;
+import space.arim.libertybans.core.scope.StandardScopeManager;
+import space.arim.libertybans.core.service.LiveTime;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
+import static space.arim.libertybans.core.schema.tables.History.HISTORY;
+import static space.arim.libertybans.core.schema.tables.Punishments.PUNISHMENTS;
+import static space.arim.libertybans.core.schema.tables.Scopes.SCOPES;
+import static space.arim.libertybans.core.schema.tables.Victims.VICTIMS;
+
+/**
+ * An embedded HyperSQL database, migrated with the real schema and seeded with punishments. <br>
+ * <br>
+ * Every punishment has its own victim. Punishment types rotate between ban, mute, warn, and kick;
+ * one in eight victims is an address, and one in eight is composite. Every player has one address.
+ * Half of all punishments are scoped to a specific server, and a third are permanent.
+ *
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+
+	/**
+	 * The number of punishments to seed
+	 */
+	@Param("1000000")
+	public int punishmentCount;
+
+	/**
+	 * The "current" time used by queries, so that results do not depend on when benchmarks are run
+	 */
+	static final Instant CURRENT_TIME = Instant.parse("2023-01-01T00:00:00Z");
+	static final String SERVER_NAME = "lobby";
+
+	private static final int ROWS_PER_INSERT = 1_000;
+	private static final long UUID_MOST_SIG_BITS = 0x5EED_0000_0000_0000L;
+
+	private HikariDataSource dataSource;
+	private Connection connection;
+	private DSLContext context;
+	private SelectionResources resources;
+
+	@Setup(Level.Trial)
+	public void setup() throws MigrationFailedException, SQLException {
+		HikariConfig hikariConf = new HikariConfig();
+		hikariConf.setJdbcUrl("jdbc:hsqldb:mem:libertybans-benchmarks;sql.enforce_names=true;sql.enforce_refs=true");
+		hikariConf.setUsername("SA");
+		hikariConf.setPassword("");
+		hikariConf.setAutoCommit(false);
+		hikariConf.setMaximumPoolSize(2);
+		dataSource = new HikariDataSource(hikariConf);
+
+		JooqContext jooqContext = new JooqContext(Vendor.HSQLDB.dialect());
+		new MigrateWithFlyway(dataSource, Vendor.HSQLDB).migrate(jooqContext);
+
+		connection = dataSource.getConnection();
+		context = jooqContext.createContext(connection);
+		seed();
+
+		FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+		QueryExecutor queryExecutor = new JooqQueryExecutor(jooqContext, dataSource, futuresFactory, Runnable::run);
+		InternalScopeManager scopeManager = new StandardScopeManager(null, new ScopeParsing());
+		resources = new SelectionResources(
+				futuresFactory, () -> queryExecutor, scopeManager,
+				new SecurePunishmentCreator(scopeManager, SeededDatabase::unsupported, SeededDatabase::unsupported, SeededDatabase::unsupported),
+				LiveTime.INSTANCE, new RenderedQueryCache()
+		);
+	}
+
+	private static <T> T unsupported() {
+		throw new UnsupportedOperationException("Not available in benchmarks");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		try (HikariDataSource dataSource = this.dataSource; Connection connection = this.connection) {
+			connection.rollback();
+		}
+	}
+
+	DSLContext context() {
+		return context;
+	}
+
+	SelectionResources resources() {
+		return resources;
+	}
+
+	static UUID uuidOf(int victimId) {
+		return new UUID(UUID_MOST_SIG_BITS, victimId);
+	}
+
+	static NetworkAddress addressOf(int victimId) {
+		return NetworkAddress.of(new byte[] {
+				(byte) (victimId >>> 24), (byte) (victimId >>> 16), (byte) (victimId >>> 8), (byte) victimId
+		});
+	}
+
+	static VictimType victimTypeOf(int victimId) {
+		return switch (victimId % 8) {
+			case 0 -> VictimType.ADDRESS;
+			case 1 -> VictimType.COMPOSITE;
+			default -> VictimType.PLAYER;
+		};
+	}
+
+	static PunishmentType punishmentTypeOf(int id) {
+		return PunishmentType.values()[id % 4];
+	}
+
+	/**
+	 * Chooses a player whose punishment is a permanent ban, roughly in the middle of the data set
+	 *
+	 * @return the victim ID of a banned player
+	 */
+	int bannedPlayer() {
+		int middle = punishmentCount / 2;
+		// Player victim, ban, and permanent: id % 8 == 4, id % 4 == 0, id % 3 == 0
+		return middle - (middle % 24) + 12;
+	}
+
+	private void seed() throws SQLException {
+		context
+				.insertInto(SCOPES)
+				.columns(SCOPES.ID, SCOPES.TYPE, SCOPES.VALUE)
+				.values(1, ScopeType.SERVER, SERVER_NAME)
+				.execute();
+		for (int chunkStart = 1; chunkStart <= punishmentCount; chunkStart += ROWS_PER_INSERT) {
+			int chunkEnd = Math.min(chunkStart + ROWS_PER_INSERT, punishmentCount + 1);
+			seedChunk(chunkStart, chunkEnd);
+			connection.commit();
+		}
+	}
+
+	private void seedChunk(int chunkStart, int chunkEnd) {
+		var victims = context
+				.insertInto(VICTIMS)
+				.columns(VICTIMS.ID, VICTIMS.TYPE, VICTIMS.UUID, VICTIMS.ADDRESS);
+		var addresses = context
+				.insertInto(ADDRESSES)
+				.columns(ADDRESSES.UUID, ADDRESSES.ADDRESS, ADDRESSES.UPDATED);
+		var punishments = context
+				.insertInto(PUNISHMENTS)
+				.columns(
+						PUNISHMENTS.ID, PUNISHMENTS.TYPE, PUNISHMENTS.OPERATOR, PUNISHMENTS.REASON,
+						PUNISHMENTS.SCOPE, PUNISHMENTS.START, PUNISHMENTS.END, PUNISHMENTS.SCOPE_ID
+				);
+		var history = context
+				.insertInto(HISTORY)
+				.columns(HISTORY.ID, HISTORY.VICTIM);
+		for (int id = chunkStart; id < chunkEnd; id++) {
+			UUID uuid = uuidOf(id);
+			NetworkAddress address = addressOf(id);
+			VictimType victimType = victimTypeOf(id);
+			victims = victims.values(
+					id, victimType,
+					(victimType == VictimType.ADDRESS) ? EmptyData.UUID : uuid,
+					(victimType == VictimType.PLAYER) ? EmptyData.ADDRESS : address
+			);
+			addresses = addresses.values(uuid, address, CURRENT_TIME.minus(Duration.ofHours(id % 1_000)));
+
+			Instant start = CURRENT_TIME.minus(Duration.ofMinutes(id));
+			Instant end = (id % 3 == 0) ? Instant.MAX : start.plus(Duration.ofDays(30L));
+			punishments = punishments.values(
+					(long) id, punishmentTypeOf(id), ConsoleOperator.INSTANCE, "Benchmark reason " + id,
+					"", start, end, (id % 2 == 0) ? null : 1
+			);
+			history = history.values((long) id, id);
+		}
+		victims.execute();
+		addresses.execute();
+		punishments.execute();
+		history.execute();
+
+		for (PunishmentType type : new PunishmentType[] {PunishmentType.BAN, PunishmentType.MUTE, PunishmentType.WARN}) {
+			var dataTable = new TableForType(type).dataTable();
+			var activePunishments = context
+					.insertInto(dataTable.table())
+					.columns(dataTable.id(), dataTable.victimId());
+			boolean anyActive = false;
+			for (int id = chunkStart; id < chunkEnd; id++) {
+				if (punishmentTypeOf(id) == type) {
+					activePunishments = activePunishments.values((long) id, id);
+					anyActive = true;
+				}
+			}
+			if (anyActive) {
+				activePunishments.execute();
+			}
+		}
+	}
+
+}
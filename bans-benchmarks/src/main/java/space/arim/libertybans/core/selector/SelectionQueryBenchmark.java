@@ -0,0 +1,86 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector;
+
+import org.jooq.DSLContext;
+import org.jooq.Result;
+import org.jooq.Select;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the construction, rendering, and execution of selection queries
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4G")
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class SelectionQueryBenchmark {
+
+	@Param({"BY_VICTIM", "BY_APPLICABILITY", "BY_APPLICABILITY_UNION_ALL", "LIST_PAGE", "COUNT"})
+	public SelectionShape shape;
+
+	private DSLContext context;
+	private SelectionBaseSQL selection;
+	private Select<?> constructedSelect;
+
+	@Setup(Level.Trial)
+	public void setup(SeededDatabase database) {
+		context = database.context();
+		selection = shape.createSelection(database);
+		constructedSelect = shape.select(selection, context);
+	}
+
+	@Benchmark
+	public Select<?> constructQuery() {
+		return shape.select(selection, context);
+	}
+
+	@Benchmark
+	public String renderSQL() {
+		return constructedSelect.getSQL();
+	}
+
+	@Benchmark
+	public String constructAndRenderSQL() {
+		return shape.select(selection, context).getSQL();
+	}
+
+	@Benchmark
+	public Result<?> executeQuery() {
+		return shape.select(selection, context).fetch();
+	}
+
+}
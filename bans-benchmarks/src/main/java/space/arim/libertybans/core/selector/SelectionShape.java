@@ -0,0 +1,150 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector;
+
+import org.jooq.DSLContext;
+import org.jooq.Select;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.select.AddressStrictness;
+import space.arim.libertybans.api.select.SortPunishments;
+
+import static org.jooq.impl.DSL.count;
+
+/**
+ * The shapes of selection used on hot paths
+ *
+ */
+public enum SelectionShape {
+	/**
+	 * Punishment history of a single player, as used by /history
+	 */
+	BY_VICTIM {
+		@Override
+		SelectionBaseSQL createSelection(SeededDatabase database) {
+			int victimId = database.bannedPlayer();
+			return (SelectionBaseSQL) new SelectionOrderBuilderImpl(database.resources())
+					.victim(PlayerVictim.of(SeededDatabase.uuidOf(victimId)))
+					.selectAll()
+					.build();
+		}
+	},
+	/**
+	 * The applicable ban for a player, as used when checking incoming logins, using the applicable views
+	 */
+	BY_APPLICABILITY {
+		@Override
+		SelectionBaseSQL createSelection(SeededDatabase database) {
+			return applicableBan(database, ApplicabilityStrategy.VIEW);
+		}
+
+		@Override
+		SelectionBaseSQL.QueryParameters parameters(SelectionBaseSQL selection, DSLContext context) {
+			return singleApplicableParameters(context);
+		}
+	},
+	/**
+	 * The applicable ban for a player, as used when checking incoming logins, using UNION ALL branches
+	 */
+	BY_APPLICABILITY_UNION_ALL {
+		@Override
+		SelectionBaseSQL createSelection(SeededDatabase database) {
+			return applicableBan(database, ApplicabilityStrategy.UNION_ALL);
+		}
+
+		@Override
+		SelectionBaseSQL.QueryParameters parameters(SelectionBaseSQL selection, DSLContext context) {
+			return singleApplicableParameters(context);
+		}
+	},
+	/**
+	 * The third page of active bans, as used by /banlist
+	 */
+	LIST_PAGE {
+		@Override
+		SelectionBaseSQL createSelection(SeededDatabase database) {
+			int perPage = 10;
+			return (SelectionBaseSQL) new SelectionOrderBuilderImpl(database.resources())
+					.type(PunishmentType.BAN)
+					.selectActiveOnly()
+					.skipFirstRetrieved(perPage * 2)
+					.limitToRetrieve(perPage)
+					.build();
+		}
+	},
+	/**
+	 * Counting active bans, as used by escalation layouts and warn actions
+	 */
+	COUNT {
+		@Override
+		SelectionBaseSQL createSelection(SeededDatabase database) {
+			return (SelectionBaseSQL) new SelectionOrderBuilderImpl(database.resources())
+					.type(PunishmentType.BAN)
+					.selectActiveOnly()
+					.build();
+		}
+
+		@Override
+		Select<?> select(SelectionBaseSQL selection, DSLContext context) {
+			return context
+					.select(count())
+					.from(super.select(selection, context));
+		}
+	};
+
+	abstract SelectionBaseSQL createSelection(SeededDatabase database);
+
+	private static SelectionBaseSQL applicableBan(SeededDatabase database, ApplicabilityStrategy strategy) {
+		int victimId = database.bannedPlayer();
+		return new SelectionByApplicabilityBuilderImpl(
+				database.resources(),
+				SeededDatabase.uuidOf(victimId), SeededDatabase.addressOf(victimId),
+				AddressStrictness.NORMAL
+		).strategy(strategy).type(PunishmentType.BAN).build();
+	}
+
+	private static SelectionBaseSQL.QueryParameters singleApplicableParameters(DSLContext context) {
+		return new SelectionBaseSQL.QueryParameters(
+				context, 1, () -> SeededDatabase.CURRENT_TIME, SortPunishments.LATEST_END_DATE_FIRST
+		);
+	}
+
+	SelectionBaseSQL.QueryParameters parameters(SelectionBaseSQL selection, DSLContext context) {
+		return new SelectionBaseSQL.QueryParameters(
+				context, selection.limitToRetrieve(), () -> SeededDatabase.CURRENT_TIME
+		);
+	}
+
+	SelectionBaseSQL.Query<?> query(SelectionBaseSQL selection, DSLContext context) {
+		return selection.requestQuery(parameters(selection, context));
+	}
+
+	/**
+	 * Constructs the full query which would be executed for this shape
+	 *
+	 * @param selection the selection
+	 * @param context the database access
+	 * @return the query
+	 */
+	Select<?> select(SelectionBaseSQL selection, DSLContext context) {
+		return query(selection, context).select();
+	}
+
+}
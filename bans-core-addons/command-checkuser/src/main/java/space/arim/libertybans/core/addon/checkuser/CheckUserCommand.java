@@ -64,8 +64,13 @@ public final class CheckUserCommand extends AbstractSubCommandGroup {
 
 	@Override
 	public Stream<String> suggest(CmdSender sender, String arg, int argIndex) {
+		return suggest(sender, arg, argIndex, "");
+	}
+
+	@Override
+	public Stream<String> suggest(CmdSender sender, String arg, int argIndex, String prefix) {
 		if (argIndex == 0) {
-			return tabCompletion.completeOfflinePlayerNames(sender);
+			return tabCompletion.completeOfflinePlayerNames(sender, prefix);
 		}
 		return Stream.empty();
 	}
@@ -130,8 +130,13 @@ public final class LayoutPunishCommand extends AbstractSubCommandGroup {
 
 	@Override
 	public Stream<String> suggest(CmdSender sender, String arg, int argIndex) {
+		return suggest(sender, arg, argIndex, "");
+	}
+
+	@Override
+	public Stream<String> suggest(CmdSender sender, String arg, int argIndex, String prefix) {
 		if (argIndex == 0) {
-			return tabCompletion.completeOfflinePlayerNames(sender);
+			return tabCompletion.completeOfflinePlayerNames(sender, prefix);
 		}
 		if (argIndex == 1) {
 			return addon.config().tracks().keySet().stream();
@@ -25,7 +25,9 @@ import space.arim.libertybans.core.commands.AddonCommands;
 import space.arim.libertybans.core.commands.AddressPunishCommands;
 import space.arim.libertybans.core.commands.AddressUnpunishCommands;
 import space.arim.libertybans.core.commands.AdminCommands;
+import space.arim.libertybans.core.commands.AddressRangeCommands;
 import space.arim.libertybans.core.commands.AltCommands;
+import space.arim.libertybans.core.commands.ExportCommands;
 import space.arim.libertybans.core.commands.ImportCommands;
 import space.arim.libertybans.core.commands.ListCommands;
 import space.arim.libertybans.core.commands.PlayerPunishCommands;
@@ -69,6 +71,16 @@ public final class CommandsModule {
 		return importCommands;
 	}
 
+	@MultiBinding
+	public SubCommandGroup exportCommands(ExportCommands exportCommands) {
+		return exportCommands;
+	}
+
+	@MultiBinding
+	public SubCommandGroup addressRangeCommands(AddressRangeCommands addressRangeCommands) {
+		return addressRangeCommands;
+	}
+
 	@MultiBinding
 	public SubCommandGroup altCommands(AltCommands altCommands) {
 		return altCommands;
@@ -25,10 +25,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import space.arim.libertybans.api.LibertyBans;
 import space.arim.libertybans.core.addon.AddonCenter;
+import space.arim.libertybans.core.alts.AccountGraph;
+import space.arim.libertybans.core.alts.ConnectionLimiter;
 import space.arim.libertybans.core.commands.extra.TabCompletion;
 import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.database.DatabaseManager;
 import space.arim.libertybans.core.env.EnvironmentManager;
+import space.arim.libertybans.core.punish.sync.PostgresSynchronizationMessenger;
+import space.arim.libertybans.core.punish.sync.TCPSynchronizationMessenger;
+import space.arim.libertybans.core.ranges.AddressRangeBans;
+import space.arim.libertybans.core.selector.cache.ActivePunishmentIndex;
 import space.arim.libertybans.core.selector.cache.MuteCache;
 import space.arim.libertybans.core.service.AsynchronicityManager;
 import space.arim.libertybans.core.uuid.UUIDManager;
@@ -42,8 +48,14 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 	private final AsynchronicityManager asyncManager;
 	private final Configs configs;
 	private final DatabaseManager databaseManager;
+	private final TCPSynchronizationMessenger tcpSynchronization;
+	private final PostgresSynchronizationMessenger postgresSynchronization;
 	private final UUIDManager uuidManager;
 	private final MuteCache muteCache;
+	private final ActivePunishmentIndex activePunishmentIndex;
+	private final AddressRangeBans addressRangeBans;
+	private final AccountGraph accountGraph;
+	private final ConnectionLimiter connectionLimiter;
 	private final TabCompletion tabCompletion;
 	private final EnvironmentManager envManager;
 	private final AddonCenter addonCenter;
@@ -55,14 +67,25 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 
 	@Inject
 	public LifecycleGodfather(AsynchronicityManager asyncManager, Configs configs, DatabaseManager databaseManager,
-							  UUIDManager uuidManager, MuteCache muteCache, TabCompletion tabCompletion,
+							  TCPSynchronizationMessenger tcpSynchronization,
+							  PostgresSynchronizationMessenger postgresSynchronization,
+							  UUIDManager uuidManager, MuteCache muteCache,
+							  ActivePunishmentIndex activePunishmentIndex, AddressRangeBans addressRangeBans,
+							  AccountGraph accountGraph, ConnectionLimiter connectionLimiter,
+							  TabCompletion tabCompletion,
 							  EnvironmentManager envManager, AddonCenter addonCenter,
 							  LibertyBans api) {
 		this.asyncManager = asyncManager;
 		this.configs = configs;
 		this.databaseManager = databaseManager;
+		this.tcpSynchronization = tcpSynchronization;
+		this.postgresSynchronization = postgresSynchronization;
 		this.uuidManager = uuidManager;
 		this.muteCache = muteCache;
+		this.activePunishmentIndex = activePunishmentIndex;
+		this.addressRangeBans = addressRangeBans;
+		this.accountGraph = accountGraph;
+		this.connectionLimiter = connectionLimiter;
 		this.tabCompletion = tabCompletion;
 		this.envManager = envManager;
 		this.addonCenter = addonCenter;
@@ -75,8 +98,14 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 		asyncManager.startup();
 		configs.startup();
 		databaseManager.startup();
+		tcpSynchronization.startup();
+		postgresSynchronization.startup();
 		uuidManager.startup();
 		muteCache.startup();
+		activePunishmentIndex.startup();
+		addressRangeBans.startup();
+		accountGraph.startup();
+		connectionLimiter.startup();
 		tabCompletion.startup();
 		addonCenter.startup();
 		envManager.startup();
@@ -94,8 +123,14 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 		asyncManager.restart();
 		configs.restart();
 		databaseManager.restart();
+		tcpSynchronization.restart();
+		postgresSynchronization.restart();
 		uuidManager.restart();
 		muteCache.restart();
+		activePunishmentIndex.restart();
+		addressRangeBans.restart();
+		accountGraph.restart();
+		connectionLimiter.restart();
 		tabCompletion.restart();
 		addonCenter.restart();
 		envManager.startup();
@@ -104,8 +139,14 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 	@Override
 	void shutdown0() {
 		envManager.shutdown();
+		tcpSynchronization.shutdown();
+		postgresSynchronization.shutdown();
 		addonCenter.shutdown();
 		tabCompletion.shutdown();
+		connectionLimiter.shutdown();
+		accountGraph.shutdown();
+		addressRangeBans.shutdown();
+		activePunishmentIndex.shutdown();
 		muteCache.shutdown();
 		uuidManager.shutdown();
 		configs.shutdown();
@@ -29,8 +29,10 @@ import space.arim.libertybans.core.commands.usage.UsageGlossary;
 import space.arim.libertybans.core.database.execute.QueryExecutor;
 import space.arim.libertybans.core.punish.sync.EnforcingMessageReceiver;
 import space.arim.libertybans.core.punish.sync.MessageReceiver;
+import space.arim.libertybans.core.punish.sync.PostgresSynchronizationMessenger;
 import space.arim.libertybans.core.punish.sync.SQLSynchronizationMessenger;
 import space.arim.libertybans.core.punish.sync.SynchronizationMessenger;
+import space.arim.libertybans.core.punish.sync.TCPSynchronizationMessenger;
 import space.arim.libertybans.core.uuid.DynamicNameValidator;
 import space.arim.libertybans.core.uuid.NameValidator;
 import space.arim.omnibus.util.concurrent.EnhancedExecutor;
@@ -41,6 +43,7 @@ import space.arim.libertybans.core.commands.extra.ArgumentParser;
 import space.arim.libertybans.core.commands.Commands;
 import space.arim.libertybans.core.commands.CommandsCore;
 import space.arim.libertybans.core.commands.extra.StandardArgumentParser;
+import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.config.Formatter;
 import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.database.DatabaseManager;
@@ -74,8 +77,15 @@ public class PillarTwoBindModule {
 		return database;
 	}
 
-	public SynchronizationMessenger synchronizationMessenger(SQLSynchronizationMessenger synchronizationMessenger) {
-		return synchronizationMessenger;
+	public SynchronizationMessenger synchronizationMessenger(Configs configs,
+															 SQLSynchronizationMessenger sqlMessenger,
+															 TCPSynchronizationMessenger tcpMessenger,
+															 PostgresSynchronizationMessenger postgresMessenger) {
+		return switch (configs.getSqlConfig().synchronization().mode()) {
+			case NONE, ANSI_SQL -> sqlMessenger;
+			case TCP -> tcpMessenger;
+			case POSTGRES_NOTIFY -> postgresMessenger;
+		};
 	}
 
 	public MessageReceiver messageReceiver(EnforcingMessageReceiver messageReceiver) {
@@ -0,0 +1,412 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.alts;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import org.jooq.Record3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.Part;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
+
+/**
+ * In-memory bipartite graph of players and the addresses they have joined from, mirroring
+ * the addresses table. Alts are found by walking from a player to its addresses, then to the
+ * other players on those addresses. The same walk yields the strict links between accounts,
+ * which are otherwise computed by the database when enforcing STERN and STRICT punishments. <br>
+ * <br>
+ * The graph is loaded in pages at startup, and until then, {@link #isLoaded()} will return false.
+ * Thereafter, it is kept current as players join, including on other instances through
+ * synchronization packets.
+ *
+ */
+@Singleton
+public class AccountGraph implements Part {
+
+	private final Configs configs;
+	private final FactoryOfTheFuture futuresFactory;
+	private final Provider<QueryExecutor> queryExecutor;
+
+	private volatile Graph graph;
+
+	private static final int PAGE_SIZE = 10_000;
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public AccountGraph(Configs configs, FactoryOfTheFuture futuresFactory, Provider<QueryExecutor> queryExecutor) {
+		this.configs = configs;
+		this.futuresFactory = futuresFactory;
+		this.queryExecutor = queryExecutor;
+	}
+
+	@Override
+	public void startup() {
+		if (!configs.getSqlConfig().altDetectionIndex().enable()) {
+			return;
+		}
+		Graph graph = new Graph();
+		this.graph = graph;
+		loadPagesAfter(graph, null, System.nanoTime(), 0L).exceptionally((ex) -> {
+			logger.warn("Failed to load the alt detection index. Alts will be detected using the database.", ex);
+			return null;
+		});
+	}
+
+	@Override
+	public void restart() {
+		shutdown();
+		startup();
+	}
+
+	@Override
+	public void shutdown() {
+		graph = null;
+	}
+
+	/*
+	Each page is queried once the previous one is loaded, using the query executor's threads.
+	Loading stops if the graph is replaced, by shutting down or restarting, in the meantime.
+	 */
+	private CentralisedFuture<Void> loadPagesAfter(Graph graph, Record3<UUID, NetworkAddress, Instant> after,
+												   long startNanos, long rowsSoFar) {
+		if (this.graph != graph) {
+			// Shut down or restarted while loading
+			return futuresFactory.completedFuture(null);
+		}
+		return queryExecutor.get().query(SQLFunction.readOnly((context) -> {
+			var orderedAddresses = context
+					.select(ADDRESSES.UUID, ADDRESSES.ADDRESS, ADDRESSES.UPDATED)
+					.from(ADDRESSES)
+					.orderBy(ADDRESSES.UUID, ADDRESSES.ADDRESS);
+			return (after == null) ?
+					orderedAddresses.limit(PAGE_SIZE).fetch()
+					: orderedAddresses.seek(after.value1(), after.value2()).limit(PAGE_SIZE).fetch();
+		})).thenCompose((page) -> {
+			graph.load(page.map((record) -> new Edge(record.value1(), record.value2(), record.value3())));
+			long rows = rowsSoFar + page.size();
+			if (page.size() == PAGE_SIZE) {
+				return loadPagesAfter(graph, page.get(page.size() - 1), startNanos, rows);
+			}
+			graph.finishLoading();
+			logger.debug("Loaded {} recorded accounts into the alt detection index in {} ms",
+					rows, Duration.ofNanos(System.nanoTime() - startNanos).toMillis());
+			return futuresFactory.completedFuture(null);
+		});
+	}
+
+	/**
+	 * Whether the graph is loaded and can be used to find alts
+	 *
+	 * @return true if loaded
+	 */
+	public boolean isLoaded() {
+		Graph graph = this.graph;
+		return graph != null && graph.loaded;
+	}
+
+	/**
+	 * Records that a player joined from an address. Mirrors the upsert into the addresses table
+	 *
+	 * @param uuid the player's uuid
+	 * @param address the address
+	 * @param time the time of joining
+	 */
+	public void record(UUID uuid, NetworkAddress address, Instant time) {
+		Graph graph = this.graph;
+		if (graph != null) {
+			graph.put(new Edge(uuid, address, time));
+		}
+	}
+
+	/**
+	 * Removes the accounts of a player recorded at a certain time. Mirrors deletion from the
+	 * addresses table
+	 *
+	 * @param uuid the player's uuid
+	 * @param recorded the time the account was recorded
+	 */
+	public void remove(UUID uuid, Instant recorded) {
+		Graph graph = this.graph;
+		if (graph != null) {
+			graph.remove(uuid, recorded);
+		}
+	}
+
+	/**
+	 * Finds the accounts sharing an address with a player. The caller must first check
+	 * {@link #isLoaded()}
+	 *
+	 * @param uuid the player's uuid
+	 * @return the accounts of other players on the same addresses, in no particular order
+	 */
+	List<Edge> findAlts(UUID uuid) {
+		return loadedGraph().findAlts(uuid);
+	}
+
+	/**
+	 * Finds the accounts sharing an address with a player, as if the player had also joined from
+	 * the given address. The caller must first check {@link #isLoaded()}
+	 *
+	 * @param uuid the player's uuid
+	 * @param currentAddress the address the player is connecting from
+	 * @return the accounts of other players on the same addresses, in no particular order
+	 */
+	List<Edge> findAlts(UUID uuid, NetworkAddress currentAddress) {
+		return loadedGraph().findAlts(uuid, currentAddress);
+	}
+
+	/**
+	 * Finds the players who have joined from an address. The caller must first check
+	 * {@link #isLoaded()}
+	 *
+	 * @param address the address
+	 * @return the players on the address
+	 */
+	public Set<UUID> usersOf(NetworkAddress address) {
+		Set<UUID> users = new HashSet<>();
+		for (Edge edge : loadedGraph().edgesOf(address)) {
+			users.add(edge.uuid());
+		}
+		return users;
+	}
+
+	/**
+	 * Finds the addresses a player has joined from. The caller must first check
+	 * {@link #isLoaded()}
+	 *
+	 * @param uuid the player's uuid
+	 * @return the player's addresses
+	 */
+	public Set<NetworkAddress> addressesOf(UUID uuid) {
+		Set<NetworkAddress> addresses = new HashSet<>();
+		for (Edge edge : loadedGraph().edgesOf(uuid)) {
+			addresses.add(edge.address());
+		}
+		return addresses;
+	}
+
+	/**
+	 * Finds the players linked to a player by a shared address, equivalent to selecting
+	 * {@code uuid2} from the strict links view where {@code uuid1} is the given player. Like the
+	 * view, the result includes the player themselves if they have joined from any address. <br>
+	 * <br>
+	 * The caller must first check {@link #isLoaded()}
+	 *
+	 * @param uuid the player's uuid
+	 * @return the linked players
+	 */
+	public Set<UUID> linkedUsers(UUID uuid) {
+		Graph graph = loadedGraph();
+		Set<UUID> linked = new HashSet<>();
+		for (Edge ofUser : graph.edgesOf(uuid)) {
+			for (Edge ofAddress : graph.edgesOf(ofUser.address())) {
+				linked.add(ofAddress.uuid());
+			}
+		}
+		return linked;
+	}
+
+	/**
+	 * Finds the players linked to a player, as if the player had also joined from the given
+	 * address. Used while checking a connection which is not yet recorded. <br>
+	 * <br>
+	 * The caller must first check {@link #isLoaded()}
+	 *
+	 * @param uuid the player's uuid
+	 * @param currentAddress the address the player is connecting from
+	 * @return the linked players
+	 */
+	public Set<UUID> linkedUsers(UUID uuid, NetworkAddress currentAddress) {
+		Set<UUID> linked = linkedUsers(uuid);
+		linked.add(uuid);
+		for (Edge ofAddress : loadedGraph().edgesOf(currentAddress)) {
+			linked.add(ofAddress.uuid());
+		}
+		return linked;
+	}
+
+	private Graph loadedGraph() {
+		Graph graph = this.graph;
+		if (graph == null) {
+			throw new IllegalStateException("Index not enabled");
+		}
+		return graph;
+	}
+
+	/**
+	 * A row of the addresses table
+	 *
+	 * @param uuid the player's uuid
+	 * @param address the address
+	 * @param updated when the player last joined from the address
+	 */
+	record Edge(UUID uuid, NetworkAddress address, Instant updated) {
+
+		Edge {
+			Objects.requireNonNull(uuid, "uuid");
+			Objects.requireNonNull(address, "address");
+			Objects.requireNonNull(updated, "updated");
+		}
+	}
+
+	private record UserAtTime(UUID uuid, Instant recorded) { }
+
+	/**
+	 * Each edge is shared by the arrays of its player and its address. Arrays are replaced
+	 * rather than modified, so that reads need no locking. Writes are synchronized.
+	 *
+	 */
+	static final class Graph {
+
+		private final Map<UUID, Edge[]> byUser = new ConcurrentHashMap<>();
+		private final Map<NetworkAddress, Edge[]> byAddress = new ConcurrentHashMap<>();
+
+		volatile boolean loaded;
+		// Guarded by this; used to avoid resurrecting accounts deleted during loading
+		private final Set<UserAtTime> removedWhileLoading = new HashSet<>();
+
+		private static final Edge[] NO_EDGES = new Edge[0];
+
+		private static <K> Edge[] edges(Map<K, Edge[]> map, K key) {
+			return map.getOrDefault(key, NO_EDGES);
+		}
+
+		Edge[] edgesOf(UUID uuid) {
+			return edges(byUser, uuid);
+		}
+
+		Edge[] edgesOf(NetworkAddress address) {
+			return edges(byAddress, address);
+		}
+
+		List<Edge> findAlts(UUID uuid) {
+			List<Edge> alts = new ArrayList<>();
+			for (Edge ofUser : edgesOf(uuid)) {
+				for (Edge ofAddress : edgesOf(ofUser.address())) {
+					if (!ofAddress.uuid().equals(uuid)) {
+						alts.add(ofAddress);
+					}
+				}
+			}
+			return alts;
+		}
+
+		List<Edge> findAlts(UUID uuid, NetworkAddress currentAddress) {
+			List<Edge> alts = findAlts(uuid);
+			for (Edge ofUser : edgesOf(uuid)) {
+				if (ofUser.address().equals(currentAddress)) {
+					// Already included
+					return alts;
+				}
+			}
+			for (Edge ofAddress : edgesOf(currentAddress)) {
+				if (!ofAddress.uuid().equals(uuid)) {
+					alts.add(ofAddress);
+				}
+			}
+			return alts;
+		}
+
+		synchronized void load(List<Edge> page) {
+			for (Edge edge : page) {
+				if (!removedWhileLoading.contains(new UserAtTime(edge.uuid(), edge.updated()))) {
+					put(edge);
+				}
+			}
+		}
+
+		synchronized void finishLoading() {
+			removedWhileLoading.clear();
+			loaded = true;
+		}
+
+		synchronized void put(Edge edge) {
+			Edge existing = null;
+			for (Edge ofUser : edges(byUser, edge.uuid())) {
+				if (ofUser.address().equals(edge.address())) {
+					existing = ofUser;
+					break;
+				}
+			}
+			if (existing != null && !edge.updated().isAfter(existing.updated())) {
+				return;
+			}
+			byUser.put(edge.uuid(), replace(edges(byUser, edge.uuid()), existing, edge));
+			byAddress.put(edge.address(), replace(edges(byAddress, edge.address()), existing, edge));
+		}
+
+		synchronized void remove(UUID uuid, Instant recorded) {
+			if (!loaded) {
+				removedWhileLoading.add(new UserAtTime(uuid, recorded));
+			}
+			for (Edge ofUser : edges(byUser, uuid)) {
+				if (ofUser.updated().equals(recorded)) {
+					removeFrom(byUser, uuid, ofUser);
+					removeFrom(byAddress, ofUser.address(), ofUser);
+				}
+			}
+		}
+
+		private static Edge[] replace(Edge[] edges, Edge existing, Edge replacement) {
+			if (existing == null) {
+				Edge[] extended = Arrays.copyOf(edges, edges.length + 1);
+				extended[edges.length] = replacement;
+				return extended;
+			}
+			Edge[] replaced = edges.clone();
+			for (int n = 0; n < replaced.length; n++) {
+				if (replaced[n] == existing) {
+					replaced[n] = replacement;
+				}
+			}
+			return replaced;
+		}
+
+		private static <K> void removeFrom(Map<K, Edge[]> map, K key, Edge edge) {
+			map.computeIfPresent(key, (k, edges) -> {
+				Edge[] remaining = Arrays.stream(edges).filter((e) -> e != edge).toArray(Edge[]::new);
+				return (remaining.length == 0) ? null : remaining;
+			});
+		}
+	}
+
+}
@@ -44,10 +44,12 @@ import static space.arim.libertybans.core.schema.tables.LatestNames.LATEST_NAMES
 public final class AccountHistory {
 
 	private final Provider<QueryExecutor> queryExecutor;
+	private final AccountGraph accountGraph;
 
 	@Inject
-	public AccountHistory(Provider<QueryExecutor> queryExecutor) {
+	public AccountHistory(Provider<QueryExecutor> queryExecutor, AccountGraph accountGraph) {
 		this.queryExecutor = queryExecutor;
+		this.accountGraph = accountGraph;
 	}
 
 	public KnownAccount newAccount(UUID uuid, String username, NetworkAddress address, Instant recorded) {
@@ -107,7 +109,11 @@ public final class AccountHistory {
 					.where(ADDRESSES.UUID.eq(user))
 					.and(ADDRESSES.UPDATED.eq(recorded))
 					.execute();
-			return updateCount != 0;
+			if (updateCount == 0) {
+				return false;
+			}
+			accountGraph.remove(user, recorded);
+			return true;
 		});
 	}
 
@@ -37,20 +37,22 @@ import space.arim.libertybans.core.database.sql.EndTimeCondition;
 import space.arim.libertybans.core.database.sql.TableForType;
 import space.arim.libertybans.core.database.sql.VictimCondition;
 import space.arim.libertybans.core.env.UUIDAndAddress;
+import space.arim.libertybans.core.selector.cache.ActivePunishmentIndex;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
-import java.util.function.Predicate;
 
 import static org.jooq.impl.DSL.field;
 import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
@@ -61,12 +63,17 @@ public class AltDetection {
 	private final Configs configs;
 	private final Provider<QueryExecutor> queryExecutor;
 	private final Time time;
+	private final AccountGraph accountGraph;
+	private final ActivePunishmentIndex punishmentIndex;
 
 	@Inject
-	public AltDetection(Configs configs, Provider<QueryExecutor> queryExecutor, Time time) {
+	public AltDetection(Configs configs, Provider<QueryExecutor> queryExecutor, Time time,
+						AccountGraph accountGraph, ActivePunishmentIndex punishmentIndex) {
 		this.configs = configs;
 		this.queryExecutor = queryExecutor;
 		this.time = time;
+		this.accountGraph = accountGraph;
+		this.punishmentIndex = punishmentIndex;
 	}
 
 	/**
@@ -85,6 +92,9 @@ public class AltDetection {
 	 * @return the detected alts, sorted in order of oldest first
 	 */
 	private List<DetectedAlt> detectAlts(DSLContext context, AltDetectionQuery query, WhichAlts whichAlts) {
+		if (accountGraph.isLoaded()) {
+			return detectAltsFromGraph(context, query, whichAlts);
+		}
 		// This implementation relies on strict detection including normal detection
 		// The detection kind is inferred while processing the results
 		final Instant currentTime = time.currentTimestamp();
@@ -146,15 +156,90 @@ public class AltDetection {
 							scannedTypes
 					);
 				});
-		Predicate<DetectedAlt> removeIf = switch (whichAlts) {
-			case ALL_ALTS -> (alt) -> false;
-			case BANNED_OR_MUTED_ALTS -> (alt) -> alt.scannedTypes().isEmpty();
-			case BANNED_ALTS -> (alt) -> !alt.scannedTypes().contains(PunishmentType.BAN);
-		};
-		detectedAlts.removeIf(removeIf);
+		detectedAlts.removeIf((alt) -> !isIncluded(whichAlts, alt.scannedTypes()));
 		return detectedAlts;
 	}
 
+	private List<DetectedAlt> detectAltsFromGraph(DSLContext context, AltDetectionQuery query, WhichAlts whichAlts) {
+		final Instant currentTime = time.currentTimestamp();
+		List<AccountGraph.Edge> edges = accountGraph.findAlts(query.uuid(), query.address());
+		// Filter non-expired alts
+		edges.removeIf((edge) -> !AccountExpirationCondition.isNotExpired(configs, currentTime, edge.updated()));
+		if (edges.isEmpty()) {
+			return new ArrayList<>();
+		}
+		Set<UUID> candidates = new HashSet<>();
+		for (AccountGraph.Edge edge : edges) {
+			candidates.add(edge.uuid());
+		}
+		// Determine which candidates have each type
+		Map<PunishmentType, Set<UUID>> punishedByType = new EnumMap<>(PunishmentType.class);
+		for (PunishmentType type : query.punishmentTypes()) {
+			Set<UUID> punished = new HashSet<>();
+			if ((type == PunishmentType.BAN || type == PunishmentType.MUTE) && punishmentIndex.isLoaded()) {
+				for (UUID candidate : candidates) {
+					if (punishmentIndex.hasActive(type, candidate, currentTime)) {
+						punished.add(candidate);
+					}
+				}
+			} else {
+				var simpleView = new TableForType(type).simpleView();
+				punished.addAll(context
+						.selectDistinct(simpleView.victimUuid())
+						.from(simpleView.table())
+						.where(new VictimCondition(simpleView).matchesAnyUUID(candidates))
+						.and(new EndTimeCondition(simpleView).isNotExpired(currentTime))
+						.fetch(simpleView.victimUuid()));
+			}
+			punishedByType.put(type, punished);
+		}
+		record Included(AccountGraph.Edge edge, Set<PunishmentType> scannedTypes) { }
+		List<Included> included = new ArrayList<>(edges.size());
+		Set<UUID> includedUsers = new HashSet<>();
+		for (AccountGraph.Edge edge : edges) {
+			Set<PunishmentType> scannedTypes = EnumSet.noneOf(PunishmentType.class);
+			punishedByType.forEach((type, punished) -> {
+				if (punished.contains(edge.uuid())) {
+					scannedTypes.add(type);
+				}
+			});
+			if (isIncluded(whichAlts, scannedTypes)) {
+				included.add(new Included(edge, scannedTypes));
+				includedUsers.add(edge.uuid());
+			}
+		}
+		if (included.isEmpty()) {
+			return new ArrayList<>();
+		}
+		// Pair with latest names
+		Map<UUID, String> latestNames = context
+				.select(LATEST_NAMES.UUID, LATEST_NAMES.NAME)
+				.from(LATEST_NAMES)
+				.where(LATEST_NAMES.UUID.in(includedUsers))
+				.fetchMap(LATEST_NAMES.UUID, LATEST_NAMES.NAME);
+		// Order with oldest first
+		included.sort(Comparator.comparing((Included alt) -> alt.edge().updated()));
+		List<DetectedAlt> detectedAlts = new ArrayList<>(included.size());
+		for (Included alt : included) {
+			AccountGraph.Edge edge = alt.edge();
+			// If this alt can be detected 'normally', then the address will be the same
+			DetectionKind detectionKind = (query.address().equals(edge.address())) ? DetectionKind.NORMAL : DetectionKind.STRICT;
+			detectedAlts.add(new DetectedAlt(
+					edge.uuid(), latestNames.get(edge.uuid()), edge.address(), edge.updated(),
+					detectionKind, alt.scannedTypes()
+			));
+		}
+		return detectedAlts;
+	}
+
+	private static boolean isIncluded(WhichAlts whichAlts, Set<PunishmentType> scannedTypes) {
+		return switch (whichAlts) {
+			case ALL_ALTS -> true;
+			case BANNED_OR_MUTED_ALTS -> !scannedTypes.isEmpty();
+			case BANNED_ALTS -> scannedTypes.contains(PunishmentType.BAN);
+		};
+	}
+
 	record AltQuery(UUID uuid, NetworkAddress address,
 					Set<PunishmentType> punishmentTypes, AltDetection impl) implements AltDetectionQuery {
 
@@ -30,7 +30,9 @@ import space.arim.dazzleconf.annote.NumericRange;
 		"Limits players connecting from the same IP address.",
 		"",
 		"The limiter works by counting the amount of joins from a given IP address within a recent timespan.",
-		"Thus, it is not an absolute limit, but a limit on the rate of joins."
+		"Thus, it is not an absolute limit, but a limit on the rate of joins.",
+		"Recent joins are counted in memory, and at startup, they are restored from the join history in the database.",
+		"When running multiple instances with synchronization enabled, joins are shared between instances."
 })
 public interface ConnectionLimitConfig {
 
@@ -50,6 +52,21 @@ public interface ConnectionLimitConfig {
 	@NumericRange(min = 1)
 	long durationSeconds();
 
+	@ConfKey("ipv4-prefix-length")
+	@ConfComments({"Connections from addresses sharing this many leading bits are counted together.",
+			"The default of 32 counts each IPv4 address separately. For example, 24 would count each /24 subnet."})
+	@ConfDefault.DefaultInteger(32)
+	@NumericRange(min = 0, max = 32)
+	int ipv4PrefixLength();
+
+	@ConfKey("ipv6-prefix-length")
+	@ConfComments({"The same as ipv4-prefix-length, but for IPv6 addresses.",
+			"The default of 128 counts each IPv6 address separately. Since IPv6 users are commonly",
+			"assigned an entire /64 subnet, a value of 64 may be more useful."})
+	@ConfDefault.DefaultInteger(128)
+	@NumericRange(min = 0, max = 128)
+	int ipv6PrefixLength();
+
 	@ConfKey("denial-message")
 	@ConfComments("The message when a player is denied from joining due to the limit")
 	@ConfDefault.DefaultString("There have been too many connections from your IP address recently")
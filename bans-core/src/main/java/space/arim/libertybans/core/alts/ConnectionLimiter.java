@@ -1,6 +1,6 @@
 /*
  * LibertyBans
- * Copyright © 2022 Anand Beh
+ * Copyright © 2023 Anand Beh
  *
  * LibertyBans is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as
@@ -19,42 +19,248 @@
 
 package space.arim.libertybans.core.alts;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
 import net.kyori.adventure.text.Component;
 import org.checkerframework.checker.nullness.qual.Nullable;
-import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.Part;
 import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.punish.sync.PacketConnection;
+import space.arim.libertybans.core.punish.sync.SynchronizationMessenger;
+import space.arim.libertybans.core.punish.sync.SynchronizationProtocol;
+import space.arim.libertybans.core.ranges.AddressRange;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
 
 import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
 
-public final class ConnectionLimiter {
+/**
+ * Counts recent connections per address (or per subnet) in memory. Connections
+ * made on other instances are recorded through synchronization packets. <br>
+ * <br>
+ * At startup, the counts are seeded from the addresses table, so that connections made
+ * shortly before a restart still count against the limit. Until seeding completes, only
+ * connections made since startup are counted. <br>
+ * <br>
+ * The same packets keep the {@link AccountGraph} of other instances current, so they
+ * are dispatched if either feature is enabled.
+ *
+ */
+@Singleton
+public final class ConnectionLimiter implements Part {
 
 	private final Configs configs;
+	private final Provider<QueryExecutor> queryExecutor;
+	private final Time time;
+	private final SynchronizationProtocol synchronizationProtocol;
+	private final Provider<SynchronizationMessenger> synchronizationMessenger;
+
+	private final Cache<NetworkAddress, RecentConnections> recentConnections = Caffeine.newBuilder()
+			.maximumSize(100_000L)
+			.expireAfter(new WindowExpiry())
+			.build();
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
-	public ConnectionLimiter(Configs configs) {
+	public ConnectionLimiter(Configs configs, Provider<QueryExecutor> queryExecutor, Time time,
+							 SynchronizationProtocol synchronizationProtocol,
+							 Provider<SynchronizationMessenger> synchronizationMessenger) {
 		this.configs = configs;
+		this.queryExecutor = queryExecutor;
+		this.time = time;
+		this.synchronizationProtocol = synchronizationProtocol;
+		this.synchronizationMessenger = synchronizationMessenger;
 	}
 
-	public @Nullable Component hasExceededLimit(DSLContext context, NetworkAddress address,
-												Instant currentTime) {
-		var config = configs.getMainConfig().enforcement().connectionLimiter();
-		if (config.enable()) {
-			Instant timeBeforeDuration = currentTime.minusSeconds(config.durationSeconds());
-			int count = context
-					.selectCount()
+	@Override
+	public void startup() {
+		if (!config().enable()) {
+			return;
+		}
+		seedRecentConnections().exceptionally((ex) -> {
+			logger.warn("Failed to seed the connection limiter. Only connections made since startup will be counted.", ex);
+			return null;
+		});
+	}
+
+	/**
+	 * Counts the connections recorded in the addresses table within the configured duration.
+	 * This is done at startup, so that connections made shortly before a restart still count
+	 *
+	 * @return a future completed once seeded
+	 */
+	public CentralisedFuture<Void> seedRecentConnections() {
+		ConnectionLimitConfig config = config();
+		Instant cutoff = time.currentTimestamp().minusSeconds(config.durationSeconds());
+		return queryExecutor.get().query(SQLFunction.readOnly((context) -> {
+			return context
+					.select(ADDRESSES.UUID, ADDRESSES.ADDRESS, ADDRESSES.UPDATED)
 					.from(ADDRESSES)
-					.where(ADDRESSES.ADDRESS.eq(address))
-					.and(ADDRESSES.UPDATED.greaterOrEqual(timeBeforeDuration))
-					.fetchSingle()
-					.value1();
-			if (count > config.limit()) {
-				return config.message();
+					.where(ADDRESSES.UPDATED.greaterOrEqual(cutoff))
+					.fetch();
+		})).thenAccept((recentAccounts) -> {
+			// Connections recorded in the meantime are merged, since only the latest time per player is kept
+			for (var account : recentAccounts) {
+				record(config, account.value1(), account.value2(), account.value3());
 			}
+			logger.debug("Seeded the connection limiter with {} recent connections", recentAccounts.size());
+		});
+	}
+
+	@Override
+	public void restart() {
+		shutdown();
+		startup();
+	}
+
+	@Override
+	public void shutdown() {
+		recentConnections.invalidateAll();
+	}
+
+	private ConnectionLimitConfig config() {
+		return configs.getMainConfig().enforcement().connectionLimiter();
+	}
+
+	/**
+	 * Records a connection made to this instance and determines whether the limit is exceeded
+	 *
+	 * @param uuid the uuid of the connecting player
+	 * @param address the address of the connecting player
+	 * @param currentTime the current time
+	 * @return the denial message if the limit is exceeded, otherwise null
+	 */
+	public @Nullable Component recordConnection(UUID uuid, NetworkAddress address, Instant currentTime) {
+		ConnectionLimitConfig config = config();
+		if (!config.enable()) {
+			return null;
+		}
+		int count = record(config, uuid, address, currentTime);
+		if (count > config.limit()) {
+			return config.message();
 		}
 		return null;
 	}
+
+	/**
+	 * Shares a connection made to this instance with other instances, if synchronization is
+	 * enabled and either the connection limiter or the alt detection index needs it. This is
+	 * called for every connection, including those of banned players.
+	 *
+	 * @param uuid the uuid of the connecting player
+	 * @param address the address of the connecting player
+	 * @param currentTime the current time
+	 */
+	public void shareConnection(UUID uuid, NetworkAddress address, Instant currentTime) {
+		SqlConfig sqlConfig = configs.getSqlConfig();
+		if (!sqlConfig.synchronization().enabled()
+				|| !config().enable() && !sqlConfig.altDetectionIndex().enable()) {
+			return;
+		}
+		byte[] message = synchronizationProtocol.serializeMessage(new PacketConnection(uuid, address, currentTime));
+		synchronizationMessenger.get().dispatch(message).exceptionally((ex) -> {
+			logger.warn("Failed to dispatch connection to other instances", ex);
+			return null;
+		});
+	}
+
+	/**
+	 * Records a connection which was made to another instance
+	 *
+	 * @param uuid the uuid of the connecting player
+	 * @param address the address of the connecting player
+	 * @param time the time of the connection
+	 */
+	public void recordRemoteConnection(UUID uuid, NetworkAddress address, Instant time) {
+		ConnectionLimitConfig config = config();
+		if (config.enable()) {
+			record(config, uuid, address, time);
+		}
+	}
+
+	private int record(ConnectionLimitConfig config, UUID uuid, NetworkAddress address, Instant time) {
+		NetworkAddress key = maskAddress(address, config);
+		Instant cutoff = time.minusSeconds(config.durationSeconds());
+		// Compute on every connection so that the expiry is refreshed
+		return recentConnections.asMap()
+				.compute(key, (k, existing) -> (existing == null) ? new RecentConnections() : existing)
+				.record(uuid, time, cutoff, config.limit());
+	}
+
+	static NetworkAddress maskAddress(NetworkAddress address, ConnectionLimitConfig config) {
+		int prefixLength = (address.getRawAddress().length == 4) ? config.ipv4PrefixLength() : config.ipv6PrefixLength();
+		return AddressRange.of(address, prefixLength).address();
+	}
+
+	/**
+	 * The latest connection time for each player recently connecting from an address
+	 *
+	 */
+	private static final class RecentConnections {
+
+		private final Map<UUID, Instant> connections = new LinkedHashMap<>();
+
+		synchronized int record(UUID uuid, Instant time, Instant cutoff, int limit) {
+			Instant previous = connections.get(uuid);
+			if (previous == null || time.isAfter(previous)) {
+				// Reinsert so that iteration order follows the latest connection time
+				connections.remove(uuid);
+				connections.put(uuid, time);
+			}
+			int retained = connections.size();
+			for (Iterator<Instant> iterator = connections.values().iterator(); iterator.hasNext(); ) {
+				Instant connectionTime = iterator.next();
+				if (connectionTime.isBefore(cutoff) || retained > limit + 1) {
+					// Outdated, or not needed to determine whether the limit is exceeded
+					iterator.remove();
+					retained--;
+				}
+			}
+			return retained;
+		}
+	}
+
+	private final class WindowExpiry implements Expiry<NetworkAddress, RecentConnections> {
+
+		private long windowNanos() {
+			return TimeUnit.SECONDS.toNanos(config().durationSeconds());
+		}
+
+		@Override
+		public long expireAfterCreate(NetworkAddress key, RecentConnections value, long currentTime) {
+			return windowNanos();
+		}
+
+		@Override
+		public long expireAfterUpdate(NetworkAddress key, RecentConnections value,
+									  long currentTime, long currentDuration) {
+			return windowNanos();
+		}
+
+		@Override
+		public long expireAfterRead(NetworkAddress key, RecentConnections value,
+									long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+
 }
@@ -79,11 +79,16 @@ public final class AccountHistoryCommands extends AbstractSubCommandGroup {
 
 	@Override
 	public Stream<String> suggest(CmdSender sender, String arg, int argIndex) {
+		return suggest(sender, arg, argIndex, "");
+	}
+
+	@Override
+	public Stream<String> suggest(CmdSender sender, String arg, int argIndex, String prefix) {
 		switch (argIndex) {
 		case 0:
 			return Stream.of("delete", "list").filter((subCmd) -> hasPermission(sender, subCmd));
 		case 1:
-			return tabCompletion.completeOfflinePlayerNames(sender);
+			return tabCompletion.completeOfflinePlayerNames(sender, prefix);
 		default:
 			break;
 		}
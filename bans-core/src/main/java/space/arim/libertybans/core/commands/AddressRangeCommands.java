@@ -0,0 +1,175 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.commands;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.Nullable;
+import space.arim.api.jsonchat.adventure.util.ComponentText;
+import space.arim.libertybans.core.commands.extra.AddressParser;
+import space.arim.libertybans.core.config.InternalFormatter;
+import space.arim.libertybans.core.env.CmdSender;
+import space.arim.libertybans.core.ranges.AddressRange;
+import space.arim.libertybans.core.ranges.AddressRangeBans;
+import space.arim.libertybans.core.ranges.AddressRangesSection;
+import space.arim.omnibus.util.concurrent.ReactionStage;
+
+import java.util.Locale;
+import java.util.stream.Stream;
+
+@Singleton
+public final class AddressRangeCommands extends AbstractSubCommandGroup {
+
+	private final AddressRangeBans addressRangeBans;
+	private final InternalFormatter formatter;
+
+	@Inject
+	public AddressRangeCommands(Dependencies dependencies, AddressRangeBans addressRangeBans,
+								InternalFormatter formatter) {
+		super(dependencies, "range");
+		this.addressRangeBans = addressRangeBans;
+		this.formatter = formatter;
+	}
+
+	private AddressRangesSection rangesConfig() {
+		return messages().addressRanges();
+	}
+
+	@Override
+	public CommandExecution execute(CmdSender sender, CommandPackage command, String arg) {
+		return new Execution(sender, command);
+	}
+
+	@Override
+	public Stream<String> suggest(CmdSender sender, String arg, int argIndex) {
+		if (argIndex == 0) {
+			return Stream.of("ban", "unban", "list");
+		}
+		return Stream.empty();
+	}
+
+	@Override
+	public boolean hasTabCompletePermission(CmdSender sender, String arg) {
+		return hasPermission(sender);
+	}
+
+	private boolean hasPermission(CmdSender sender) {
+		return sender.hasPermission("libertybans.admin.range");
+	}
+
+	private class Execution extends AbstractCommandExecution {
+
+		Execution(CmdSender sender, CommandPackage command) {
+			super(sender, command);
+		}
+
+		@Override
+		public @Nullable ReactionStage<Void> execute() {
+			if (!hasPermission(sender())) {
+				sender().sendMessage(messages().admin().noPermission());
+				return null;
+			}
+			if (!command().hasNext()) {
+				sender().sendMessage(rangesConfig().usage());
+				return null;
+			}
+			String firstArg = command().next();
+			switch (firstArg.toLowerCase(Locale.ROOT)) {
+			case "ban":
+				return banCmd();
+			case "unban":
+				return unbanCmd();
+			case "list":
+				return listCmd();
+			default:
+				sender().sendMessage(rangesConfig().usage());
+				break;
+			}
+			return null;
+		}
+
+		private @Nullable AddressRange parseRange(Component usage) {
+			if (!command().hasNext()) {
+				sender().sendMessage(usage);
+				return null;
+			}
+			String rangeArg = command().next();
+			AddressRange range = AddressParser.parseRange(rangeArg);
+			if (range == null) {
+				sender().sendMessage(rangesConfig().invalidRange().replaceText("%TARGET%", rangeArg));
+			}
+			return range;
+		}
+
+		private ReactionStage<Void> banCmd() {
+			AddressRange range = parseRange(rangesConfig().banUsage());
+			if (range == null) {
+				return completedFuture(null);
+			}
+			String reason = (command().hasNext()) ? command().allRemaining() : config().reasons().defaultReason();
+			return addressRangeBans.banRange(range, reason, sender().getOperator()).thenAccept((ban) -> {
+				if (ban == null) {
+					sender().sendMessage(rangesConfig().alreadyBanned().replaceText("%RANGE%", range.toString()));
+				} else {
+					sender().sendMessage(rangesConfig().banned()
+							.replaceText("%RANGE%", range.toString())
+							.replaceText("%REASON%", reason));
+				}
+			});
+		}
+
+		private ReactionStage<Void> unbanCmd() {
+			AddressRange range = parseRange(rangesConfig().unbanUsage());
+			if (range == null) {
+				return completedFuture(null);
+			}
+			return addressRangeBans.unbanRange(range).thenAccept((unbanned) -> {
+				if (unbanned) {
+					sender().sendMessage(rangesConfig().unbanned().replaceText("%RANGE%", range.toString()));
+				} else {
+					sender().sendMessage(rangesConfig().notBanned().replaceText("%RANGE%", range.toString()));
+				}
+			});
+		}
+
+		private ReactionStage<Void> listCmd() {
+			return addressRangeBans.listBans().thenAccept((bans) -> {
+				if (bans.isEmpty()) {
+					sender().sendMessage(rangesConfig().listEmpty());
+					return;
+				}
+				ComponentText layout = rangesConfig().listLayout();
+				sender().sendMessage(Component.text()
+						.append(rangesConfig().listHeader())
+						.append(Component.newline())
+						.append(Component.join(
+								Component.newline(),
+								bans.stream()
+										.map((ban) -> layout
+												.replaceText("%RANGE%", ban.range().toString())
+												.replaceText("%REASON%", ban.reason())
+												.replaceText("%DATE%", formatter.formatAbsoluteDate(ban.start())))
+										.toArray(ComponentText[]::new)
+						)));
+			});
+		}
+	}
+}
@@ -29,6 +29,7 @@ import space.arim.libertybans.core.addon.AddonCenter;
 import space.arim.libertybans.core.config.MessagesConfig;
 import space.arim.libertybans.core.env.CmdSender;
 import space.arim.libertybans.core.env.Environment;
+import space.arim.libertybans.core.selector.QueryPlanExplainer;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.ReactionStage;
 
@@ -44,15 +45,18 @@ public final class AdminCommands extends AbstractSubCommandGroup {
 	private final Provider<Environment> environment;
 	private final AddonCenter addonCenter;
 	private final PlatformHandle envHandle;
+	private final QueryPlanExplainer queryPlanExplainer;
 
 	@Inject
 	public AdminCommands(Dependencies dependencies, Provider<BaseFoundation> foundation,
-						 Provider<Environment> environment, AddonCenter addonCenter, PlatformHandle envHandle) {
+						 Provider<Environment> environment, AddonCenter addonCenter, PlatformHandle envHandle,
+						 QueryPlanExplainer queryPlanExplainer) {
 		super(dependencies, Arrays.stream(Type.values()).map(Type::toString));
 		this.foundation = foundation;
 		this.environment = environment;
 		this.addonCenter = addonCenter;
 		this.envHandle = envHandle;
+		this.queryPlanExplainer = queryPlanExplainer;
 	}
 
 	private MessagesConfig.Admin adminConfig() {
@@ -66,6 +70,9 @@ public final class AdminCommands extends AbstractSubCommandGroup {
 
 	@Override
 	public Stream<String> suggest(CmdSender sender, String arg, int argIndex) {
+		if (argIndex == 0 && Type.fromString(arg) == Type.DEBUG) {
+			return Stream.of("explain");
+		}
 		return Stream.empty();
 	}
 
@@ -115,6 +122,9 @@ public final class AdminCommands extends AbstractSubCommandGroup {
 			case RELOAD:
 				return reloadCmd();
 			case DEBUG:
+				if (command().hasNext() && command().next().equalsIgnoreCase("explain")) {
+					return explainCmd();
+				}
 				debugCmd();
 				break;
 			default:
@@ -158,6 +168,16 @@ public final class AdminCommands extends AbstractSubCommandGroup {
 					"Platform Version: " + envHandle.getPlatformVersion()); // TODO add more debug information
 			debugInfo.forEach(sender()::sendLiteralMessage);
 		}
+
+		private ReactionStage<Void> explainCmd() {
+			sender().sendMessage(adminConfig().ellipses());
+			return queryPlanExplainer.explainSelectorQueries().thenAccept((explainedQueries) -> {
+				for (QueryPlanExplainer.ExplainedQuery explainedQuery : explainedQueries) {
+					sender().sendLiteralMessage("Query plan for: " + explainedQuery.description());
+					explainedQuery.plan().lines().forEach(sender()::sendLiteralMessage);
+				}
+			});
+		}
 		
 	}
 
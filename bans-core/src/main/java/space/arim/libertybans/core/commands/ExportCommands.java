@@ -0,0 +1,94 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.commands;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import space.arim.libertybans.core.config.MessagesConfig;
+import space.arim.libertybans.core.env.CmdSender;
+import space.arim.libertybans.core.importing.ArchiveExporter;
+import space.arim.omnibus.util.concurrent.ReactionStage;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+@Singleton
+public final class ExportCommands extends AbstractSubCommandGroup {
+
+	private final ArchiveExporter exporter;
+	private final AtomicBoolean isExporting = new AtomicBoolean();
+
+	@Inject
+	public ExportCommands(Dependencies dependencies, ArchiveExporter exporter) {
+		super(dependencies, "export");
+		this.exporter = exporter;
+	}
+
+	@Override
+	public CommandExecution execute(CmdSender sender, CommandPackage command, String arg) {
+		return new Execution(sender, command);
+	}
+
+	@Override
+	public Stream<String> suggest(CmdSender sender, String arg, int argIndex) {
+		return Stream.empty();
+	}
+
+	@Override
+	public boolean hasTabCompletePermission(CmdSender sender, String arg) {
+		return hasPermission(sender);
+	}
+
+	private boolean hasPermission(CmdSender sender) {
+		return sender.hasPermission("libertybans.admin.export");
+	}
+
+	private class Execution extends AbstractCommandExecution {
+
+		Execution(CmdSender sender, CommandPackage command) {
+			super(sender, command);
+		}
+
+		@Override
+		public ReactionStage<Void> execute() {
+			if (!hasPermission(sender())) {
+				sender().sendMessage(messages().admin().noPermission());
+				return null;
+			}
+			if (!isExporting.compareAndSet(false, true)) {
+				sender().sendMessage(exportMessages().inProgress());
+				return null;
+			}
+			sender().sendMessage(exportMessages().started());
+			return exporter.performExport().thenAccept((success) -> {
+				if (success) {
+					sender().sendMessage(exportMessages().complete());
+				} else {
+					sender().sendMessage(exportMessages().failure());
+				}
+			}).whenComplete((ignore, ex) -> isExporting.set(false));
+		}
+
+		private MessagesConfig.Admin.Exporting exportMessages() {
+			return messages().admin().exporting();
+		}
+
+	}
+
+}
@@ -25,12 +25,14 @@ import jakarta.inject.Singleton;
 import space.arim.libertybans.core.config.MessagesConfig;
 import space.arim.libertybans.core.env.CmdSender;
 import space.arim.libertybans.core.importing.AdvancedBanImportSource;
+import space.arim.libertybans.core.importing.ArchiveImportSource;
 import space.arim.libertybans.core.importing.BanManagerImportSource;
 import space.arim.libertybans.core.importing.ImportExecutor;
 import space.arim.libertybans.core.importing.ImportSource;
 import space.arim.libertybans.core.importing.ImportStatistics;
 import space.arim.libertybans.core.importing.LiteBansImportSource;
 import space.arim.libertybans.core.importing.PlatformImportSource;
+import space.arim.libertybans.core.importing.ResumableImportSource;
 import space.arim.libertybans.core.importing.SelfImportProcess;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.ReactionStage;
@@ -55,6 +57,7 @@ public final class ImportCommands extends AbstractSubCommandGroup {
 						  Provider<BanManagerImportSource> banManagerImportSourceProvider,
 						  Provider<LiteBansImportSource> liteBansImportSourceProvider,
 						  Provider<PlatformImportSource> platformImportSourceProvider,
+						  Provider<ArchiveImportSource> archiveImportSourceProvider,
 						  SelfImportProcess selfImportProcess) {
 		super(dependencies, "import");
 		this.executor = executor;
@@ -62,7 +65,8 @@ public final class ImportCommands extends AbstractSubCommandGroup {
 				PluginSourceType.ADVANCEDBAN, advancedBanImportSourceProvider,
 				PluginSourceType.BANMANAGER, banManagerImportSourceProvider,
 				PluginSourceType.LITEBANS, liteBansImportSourceProvider,
-				PluginSourceType.VANILLA, platformImportSourceProvider);
+				PluginSourceType.VANILLA, platformImportSourceProvider,
+				PluginSourceType.ARCHIVE, archiveImportSourceProvider);
 		this.selfImportProcess = selfImportProcess;
 	}
 
@@ -71,6 +75,7 @@ public final class ImportCommands extends AbstractSubCommandGroup {
 		BANMANAGER,
 		LITEBANS,
 		VANILLA,
+		ARCHIVE,
 		SELF
 	}
 
@@ -85,6 +90,9 @@ public final class ImportCommands extends AbstractSubCommandGroup {
 			return Stream.of(PluginSourceType.values())
 					.map((pluginSourceType) -> pluginSourceType.name().toLowerCase(Locale.ROOT));
 		}
+		if (argIndex == 1) {
+			return Stream.of("resume");
+		}
 		return Stream.empty();
 	}
 
@@ -121,6 +129,22 @@ public final class ImportCommands extends AbstractSubCommandGroup {
 				sender().sendMessage(importMessages().usage());
 				return null;
 			}
+			boolean resume = false;
+			if (command().hasNext()) {
+				if (!command().next().equalsIgnoreCase("resume")) {
+					sender().sendMessage(importMessages().usage());
+					return null;
+				}
+				resume = true;
+			}
+			ImportSource importSource = null;
+			if (sourceType != PluginSourceType.SELF) {
+				importSource = importSourceProviders.get(sourceType).get();
+			}
+			if (resume && !(importSource instanceof ResumableImportSource)) {
+				sender().sendMessage(importMessages().resumeUnsupported());
+				return null;
+			}
 			if (!isImporting.compareAndSet(false, true)) {
 				sender().sendMessage(importMessages().inProgress());
 				return null;
@@ -129,8 +153,10 @@ public final class ImportCommands extends AbstractSubCommandGroup {
 			if (sourceType == PluginSourceType.SELF) {
 				importFuture = selfImportProcess.transferAllData();
 			} else {
-				ImportSource importSource = importSourceProviders.get(sourceType).get();
-				importFuture = executor.performImport(importSource).thenAccept((ImportStatistics statistics) -> {
+				CentralisedFuture<ImportStatistics> statisticsFuture = (resume) ?
+						executor.resumeImport((ResumableImportSource) importSource)
+						: executor.performImport(importSource);
+				importFuture = statisticsFuture.thenAccept((ImportStatistics statistics) -> {
 					if (statistics.success()) {
 						sender().sendMessage(importMessages().complete());
 						sender().sendLiteralMessage(statistics.toString());
@@ -43,6 +43,7 @@ import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.config.ListSection;
 import space.arim.libertybans.core.config.ListSection.ListType;
 import space.arim.libertybans.core.env.CmdSender;
+import space.arim.libertybans.core.selector.cache.PunishmentCountCache;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.ReactionStage;
 
@@ -62,14 +63,17 @@ public class ListCommands extends AbstractSubCommandGroup {
 	private final PunishmentSelector selector;
 	private final InternalFormatter formatter;
 	private final TabCompletion tabCompletion;
+	private final PunishmentCountCache countCache;
+	private final PageCursors pageCursors = new PageCursors();
 
 	@Inject
 	public ListCommands(Dependencies dependencies, PunishmentSelector selector,
-						InternalFormatter formatter, TabCompletion tabCompletion) {
+						InternalFormatter formatter, TabCompletion tabCompletion, PunishmentCountCache countCache) {
 		super(dependencies, "banlist", "mutelist", "history", "warns", "blame");
 		this.selector = selector;
 		this.formatter = formatter;
 		this.tabCompletion = tabCompletion;
+		this.countCache = countCache;
 	}
 
 	@Override
@@ -79,10 +83,15 @@ public class ListCommands extends AbstractSubCommandGroup {
 
 	@Override
 	public Stream<String> suggest(CmdSender sender, String arg, int argIndex) {
+		return suggest(sender, arg, argIndex, "");
+	}
+
+	@Override
+	public Stream<String> suggest(CmdSender sender, String arg, int argIndex, String prefix) {
 		if (argIndex == 0) {
 			ListType listType = ListType.fromString(arg);
 			if (listType.requiresTarget()) {
-				return tabCompletion.completeOfflinePlayerNames(sender);
+				return tabCompletion.completeOfflinePlayerNames(sender, prefix);
 			}
 		}
 		return Stream.empty();
@@ -196,12 +205,21 @@ public class ListCommands extends AbstractSubCommandGroup {
 				return completedFuture(null);
 			}
 			int perPage = section.perPage();
+			selectionBuilder.scopes(scopeSelection);
+			PageCursors.Listing listing = new PageCursors.Listing(
+					sender().getOperator(), selectionBuilder.build(), perPage
+			);
+			// Seek past the nearest earlier page whose end is known, instead of skipping every previous page
+			PageCursors.Position position = pageCursors.position(listing, selectedPage);
+			PageCursors.Cursor after = position.after();
+			if (after != null) {
+				selectionBuilder.seekBefore(after.startTime(), after.id() - 1L);
+			}
 			SelectionBase selection = selectionBuilder
-					.scopes(scopeSelection)
-					.skipFirstRetrieved(perPage * (selectedPage - 1))
+					.skipFirstRetrieved(position.skipCount())
 					.limitToRetrieve(perPage)
 					.build();
-			return continueWithPageAndSelection(selection, selectedPage);
+			return continueWithPageAndSelection(selection, selectedPage, listing);
 		}
 
 		private int parsePage() {
@@ -217,17 +235,23 @@ public class ListCommands extends AbstractSubCommandGroup {
 			return page;
 		}
 
-		private ReactionStage<Void> continueWithPageAndSelection(SelectionBase selection, int page) {
-			return selection.getAllSpecificPunishments().thenCompose((punishments) -> {
-				return showPunishmentsOnPage(punishments, page);
-			});
+		private ReactionStage<Void> continueWithPageAndSelection(SelectionBase selection, int page,
+																 PageCursors.Listing listing) {
+			// The total is counted over the whole listing, and cached, so that later pages need no count query
+			return selection.getAllSpecificPunishments().thenCombine(
+					countCache.count(listing.selection()), (punishments, count) -> {
+						pageCursors.recordPage(listing, page, punishments);
+						int maxPage = (count + listing.perPage() - 1) / listing.perPage();
+						return showPunishmentsOnPage(punishments, page, maxPage);
+					}
+			).thenCompose(Function.identity());
 		}
 
 		private String replaceTargetIn(String str) {
 			return (target == null) ? str : str.replace("%TARGET%", target);
 		}
 
-		private void noPunishmentsOnThisPage(int page) {
+		private void noPunishmentsOnThisPage(int page, int maxPage) {
 			if (page == 0) { // No pages whatsoever
 				ComponentText noPages = section.noPages();
 				ComponentLike message = (target == null) ? noPages : noPages.replaceText("%TARGET%", target);
@@ -235,16 +259,18 @@ public class ListCommands extends AbstractSubCommandGroup {
 
 			} else { // Page does not exist
 				String pageString = Integer.toString(page);
+				String maxPageString = Integer.toString(maxPage);
 				sender().sendMessage(section.maxPages().replaceText((str) -> {
-					str = str.replace("%PAGE%", pageString);
+					str = str.replace("%PAGE%", pageString)
+							.replace("%MAXPAGE%", maxPageString);
 					return replaceTargetIn(str);
 				}));
 			}
 		}
 
-		private CentralisedFuture<Void> showPunishmentsOnPage(List<Punishment> punishments, int page) {
+		private CentralisedFuture<Void> showPunishmentsOnPage(List<Punishment> punishments, int page, int maxPage) {
 			if (punishments.isEmpty()) {
-				noPunishmentsOnThisPage(page);
+				noPunishmentsOnThisPage(page, maxPage);
 				return completedFuture(null);
 			}
 
@@ -257,12 +283,14 @@ public class ListCommands extends AbstractSubCommandGroup {
 			String pageString = Integer.toString(page);
 			String nextPageString = Integer.toString(page + 1);
 			String previousPageString = Integer.toString(page - 1);
+			String maxPageString = Integer.toString(Math.max(maxPage, page));
 			class HeaderFooterReplacer implements UnaryOperator<String> {
 				@Override
 				public String apply(String str) {
 					str = str.replace("%PAGE%", pageString)
 							.replace("%NEXTPAGE%", nextPageString)
-							.replace("%PREVIOUSPAGE%", previousPageString);
+							.replace("%PREVIOUSPAGE%", previousPageString)
+							.replace("%MAXPAGE%", maxPageString);
 					return replaceTargetIn(str);
 				}
 			}
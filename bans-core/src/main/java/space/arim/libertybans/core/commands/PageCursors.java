@@ -0,0 +1,120 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.commands;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import space.arim.libertybans.api.Operator;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.select.SelectionBase;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Remembers where the pages of list commands end, so that a later page can be found by seeking
+ * past the last punishment of an earlier page, rather than by skipping every punishment before it. <br>
+ * <br>
+ * Pages are listed newest first, so the punishments after a page are those with an earlier start
+ * time, or the same start time and a lower ID. Thread safe
+ *
+ */
+final class PageCursors {
+
+	private final Cache<Listing, ConcurrentNavigableMap<Integer, Cursor>> cursors = Caffeine.newBuilder()
+			.expireAfterAccess(Duration.ofMinutes(10L))
+			.maximumSize(1000L)
+			.build();
+
+	/**
+	 * Determines how to retrieve a page of a listing
+	 *
+	 * @param listing the listing
+	 * @param page the page, starting at 1
+	 * @return the position from which to retrieve the page
+	 */
+	Position position(Listing listing, int page) {
+		int previousPage = page - 1;
+		if (previousPage == 0) {
+			// Viewing the first page starts over, so that recent punishments are included
+			cursors.invalidate(listing);
+			return new Position(null, 0);
+		}
+		ConcurrentNavigableMap<Integer, Cursor> pageEnds = cursors.getIfPresent(listing);
+		Map.Entry<Integer, Cursor> nearest = (pageEnds == null) ? null : pageEnds.floorEntry(previousPage);
+		if (nearest == null) {
+			return new Position(null, listing.perPage() * previousPage);
+		}
+		return new Position(nearest.getValue(), listing.perPage() * (previousPage - nearest.getKey()));
+	}
+
+	/**
+	 * Records the punishments retrieved on a page of a listing
+	 *
+	 * @param listing the listing
+	 * @param page the page
+	 * @param punishments the punishments on the page, in order
+	 */
+	void recordPage(Listing listing, int page, List<Punishment> punishments) {
+		if (punishments.isEmpty()) {
+			return;
+		}
+		Punishment last = punishments.get(punishments.size() - 1);
+		cursors.get(listing, (l) -> new ConcurrentSkipListMap<>())
+				.put(page, new Cursor(last.getStartDate(), last.getIdentifier()));
+	}
+
+	/**
+	 * A list of punishments, as viewed by a certain user
+	 *
+	 * @param viewer the user viewing the list
+	 * @param selection the selection, without pagination
+	 * @param perPage the amount of punishments per page
+	 */
+	record Listing(Operator viewer, SelectionBase selection, int perPage) {
+
+		Listing {
+			Objects.requireNonNull(viewer, "viewer");
+			Objects.requireNonNull(selection, "selection");
+		}
+	}
+
+	/**
+	 * The last punishment on a page
+	 *
+	 * @param startTime the start time of the punishment
+	 * @param id the ID of the punishment
+	 */
+	record Cursor(Instant startTime, long id) {}
+
+	/**
+	 * Where to begin retrieving a page
+	 *
+	 * @param after the last punishment of an earlier page, or {@code null} to begin from the first punishment
+	 * @param skipCount how many further punishments to skip
+	 */
+	record Position(Cursor after, int skipCount) {}
+
+}
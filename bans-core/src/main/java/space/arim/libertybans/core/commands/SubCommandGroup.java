@@ -62,6 +62,21 @@ public interface SubCommandGroup {
 	 */
 	Stream<String> suggest(CmdSender sender, String arg, int argIndex);
 
+	/**
+	 * Gets tab complete suggestions for a sub command, given what has been typed of the furthest
+	 * argument. By default, the prefix is ignored and {@link #suggest(CmdSender, String, int)} is used.
+	 *
+	 * @param sender the command sender
+	 * @param arg the sub command matched to this sub command group, lowercased
+	 * @param argIndex the index of the furthest argument
+	 * @param prefix the furthest argument as typed so far, lowercased. Suggestions not starting with it are
+	 *               filtered out by the caller, so implementations may use it only to avoid needless work
+	 * @return tab complete suggestions
+	 */
+	default Stream<String> suggest(CmdSender sender, String arg, int argIndex, String prefix) {
+		return suggest(sender, arg, argIndex);
+	}
+
 	/**
 	 * Determines whether the sender has permission for a sub command, for tab completion purposes
 	 *
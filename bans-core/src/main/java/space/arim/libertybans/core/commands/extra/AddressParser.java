@@ -19,9 +19,14 @@
 
 package space.arim.libertybans.core.commands.extra;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
 import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.ranges.AddressRange;
 
-final class AddressParser {
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+public final class AddressParser {
 
 	private AddressParser() { }
 
@@ -46,4 +51,53 @@ final class AddressParser {
 		}
 		return NetworkAddress.of(ipv4);
 	}
+
+	static NetworkAddress parseIpv6(String targetArg) {
+		if (targetArg.indexOf(':') == -1) {
+			return null;
+		}
+		// Only accept literal addresses, so that no hostname lookup is performed
+		for (int n = 0; n < targetArg.length(); n++) {
+			char character = targetArg.charAt(n);
+			if (Character.digit(character, 16) == -1 && character != ':' && character != '.') {
+				return null;
+			}
+		}
+		try {
+			return NetworkAddress.of(InetAddress.getByName(targetArg));
+		} catch (UnknownHostException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Parses an address range in CIDR notation, such as 192.0.2.0/24. A single address
+	 * without a prefix length is parsed as a range containing only that address.
+	 *
+	 * @param targetArg the argument
+	 * @return the address range, or null if not valid
+	 */
+	public static @Nullable AddressRange parseRange(String targetArg) {
+		int slashIndex = targetArg.indexOf('/');
+		String addressArg = (slashIndex == -1) ? targetArg : targetArg.substring(0, slashIndex);
+		NetworkAddress address = parseIpv4(addressArg);
+		if (address == null && (address = parseIpv6(addressArg)) == null) {
+			return null;
+		}
+		int totalBits = address.getRawAddress().length * Byte.SIZE;
+		int prefixLength;
+		if (slashIndex == -1) {
+			prefixLength = totalBits;
+		} else {
+			try {
+				prefixLength = Integer.parseUnsignedInt(targetArg.substring(slashIndex + 1));
+			} catch (NumberFormatException ex) {
+				return null;
+			}
+			if (prefixLength > totalBits) {
+				return null;
+			}
+		}
+		return AddressRange.of(address, prefixLength);
+	}
 }
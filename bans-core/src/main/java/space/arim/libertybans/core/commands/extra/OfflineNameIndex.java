@@ -0,0 +1,106 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+
+package space.arim.libertybans.core.commands.extra;
+
+import jakarta.inject.Singleton;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Names of players who recently joined, for tab completion. Names are kept sorted by their
+ * lowercase form, so completing a prefix visits only the matching names. Thread safe
+ *
+ */
+@Singleton
+public final class OfflineNameIndex {
+
+	private volatile ConcurrentSkipListMap<String, NameEntry> names;
+
+	void enable() {
+		names = new ConcurrentSkipListMap<>();
+	}
+
+	void disable() {
+		names = null;
+	}
+
+	boolean isEnabled() {
+		return names != null;
+	}
+
+	/**
+	 * Records that a player joined with the given name. Does nothing if offline name
+	 * completion is disabled
+	 *
+	 * @param name the player's name
+	 * @param updated the time the name was last seen
+	 */
+	public void record(String name, Instant updated) {
+		ConcurrentSkipListMap<String, NameEntry> names = this.names;
+		if (names != null) {
+			names.merge(
+					name.toLowerCase(Locale.ROOT), new NameEntry(name, updated),
+					(existing, added) -> (existing.updated.isAfter(added.updated)) ? existing : added
+			);
+		}
+	}
+
+	/**
+	 * Removes names last seen at or before the given time
+	 *
+	 * @param cutoff the retention cutoff
+	 */
+	void trim(Instant cutoff) {
+		ConcurrentSkipListMap<String, NameEntry> names = this.names;
+		if (names != null) {
+			// Conditional removal, so that concurrently recorded names are kept
+			names.values().removeIf((entry) -> !entry.updated.isAfter(cutoff));
+		}
+	}
+
+	/**
+	 * Finds names starting with the given prefix, ignoring case
+	 *
+	 * @param prefix the lowercased prefix
+	 * @param cutoff names last seen at or before this time are excluded
+	 * @param limit the maximum amount of names
+	 * @return the matching names, in case-insensitive order
+	 */
+	Stream<String> complete(String prefix, Instant cutoff, int limit) {
+		ConcurrentSkipListMap<String, NameEntry> names = this.names;
+		if (names == null) {
+			return Stream.empty();
+		}
+		Map<String, NameEntry> range = (prefix.isEmpty()) ?
+				names : names.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+		return range.values().stream()
+				.filter((entry) -> entry.updated.isAfter(cutoff))
+				.map(NameEntry::name)
+				.limit(limit);
+	}
+
+	private record NameEntry(String name, Instant updated) { }
+
+}
@@ -19,11 +19,11 @@
 
 package space.arim.libertybans.core.commands.extra;
 
-import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.config.MainConfig;
@@ -32,11 +32,12 @@ import space.arim.libertybans.core.database.InternalDatabase;
 import space.arim.libertybans.core.database.execute.SQLFunction;
 import space.arim.libertybans.core.env.CmdSender;
 import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -48,40 +49,43 @@ public final class StandardTabCompletion implements TabCompletion {
 	private final Configs configs;
 	private final Provider<InternalDatabase> dbProvider;
 	private final Time time;
+	private final OfflineNameIndex nameIndex;
 
-	private AsyncLoadingCache<Boolean, Set<String>> nameCache;
+	private volatile OfflineNamesSettings settings;
+	private volatile Instant lastLoad;
+	private final AtomicBoolean loading = new AtomicBoolean();
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
-	public StandardTabCompletion(Configs configs, Provider<InternalDatabase> dbProvider, Time time) {
+	public StandardTabCompletion(Configs configs, Provider<InternalDatabase> dbProvider, Time time,
+								 OfflineNameIndex nameIndex) {
 		this.configs = configs;
 		this.dbProvider = dbProvider;
 		this.time = time;
+		this.nameIndex = nameIndex;
 	}
 
+	private record OfflineNamesSettings(Duration retention, Duration refresh, int maxCompletions) { }
+
 	@Override
 	public void startup() {
 		var config = configs.getMainConfig().commands().tabCompletion().offlinePlayerNames();
 		if (config.enable()) {
-			Duration retention = Duration.ofMinutes(config.retentionMinutes());
-			Duration cacheRefresh = Duration.ofSeconds(config.cacheRefreshSeconds());
-			AsyncLoadingCache<Boolean, Set<String>> nameCache = Caffeine.newBuilder()
-					.refreshAfterWrite(cacheRefresh)
-					.buildAsync((key, executor) -> {
-						InternalDatabase database = dbProvider.get();
-						Instant currentTimeMinusRetention = time.currentTimestamp().minus(retention);
-						return database.query(SQLFunction.readOnly((context) -> {
-							return Set.copyOf(context
-									.select(NAMES.NAME)
-									.from(NAMES)
-									.where(NAMES.UPDATED.greaterThan(currentTimeMinusRetention))
-									.fetchSet(NAMES.NAME));
-						}));
-					});
+			OfflineNamesSettings settings = new OfflineNamesSettings(
+					Duration.ofMinutes(config.retentionMinutes()),
+					Duration.ofSeconds(config.cacheRefreshSeconds()),
+					config.maxCompletions()
+			);
+			nameIndex.enable();
 			// Load initial value
-			nameCache.get(Boolean.TRUE).join();
-			this.nameCache = nameCache;
+			Instant currentTime = time.currentTimestamp();
+			loadNamesSince(currentTime.minus(settings.retention)).join();
+			lastLoad = currentTime;
+			this.settings = settings;
 		} else {
-			nameCache = null;
+			settings = null;
+			nameIndex.disable();
 		}
 	}
 
@@ -92,7 +96,43 @@ public final class StandardTabCompletion implements TabCompletion {
 
 	@Override
 	public void shutdown() {
-		nameCache = null;
+		settings = null;
+		nameIndex.disable();
+	}
+
+	private CentralisedFuture<?> loadNamesSince(Instant since) {
+		return dbProvider.get().query(SQLFunction.readOnly((context) -> {
+			return context
+					.select(NAMES.NAME, NAMES.UPDATED)
+					.from(NAMES)
+					.where(NAMES.UPDATED.greaterThan(since))
+					.fetch();
+		})).thenAccept((records) -> {
+			for (var record : records) {
+				nameIndex.record(record.value1(), record.value2());
+			}
+		});
+	}
+
+	/*
+	Names of players joining this instance are recorded as they join. Periodically, names
+	written by other instances are loaded, and names past the retention period are removed.
+	 */
+	private void refreshIfNeeded(OfflineNamesSettings settings, Instant currentTime) {
+		Instant lastLoad = this.lastLoad;
+		if (currentTime.isBefore(lastLoad.plus(settings.refresh)) || !loading.compareAndSet(false, true)) {
+			return;
+		}
+		nameIndex.trim(currentTime.minus(settings.retention));
+		// Overlap with the previous load, in case of late commits
+		loadNamesSince(lastLoad.minus(settings.refresh)).whenComplete((ignore, ex) -> {
+			if (ex == null) {
+				this.lastLoad = currentTime;
+			} else {
+				logger.warn("Failed to load recently joined players' names for tab completion", ex);
+			}
+			loading.set(false);
+		});
 	}
 
 	@Override
@@ -104,11 +144,14 @@ public final class StandardTabCompletion implements TabCompletion {
 	}
 
 	@Override
-	public Stream<String> completeOfflinePlayerNames(CmdSender sender) {
-		if (nameCache == null) {
+	public Stream<String> completeOfflinePlayerNames(CmdSender sender, String prefix) {
+		OfflineNamesSettings settings = this.settings;
+		if (settings == null) {
 			return completeOnlinePlayerNames(sender);
 		}
-		return nameCache.get(Boolean.TRUE).orTimeout(1L, TimeUnit.MILLISECONDS).join().stream();
+		Instant currentTime = time.currentTimestamp();
+		refreshIfNeeded(settings, currentTime);
+		return nameIndex.complete(prefix, currentTime.minus(settings.retention), settings.maxCompletions);
 	}
 
 	@Override
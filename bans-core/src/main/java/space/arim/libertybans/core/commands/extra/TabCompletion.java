@@ -34,7 +34,19 @@ public interface TabCompletion extends Part {
 
 	Stream<String> completeOnlinePlayerNames(CmdSender sender);
 
-	Stream<String> completeOfflinePlayerNames(CmdSender sender);
+	default Stream<String> completeOfflinePlayerNames(CmdSender sender) {
+		return completeOfflinePlayerNames(sender, "");
+	}
+
+	/**
+	 * Completes the names of players who recently joined, or of online players if
+	 * offline player name completion is disabled
+	 *
+	 * @param sender the command sender
+	 * @param prefix the lowercased start of the name being completed, possibly empty
+	 * @return the names, which may be limited to those starting with the prefix
+	 */
+	Stream<String> completeOfflinePlayerNames(CmdSender sender, String prefix);
 
 	Stream<String> completePunishmentDurations(CmdSender sender, PunishmentType type);
 
@@ -23,6 +23,7 @@ import space.arim.dazzleconf.annote.ConfComments;
 import space.arim.dazzleconf.annote.ConfDefault;
 import space.arim.dazzleconf.annote.ConfHeader;
 import space.arim.dazzleconf.annote.ConfKey;
+import space.arim.dazzleconf.annote.IntegerRange;
 import space.arim.dazzleconf.annote.SubSection;
 import space.arim.libertybans.core.config.ParsedDuration;
 
@@ -58,10 +59,20 @@ public interface TabCompletionConfig {
 		@ConfKey("cache-refresh-seconds")
 		@ConfComments({
 				"This feature is implemented using a cache. How often should the cache be refreshed?",
+				"Names of players joining this server are added immediately. Refreshing picks up the names",
+				"of players joining other servers using the same database, and removes old names.",
 				"Shorter times mean more accurate tab completion but use slightly more performance"})
 		@ConfDefault.DefaultLong(120)
 		long cacheRefreshSeconds();
 
+		@ConfKey("max-completions")
+		@ConfComments({
+				"The maximum amount of names to complete at once",
+				"Names matching what has been typed are completed in alphabetical order"})
+		@ConfDefault.DefaultInteger(100)
+		@IntegerRange(min = 1)
+		int maxCompletions();
+
 	}
 
 	@ConfKey("use-only-players-on-same-server")
@@ -38,6 +38,7 @@ import space.arim.dazzleconf.annote.ConfKey;
 import space.arim.dazzleconf.annote.SubSection;
 import space.arim.libertybans.core.alts.AccountHistorySection;
 import space.arim.libertybans.core.alts.AltsSection;
+import space.arim.libertybans.core.ranges.AddressRangesSection;
 
 @ConfHeader({
 		"",
@@ -77,6 +78,7 @@ import space.arim.libertybans.core.alts.AltsSection;
 		"%TARGET% - the original target argument of a command. For example, in '/ipban Player1', %TARGET% is Player1",
 		"%NEXTPAGE% - the number of the next page of a list like history",
 		"%PREVIOUSPAGE% - the number of the previous page of a list like history",
+		"%MAXPAGE% - the number of pages of a list like history",
 		"",
 		""})
 public interface MessagesConfig {
@@ -184,9 +186,13 @@ public interface MessagesConfig {
 			@DefaultString("&7Import has started. View your server console for details and progress.")
 			Component started();
 
-			@DefaultString("&cUsage: /libertybans import <advancedban|litebans|vanilla|self>")
+			@DefaultString("&cUsage: /libertybans import <advancedban|litebans|vanilla|archive|self> [resume]")
 			Component usage();
 
+			@ConfKey("resume-unsupported")
+			@DefaultString("&cThis import source cannot be resumed. Start a new import instead.")
+			Component resumeUnsupported();
+
 			@DefaultString("&7Import completed.")
 			Component complete();
 
@@ -195,6 +201,26 @@ public interface MessagesConfig {
 
 		}
 
+		@SubSection
+		Exporting exporting();
+
+		interface Exporting {
+
+			@ConfKey("in-progress")
+			@DefaultString("&cThere is already an export in progress.")
+			Component inProgress();
+
+			@DefaultString("&7Export has started. View your server console for details and progress.")
+			Component started();
+
+			@DefaultString("&7Export completed. Run /libertybans import archive to import it on another server.")
+			Component complete();
+
+			@DefaultString("&cExport failed. View the server console for details.")
+			Component failure();
+
+		}
+
 		@SubSection
 		Addons addons();
 
@@ -429,6 +455,10 @@ public interface MessagesConfig {
 	@SubSection
 	AccountHistorySection accountHistory();
 
+	@ConfKey("address-ranges")
+	@SubSection
+	AddressRangesSection addressRanges();
+
 	interface Misc {
 		
 		@ConfKey("unknown-error")
@@ -20,8 +20,10 @@
 package space.arim.libertybans.core.config;
 
 import space.arim.dazzleconf.annote.ConfComments;
+import space.arim.dazzleconf.annote.ConfDefault.DefaultBoolean;
 import space.arim.dazzleconf.annote.ConfDefault.DefaultInteger;
 import space.arim.dazzleconf.annote.ConfDefault.DefaultString;
+import space.arim.dazzleconf.annote.ConfDefault.DefaultStrings;
 import space.arim.dazzleconf.annote.ConfHeader;
 import space.arim.dazzleconf.annote.ConfKey;
 import space.arim.dazzleconf.annote.IntegerRange;
@@ -29,6 +31,8 @@ import space.arim.dazzleconf.annote.SubSection;
 import space.arim.libertybans.core.database.DatabaseSettingsConfig;
 import space.arim.libertybans.core.database.RefreshTaskRunnable;
 
+import java.util.List;
+
 @ConfHeader({
 		"",
 		"SQL Database settings",
@@ -100,6 +104,101 @@ public interface SqlConfig extends DatabaseSettingsConfig {
 		}
 	}
 
+	@ConfKey("active-punishment-index")
+	@SubSection
+	ActivePunishmentIndexing activePunishmentIndex();
+
+	@ConfHeader({"An in-memory index of active bans and mutes, used to answer login checks without",
+			"querying the punishment views. The index is loaded at startup and kept up-to-date",
+			"as punishments are enforced, revoked, and expunged.",
+			"",
+			"Only enable this if this instance of LibertyBans is the only one using the database,",
+			"or if multi-instance synchronization is enabled. Otherwise, punishments added by other",
+			"instances will not be seen by this one until it is restarted.",
+			"",
+			"The index is used with the LENIENT and NORMAL address strictness settings.",
+			"With STERN and STRICT, it is used only if the alt detection index is also enabled;",
+			"otherwise, logins will still be checked using the database."})
+	interface ActivePunishmentIndexing {
+
+		@ConfComments("Whether to enable the index")
+		@DefaultBoolean(false)
+		boolean enable();
+
+	}
+
+	@ConfKey("alt-detection-index")
+	@SubSection
+	AltDetectionIndexing altDetectionIndex();
+
+	@ConfHeader({"An in-memory index of which players have joined from which addresses, used to detect",
+			"alts without joining the addresses table with itself. The index is loaded at startup and",
+			"kept up-to-date as players join. Expect roughly 150 bytes of memory per recorded account.",
+			"",
+			"Only enable this if this instance of LibertyBans is the only one using the database,",
+			"or if multi-instance synchronization is enabled. Otherwise, players joining other",
+			"instances will not be seen by this one until it is restarted.",
+			"",
+			"The statuses of detected alts are read from the active punishment index if it is enabled.",
+			"The index also provides the links between accounts needed by the STERN and STRICT",
+			"address strictness settings, both when enforcing punishments and checking logins."})
+	interface AltDetectionIndexing {
+
+		@ConfComments("Whether to enable the index")
+		@DefaultBoolean(false)
+		boolean enable();
+
+	}
+
+	@ConfKey("login-batching")
+	@SubSection
+	LoginBatching loginBatching();
+
+	@ConfHeader({"Gathers incoming logins arriving within a few milliseconds of each other, and checks them",
+			"in a single database transaction. This reduces the number of queries and transactions",
+			"when many players join at once, such as after a proxy restart or during a bot attack.",
+			"",
+			"The trade-off is that each login may be delayed by up to the batching window."})
+	interface LoginBatching {
+
+		@ConfComments("Whether to enable login batching")
+		@DefaultBoolean(false)
+		boolean enable();
+
+		@ConfKey("window-millis")
+		@ConfComments("How long to wait for further logins after the first login of a batch, in milliseconds")
+		@IntegerRange(min = 1L, max = 1000L)
+		@DefaultInteger(5)
+		int windowMillis();
+
+		@ConfKey("max-batch-size")
+		@ConfComments("The maximum number of logins in one batch. A full batch is checked immediately.")
+		@IntegerRange(min = 1L, max = 1000L)
+		@DefaultInteger(100)
+		int maxBatchSize();
+
+	}
+
+	@ConfKey("mysql-id-block-size")
+	@ConfComments({"Only relevant for MySQL, which lacks sequences, so they are emulated using a table row.",
+			"Normally each new punishment, victim, scope, and track identifier locks and updates that row,",
+			"in the same transaction, so identifiers are consecutive and follow the order of creation.",
+			"",
+			"If set above 1, this instance reserves identifiers in blocks of this size and hands them out",
+			"from memory, so that punishing many players at once does not contend on the same row.",
+			"The default of 1 disables this. Before enabling it, consider the trade-offs:",
+			"- Identifiers are no longer in order of creation across instances sharing the database,",
+			"since each instance hands out its own block. Sorting punishments by identifier, rather than",
+			"by start time, will not give the order in which they were made.",
+			"- Unused identifiers in a block are lost when the instance restarts.",
+			"- Identifiers given to a transaction which is rolled back, such as a failed punishment,",
+			"are lost too, because the block was reserved separately.",
+			"Identifiers of synchronization messages are never reserved in blocks, since other instances",
+			"read messages in identifier order."})
+	@IntegerRange(min = 1L, max = 1000L)
+	@DefaultInteger(1)
+	int mysqlIdBlockSize();
+
 	@SubSection
 	Synchronization synchronization();
 
@@ -109,13 +208,20 @@ public interface SqlConfig extends DatabaseSettingsConfig {
 		@ConfComments({"Availalble synchronization options:",
 				"NONE - no synchronization",
 				"ANSI_SQL - uses your database to synchronize punishments (called ANSI_SQL because it uses standard SQL)",
+				"TCP - pushes punishments directly to the other instances, configured in the 'tcp' section.",
+				"  The database is still written to, but it is only polled to catch up while another instance is unreachable.",
+				"POSTGRES_NOTIFY - requires PostgreSQL. Pushes punishments through your database using LISTEN and NOTIFY.",
+				"  The database is only polled to catch up after the listening connection is lost. On other databases,",
+				"  including CockroachDB, this option behaves like ANSI_SQL.",
 				"Other options may be added in the future, upon feature request."})
 		@DefaultString("NONE")
 		SyncMode mode();
 
 		enum SyncMode {
 			NONE,
-			ANSI_SQL
+			ANSI_SQL,
+			TCP,
+			POSTGRES_NOTIFY
 		}
 
 		@ConfKey("poll-rate-millis")
@@ -123,13 +229,60 @@ public interface SqlConfig extends DatabaseSettingsConfig {
 				"Usually the default setting of 4 seconds will be sufficiently responsive without querying the database too often",
 				"If you want to increase responsiveness, lower this value. If you want to reduce database load, increase this value.",
 				"",
+				"With the TCP mode, the database is only polled while another instance is disconnected.",
+				"With the POSTGRES_NOTIFY mode, it is only polled while the listening connection is lost, and once after it is restored.",
+				"",
 				"This value MUST be less than 30 seconds."})
-		@IntegerRange(min = 250L, max = RefreshTaskRunnable.MAX_POLL_RATE_MILLIS)
+		@IntegerRange(min = 100L, max = RefreshTaskRunnable.MAX_POLL_RATE_MILLIS)
 		@DefaultInteger(4000)
 		long pollRateMillis();
 
+		@ConfKey("poll-page-size")
+		@ConfComments({"The maximum number of messages read from the database in each query while polling.",
+				"If more messages are waiting, they are read using several queries."})
+		@IntegerRange(min = 1L, max = 10000L)
+		@DefaultInteger(100)
+		int pollPageSize();
+
 		default boolean enabled() {
-			return mode() == SyncMode.ANSI_SQL;
+			return mode() != SyncMode.NONE;
+		}
+
+		@ConfKey("tcp")
+		@SubSection
+		Tcp tcp();
+
+		@ConfHeader({"Settings for the TCP synchronization mode.",
+				"Every instance listens on its bind address, and connects to the bind addresses of its peers."})
+		interface Tcp {
+
+			@ConfKey("bind-address")
+			@ConfComments({"The address and port this instance listens on, in the form host:port",
+					"The default only accepts connections from the same machine. To accept connections from peers",
+					"on other machines, use this instance's address on the private network shared with them."})
+			@DefaultString("127.0.0.1:38720")
+			String bindAddress();
+
+			@ConfKey("peers")
+			@ConfComments({"The addresses of all the other instances, in the form host:port",
+					"Every instance must list every other instance, or it will continue to poll the database."})
+			@DefaultStrings({})
+			List<String> peers();
+
+			@ConfKey("secret")
+			@ConfComments({"A shared secret used to authenticate instances to each other. It must be the same on all instances.",
+					"If left blank, TCP synchronization is disabled and the database is polled as with ANSI_SQL.",
+					"The secret is never sent over the network, but messages are not encrypted."})
+			@DefaultString("")
+			String secret();
+
+			@ConfKey("heartbeat-seconds")
+			@ConfComments({"How frequently each instance tells its peers it is still connected, in seconds.",
+					"An instance is considered disconnected after missing three heartbeats."})
+			@IntegerRange(min = 1L, max = 10L)
+			@DefaultInteger(5)
+			int heartbeatSeconds();
+
 		}
 	}
 
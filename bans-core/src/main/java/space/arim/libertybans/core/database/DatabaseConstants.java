@@ -48,7 +48,7 @@ public final class DatabaseConstants {
 	public static Table<?>[] allTables(TableOrder tableOrder) {
 		// Referees first, referents last with respect to foreign keys
 		Table<?>[] tables = new Table[] {
-				NAMES, ADDRESSES, HISTORY, BANS, MUTES, WARNS, PUNISHMENTS, VICTIMS, MESSAGES, REVISION
+				NAMES, LATEST_NAMES, ADDRESSES, ADDRESS_RANGES, HISTORY, BANS, MUTES, WARNS, PUNISHMENTS, VICTIMS, MESSAGES, REVISION
 		};
 		if (tableOrder == TableOrder.REFERENTS_FIRST) {
 			// Reverse array
@@ -83,7 +83,7 @@ public final class DatabaseConstants {
 
 	public static Table<?>[] allViews() {
 		return new Table[] {
-				LATEST_NAMES, LATEST_ADDRESSES, STRICT_LINKS,
+				LATEST_ADDRESSES, STRICT_LINKS,
 				APPLICABLE_ACTIVE, APPLICABLE_HISTORY, APPLICABLE_BANS, APPLICABLE_MUTES, APPLICABLE_WARNS,
 				SIMPLE_ACTIVE, SIMPLE_HISTORY, SIMPLE_BANS, SIMPLE_MUTES, SIMPLE_WARNS
 		};
@@ -39,6 +39,8 @@ import space.arim.libertybans.core.database.flyway.MigrateWithFlyway;
 import space.arim.libertybans.core.database.flyway.MigrationFailedException;
 import space.arim.libertybans.core.database.jooq.JooqClassloading;
 import space.arim.libertybans.core.database.jooq.JooqContext;
+import space.arim.libertybans.core.database.sql.IdBlockAllocator;
+import space.arim.libertybans.core.database.sql.IdCache;
 import space.arim.libertybans.core.database.execute.JooqQueryExecutor;
 import space.arim.libertybans.core.service.SimpleThreadFactory;
 import space.arim.omnibus.util.ThisClass;
@@ -109,7 +111,10 @@ public class DatabaseSettings {
 		);
 		StandardDatabase database  = new StandardDatabase(
 				manager, vendor, hikariDataSource,
-				new JooqQueryExecutor(jooqContext, hikariDataSource, manager.futuresFactory(), threadPool),
+				new JooqQueryExecutor(
+						createQueryContext(jooqContext, hikariDataSource, retroSupport),
+						hikariDataSource, manager.futuresFactory(), threadPool
+				),
 				threadPool
 		);
 
@@ -125,6 +130,20 @@ public class DatabaseSettings {
 		return new DatabaseResult(database, jooqClassloading, true);
 	}
 
+	private JooqContext createQueryContext(JooqContext jooqContext, HikariDataSource hikariDataSource,
+										   boolean retroSupport) {
+		IdBlockAllocator idBlockAllocator = null;
+		// Only MySQL emulates sequences using a table, and a block size of 1 keeps identifiers gap-free
+		if (vendor == Vendor.MYSQL && config instanceof SqlConfig sqlConfig && sqlConfig.mysqlIdBlockSize() > 1) {
+			idBlockAllocator = new IdBlockAllocator(
+					jooqContext, () -> StandardDatabase.openUnpooledConnection(hikariDataSource, vendor),
+					sqlConfig.mysqlIdBlockSize()
+			);
+		}
+		// Migrations use their own context, so the cache only sees committed identifiers
+		return new JooqContext(vendor.dialect(), retroSupport, idBlockAllocator, new IdCache());
+	}
+
 	private boolean checkCompatibilityAndYieldRetroSupport(HikariDataSource dataSource) {
 		if (Boolean.getBoolean("libertybans.database.disablecheck")) {
 			return false;
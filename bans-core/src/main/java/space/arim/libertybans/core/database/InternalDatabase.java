@@ -49,4 +49,13 @@ public interface InternalDatabase extends QueryExecutor {
 	 * @throws SQLException if the connection could not be acquired
 	 */
 	Connection getConnection() throws SQLException;
+
+	/**
+	 * Opens a new JDBC connection outside the connection pool, for long-lived uses which
+	 * should not occupy a pooled connection. The caller is responsible for closing it
+	 *
+	 * @return the new connection
+	 * @throws SQLException if the connection could not be opened
+	 */
+	Connection openUnpooledConnection() throws SQLException;
 }
@@ -32,6 +32,7 @@ import space.arim.libertybans.core.database.execute.SQLFunction;
 import space.arim.libertybans.core.database.execute.SQLRunnable;
 import space.arim.libertybans.core.database.execute.SQLTransactionalFunction;
 import space.arim.libertybans.core.database.execute.SQLTransactionalRunnable;
+import space.arim.libertybans.core.database.sql.IdCache;
 import space.arim.libertybans.core.database.sql.TableForType;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.ThisClass;
@@ -41,13 +42,17 @@ import space.arim.omnibus.util.concurrent.EnhancedExecutor;
 import space.arim.omnibus.util.concurrent.ScheduledTask;
 
 import java.sql.Connection;
+import java.sql.Driver;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Properties;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import static space.arim.libertybans.core.schema.Tables.IMPORT_CHECKPOINTS;
 import static space.arim.libertybans.core.schema.Tables.PUNISHMENTS;
 
 public final class StandardDatabase implements InternalDatabase, AutoCloseable {
@@ -181,6 +186,8 @@ public final class StandardDatabase implements InternalDatabase, AutoCloseable {
 			for (Table<?> table : DatabaseConstants.allTables(DatabaseConstants.TableOrder.REFERENTS_LAST)) {
 				context.deleteFrom(table).execute();
 			}
+			context.deleteFrom(IMPORT_CHECKPOINTS).execute();
+			IdCache.clearAttached(context);
 		}).join();
 	}
 
@@ -189,6 +196,37 @@ public final class StandardDatabase implements InternalDatabase, AutoCloseable {
 		return dataSource.getConnection();
 	}
 
+	@Override
+	public Connection openUnpooledConnection() throws SQLException {
+		return openUnpooledConnection(dataSource, vendor);
+	}
+
+	static Connection openUnpooledConnection(HikariDataSource dataSource, Vendor vendor) throws SQLException {
+		String jdbcUrl = dataSource.getJdbcUrl();
+		if (jdbcUrl == null) {
+			// Configured through the data source class rather than the traditional JDBC URL
+			jdbcUrl = (String) dataSource.getDataSourceProperties().get("url");
+		}
+		Driver driver;
+		try {
+			driver = (Driver) Class.forName(vendor.driver.driverClassName(), true, StandardDatabase.class.getClassLoader())
+					.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException ex) {
+			throw new SQLException("Unable to load JDBC driver", ex);
+		}
+		Properties properties = new Properties();
+		properties.setProperty("user", dataSource.getUsername());
+		properties.setProperty("password", dataSource.getPassword());
+		Connection connection = driver.connect(jdbcUrl, properties);
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(vendor.getConnectionInitSql());
+		} catch (SQLException ex) {
+			connection.close();
+			throw ex;
+		}
+		return connection;
+	}
+
 	private class External implements PunishmentDatabase {
 
 		@Override
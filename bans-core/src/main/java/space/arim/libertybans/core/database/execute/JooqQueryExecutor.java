@@ -22,6 +22,7 @@ package space.arim.libertybans.core.database.execute;
 import org.jooq.DSLContext;
 import org.jooq.exception.DataAccessException;
 import space.arim.libertybans.core.database.jooq.JooqContext;
+import space.arim.libertybans.core.database.sql.IdCache;
 import space.arim.omnibus.util.ArraysUtil;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
@@ -71,6 +72,7 @@ public final class JooqQueryExecutor implements QueryExecutor {
 				throw rollbackBeforeThrow(connection, ex);
 			}
 			connection.commit();
+			IdCache.transactionCommitted(context);
 			return value;
 
 		} catch (SQLException ex) {
@@ -114,6 +116,7 @@ public final class JooqQueryExecutor implements QueryExecutor {
 				if (retry != 0) {
 					// This is not the first attempt
 					connection.rollback();
+					IdCache.transactionRolledBack(context);
 					exponentialBackoff(retry);
 				}
 				RollbackTrackingTransaction transaction = new RollbackTrackingTransaction(context, connection);
@@ -134,6 +137,7 @@ public final class JooqQueryExecutor implements QueryExecutor {
 				if (transaction.wasNotRolledBack()) {
 					try {
 						connection.commit();
+						IdCache.transactionCommitted(context);
 					} catch (SQLException ex) {
 						if (isSerializationFailure(ex)) {
 							// Retry
@@ -171,6 +175,7 @@ public final class JooqQueryExecutor implements QueryExecutor {
 		if (transaction.wasNotRolledBack()) {
 			try {
 				connection.commit();
+				IdCache.transactionCommitted(context);
 			} catch (SQLException ex) {
 				throw rollbackBeforeThrow(connection, new DataAccessException("Unable to commit", ex));
 			}
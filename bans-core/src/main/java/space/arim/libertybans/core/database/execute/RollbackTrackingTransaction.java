@@ -21,6 +21,7 @@ package space.arim.libertybans.core.database.execute;
 
 import org.jooq.DSLContext;
 import org.jooq.exception.DataAccessException;
+import space.arim.libertybans.core.database.sql.IdCache;
 
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -51,6 +52,7 @@ final class RollbackTrackingTransaction implements Transaction {
 			throw new DataAccessException("Failed to rollback", ex);
 		} finally {
 			rolledBack = true;
+			IdCache.transactionRolledBack(context);
 		}
 	}
 
@@ -93,6 +95,8 @@ final class RollbackTrackingTransaction implements Transaction {
 			try {
 				connection.rollback(savepoint);
 				rolledBack = true;
+				// Identifiers found since the savepoint might belong to rows which no longer exist
+				IdCache.transactionRolledBack(context);
 			} catch (SQLException ex) {
 				throw new DataAccessException("Failed to rollback to savepoint", ex);
 			}
@@ -19,6 +19,7 @@
 
 package space.arim.libertybans.core.database.jooq;
 
+import org.jooq.Configuration;
 import org.jooq.ConnectionProvider;
 import org.jooq.DSLContext;
 import org.jooq.ExecuteListenerProvider;
@@ -33,6 +34,8 @@ import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DefaultConfiguration;
 import org.jooq.impl.NoConnectionProvider;
 import org.jooq.tools.JooqLogger;
+import space.arim.libertybans.core.database.sql.IdBlockAllocator;
+import space.arim.libertybans.core.database.sql.IdCache;
 
 import java.sql.Connection;
 import java.util.Objects;
@@ -47,10 +50,19 @@ public final class JooqContext {
 
 	private final SQLDialect dialect;
 	private final boolean retroSupport;
+	private final IdBlockAllocator idBlockAllocator;
+	private final IdCache idCache;
 
-	public JooqContext(SQLDialect dialect, boolean retroSupport) {
+	public JooqContext(SQLDialect dialect, boolean retroSupport,
+					   IdBlockAllocator idBlockAllocator, IdCache idCache) {
 		this.dialect = Objects.requireNonNull(dialect, "dialect");
 		this.retroSupport = retroSupport;
+		this.idBlockAllocator = idBlockAllocator;
+		this.idCache = idCache;
+	}
+
+	public JooqContext(SQLDialect dialect, boolean retroSupport) {
+		this(dialect, retroSupport, null, null);
 	}
 
 	public JooqContext(SQLDialect dialect) {
@@ -80,15 +92,21 @@ public final class JooqContext {
 	}
 
 	private DSLContext createWith(ConnectionProvider connectionProvider) {
-		return new DefaultConfiguration()
+		Configuration configuration = new DefaultConfiguration()
 				.set(connectionProvider)
 				.set(dialect)
 				.set(createSettings())
 				.set(retroSupport ?
 						new ExecuteListenerProvider[] { new RetroSupportListener().new Provider() }
 						: new ExecuteListenerProvider[0]
-				)
-				.dsl();
+				);
+		if (idBlockAllocator != null) {
+			idBlockAllocator.attachTo(configuration);
+		}
+		if (idCache != null) {
+			idCache.attachTo(configuration);
+		}
+		return configuration.dsl();
 	}
 
 	private Settings createSettings() {
@@ -111,6 +129,8 @@ public final class JooqContext {
 		return "JooqContext{" +
 				"dialect=" + dialect +
 				", retroSupport=" + retroSupport +
+				", idBlockAllocator=" + idBlockAllocator +
+				", idCache=" + idCache +
 				'}';
 	}
 
@@ -37,14 +37,34 @@ public final class AccountExpirationCondition {
 	}
 
 	public Condition isNotExpired(Configs configs, Instant currentTime) {
-		var altAccountExpiration = configs.getMainConfig().enforcement().altAccountExpiration();
-		if (!altAccountExpiration.enable()) {
+		Instant expiredBefore = expiredBefore(configs, currentTime);
+		if (expiredBefore == null) {
 			return DSL.noCondition();
 		}
-		Instant expiredBefore = currentTime.minus(Duration.ofDays(altAccountExpiration.expirationTimeDays()));
 		return updatedField.greaterThan(expiredBefore);
 	}
 
+	/**
+	 * Evaluates the same condition in memory, for accounts not retrieved from the database
+	 *
+	 * @param configs the configs
+	 * @param currentTime the current time
+	 * @param updated the time the account was last updated
+	 * @return true if the account is not expired
+	 */
+	public static boolean isNotExpired(Configs configs, Instant currentTime, Instant updated) {
+		Instant expiredBefore = expiredBefore(configs, currentTime);
+		return expiredBefore == null || updated.isAfter(expiredBefore);
+	}
+
+	private static Instant expiredBefore(Configs configs, Instant currentTime) {
+		var altAccountExpiration = configs.getMainConfig().enforcement().altAccountExpiration();
+		if (!altAccountExpiration.enable()) {
+			return null;
+		}
+		return currentTime.minus(Duration.ofDays(altAccountExpiration.expirationTimeDays()));
+	}
+
 	@Override
 	public String toString() {
 		return "AccountExpirationCondition{" +
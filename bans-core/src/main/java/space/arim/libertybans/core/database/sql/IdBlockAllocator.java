@@ -0,0 +1,183 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+
+package space.arim.libertybans.core.database.sql;
+
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Sequence;
+import org.jooq.Table;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import space.arim.libertybans.core.database.jooq.JooqContext;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_PUNISHMENT_IDS;
+import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_SCOPE_IDS;
+import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_TRACK_IDS;
+import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_VICTIM_IDS;
+
+/**
+ * Hands out identifiers for emulated sequences (on MySQL) from blocks reserved in advance. <br>
+ * <br>
+ * Each block is reserved by advancing the emulation table's row by the block size, in its own
+ * transaction on a connection outside the pool. Identifiers are then given out from memory, so
+ * that concurrent transactions do not contend on the row. As a consequence, identifiers are
+ * not in order of creation across instances, unused identifiers in a block are lost when the
+ * instance restarts, and identifiers used by a rolled back transaction are lost as well. The
+ * allocator is therefore only used if enabled in the configuration. <br>
+ * <br>
+ * Only punishment, victim, scope, and track identifiers are allocated in blocks. Synchronization
+ * messages are read by other instances in identifier order, so interleaved blocks of message
+ * identifiers would leave messages unread.
+ *
+ */
+public final class IdBlockAllocator {
+
+	private final JooqContext jooqContext;
+	private final ConnectionOpener connectionOpener;
+	private final int blockSize;
+	private final ConcurrentHashMap<String, Block> blocks = new ConcurrentHashMap<>();
+
+	private static final Object DATA_KEY = IdBlockAllocator.class;
+	private static final Set<String> ALLOCATED_SEQUENCES = Set.of(
+			LIBERTYBANS_PUNISHMENT_IDS.getName(), LIBERTYBANS_VICTIM_IDS.getName(),
+			LIBERTYBANS_SCOPE_IDS.getName(), LIBERTYBANS_TRACK_IDS.getName()
+	);
+
+	/**
+	 * Creates the allocator
+	 *
+	 * @param jooqContext the jOOQ context used with connections for reserving blocks
+	 * @param connectionOpener opens connections for reserving blocks
+	 * @param blockSize the amount of identifiers in each block
+	 */
+	public IdBlockAllocator(JooqContext jooqContext, ConnectionOpener connectionOpener, int blockSize) {
+		this.jooqContext = Objects.requireNonNull(jooqContext, "jooqContext");
+		this.connectionOpener = Objects.requireNonNull(connectionOpener, "connectionOpener");
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("Block size must be positive");
+		}
+		this.blockSize = blockSize;
+	}
+
+	public interface ConnectionOpener {
+
+		Connection openConnection() throws SQLException;
+
+	}
+
+	/**
+	 * Makes this allocator available to contexts created with the given configuration
+	 *
+	 * @param configuration the jOOQ configuration
+	 */
+	public void attachTo(Configuration configuration) {
+		configuration.data(DATA_KEY, this);
+	}
+
+	static IdBlockAllocator attachedTo(DSLContext context) {
+		return (IdBlockAllocator) context.data(DATA_KEY);
+	}
+
+	/**
+	 * Whether identifiers of the given sequence are allocated in blocks
+	 *
+	 * @param sequence the sequence
+	 * @return true if this allocator hands out its identifiers
+	 */
+	static boolean allocatesFor(Sequence<?> sequence) {
+		return ALLOCATED_SEQUENCES.contains(sequence.getName());
+	}
+
+	<R extends Number> R nextValue(Sequence<R> sequence) {
+		if (!allocatesFor(sequence)) {
+			throw new IllegalArgumentException("Not allocated in blocks: " + sequence.getName());
+		}
+		Block block = blocks.computeIfAbsent(sequence.getName(), (name) -> new Block());
+		long value;
+		synchronized (block) {
+			if (block.next == block.limit) {
+				long start = reserveBlock(sequence);
+				block.next = start;
+				block.limit = start + blockSize;
+			}
+			value = block.next++;
+		}
+		return sequence.getDataType().convert(value);
+	}
+
+	/**
+	 * Discards the reserved identifiers of a sequence, after its value is changed
+	 *
+	 * @param sequence the sequence
+	 */
+	void discard(Sequence<?> sequence) {
+		blocks.remove(sequence.getName());
+	}
+
+	private long reserveBlock(Sequence<?> sequence) {
+		Table<?> emulationTable = DSL.table(sequence.getName());
+		Field<Long> valueField = DSL.field("value", SQLDataType.BIGINT);
+		try (Connection connection = connectionOpener.openConnection()) {
+			connection.setAutoCommit(false);
+			DSLContext context = jooqContext.createContext(connection);
+			long start = context
+					.select(valueField)
+					.from(emulationTable)
+					.forUpdate()
+					.fetchSingle(valueField);
+			context
+					.update(emulationTable)
+					.set(valueField, valueField.plus(blockSize))
+					.execute();
+			connection.commit();
+			return start;
+		} catch (SQLException ex) {
+			throw new DataAccessException("Failed to reserve identifiers for " + sequence.getName(), ex);
+		}
+	}
+
+	/**
+	 * The identifiers from {@code next}, inclusive, to {@code limit}, exclusive. Guarded by itself
+	 *
+	 */
+	private static final class Block {
+
+		long next;
+		long limit;
+
+	}
+
+	@Override
+	public String toString() {
+		return "IdBlockAllocator{" +
+				"blockSize=" + blockSize +
+				'}';
+	}
+
+}
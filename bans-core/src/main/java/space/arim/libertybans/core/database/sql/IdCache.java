@@ -0,0 +1,119 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+
+package space.arim.libertybans.core.database.sql;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caches the identifiers of victims, scopes, and tracks, which never change once created. <br>
+ * <br>
+ * An identifier found by a transaction is only cached once that transaction commits, because
+ * the row might have been inserted by the same transaction. Keys are records describing the
+ * victim, scope, or track.
+ *
+ */
+public final class IdCache {
+
+	private final Cache<Object, Number> ids = Caffeine.newBuilder()
+			.maximumSize(10_000L)
+			.build();
+
+	private static final Object DATA_KEY = IdCache.class;
+	private static final Object PENDING_DATA_KEY = PendingIds.class;
+
+	/**
+	 * Makes this cache available to contexts created with the given configuration
+	 *
+	 * @param configuration the jOOQ configuration
+	 */
+	public void attachTo(Configuration configuration) {
+		configuration.data(DATA_KEY, this);
+	}
+
+	static IdCache attachedTo(DSLContext context) {
+		return (IdCache) context.data(DATA_KEY);
+	}
+
+	Number get(DSLContext context, Object key) {
+		// Identifiers found earlier in the same transaction are also visible to it
+		PendingIds pending = (PendingIds) context.data(PENDING_DATA_KEY);
+		if (pending != null) {
+			Number pendingId = pending.ids.get(key);
+			if (pendingId != null) {
+				return pendingId;
+			}
+		}
+		return ids.getIfPresent(key);
+	}
+
+	void putAfterCommit(DSLContext context, Object key, Number id) {
+		PendingIds pending = (PendingIds) context.data(PENDING_DATA_KEY);
+		if (pending == null) {
+			pending = new PendingIds(this, new HashMap<>());
+			context.data(PENDING_DATA_KEY, pending);
+		}
+		pending.ids.put(key, id);
+	}
+
+	/**
+	 * Clears all identifiers cached by the cache attached to the given context, if there is one.
+	 * Must be called when victims, scopes, or tracks are deleted
+	 *
+	 * @param context the context
+	 */
+	public static void clearAttached(DSLContext context) {
+		IdCache idCache = attachedTo(context);
+		if (idCache != null) {
+			idCache.ids.invalidateAll();
+		}
+	}
+
+	/**
+	 * Caches the identifiers found in a transaction. Must be called after the transaction commits
+	 *
+	 * @param context the context used for the transaction
+	 */
+	public static void transactionCommitted(DSLContext context) {
+		PendingIds pending = (PendingIds) context.data().remove(PENDING_DATA_KEY);
+		if (pending != null) {
+			pending.idCache.ids.putAll(pending.ids);
+		}
+	}
+
+	/**
+	 * Forgets the identifiers found in a transaction. Must be called before the context is
+	 * reused after the transaction is rolled back
+	 *
+	 * @param context the context used for the transaction
+	 */
+	public static void transactionRolledBack(DSLContext context) {
+		context.data().remove(PENDING_DATA_KEY);
+	}
+
+	private record PendingIds(IdCache idCache, Map<Object, Number> ids) { }
+
+}
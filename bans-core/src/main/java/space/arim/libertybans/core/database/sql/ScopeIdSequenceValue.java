@@ -46,10 +46,13 @@ public final class ScopeIdSequenceValue extends SequenceValue<Integer> {
 							.columns(SCOPES.ID, SCOPES.TYPE, SCOPES.VALUE)
 							.values(newId, val(type), val(value))
 							.execute();
-				}
+				},
+				new ScopeKey(type, value)
 		);
 	}
 
+	private record ScopeKey(ScopeType type, String value) { }
+
 	public Field<Integer> retrieveScopeId(ServerScope scope) {
 		return new ScopeParsing().deconstruct(scope, (type, value) -> {
 			if (type == ScopeType.GLOBAL) {
@@ -27,6 +27,8 @@ import org.jooq.Sequence;
 import org.jooq.Table;
 import org.jooq.impl.DSL;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Consumer;
 
@@ -53,6 +55,11 @@ public class SequenceValue<R extends Number> {
 
 	public Field<R> nextValue() {
 		if (context.family() == SQLDialect.MYSQL) {
+			IdBlockAllocator idBlockAllocator = IdBlockAllocator.attachedTo(context);
+			if (idBlockAllocator != null && IdBlockAllocator.allocatesFor(sequence)) {
+				// Avoid locking the emulation table's row in this transaction
+				return (lastValueForMySQL = val(idBlockAllocator.nextValue(sequence), sequence.getDataType()));
+			}
 			Table<?> emulationTable = emulationTable();
 			Field<R> valueField = emulationTableValueField();
 
@@ -70,6 +77,43 @@ public class SequenceValue<R extends Number> {
 		}
 	}
 
+	/**
+	 * Reserves several values at once, such as for rows written in a batch
+	 *
+	 * @param count the number of values
+	 * @return the reserved values
+	 */
+	public List<R> nextValues(int count) {
+		if (context.family() == SQLDialect.MYSQL) {
+			List<R> values = new ArrayList<>(count);
+			IdBlockAllocator idBlockAllocator = IdBlockAllocator.attachedTo(context);
+			if (idBlockAllocator != null && IdBlockAllocator.allocatesFor(sequence)) {
+				for (int n = 0; n < count; n++) {
+					values.add(idBlockAllocator.nextValue(sequence));
+				}
+				return values;
+			}
+			Table<?> emulationTable = emulationTable();
+			Field<R> valueField = emulationTableValueField();
+
+			long firstValue = context
+					.select(valueField)
+					.from(emulationTable)
+					.fetchSingle(valueField)
+					.longValue();
+			context
+					.update(emulationTable)
+					.set(valueField, valueField.plus(count))
+					.execute();
+			for (int n = 0; n < count; n++) {
+				values.add(sequence.getDataType().convert(firstValue + n));
+			}
+			return values;
+		} else {
+			return context.nextvals(sequence, count);
+		}
+	}
+
 	public Field<R> lastValueInSession() {
 		if (context.family() == SQLDialect.MYSQL) {
 			if (lastValueForMySQL == null) {
@@ -83,6 +127,10 @@ public class SequenceValue<R extends Number> {
 	}
 
 	public void setValue(R value) {
+		IdBlockAllocator idBlockAllocator = IdBlockAllocator.attachedTo(context);
+		if (idBlockAllocator != null) {
+			idBlockAllocator.discard(sequence);
+		}
 		switch (context.family()) {
 		case MYSQL -> context
 				.update(emulationTable())
@@ -108,21 +156,47 @@ public class SequenceValue<R extends Number> {
 		private final Field<R> sequenceValueField;
 		private final Condition matchExisting;
 		private final Consumer<Field<R>> insertNew;
-
+		private final Object cacheKey;
+
+		/**
+		 * Creates the operation
+		 *
+		 * @param table the table
+		 * @param sequenceValueField the identifier field
+		 * @param matchExisting matches the existing row
+		 * @param insertNew inserts a new row with the given identifier
+		 * @param cacheKey the key identifying the row in the {@link IdCache}, or null to skip the cache
+		 */
 		RetrieveOrGenerate(Table<?> table, Field<R> sequenceValueField,
-						   Condition matchExisting, Consumer<Field<R>> insertNew) {
+						   Condition matchExisting, Consumer<Field<R>> insertNew, Object cacheKey) {
 			this.table = table;
 			this.sequenceValueField = sequenceValueField;
 			this.matchExisting = matchExisting;
 			this.insertNew = insertNew;
+			this.cacheKey = cacheKey;
 		}
 
-		Field<R> execute() {
+		private R retrieveExisting() {
+			IdCache idCache = (cacheKey == null) ? null : IdCache.attachedTo(context);
+			if (idCache != null) {
+				Number cachedId = idCache.get(context, cacheKey);
+				if (cachedId != null) {
+					return sequenceValueField.getDataType().convert(cachedId);
+				}
+			}
 			R existingId = context
 					.select(sequenceValueField)
 					.from(table)
 					.where(matchExisting)
 					.fetchOne(sequenceValueField);
+			if (existingId != null && idCache != null) {
+				idCache.putAfterCommit(context, cacheKey, existingId);
+			}
+			return existingId;
+		}
+
+		Field<R> execute() {
+			R existingId = retrieveExisting();
 			if (existingId != null) {
 				return val(existingId);
 			}
@@ -131,11 +205,7 @@ public class SequenceValue<R extends Number> {
 		}
 
 		R executeReified() {
-			R existingId = context
-					.select(sequenceValueField)
-					.from(table)
-					.where(matchExisting)
-					.fetchOne(sequenceValueField);
+			R existingId = retrieveExisting();
 			if (existingId != null) {
 				return existingId;
 			}
@@ -43,6 +43,16 @@ public record SimpleViewFields<R extends Record12<
 		this(simpleView, simpleView.newRecord());
 	}
 
+	/**
+	 * Aliases the simple view, such as for use in a subquery of a query on the same view
+	 *
+	 * @param alias the alias
+	 * @return the fields of the aliased view
+	 */
+	public SimpleViewFields<R> as(String alias) {
+		return new SimpleViewFields<>(simpleView.as(alias));
+	}
+
 	@Override
 	public Table<? extends Record> table() {
 		return simpleView;
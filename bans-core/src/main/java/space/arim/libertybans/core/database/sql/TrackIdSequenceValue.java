@@ -34,10 +34,7 @@ public final class TrackIdSequenceValue extends SequenceValue<Integer> {
 		super(context, LIBERTYBANS_TRACK_IDS);
 	}
 
-	public Field<Integer> retrieveTrackId(EscalationTrack escalationTrack) {
-		if (escalationTrack == null) {
-			return castNull(Integer.class);
-		}
+	private RetrieveOrGenerate retrieveOrGenerate(EscalationTrack escalationTrack) {
 		return new RetrieveOrGenerate(
 				TRACKS, TRACKS.ID,
 				TRACKS.NAMESPACE.eq(escalationTrack.getNamespace())
@@ -48,8 +45,25 @@ public final class TrackIdSequenceValue extends SequenceValue<Integer> {
 							.columns(TRACKS.ID, TRACKS.NAMESPACE, TRACKS.VALUE)
 							.values(newId, val(escalationTrack.getNamespace()), val(escalationTrack.getValue()))
 							.execute();
-				}
-		).execute();
+				},
+				new TrackKey(escalationTrack.getNamespace(), escalationTrack.getValue())
+		);
 	}
 
+	public Field<Integer> retrieveTrackId(EscalationTrack escalationTrack) {
+		if (escalationTrack == null) {
+			return castNull(Integer.class);
+		}
+		return retrieveOrGenerate(escalationTrack).execute();
+	}
+
+	public Integer retrieveTrackIdReified(EscalationTrack escalationTrack) {
+		if (escalationTrack == null) {
+			return null;
+		}
+		return retrieveOrGenerate(escalationTrack).executeReified();
+	}
+
+	private record TrackKey(String namespace, String value) { }
+
 }
@@ -24,6 +24,7 @@ import org.jooq.Field;
 import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.Victim;
 
+import java.util.Collection;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -62,6 +63,14 @@ public final class VictimCondition implements MultiFieldCriterion<Victim> {
 		);
 	}
 
+	public Condition matchesAnyUUID(Collection<UUID> uuids) {
+		// (victim_uuid IN uuids) AND (victim_type = PLAYER OR victim_type = COMPOSITE)
+		return fields.victimUuid().in(uuids).and(
+				fields.victimType().eq(inline(Victim.VictimType.PLAYER))
+						.or(fields.victimType().eq(inline(Victim.VictimType.COMPOSITE)))
+		);
+	}
+
 	public Condition matchesVictim(VictimData victim) {
 		Condition matchesData = switch (victim.type()) {
 			case PLAYER -> fields.victimUuid().eq(victim.uuid());
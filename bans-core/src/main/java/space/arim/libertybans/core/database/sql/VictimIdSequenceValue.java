@@ -21,8 +21,11 @@ package space.arim.libertybans.core.database.sql;
 
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.Victim;
 
+import java.util.UUID;
+
 import static org.jooq.impl.DSL.val;
 import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_VICTIM_IDS;
 import static space.arim.libertybans.core.schema.tables.Victims.VICTIMS;
@@ -33,7 +36,7 @@ public final class VictimIdSequenceValue extends SequenceValue<Integer> {
 		super(context, LIBERTYBANS_VICTIM_IDS);
 	}
 
-	public Field<Integer> retrieveVictimId(Victim victim) {
+	private RetrieveOrGenerate retrieveOrGenerate(Victim victim) {
 		VictimData victimData = FixedVictimData.from(new SerializedVictim(victim));
 		return new RetrieveOrGenerate(
 				VICTIMS, VICTIMS.ID,
@@ -49,8 +52,19 @@ public final class VictimIdSequenceValue extends SequenceValue<Integer> {
 									val(victimData.address(), VICTIMS.ADDRESS)
 							)
 							.execute();
-				}
-		).execute();
+				},
+				new VictimKey(victimData.type(), victimData.uuid(), victimData.address())
+		);
+	}
+
+	public Field<Integer> retrieveVictimId(Victim victim) {
+		return retrieveOrGenerate(victim).execute();
+	}
+
+	public Integer retrieveVictimIdReified(Victim victim) {
+		return retrieveOrGenerate(victim).executeReified();
 	}
 
+	private record VictimKey(Victim.VictimType type, UUID uuid, NetworkAddress address) { }
+
 }
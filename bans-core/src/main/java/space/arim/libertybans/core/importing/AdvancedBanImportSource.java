@@ -35,11 +35,14 @@ import java.net.UnknownHostException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
 
-public class AdvancedBanImportSource implements ImportSource {
+public class AdvancedBanImportSource implements ResumableImportSource {
 
 	private final ImportConfig config;
 	private final ScopeManager scopeManager;
@@ -57,21 +60,36 @@ public class AdvancedBanImportSource implements ImportSource {
 	}
 
 	@Override
-	public Stream<PortablePunishment> sourcePunishments() {
+	public String checkpointName() {
+		return "advancedban";
+	}
+
+	@Override
+	public Stream<Positioned<PortablePunishment>> sourcePunishments(ImportCheckpoint checkpoint) {
 
 		DatabaseStream databaseStream = new DatabaseStream(
 				config.advancedBan().toConnectionSource(), config.retrievalSize());
 
-		// Map active punishments first. Stream.of has guaranteed order
-		return Stream.of(new RowMapper(true), new RowMapper(false))
-				.flatMap(databaseStream::streamRows)
-				// Filter punishments with the same details, in order to remove duplicates.
-				.map(AdvancedBanUniquePunishmentDetails::new)
-				.distinct()
-				.map(AdvancedBanUniquePunishmentDetails::portablePunishment);
+		// Map active punishments first
+		List<RowMapper> rowMappers = List.of(new RowMapper(true), new RowMapper(false));
+		// Filter punishments with the same details, in order to remove duplicates.
+		// Duplicates may precede the checkpoint, so all rows are read even when resuming
+		Set<AdvancedBanUniquePunishmentDetails> uniqueDetails = new HashSet<>();
+		Stream<Positioned<PortablePunishment>> punishments = databaseStream
+				.streamTablesAfter(rowMappers, null)
+				.filter((positioned) -> uniqueDetails.add(new AdvancedBanUniquePunishmentDetails(positioned.value())));
+		if (checkpoint == null) {
+			return punishments;
+		}
+		int checkpointIndex = DatabaseStream.checkpointIndex(rowMappers, checkpoint);
+		return punishments.filter((positioned) -> {
+			ImportCheckpoint position = positioned.position();
+			int index = DatabaseStream.checkpointIndex(rowMappers, position);
+			return index > checkpointIndex || index == checkpointIndex && position.lastKey() > checkpoint.lastKey();
+		});
 	}
 
-	private class RowMapper implements SchemaRowMapper<PortablePunishment> {
+	private class RowMapper implements KeysetRowMapper<PortablePunishment> {
 
 		private final boolean active;
 
@@ -79,9 +97,19 @@ public class AdvancedBanImportSource implements ImportSource {
 			this.active = active;
 		}
 
+		@Override
+		public String tableName() {
+			return active ? "Punishments" : "PunishmentHistory";
+		}
+
 		@Override
 		public String selectStatement() {
-			return "SELECT * FROM " + (active ? "Punishments" : "PunishmentHistory");
+			return "SELECT * FROM " + tableName() + " WHERE id > ? ORDER BY id ASC";
+		}
+
+		@Override
+		public long keyOf(ResultSet resultSet) throws SQLException {
+			return resultSet.getLong("id");
 		}
 
 		@Override
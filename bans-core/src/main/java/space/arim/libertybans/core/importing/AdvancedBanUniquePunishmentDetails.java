@@ -35,10 +35,6 @@ final class AdvancedBanUniquePunishmentDetails {
 		this.portablePunishment = Objects.requireNonNull(portablePunishment);
 	}
 
-	PortablePunishment portablePunishment() {
-		return portablePunishment;
-	}
-
 	private PortablePunishment.KnownDetails knownDetails() {
 		return portablePunishment.knownDetails();
 	}
@@ -0,0 +1,262 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.importing;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Provider;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.api.Operator;
+import space.arim.libertybans.api.PlayerOperator;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.punish.PunishmentCreator;
+import space.arim.libertybans.core.scope.InternalScopeManager;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+
+import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
+import static space.arim.libertybans.core.schema.tables.Names.NAMES;
+import static space.arim.libertybans.core.schema.tables.SimpleActive.SIMPLE_ACTIVE;
+import static space.arim.libertybans.core.schema.tables.SimpleHistory.SIMPLE_HISTORY;
+
+/**
+ * Exports all punishments, names, and addresses to an archive which {@link ArchiveImportSource}
+ * can import. Rows are read in keyset-paginated chunks and streamed to the archive, so memory use
+ * does not depend on the size of the database.
+ *
+ */
+public class ArchiveExporter {
+
+	private final Path folder;
+	private final Configs configs;
+	private final FactoryOfTheFuture futuresFactory;
+	private final Provider<InternalDatabase> dbProvider;
+	private final PunishmentCreator creator;
+	private final InternalScopeManager scopeManager;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public ArchiveExporter(@Named("folder") Path folder, Configs configs, FactoryOfTheFuture futuresFactory,
+						   Provider<InternalDatabase> dbProvider, PunishmentCreator creator,
+						   InternalScopeManager scopeManager) {
+		this.folder = folder;
+		this.configs = configs;
+		this.futuresFactory = futuresFactory;
+		this.dbProvider = dbProvider;
+		this.creator = creator;
+		this.scopeManager = scopeManager;
+	}
+
+	/**
+	 * Exports all data to the archive in the plugin folder, replacing any previous archive
+	 *
+	 * @return a future yielding true if successful, false if the export failed
+	 */
+	public CentralisedFuture<Boolean> performExport() {
+		CentralisedFuture<Boolean> future = futuresFactory.newIncompleteFuture();
+		new Thread(() -> {
+			try {
+				future.complete(runExport());
+			} catch (Throwable ex) {
+				future.completeExceptionally(ex);
+			}
+		}, "LibertyBans-Exporter").start();
+		return future;
+	}
+
+	private boolean runExport() {
+		Path archive = folder.resolve(ArchiveFormat.FILE_NAME);
+		Path temporaryArchive = folder.resolve(ArchiveFormat.FILE_NAME + ".tmp");
+		Export export = new Export(dbProvider.get(), configs.getImportConfig().batchSize());
+		logger.info("Beginning export to {}", archive);
+		try {
+			try (ArchiveWriter writer = new ArchiveWriter(
+					new ArchiveFormat(scopeManager), Files.newOutputStream(temporaryArchive))) {
+				long punishments = export.exportPunishments(writer);
+				logger.info("Exported {} punishments", punishments);
+				long nameAddressRecords = export.exportNames(writer) + export.exportAddresses(writer);
+				logger.info("Exported {} name and address records", nameAddressRecords);
+				writer.finish();
+			}
+			// Replace the previous archive only once the new archive is complete
+			Files.move(temporaryArchive, archive, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException | CompletionException ex) {
+			logger.error("Unable to complete export successfully", ex);
+			try {
+				Files.deleteIfExists(temporaryArchive);
+			} catch (IOException suppressed) {
+				ex.addSuppressed(suppressed);
+			}
+			return false;
+		}
+		logger.info("Export completed successfully");
+		return true;
+	}
+
+	private final class Export {
+
+		private final InternalDatabase database;
+		private final int pageSize;
+
+		private Export(InternalDatabase database, int pageSize) {
+			this.database = database;
+			this.pageSize = pageSize;
+		}
+
+		long exportPunishments(ArchiveWriter writer) throws IOException {
+			long count = 0;
+			long afterId = Long.MIN_VALUE;
+			while (true) {
+				long currentAfterId = afterId;
+				PunishmentPage page = database.query(SQLFunction.readOnly(
+						(context) -> selectPunishments(context, currentAfterId)
+				)).join();
+				for (Punishment punishment : page.punishments()) {
+					boolean active = page.activeIds().contains(punishment.getIdentifier());
+					writer.writePunishment(toPortablePunishment(punishment, active));
+				}
+				count += page.punishments().size();
+				if (page.punishments().size() < pageSize) {
+					return count;
+				}
+				afterId = page.punishments().get(page.punishments().size() - 1).getIdentifier();
+			}
+		}
+
+		private PunishmentPage selectPunishments(DSLContext context, long afterId) {
+			// Every punishment is present in the history, including active punishments
+			List<Punishment> punishments = context
+					.selectFrom(SIMPLE_HISTORY)
+					.where(SIMPLE_HISTORY.ID.greaterThan(afterId))
+					.orderBy(SIMPLE_HISTORY.ID)
+					.limit(pageSize)
+					.fetch(creator.punishmentMapper());
+			if (punishments.isEmpty()) {
+				return new PunishmentPage(punishments, Set.of());
+			}
+			Set<Long> activeIds = context
+					.select(SIMPLE_ACTIVE.ID)
+					.from(SIMPLE_ACTIVE)
+					.where(SIMPLE_ACTIVE.ID.between(
+							punishments.get(0).getIdentifier(),
+							punishments.get(punishments.size() - 1).getIdentifier()
+					))
+					.fetchSet(SIMPLE_ACTIVE.ID);
+			return new PunishmentPage(punishments, activeIds);
+		}
+
+		long exportNames(ArchiveWriter writer) throws IOException {
+			long count = 0;
+			NameAddressRecord last = null;
+			while (true) {
+				NameAddressRecord currentLast = last;
+				List<NameAddressRecord> page = database.query(SQLFunction.readOnly(
+						(context) -> selectNames(context, currentLast)
+				)).join();
+				for (NameAddressRecord record : page) {
+					writer.writeNameAddressRecord(record);
+				}
+				count += page.size();
+				if (page.size() < pageSize) {
+					return count;
+				}
+				last = page.get(page.size() - 1);
+			}
+		}
+
+		private List<NameAddressRecord> selectNames(DSLContext context, NameAddressRecord after) {
+			var orderedNames = context
+					.select(NAMES.UUID, NAMES.NAME, NAMES.UPDATED)
+					.from(NAMES)
+					.orderBy(NAMES.UUID, NAMES.NAME);
+			var page = (after == null) ?
+					orderedNames.limit(pageSize).fetch()
+					: orderedNames.seek(after.uuid(), after.name().orElseThrow()).limit(pageSize).fetch();
+			return page.map((record) -> new NameAddressRecord(record.value1(), record.value2(), null, record.value3()));
+		}
+
+		long exportAddresses(ArchiveWriter writer) throws IOException {
+			long count = 0;
+			NameAddressRecord last = null;
+			while (true) {
+				NameAddressRecord currentLast = last;
+				List<NameAddressRecord> page = database.query(SQLFunction.readOnly(
+						(context) -> selectAddresses(context, currentLast)
+				)).join();
+				for (NameAddressRecord record : page) {
+					writer.writeNameAddressRecord(record);
+				}
+				count += page.size();
+				if (page.size() < pageSize) {
+					return count;
+				}
+				last = page.get(page.size() - 1);
+			}
+		}
+
+		private List<NameAddressRecord> selectAddresses(DSLContext context, NameAddressRecord after) {
+			var orderedAddresses = context
+					.select(ADDRESSES.UUID, ADDRESSES.ADDRESS, ADDRESSES.UPDATED)
+					.from(ADDRESSES)
+					.orderBy(ADDRESSES.UUID, ADDRESSES.ADDRESS);
+			var page = (after == null) ?
+					orderedAddresses.limit(pageSize).fetch()
+					: orderedAddresses.seek(after.uuid(), after.address().orElseThrow()).limit(pageSize).fetch();
+			return page.map((record) -> new NameAddressRecord(record.value1(), null, record.value2(), record.value3()));
+		}
+
+	}
+
+	private record PunishmentPage(List<Punishment> punishments, Set<Long> activeIds) { }
+
+	private static PortablePunishment toPortablePunishment(Punishment punishment, boolean active) {
+		Operator operator = punishment.getOperator();
+		PortablePunishment.OperatorInfo operatorInfo = switch (operator.getType()) {
+			case CONSOLE -> PortablePunishment.OperatorInfo.createConsole();
+			case PLAYER -> PortablePunishment.OperatorInfo.createUser(((PlayerOperator) operator).getUUID(), null);
+		};
+		return new PortablePunishment(
+				null,
+				new PortablePunishment.KnownDetails(
+						punishment.getType(), punishment.getReason(), punishment.getScope(),
+						punishment.getStartDate(), punishment.getEndDate()
+				),
+				PortablePunishment.VictimInfo.simpleVictim(punishment.getVictim()),
+				operatorInfo,
+				active
+		);
+	}
+
+}
@@ -0,0 +1,228 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.importing;
+
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.scope.ServerScope;
+import space.arim.libertybans.core.database.sql.DeserializedVictim;
+import space.arim.libertybans.core.database.sql.SerializedVictim;
+import space.arim.libertybans.core.scope.InternalScopeManager;
+import space.arim.libertybans.core.scope.ScopeType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * The export archive format. An archive is a GZIP-compressed stream starting with a header,
+ * followed by length-prefixed entries and an end marker. <br>
+ * <br>
+ * Each entry consists of a tag byte, the length of the payload, and the payload itself.
+ * Readers skip entries whose tag they do not need, so that punishments and name/address
+ * records can be read in separate passes.
+ *
+ */
+final class ArchiveFormat {
+
+	static final String FILE_NAME = "export.libertybans";
+
+	static final int MAGIC = 0x4C42_4558; // 'LBEX'
+	static final int VERSION = 1;
+
+	static final byte END_TAG = 0;
+	static final byte PUNISHMENT_TAG = 1;
+	static final byte NAME_ADDRESS_TAG = 2;
+
+	private static final int HAS_UUID = 1;
+	private static final int HAS_NAME = 1 << 1;
+	private static final int HAS_ADDRESS = 1 << 2;
+	private static final int HAS_OVERRIDE_VICTIM = 1 << 3;
+	private static final int IS_CONSOLE = 1 << 4;
+
+	private final InternalScopeManager scopeManager;
+
+	ArchiveFormat(InternalScopeManager scopeManager) {
+		this.scopeManager = scopeManager;
+	}
+
+	void writePunishment(DataOutput output, PortablePunishment punishment) throws IOException {
+		PortablePunishment.KnownDetails details = punishment.knownDetails();
+		output.writeByte(details.type().ordinal());
+		output.writeUTF(details.reason());
+		writeScope(output, details.scope());
+		output.writeLong(details.start().getEpochSecond());
+		output.writeLong(writeEnd(details.end()));
+
+		PortablePunishment.VictimInfo victimInfo = punishment.victimInfo();
+		UUID victimUuid = victimInfo.uuid().orElse(null);
+		String victimName = victimInfo.name().orElse(null);
+		NetworkAddress victimAddress = victimInfo.address().orElse(null);
+		Victim overrideVictim = victimInfo.overrideVictim().orElse(null);
+		output.writeByte(flag(victimUuid, HAS_UUID) | flag(victimName, HAS_NAME)
+				| flag(victimAddress, HAS_ADDRESS) | flag(overrideVictim, HAS_OVERRIDE_VICTIM));
+		if (victimUuid != null) {
+			writeUuid(output, victimUuid);
+		}
+		if (victimName != null) {
+			output.writeUTF(victimName);
+		}
+		if (victimAddress != null) {
+			writeAddress(output, victimAddress);
+		}
+		if (overrideVictim != null) {
+			SerializedVictim serializedVictim = new SerializedVictim(overrideVictim);
+			output.writeByte(serializedVictim.type().ordinal());
+			writeUuid(output, serializedVictim.uuid());
+			writeAddress(output, serializedVictim.address());
+		}
+
+		PortablePunishment.OperatorInfo operatorInfo = punishment.operatorInfo();
+		UUID operatorUuid = operatorInfo.uuid().orElse(null);
+		String operatorName = operatorInfo.name().orElse(null);
+		output.writeByte((operatorInfo.console() ? IS_CONSOLE : 0)
+				| flag(operatorUuid, HAS_UUID) | flag(operatorName, HAS_NAME));
+		if (operatorUuid != null) {
+			writeUuid(output, operatorUuid);
+		}
+		if (operatorName != null) {
+			output.writeUTF(operatorName);
+		}
+		output.writeBoolean(punishment.active());
+	}
+
+	PortablePunishment readPunishment(DataInput input) throws IOException {
+		PunishmentType type = readEnum(input, PunishmentType.values());
+		String reason = input.readUTF();
+		ServerScope scope = readScope(input);
+		Instant start = Instant.ofEpochSecond(input.readLong());
+		Instant end = readEnd(input.readLong());
+
+		int victimFlags = input.readUnsignedByte();
+		UUID victimUuid = ((victimFlags & HAS_UUID) != 0) ? readUuid(input) : null;
+		String victimName = ((victimFlags & HAS_NAME) != 0) ? input.readUTF() : null;
+		NetworkAddress victimAddress = ((victimFlags & HAS_ADDRESS) != 0) ? readAddress(input) : null;
+		Victim overrideVictim = null;
+		if ((victimFlags & HAS_OVERRIDE_VICTIM) != 0) {
+			Victim.VictimType victimType = readEnum(input, Victim.VictimType.values());
+			overrideVictim = new DeserializedVictim(readUuid(input), readAddress(input)).victim(victimType);
+		}
+
+		int operatorFlags = input.readUnsignedByte();
+		UUID operatorUuid = ((operatorFlags & HAS_UUID) != 0) ? readUuid(input) : null;
+		String operatorName = ((operatorFlags & HAS_NAME) != 0) ? input.readUTF() : null;
+		boolean active = input.readBoolean();
+		try {
+			return new PortablePunishment(
+					null,
+					new PortablePunishment.KnownDetails(type, reason, scope, start, end),
+					new PortablePunishment.VictimInfo(victimUuid, victimName, victimAddress, overrideVictim),
+					new PortablePunishment.OperatorInfo((operatorFlags & IS_CONSOLE) != 0, operatorUuid, operatorName),
+					active
+			);
+		} catch (IllegalArgumentException ex) {
+			throw new ImportException("Malformed punishment in export archive", ex);
+		}
+	}
+
+	void writeNameAddressRecord(DataOutput output, NameAddressRecord record) throws IOException {
+		String name = record.name().orElse(null);
+		NetworkAddress address = record.address().orElse(null);
+		writeUuid(output, record.uuid());
+		output.writeByte(flag(name, HAS_NAME) | flag(address, HAS_ADDRESS));
+		if (name != null) {
+			output.writeUTF(name);
+		}
+		if (address != null) {
+			writeAddress(output, address);
+		}
+		output.writeLong(record.timeRecorded().getEpochSecond());
+	}
+
+	NameAddressRecord readNameAddressRecord(DataInput input) throws IOException {
+		UUID uuid = readUuid(input);
+		int flags = input.readUnsignedByte();
+		String name = ((flags & HAS_NAME) != 0) ? input.readUTF() : null;
+		NetworkAddress address = ((flags & HAS_ADDRESS) != 0) ? readAddress(input) : null;
+		Instant timeRecorded = Instant.ofEpochSecond(input.readLong());
+		return new NameAddressRecord(uuid, name, address, timeRecorded);
+	}
+
+	private static int flag(Object value, int flag) {
+		return (value == null) ? 0 : flag;
+	}
+
+	private void writeScope(DataOutput output, ServerScope scope) throws IOException {
+		SerializedScope serializedScope = scopeManager.deconstruct(scope, SerializedScope::new);
+		output.writeByte(serializedScope.type().ordinal());
+		output.writeUTF(serializedScope.value());
+	}
+
+	private record SerializedScope(ScopeType type, String value) { }
+
+	private ServerScope readScope(DataInput input) throws IOException {
+		ScopeType type = readEnum(input, ScopeType.values());
+		String value = input.readUTF();
+		return scopeManager.deserialize(type, value);
+	}
+
+	// Permanent punishments are written with an end of 0, as in the database
+	private static long writeEnd(Instant end) {
+		return end.equals(Instant.MAX) ? 0L : end.getEpochSecond();
+	}
+
+	private static Instant readEnd(long end) {
+		return (end == 0L) ? Instant.MAX : Instant.ofEpochSecond(end);
+	}
+
+	private static void writeUuid(DataOutput output, UUID uuid) throws IOException {
+		output.writeLong(uuid.getMostSignificantBits());
+		output.writeLong(uuid.getLeastSignificantBits());
+	}
+
+	private static UUID readUuid(DataInput input) throws IOException {
+		return new UUID(input.readLong(), input.readLong());
+	}
+
+	private static void writeAddress(DataOutput output, NetworkAddress address) throws IOException {
+		byte[] rawAddress = address.getRawAddress();
+		output.writeByte(rawAddress.length);
+		output.write(rawAddress);
+	}
+
+	private static NetworkAddress readAddress(DataInput input) throws IOException {
+		byte[] rawAddress = new byte[input.readUnsignedByte()];
+		input.readFully(rawAddress);
+		return NetworkAddress.of(rawAddress);
+	}
+
+	private static <E extends Enum<E>> E readEnum(DataInput input, E[] values) throws IOException {
+		int ordinal = input.readUnsignedByte();
+		if (ordinal >= values.length) {
+			throw new ImportException("Unknown " + values.getClass().getComponentType().getSimpleName()
+					+ " in export archive: " + ordinal);
+		}
+		return values[ordinal];
+	}
+
+}
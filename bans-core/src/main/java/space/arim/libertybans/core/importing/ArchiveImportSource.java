@@ -0,0 +1,102 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.importing;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import space.arim.libertybans.core.scope.InternalScopeManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Imports from an archive written by {@link ArchiveExporter}. The archive is read sequentially,
+ * once for punishments and once for name and address history
+ *
+ */
+public class ArchiveImportSource implements ImportSource {
+
+	private final Path archive;
+	private final ArchiveFormat format;
+
+	@Inject
+	public ArchiveImportSource(@Named("folder") Path folder, InternalScopeManager scopeManager) {
+		this(folder.resolve(ArchiveFormat.FILE_NAME), new ArchiveFormat(scopeManager));
+	}
+
+	ArchiveImportSource(Path archive, ArchiveFormat format) {
+		this.archive = archive;
+		this.format = format;
+	}
+
+	@Override
+	public Stream<PortablePunishment> sourcePunishments() {
+		return streamEntries(ArchiveFormat.PUNISHMENT_TAG, format::readPunishment);
+	}
+
+	@Override
+	public Stream<NameAddressRecord> sourceNameAddressHistory() {
+		return streamEntries(ArchiveFormat.NAME_ADDRESS_TAG, format::readNameAddressRecord);
+	}
+
+	private <T> Stream<T> streamEntries(byte tag, ArchiveReader.EntryDecoder<T> decoder) {
+		ArchiveReader reader;
+		try {
+			reader = new ArchiveReader(Files.newInputStream(archive));
+		} catch (NoSuchFileException ex) {
+			throw new ImportException("There is no export archive at " + archive, ex);
+		} catch (IOException ex) {
+			throw new ImportException("Unable to open export archive", ex);
+		}
+		var spliterator = new Spliterators.AbstractSpliterator<T>(
+				Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action) {
+				T entry;
+				try {
+					entry = reader.nextEntry(tag, decoder);
+				} catch (IOException ex) {
+					throw new ImportException("Unable to read export archive", ex);
+				}
+				if (entry == null) {
+					return false;
+				}
+				action.accept(entry);
+				return true;
+			}
+		};
+		return StreamSupport.stream(spliterator, false).onClose(() -> {
+			try {
+				reader.close();
+			} catch (IOException ex) {
+				throw new ImportException("Failure closing export archive", ex);
+			}
+		});
+	}
+
+}
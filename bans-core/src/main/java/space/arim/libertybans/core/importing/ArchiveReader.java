@@ -0,0 +1,94 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.importing;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads entries from an export archive. See {@link ArchiveFormat}
+ *
+ */
+final class ArchiveReader implements AutoCloseable {
+
+	private final DataInputStream input;
+	private boolean ended;
+
+	ArchiveReader(InputStream source) throws IOException {
+		input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(source)));
+		if (input.readInt() != ArchiveFormat.MAGIC) {
+			throw new ImportException("The file is not a LibertyBans export archive");
+		}
+		int version = input.readInt();
+		if (version != ArchiveFormat.VERSION) {
+			throw new ImportException("Unsupported export archive version " + version);
+		}
+	}
+
+	/**
+	 * Reads the next entry with the given tag, skipping entries with other tags
+	 *
+	 * @param tag the tag of the entries to read
+	 * @param decoder the decoder of the entry payload
+	 * @return the decoded entry, or null if there are no more entries
+	 * @param <T> the type of entry
+	 * @throws IOException if reading failed
+	 */
+	<T> T nextEntry(byte tag, EntryDecoder<T> decoder) throws IOException {
+		try {
+			while (!ended) {
+				byte entryTag = input.readByte();
+				if (entryTag == ArchiveFormat.END_TAG) {
+					ended = true;
+					break;
+				}
+				int length = input.readInt();
+				if (entryTag != tag) {
+					input.skipNBytes(length);
+					continue;
+				}
+				byte[] payload = new byte[length];
+				input.readFully(payload);
+				return decoder.decode(new DataInputStream(new ByteArrayInputStream(payload)));
+			}
+		} catch (EOFException ex) {
+			throw new ImportException("The export archive is truncated. It may not have been written completely", ex);
+		}
+		return null;
+	}
+
+	interface EntryDecoder<T> {
+
+		T decode(DataInput payload) throws IOException;
+
+	}
+
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.importing;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes entries to an export archive. See {@link ArchiveFormat}
+ *
+ */
+final class ArchiveWriter implements AutoCloseable {
+
+	private final ArchiveFormat format;
+	private final DataOutputStream output;
+	private final ByteArrayOutputStream payloadBuffer = new ByteArrayOutputStream();
+	private final DataOutputStream payload = new DataOutputStream(payloadBuffer);
+
+	ArchiveWriter(ArchiveFormat format, OutputStream destination) throws IOException {
+		this.format = format;
+		output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(destination)));
+		output.writeInt(ArchiveFormat.MAGIC);
+		output.writeInt(ArchiveFormat.VERSION);
+	}
+
+	void writePunishment(PortablePunishment punishment) throws IOException {
+		payloadBuffer.reset();
+		format.writePunishment(payload, punishment);
+		writeEntry(ArchiveFormat.PUNISHMENT_TAG);
+	}
+
+	void writeNameAddressRecord(NameAddressRecord record) throws IOException {
+		payloadBuffer.reset();
+		format.writeNameAddressRecord(payload, record);
+		writeEntry(ArchiveFormat.NAME_ADDRESS_TAG);
+	}
+
+	private void writeEntry(byte tag) throws IOException {
+		output.writeByte(tag);
+		output.writeInt(payloadBuffer.size());
+		payloadBuffer.writeTo(output);
+	}
+
+	/**
+	 * Writes the end marker. An archive without the end marker is treated as truncated
+	 *
+	 * @throws IOException if writing failed
+	 */
+	void finish() throws IOException {
+		output.writeByte(ArchiveFormat.END_TAG);
+	}
+
+	@Override
+	public void close() throws IOException {
+		output.close();
+	}
+
+}
@@ -30,11 +30,12 @@ import space.arim.omnibus.util.UUIDUtil;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Stream;
 
-public class BanManagerImportSource implements ImportSource {
+public class BanManagerImportSource implements ResumableImportSource {
 
 	private final ImportConfig config;
 	private final ScopeManager scopeManager;
@@ -55,7 +56,12 @@ public class BanManagerImportSource implements ImportSource {
 	}
 
 	@Override
-	public Stream<PortablePunishment> sourcePunishments() {
+	public String checkpointName() {
+		return "banmanager";
+	}
+
+	@Override
+	public Stream<Positioned<PortablePunishment>> sourcePunishments(ImportCheckpoint checkpoint) {
 		ImportConfig.BanManagerSettings banManagerConf = config.banManager();
 
 		UUID consoleUuid = new BanManagerConsoleUUID(
@@ -63,10 +69,10 @@ public class BanManagerImportSource implements ImportSource {
 				banManagerConf.tablePrefix()
 		).retrieveConsoleUUID();
 
-		DatabaseStream databaseStream = databaseStream();
-		return Stream.of(BanManagerTable.values())
+		List<RowMapper> rowMappers = Stream.of(BanManagerTable.values())
 				.map((table) -> new RowMapper(table, consoleUuid))
-				.flatMap(databaseStream::streamRows);
+				.toList();
+		return databaseStream().streamTablesAfter(rowMappers, checkpoint);
 	}
 
 	/**
@@ -74,7 +80,7 @@ public class BanManagerImportSource implements ImportSource {
 	 * which maintains integrity, so we do not need null checks on NONNULL columns.
 	 *
 	 */
-	private final class RowMapper implements SchemaRowMapper<PortablePunishment> {
+	private final class RowMapper implements KeysetRowMapper<PortablePunishment> {
 
 		private final BanManagerTable table;
 		private final UUID consoleUuid;
@@ -84,10 +90,20 @@ public class BanManagerImportSource implements ImportSource {
 			this.consoleUuid = consoleUuid;
 		}
 
+		@Override
+		public String tableName() {
+			return table.tableName("");
+		}
+
 		@Override
 		public String selectStatement() {
 			String tableName = table.tableName(config.banManager().tablePrefix());
-			return "SELECT * FROM \"" + tableName + '"';
+			return "SELECT * FROM \"" + tableName + "\" WHERE \"id\" > ? ORDER BY \"id\" ASC";
+		}
+
+		@Override
+		public long keyOf(ResultSet resultSet) throws SQLException {
+			return resultSet.getLong("id");
 		}
 
 		@Override
@@ -54,9 +54,10 @@ class BatchOperationExecutor implements AutoCloseable {
 		openConnectionIfNecessary();
 
 		/*
-		 * Committing every time is a necessity. Queries cannot be batched together
-		 * because otherwise the open transaction leads to deadlocks with other
-		 * queries, such as uuid lookups for name-based operators.
+		 * Each operation is its own transaction. Transactions must not stay open between
+		 * operations, because otherwise the open transaction leads to deadlocks with other
+		 * queries, such as uuid lookups for name-based operators. Batching is instead
+		 * achieved by ImportSink, which writes many rows in each operation.
 		 *
 		 * Committing is handled by #executeWithExistingConnection
 		 */
@@ -0,0 +1,86 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+
+package space.arim.libertybans.core.importing;
+
+import org.jooq.DSLContext;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+
+import static space.arim.libertybans.core.schema.tables.ImportCheckpoints.IMPORT_CHECKPOINTS;
+
+/**
+ * Stores the checkpoint of an import source
+ *
+ */
+final class CheckpointStore {
+
+	private final String source;
+
+	CheckpointStore(String source) {
+		this.source = Objects.requireNonNull(source, "source");
+	}
+
+	Optional<ImportCheckpoint> load(DSLContext context) {
+		return context
+				.select(IMPORT_CHECKPOINTS.SOURCE_TABLE, IMPORT_CHECKPOINTS.LAST_KEY)
+				.from(IMPORT_CHECKPOINTS)
+				.where(IMPORT_CHECKPOINTS.SOURCE.eq(source))
+				.fetchOptional((record) -> new ImportCheckpoint(record.value1(), record.value2()));
+	}
+
+	/**
+	 * Saves the checkpoint. Should be called in the same transaction which imports the
+	 * punishments up to the checkpoint
+	 *
+	 * @param context the context
+	 * @param checkpoint the checkpoint
+	 * @param currentTime the current time
+	 */
+	void save(DSLContext context, ImportCheckpoint checkpoint, Instant currentTime) {
+		context
+				.insertInto(IMPORT_CHECKPOINTS)
+				.columns(IMPORT_CHECKPOINTS.SOURCE, IMPORT_CHECKPOINTS.SOURCE_TABLE,
+						IMPORT_CHECKPOINTS.LAST_KEY, IMPORT_CHECKPOINTS.UPDATED)
+				.values(source, checkpoint.sourceTable(), checkpoint.lastKey(), currentTime)
+				.onConflict(IMPORT_CHECKPOINTS.SOURCE)
+				.doUpdate()
+				.set(IMPORT_CHECKPOINTS.SOURCE_TABLE, checkpoint.sourceTable())
+				.set(IMPORT_CHECKPOINTS.LAST_KEY, checkpoint.lastKey())
+				.set(IMPORT_CHECKPOINTS.UPDATED, currentTime)
+				.execute();
+	}
+
+	void clear(DSLContext context) {
+		context
+				.deleteFrom(IMPORT_CHECKPOINTS)
+				.where(IMPORT_CHECKPOINTS.SOURCE.eq(source))
+				.execute();
+	}
+
+	@Override
+	public String toString() {
+		return "CheckpointStore{" +
+				"source='" + source + '\'' +
+				'}';
+	}
+}
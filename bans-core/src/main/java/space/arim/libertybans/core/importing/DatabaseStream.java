@@ -21,6 +21,7 @@ package space.arim.libertybans.core.importing;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Objects;
 import java.util.Spliterator;
 import java.util.Spliterators;
@@ -70,5 +71,81 @@ class DatabaseStream {
 				});
 	}
 
+	/**
+	 * Streams the rows of a table using keyset pagination
+	 *
+	 * @param rowMapper the row mapper
+	 * @param afterKey the key after which to start
+	 * @return the rows with their positions
+	 */
+	<T> Stream<Positioned<T>> streamPages(KeysetRowMapper<T> rowMapper, long afterKey) {
+		Connection connection;
+		try {
+			connection = connectionSource.openConnection();
+		} catch (SQLException ex) {
+			throw new ImportException("Unable to open importing connection", ex);
+		}
+		KeysetIterator<T> iterator;
+		try {
+			iterator = new KeysetIterator<>(rowMapper, connection, retrievalSize, afterKey);
+		} catch (SQLException ex) {
+			try {
+				connection.close();
+			} catch (SQLException suppressed) { ex.addSuppressed(suppressed); }
+			throw new ImportException("Unable to prepare selection of imported rows", ex);
+		}
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.IMMUTABLE), false)
+				.onClose(() -> {
+					try {
+						iterator.close();
+					} catch (SQLException ex) {
+						throw new ImportException("Failure closing import iterator", ex);
+					}
+				})
+				.onClose(() -> {
+					try {
+						connection.close();
+					} catch (SQLException ex) {
+						throw new ImportException("Failure closing import connection", ex);
+					}
+				});
+	}
+
+	/**
+	 * Streams the rows of several tables in order, starting after the given checkpoint
+	 *
+	 * @param rowMappers the row mappers for each table, in order
+	 * @param checkpoint the checkpoint after which to start, or null to stream all rows
+	 * @return the rows with their positions
+	 */
+	<T> Stream<Positioned<T>> streamTablesAfter(List<? extends KeysetRowMapper<T>> rowMappers,
+												ImportCheckpoint checkpoint) {
+		int startIndex = 0;
+		if (checkpoint != null) {
+			startIndex = checkpointIndex(rowMappers, checkpoint);
+		}
+		return rowMappers.subList(startIndex, rowMappers.size()).stream()
+				.flatMap((rowMapper) -> {
+					boolean resumedTable = checkpoint != null && rowMapper.tableName().equals(checkpoint.sourceTable());
+					return streamPages(rowMapper, resumedTable ? checkpoint.lastKey() : Long.MIN_VALUE);
+				});
+	}
+
+	/**
+	 * Gets the index of the table of the given checkpoint
+	 *
+	 * @param rowMappers the row mappers for each table, in order
+	 * @param checkpoint the checkpoint
+	 * @return the index of the table in the row mappers
+	 * @throws ImportException if the checkpoint's table is not one of the tables
+	 */
+	static int checkpointIndex(List<? extends KeysetRowMapper<?>> rowMappers, ImportCheckpoint checkpoint) {
+		for (int n = 0; n < rowMappers.size(); n++) {
+			if (rowMappers.get(n).tableName().equals(checkpoint.sourceTable())) {
+				return n;
+			}
+		}
+		throw new ImportException("The checkpoint " + checkpoint + " does not belong to this import source");
+	}
 
 }
@@ -17,31 +17,27 @@
  * and navigate to version 3 of the GNU Affero General Public License.
  */
 
-package space.arim.libertybans.core.database.jooq;
 
-import org.jooq.Cursor;
+package space.arim.libertybans.core.importing;
 
 import java.util.Objects;
 
-public final class BatchTransfer<R extends org.jooq.Record> extends BatchExecute<R> {
-
-	private final Cursor<R> cursor;
-
-	public BatchTransfer(Cursor<R> cursor,
-						 BatchProvider batchProvider,
-						 BatchAttachment<R> batchAttachment) {
-		super(batchProvider, batchAttachment);
-		this.cursor = Objects.requireNonNull(cursor);
-	}
+/**
+ * The position of an imported punishment in its import source
+ *
+ * @param sourceTable the table in the import source
+ * @param lastKey the key of the row in that table
+ */
+public record ImportCheckpoint(String sourceTable, long lastKey) {
 
 	/**
-	 * Performs the transfer
-	 *
-	 * @param maxBatchSize how many records to transfer in a single batch
+	 * Recorded once all punishments are imported. Name and address history is not checkpointed,
+	 * because importing it again is harmless
 	 */
-	public void execute(int maxBatchSize) {
-		try (cursor) {
-			super.execute(cursor, maxBatchSize);
-		}
+	public static final ImportCheckpoint PUNISHMENTS_COMPLETE = new ImportCheckpoint("", 0L);
+
+	public ImportCheckpoint {
+		Objects.requireNonNull(sourceTable, "sourceTable");
 	}
+
 }
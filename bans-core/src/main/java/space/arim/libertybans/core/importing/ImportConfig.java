@@ -32,7 +32,8 @@ import space.arim.libertybans.core.database.DatabaseSettingsConfig;
 		"Most users should not have to touch this.",
 		"",
 		"In order to perform an import, run /libertybans import <source>.",
-		"Available sources are 'advancedban', 'litebans', 'vanilla', and 'self'.",
+		"Available sources are 'advancedban', 'litebans', 'vanilla', 'archive', and 'self'.",
+		"The 'archive' source imports the archive written by /libertybans export.",
 		"",
 		"Importing from vanilla is only possible on Bukkit.",
 		"Essentials users: Note that Essentials uses the vanilla ban system.",
@@ -64,6 +65,25 @@ public interface ImportConfig {
 	@IntegerRange(min = 1)
 	int retrievalSize();
 
+	@ConfKey("batch-size")
+	@ConfComments({
+			"How many punishments to write to the database in each transaction.",
+			"Punishments are read from the import source on a separate thread while each batch is written.",
+			"Larger batches make the import faster, at the expense of holding more punishments in memory.",
+			"When self-importing, this is how many rows of a table are copied in each transaction."})
+	@ConfDefault.DefaultInteger(2000)
+	@IntegerRange(min = 1)
+	int batchSize();
+
+	@ConfKey("self-import-threads")
+	@ConfComments({
+			"How many tables to copy at once when self-importing.",
+			"Tables which do not depend on each other are copied concurrently, each using its own connections.",
+			"This should not exceed the connection pool size of either database."})
+	@ConfDefault.DefaultInteger(4)
+	@IntegerRange(min = 1)
+	int selfImportThreads();
+
 	@ConfKey("advancedban")
 	@SubSection
 	AdvancedBanSettings advancedBan();
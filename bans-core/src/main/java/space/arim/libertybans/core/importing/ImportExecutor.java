@@ -24,8 +24,11 @@ import jakarta.inject.Provider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.alts.AccountGraph;
+import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.service.Time;
 import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.database.execute.SQLFunction;
 import space.arim.libertybans.core.punish.Enaction;
 import space.arim.libertybans.core.punish.PunishmentCreator;
 import space.arim.omnibus.util.ThisClass;
@@ -34,38 +37,59 @@ import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 public class ImportExecutor {
 
+	private final Configs configs;
 	private final FactoryOfTheFuture futuresFactory;
 	private final ImportFunction importFunction;
 	private final Provider<InternalDatabase> dbProvider;
 	private final PunishmentCreator creator;
+	private final AccountGraph accountGraph;
 	private final Time time;
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
-	public ImportExecutor(FactoryOfTheFuture futuresFactory, ImportFunction importFunction,
-						  Provider<InternalDatabase> dbProvider, PunishmentCreator creator, Time time) {
+	public ImportExecutor(Configs configs, FactoryOfTheFuture futuresFactory, ImportFunction importFunction,
+						  Provider<InternalDatabase> dbProvider, PunishmentCreator creator, AccountGraph accountGraph,
+						  Time time) {
+		this.configs = configs;
 		this.futuresFactory = futuresFactory;
 		this.importFunction = importFunction;
 		this.dbProvider = dbProvider;
 		this.creator = creator;
+		this.accountGraph = accountGraph;
 		this.time = time;
 	}
 
 	public CentralisedFuture<ImportStatistics> performImport(ImportSource importSource) {
+		return startImport(importSource, false);
+	}
+
+	/**
+	 * Resumes an import which previously failed, starting from its last checkpoint
+	 *
+	 * @param importSource the import source
+	 * @return a future yielding the statistics of the resumed import
+	 */
+	public CentralisedFuture<ImportStatistics> resumeImport(ResumableImportSource importSource) {
+		return startImport(importSource, true);
+	}
+
+	private CentralisedFuture<ImportStatistics> startImport(ImportSource importSource, boolean resume) {
 		Objects.requireNonNull(importSource, "importSource");
 
 		CentralisedFuture<ImportStatistics> future = futuresFactory.newIncompleteFuture();
 		new Thread(() -> {
 			try {
-				future.complete(runImport(importSource));
+				future.complete(runImport(importSource, resume));
 			} catch (Throwable ex) {
 				future.completeExceptionally(ex);
 			}
@@ -73,41 +97,93 @@ public class ImportExecutor {
 		return future;
 	}
 
-	private ImportStatistics runImport(ImportSource importSource) {
+	private ImportStatistics runImport(ImportSource importSource, boolean resume) {
+		int batchSize = configs.getImportConfig().batchSize();
 		ImportStatistics statistics = new ImportStatistics();
+		CheckpointStore checkpointStore = (importSource instanceof ResumableImportSource resumable) ?
+				new CheckpointStore(resumable.checkpointName()) : null;
 		try (BatchOperationExecutor batchExecutor = new BatchOperationExecutor(dbProvider.get())) {
 
-			ImportSink importSink = new ImportSink(batchExecutor, statistics);
-			transferPunishments(importSource, importSink);
-			transferExplicitNameAddressRecords(importSource, importSink);
+			ImportCheckpoint checkpoint = null;
+			if (resume) {
+				checkpoint = dbProvider.get().query(SQLFunction.readOnly(checkpointStore::load)).join().orElse(null);
+				if (checkpoint == null) {
+					logger.error("There is no checkpoint from which to resume importing. Start a new import instead.");
+					statistics.markFailed();
+					return statistics;
+				}
+				logger.info("Resuming import after {}", checkpoint);
+			}
+			ImportSink importSink = new ImportSink(batchExecutor, statistics, checkpointStore, time);
+			if (!ImportCheckpoint.PUNISHMENTS_COMPLETE.equals(checkpoint)) {
+				transferPunishments(importSource, checkpoint, importSink, batchSize, statistics);
+				importSink.setCheckpoint(ImportCheckpoint.PUNISHMENTS_COMPLETE);
+				importSink.flush();
+			}
+			transferExplicitNameAddressRecords(importSource, importSink, batchSize, statistics);
+			if (checkpointStore != null) {
+				batchExecutor.runOperation((context, transaction) -> checkpointStore.clear(context));
+			}
 
+			statistics.markFinished();
 			logger.info("Import completed successfully. {}", statistics);
 
 		} catch (ImportException | SQLException ex) {
-			logger.error(
-					"Unable to complete import successfully. It is recommended to remove " +
-							"any partially completed data, investigate the cause of failure, and " +
-							"try again when you are sure the problem has been corrected.", ex);
+			if (checkpointStore != null) {
+				logger.error(
+						"Unable to complete import successfully. It is recommended to investigate the " +
+								"cause of failure. When you are sure the problem has been corrected, resume " +
+								"the import by adding 'resume' to the import command.", ex);
+			} else {
+				logger.error(
+						"Unable to complete import successfully. It is recommended to remove " +
+								"any partially completed data, investigate the cause of failure, and " +
+								"try again when you are sure the problem has been corrected.", ex);
+			}
 			statistics.markFailed();
 		}
+		// Imported addresses, even if partially imported, are not yet known to the index
+		accountGraph.restart();
 		return statistics;
 	}
 
-	private void transferPunishments(ImportSource importSource, ImportSink importSink) {
-		try (Stream<PortablePunishment> punishmentStream = importSource.sourcePunishments()) {
-			punishmentStream.forEach(punishment -> {
-				Optional<Enaction.OrderDetails> enactionOrder = importFunction.createOrder(punishment, importSink);
-				if (enactionOrder.isEmpty()) {
-					logger.info("Skipped imported punishment with ID {} applying to victim {}",
-							punishment.foreignId(), punishment.victimInfo());
-					return;
+	private void transferPunishments(ImportSource importSource, ImportCheckpoint checkpoint, ImportSink importSink,
+									 int batchSize, ImportStatistics statistics) {
+		Supplier<Stream<Positioned<PortablePunishment>>> punishments;
+		if (importSource instanceof ResumableImportSource resumable) {
+			punishments = () -> resumable.sourcePunishments(checkpoint);
+		} else {
+			punishments = () -> importSource.sourcePunishments().map((punishment) -> new Positioned<>(punishment, null));
+		}
+		try (PipelinedReader<Positioned<PortablePunishment>> reader = new PipelinedReader<>(punishments, batchSize)) {
+			List<Positioned<PortablePunishment>> chunk;
+			while (!(chunk = reader.nextChunk()).isEmpty()) {
+				// Operator and victim uuids are resolved before the batch is written
+				for (Positioned<PortablePunishment> punishment : chunk) {
+					transferPunishment(importSink, punishment.value());
+					importSink.setCheckpoint(punishment.position());
 				}
-				addEnaction(importSink, punishment, new Enaction(enactionOrder.get(), creator));
-				addImplicitNameAddressRecord(importSink, punishment);
-			});
+				importSink.flush();
+				logProgress(statistics);
+			}
 		}
 	}
 
+	private void transferPunishment(ImportSink importSink, PortablePunishment punishment) {
+		Optional<Enaction.OrderDetails> enactionOrder = importFunction.createOrder(punishment, importSink);
+		if (enactionOrder.isEmpty()) {
+			logger.info("Skipped imported punishment with ID {} applying to victim {}",
+					punishment.foreignId(), punishment.victimInfo());
+			return;
+		}
+		addEnaction(importSink, punishment, new Enaction(enactionOrder.get(), creator));
+		addImplicitNameAddressRecord(importSink, punishment);
+	}
+
+	private static void logProgress(ImportStatistics statistics) {
+		logger.info("Imported {} rows so far, at {} rows per second", statistics.rows(), statistics.rowsPerSecond());
+	}
+
 	private void addEnaction(ImportSink importSink, PortablePunishment punishment, Enaction enaction) {
 		Instant end = punishment.knownDetails().end();
 		// Check whether active and non-expired
@@ -134,9 +210,16 @@ public class ImportExecutor {
 		}
 	}
 
-	private void transferExplicitNameAddressRecords(ImportSource importSource, ImportSink importSink) {
-		try (Stream<NameAddressRecord> nameAddressHistoryStream = importSource.sourceNameAddressHistory()) {
-			nameAddressHistoryStream.forEach(importSink::addNameAddressRecord);
+	private void transferExplicitNameAddressRecords(ImportSource importSource, ImportSink importSink,
+													int batchSize, ImportStatistics statistics) {
+		try (PipelinedReader<NameAddressRecord> reader = new PipelinedReader<>(
+				importSource::sourceNameAddressHistory, batchSize)) {
+			List<NameAddressRecord> chunk;
+			while (!(chunk = reader.nextChunk()).isEmpty()) {
+				chunk.forEach(importSink::addNameAddressRecord);
+				importSink.flush();
+				logProgress(statistics);
+			}
 		}
 	}
 }
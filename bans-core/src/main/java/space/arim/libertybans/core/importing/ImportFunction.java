@@ -82,6 +82,7 @@ public class ImportFunction {
 		}
 		String name = victimInfo.name()
 				.orElseThrow(() -> new ImportException("Victim name must be present if uuid is not"));
+		importSink.flushBeforeLookup(name);
 		UUID foundUUID = uuidManager.lookupUUIDFromExactName(name).join().orElse(null);
 		if (foundUUID == null) {
 			logger.warn("Skipping punishment because victim uuid could not be found for name {}", victimInfo.name());
@@ -101,6 +102,7 @@ public class ImportFunction {
 		}
 		String name = operatorInfo.name()
 				.orElseThrow(() -> new ImportException("Operator name must be present if uuid is not"));
+		importSink.flushBeforeLookup(name);
 		UUID foundUUID = uuidManager.lookupUUIDFromExactName(name).join().orElse(null);
 		if (foundUUID == null) {
 			logger.warn("Skipping punishment because operator uuid could not be found for name {}", name);
@@ -19,61 +19,284 @@
 
 package space.arim.libertybans.core.importing;
 
+import org.jooq.BatchBindStep;
+import org.jooq.DSLContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.Operator;
+import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.database.execute.Transaction;
+import space.arim.libertybans.core.database.sql.ScopeIdSequenceValue;
+import space.arim.libertybans.core.database.sql.SequenceValue;
+import space.arim.libertybans.core.database.sql.TableForType;
+import space.arim.libertybans.core.database.sql.TrackIdSequenceValue;
+import space.arim.libertybans.core.database.sql.VictimIdSequenceValue;
 import space.arim.libertybans.core.punish.Association;
 import space.arim.libertybans.core.punish.Enaction;
+import space.arim.libertybans.core.punish.MiscUtil;
+import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.ThisClass;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
+import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_PUNISHMENT_IDS;
+import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
+import static space.arim.libertybans.core.schema.tables.History.HISTORY;
+import static space.arim.libertybans.core.schema.tables.LatestNames.LATEST_NAMES;
+import static space.arim.libertybans.core.schema.tables.Names.NAMES;
+import static space.arim.libertybans.core.schema.tables.Punishments.PUNISHMENTS;
+
+/**
+ * Buffers imported data, writing it in one transaction per batch. NOT thread safe
+ *
+ */
 class ImportSink {
 
 	private final BatchOperationExecutor batchExecutor;
 	private final ImportStatistics statistics;
+	private final CheckpointStore checkpointStore;
+	private final Time time;
+
+	private final List<PendingPunishment> punishments = new ArrayList<>();
+	private final List<NameAddressRecord> nameAddressRecords = new ArrayList<>();
+	private final Set<String> pendingNames = new HashSet<>();
+	private ImportCheckpoint pendingCheckpoint;
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
-	ImportSink(BatchOperationExecutor batchExecutor, ImportStatistics statistics) {
+	/**
+	 * Creates the sink
+	 *
+	 * @param batchExecutor the batch executor
+	 * @param statistics the statistics to update
+	 * @param checkpointStore the checkpoint store, or null if the import source is not resumable
+	 * @param time the time source
+	 */
+	ImportSink(BatchOperationExecutor batchExecutor, ImportStatistics statistics,
+			   CheckpointStore checkpointStore, Time time) {
 		this.batchExecutor = batchExecutor;
 		this.statistics = statistics;
+		this.checkpointStore = checkpointStore;
+		this.time = time;
 	}
 
 	void addActivePunishment(Enaction enaction) {
-		addPunishment(enaction, true);
+		punishments.add(new PendingPunishment(enaction, true));
 		statistics.transferredActive();
 	}
 
 	void addHistoricalPunishment(Enaction enaction) {
-		addPunishment(enaction, false);
+		punishments.add(new PendingPunishment(enaction, false));
 		statistics.transferredHistorical();
 	}
 
-	private void addPunishment(Enaction enaction, boolean active) {
+	void addNameAddressRecord(NameAddressRecord nameAddressRecord) {
+		nameAddressRecords.add(nameAddressRecord);
+		nameAddressRecord.name().ifPresent((name) -> pendingNames.add(name.toLowerCase(Locale.ROOT)));
+		statistics.transferredNameAddressRecord();
+	}
+
+	/**
+	 * Sets the checkpoint reached by the data added so far. It is saved in the same transaction
+	 * which writes the data, so that resuming from it never imports the data again
+	 *
+	 * @param checkpoint the checkpoint
+	 */
+	void setCheckpoint(ImportCheckpoint checkpoint) {
+		if (checkpointStore != null) {
+			pendingCheckpoint = checkpoint;
+		}
+	}
+
+	/**
+	 * Writes buffered data if it includes the given name. Must be called before looking up
+	 * the name, so that the lookup sees names imported earlier
+	 *
+	 * @param name the name about to be looked up
+	 */
+	void flushBeforeLookup(String name) {
+		if (pendingNames.contains(name.toLowerCase(Locale.ROOT))) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes all buffered data in a single transaction
+	 *
+	 */
+	void flush() {
+		if (punishments.isEmpty() && nameAddressRecords.isEmpty() && pendingCheckpoint == null) {
+			return;
+		}
+		ImportCheckpoint checkpoint = pendingCheckpoint;
 		batchExecutor.runOperation((context, transaction) -> {
-			if (active) {
-				Punishment enacted = transaction.executeNested(enaction::enactActive);
-				if (enacted == null) {
-					logger.warn(
-							"There is a conflicting active punishment: {}. For example two bans for the same user. " +
-									"This is harmless in most cases. The punishment will be skipped.",
-							enaction.orderDetails());
+			List<PendingPunishment> batchedPunishments = new ArrayList<>(punishments.size());
+			for (PendingPunishment punishment : punishments) {
+				if (punishment.canConflict()) {
+					punishment.enact(transaction);
+				} else {
+					batchedPunishments.add(punishment);
 				}
-			} else {
-				enaction.enactHistorical(context);
+			}
+			writePunishments(context, batchedPunishments);
+			writeNameAddressRecords(context);
+			if (checkpoint != null) {
+				checkpointStore.save(context, checkpoint, time.currentTimestamp());
 			}
 		});
+		punishments.clear();
+		nameAddressRecords.clear();
+		pendingNames.clear();
+		pendingCheckpoint = null;
 	}
 
-	void addNameAddressRecord(NameAddressRecord nameAddressRecord) {
-		batchExecutor.runOperation((context, transaction) -> {
-			Association association = new Association(nameAddressRecord.uuid(), context);
+	private void writePunishments(DSLContext context, List<PendingPunishment> batched) {
+		// Equivalent to Enaction#enactHistorical, but batched, with the ids reserved up front
+		// Active punishments of types which are not singular are written likewise, since they cannot conflict
+		if (batched.isEmpty()) {
+			return;
+		}
+		List<Long> ids = new SequenceValue<>(context, LIBERTYBANS_PUNISHMENT_IDS).nextValues(batched.size());
+		VictimIdSequenceValue victimIds = new VictimIdSequenceValue(context);
+		ScopeIdSequenceValue scopeIds = new ScopeIdSequenceValue(context);
+		TrackIdSequenceValue trackIds = new TrackIdSequenceValue(context);
+
+		BatchBindStep punishmentRows = context.batch(context
+				.insertInto(PUNISHMENTS)
+				.columns(
+						PUNISHMENTS.ID, PUNISHMENTS.TYPE, PUNISHMENTS.OPERATOR, PUNISHMENTS.REASON,
+						PUNISHMENTS.SCOPE, PUNISHMENTS.START, PUNISHMENTS.END,
+						PUNISHMENTS.TRACK, PUNISHMENTS.SCOPE_ID
+				)
+				.values(
+						(Long) null, (PunishmentType) null, (Operator) null, (String) null,
+						(String) null, (Instant) null, (Instant) null,
+						(Integer) null, (Integer) null
+				)
+		);
+		BatchBindStep historyRows = context.batch(context
+				.insertInto(HISTORY)
+				.columns(HISTORY.ID, HISTORY.VICTIM)
+				.values((Long) null, (Integer) null)
+		);
+		Map<PunishmentType, BatchBindStep> dataTableRows = new EnumMap<>(PunishmentType.class);
+		for (int n = 0; n < batched.size(); n++) {
+			PendingPunishment punishment = batched.get(n);
+			Enaction.OrderDetails details = punishment.enaction().orderDetails();
+			MiscUtil.checkNoCompositeVictimWildcards(details.victim());
+
+			long id = ids.get(n);
+			Integer victimId = victimIds.retrieveVictimIdReified(details.victim());
+			punishmentRows.bind(
+					id, details.type(), details.operator(), details.reason(),
+					"", details.start(), details.end(),
+					trackIds.retrieveTrackIdReified(details.escalationTrack()),
+					scopeIds.retrieveScopeIdFieldReified(details.scope())
+			);
+			historyRows.bind(id, victimId);
+			if (punishment.active() && details.type() != PunishmentType.KICK) {
+				dataTableRows.computeIfAbsent(details.type(), (type) -> {
+					var dataTable = new TableForType(type).dataTable();
+					return context.batch(context
+							.insertInto(dataTable.table())
+							.columns(dataTable.id(), dataTable.victimId())
+							.values((Long) null, (Integer) null)
+					);
+				}).bind(id, victimId);
+			}
+		}
+		punishmentRows.execute();
+		for (BatchBindStep rows : dataTableRows.values()) {
+			rows.execute();
+		}
+		historyRows.execute();
+	}
+
+	private void writeNameAddressRecords(DSLContext context) {
+		// Equivalent to Association#associatePastName and #associatePastAddress, but batched
+		BatchBindStep names = context.batch(context
+				.insertInto(NAMES)
+				.columns(NAMES.UUID, NAMES.NAME, NAMES.UPDATED)
+				.values((UUID) null, (String) null, (Instant) null)
+				.onConflict(NAMES.UUID, NAMES.NAME)
+				.doNothing()
+		);
+		BatchBindStep latestNames = context.batch(context
+				.insertInto(LATEST_NAMES)
+				.columns(LATEST_NAMES.UUID, LATEST_NAMES.NAME, LATEST_NAMES.UPDATED)
+				.values((UUID) null, (String) null, (Instant) null)
+				.onConflict(LATEST_NAMES.UUID)
+				.doNothing()
+		);
+		// Runs after the inserts, so that the most recent of several names recorded for a user wins
+		// Placeholders in conditions must be non-null, else they would be rendered as IS NULL
+		// The time is taken from the names table, which keeps the existing time of a known name
+		BatchBindStep newerLatestNames = context.batch(context
+				.update(LATEST_NAMES)
+				.set(LATEST_NAMES.NAME, "")
+				.set(LATEST_NAMES.UPDATED, Association.storedNameTime(new UUID(0L, 0L), ""))
+				.where(LATEST_NAMES.UUID.eq(new UUID(0L, 0L)))
+				.and(LATEST_NAMES.UPDATED.lessThan(Association.storedNameTime(new UUID(0L, 0L), "")))
+		);
+		BatchBindStep addresses = context.batch(context
+				.insertInto(ADDRESSES)
+				.columns(ADDRESSES.UUID, ADDRESSES.ADDRESS, ADDRESSES.UPDATED)
+				.values((UUID) null, (NetworkAddress) null, (Instant) null)
+				.onConflict(ADDRESSES.UUID, ADDRESSES.ADDRESS)
+				.doNothing()
+		);
+		for (NameAddressRecord nameAddressRecord : nameAddressRecords) {
+			UUID uuid = nameAddressRecord.uuid();
 			Instant timeRecorded = nameAddressRecord.timeRecorded();
-			nameAddressRecord.name().ifPresent((name) -> association.associatePastName(name, timeRecorded));
-			nameAddressRecord.address().ifPresent((address) -> association.associatePastAddress(address, timeRecorded));
-		});
-		statistics.transferredNameAddressRecord();
+			nameAddressRecord.name().ifPresent((name) -> {
+				names.bind(uuid, name, timeRecorded);
+				latestNames.bind(uuid, name, timeRecorded);
+				newerLatestNames.bind(name, uuid, name, uuid, uuid, name);
+			});
+			nameAddressRecord.address().ifPresent((address) -> addresses.bind(uuid, address, timeRecorded));
+		}
+		if (names.size() > 0) {
+			names.execute();
+			latestNames.execute();
+			newerLatestNames.execute();
+		}
+		if (addresses.size() > 0) {
+			addresses.execute();
+		}
+	}
+
+	private record PendingPunishment(Enaction enaction, boolean active) {
+
+		/**
+		 * Whether this punishment may conflict with an existing one. If so, it must be enacted
+		 * on its own, otherwise it may be written in a batch
+		 *
+		 * @return true if active and singular
+		 */
+		boolean canConflict() {
+			return active && enaction.orderDetails().type().isSingular();
+		}
+
+		void enact(Transaction transaction) {
+			// The nested transaction confines a conflict to this punishment
+			Punishment enacted = transaction.executeNested(enaction::enactActive);
+			if (enacted == null) {
+				logger.warn(
+						"There is a conflicting active punishment: {}. For example two bans for the same user. " +
+								"This is harmless in most cases. The punishment will be skipped.",
+						enaction.orderDetails());
+			}
+		}
 	}
 
 }
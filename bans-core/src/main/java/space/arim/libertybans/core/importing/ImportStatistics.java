@@ -27,6 +27,11 @@ public final class ImportStatistics {
 
 	private boolean failed;
 
+	// Timing is excluded from equality
+	private final long startNanos = System.nanoTime();
+	private long endNanos;
+	private boolean finished;
+
 	public ImportStatistics() {}
 
 	public ImportStatistics(int active, int historical, int nameAddressRecord) {
@@ -43,6 +48,11 @@ public final class ImportStatistics {
 		failed = true;
 	}
 
+	void markFinished() {
+		endNanos = System.nanoTime();
+		finished = true;
+	}
+
 	void transferredActive() {
 		active++;
 	}
@@ -55,6 +65,26 @@ public final class ImportStatistics {
 		nameAddressRecord++;
 	}
 
+	/**
+	 * Gets the total number of punishments and name or address records transferred
+	 *
+	 * @return the number of rows transferred
+	 */
+	public long rows() {
+		return (long) active + historical + nameAddressRecord;
+	}
+
+	/**
+	 * Gets the transfer rate. If the import is not finished, this is the rate so far
+	 *
+	 * @return the number of rows transferred per second
+	 */
+	public long rowsPerSecond() {
+		long end = (finished) ? endNanos : System.nanoTime();
+		long elapsedMillis = Math.max(1L, (end - startNanos) / 1_000_000L);
+		return rows() * 1000L / elapsedMillis;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -79,6 +109,7 @@ public final class ImportStatistics {
 		return "-- Import statistics " + failure + "-- \n" +
 				"Active punishments: " + active + "\n" +
 				"Historical punishments: " + historical + "\n" +
-				"Name or address history records: " + nameAddressRecord;
+				"Name or address history records: " + nameAddressRecord + "\n" +
+				"Rows per second: " + rowsPerSecond();
 	}
 }
@@ -0,0 +1,141 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+
+package space.arim.libertybans.core.importing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.omnibus.util.ThisClass;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over a table using keyset pagination. Unlike {@link ResultSetIterator}, no cursor
+ * is held open between pages
+ *
+ * @param <T> the mapped type
+ */
+class KeysetIterator<T> implements Iterator<Positioned<T>>, AutoCloseable {
+
+	private final KeysetRowMapper<T> rowMapper;
+
+	private final PreparedStatement prepStmt;
+	private long lastKey;
+	private boolean endOfTable;
+
+	private final int pageSize;
+	private final List<Positioned<T>> buffer;
+	private Iterator<Positioned<T>> bufferIterator;
+
+	// Statistics
+	private int totalCount;
+	private int skipped;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	KeysetIterator(KeysetRowMapper<T> rowMapper, Connection connection, int pageSize, long afterKey)
+			throws SQLException {
+		this.rowMapper = rowMapper;
+
+		prepStmt = connection.prepareStatement(rowMapper.selectStatement());
+		try {
+			prepStmt.setMaxRows(pageSize);
+			prepStmt.setFetchSize(pageSize);
+		} catch (SQLException ex) {
+			try {
+				prepStmt.close();
+			} catch (SQLException suppressed) { ex.addSuppressed(suppressed); }
+			throw ex;
+		}
+		lastKey = afterKey;
+
+		this.pageSize = pageSize;
+		buffer = new ArrayList<>(pageSize);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (bufferIterator != null && bufferIterator.hasNext()) {
+			return true;
+		}
+		// Pages may consist entirely of skipped rows
+		while (!endOfTable) {
+			if (totalCount > 0) {
+				logger.info("Iterated over " + totalCount + " rows of " + rowMapper.tableName() + " so far. Iterating further...");
+			}
+			try {
+				retrievePage();
+			} catch (SQLException ex) {
+				throw new ImportException(ex);
+			}
+			if (!buffer.isEmpty()) {
+				totalCount += buffer.size();
+				bufferIterator = buffer.iterator();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void retrievePage() throws SQLException {
+		buffer.clear();
+		prepStmt.setLong(1, lastKey);
+		int rowCount = 0;
+		try (ResultSet resultSet = prepStmt.executeQuery()) {
+			while (resultSet.next()) {
+				rowCount++;
+				long key = rowMapper.keyOf(resultSet);
+				lastKey = key;
+				rowMapper.mapRow(resultSet).ifPresentOrElse(
+						(value) -> buffer.add(new Positioned<>(value, new ImportCheckpoint(rowMapper.tableName(), key))),
+						() -> skipped++
+				);
+			}
+		}
+		if (rowCount < pageSize) {
+			endOfTable = true;
+			logger.trace("Received last page of {}", rowMapper.tableName());
+		}
+	}
+
+	@Override
+	public Positioned<T> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return bufferIterator.next();
+	}
+
+	@Override
+	public void close() throws SQLException {
+		prepStmt.close();
+
+		if (skipped > 0) {
+			logger.info("Skipping " + skipped + " rows.");
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+
+package space.arim.libertybans.core.importing;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Row mapper for a table with a unique numeric key. Rows are retrieved in pages, each one
+ * continuing after the last key of the previous page, rather than through a single cursor.
+ *
+ * @param <T> the mapped type
+ */
+public interface KeysetRowMapper<T> extends SchemaRowMapper<T> {
+
+	/**
+	 * The name of the table, which identifies it in checkpoints
+	 *
+	 * @return the table name
+	 */
+	String tableName();
+
+	/**
+	 * Selects the rows after a certain key. The statement has a single parameter, the key after
+	 * which to select rows, and must order rows by the key ascending
+	 *
+	 * @return the select statement
+	 */
+	@Override
+	String selectStatement();
+
+	/**
+	 * Gets the key of the current row
+	 *
+	 * @param resultSet the result set
+	 * @return the key
+	 * @throws SQLException from the result set
+	 */
+	long keyOf(ResultSet resultSet) throws SQLException;
+
+}
@@ -38,12 +38,13 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Stream;
 
-public class LiteBansImportSource implements ImportSource {
+public class LiteBansImportSource implements ResumableImportSource {
 
 	private final ImportConfig config;
 	private final ScopeManager scopeManager;
@@ -66,14 +67,19 @@ public class LiteBansImportSource implements ImportSource {
 	}
 
 	@Override
-	public Stream<PortablePunishment> sourcePunishments() {
-		DatabaseStream databaseStream = databaseStream();
-		return Arrays.stream(LiteBansTable.values())
+	public String checkpointName() {
+		return "litebans";
+	}
+
+	@Override
+	public Stream<Positioned<PortablePunishment>> sourcePunishments(ImportCheckpoint checkpoint) {
+		List<PunishmentRowMapper> rowMappers = Arrays.stream(LiteBansTable.values())
 				.map(PunishmentRowMapper::new)
-				.flatMap(databaseStream::streamRows);
+				.toList();
+		return databaseStream().streamTablesAfter(rowMappers, checkpoint);
 	}
 
-	private class PunishmentRowMapper implements SchemaRowMapper<PortablePunishment> {
+	private class PunishmentRowMapper implements KeysetRowMapper<PortablePunishment> {
 
 		private final LiteBansTable table;
 
@@ -81,9 +87,19 @@ public class LiteBansImportSource implements ImportSource {
 			this.table = table;
 		}
 
+		@Override
+		public String tableName() {
+			return table.toString();
+		}
+
 		@Override
 		public String selectStatement() {
-			return "SELECT * FROM " + config.litebans().tablePrefix() + table;
+			return "SELECT * FROM " + config.litebans().tablePrefix() + table + " WHERE id > ? ORDER BY id ASC";
+		}
+
+		@Override
+		public long keyOf(ResultSet resultSet) throws SQLException {
+			return resultSet.getLong("id");
 		}
 
 		@Override
@@ -214,14 +230,25 @@ public class LiteBansImportSource implements ImportSource {
 
 	@Override
 	public Stream<NameAddressRecord> sourceNameAddressHistory() {
-		return databaseStream().streamRows(new HistoryRowMapper());
+		return databaseStream().streamPages(new HistoryRowMapper(), Long.MIN_VALUE).map(Positioned::value);
 	}
 
-	private class HistoryRowMapper implements SchemaRowMapper<NameAddressRecord> {
+	private class HistoryRowMapper implements KeysetRowMapper<NameAddressRecord> {
+
+		@Override
+		public String tableName() {
+			return "history";
+		}
 
 		@Override
 		public String selectStatement() {
-			return "SELECT uuid, name, ip, date FROM " + config.litebans().tablePrefix() + "history";
+			return "SELECT id, uuid, name, ip, date FROM " + config.litebans().tablePrefix() + "history " +
+					"WHERE id > ? ORDER BY id ASC";
+		}
+
+		@Override
+		public long keyOf(ResultSet resultSet) throws SQLException {
+			return resultSet.getLong("id");
 		}
 
 		@Override
@@ -0,0 +1,126 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+
+package space.arim.libertybans.core.importing;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Reads a stream in chunks on a separate thread, so that reading from the import source
+ * overlaps with writing to the database. Chunks must be taken from a single thread
+ *
+ * @param <T> the element type
+ */
+final class PipelinedReader<T> implements AutoCloseable {
+
+	private final Supplier<Stream<T>> source;
+	private final int chunkSize;
+	private final BlockingQueue<Object> chunks = new ArrayBlockingQueue<>(CHUNKS_AHEAD);
+	private final Thread thread;
+	/** Written before the end marker is queued, so it is visible once the marker is taken */
+	private RuntimeException failure;
+	private boolean finished;
+
+	private static final int CHUNKS_AHEAD = 2;
+	private static final Object END = new Object();
+
+	/**
+	 * Creates and starts the reader
+	 *
+	 * @param source opens the stream to read from. Called and closed on the reading thread
+	 * @param chunkSize the maximum size of each chunk
+	 */
+	PipelinedReader(Supplier<Stream<T>> source, int chunkSize) {
+		this.source = source;
+		this.chunkSize = chunkSize;
+		thread = new Thread(this::read, "LibertyBans-Importer-Reader");
+		thread.start();
+	}
+
+	private void read() {
+		try (Stream<T> stream = source.get()) {
+			Iterator<T> iterator = stream.iterator();
+			List<T> chunk = new ArrayList<>(chunkSize);
+			while (iterator.hasNext()) {
+				chunk.add(iterator.next());
+				if (chunk.size() == chunkSize) {
+					chunks.put(chunk);
+					chunk = new ArrayList<>(chunkSize);
+				}
+			}
+			if (!chunk.isEmpty()) {
+				chunks.put(chunk);
+			}
+		} catch (InterruptedException ex) {
+			// Closed before reading completed
+			return;
+		} catch (RuntimeException ex) {
+			failure = ex;
+		}
+		try {
+			chunks.put(END);
+		} catch (InterruptedException ignored) {}
+	}
+
+	/**
+	 * Takes the next chunk, waiting for it to be read if necessary
+	 *
+	 * @return the next chunk, or an empty list if the stream is exhausted
+	 * @throws RuntimeException if reading the stream failed
+	 */
+	@SuppressWarnings("unchecked")
+	List<T> nextChunk() {
+		if (finished) {
+			return List.of();
+		}
+		Object chunk;
+		try {
+			chunk = chunks.take();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ImportException("Interrupted while waiting for the import source", ex);
+		}
+		if (chunk == END) {
+			finished = true;
+			if (failure != null) {
+				throw failure;
+			}
+			return List.of();
+		}
+		return (List<T>) chunk;
+	}
+
+	@Override
+	public void close() {
+		thread.interrupt();
+		try {
+			thread.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+
+package space.arim.libertybans.core.importing;
+
+import java.util.Objects;
+
+/**
+ * A value retrieved from an import source, together with its position
+ *
+ * @param value the value
+ * @param position the position of the value in the import source, or null if the import source
+ *                 is not resumable
+ * @param <T> the value type
+ */
+public record Positioned<T>(T value, ImportCheckpoint position) {
+
+	public Positioned {
+		Objects.requireNonNull(value, "value");
+	}
+
+}
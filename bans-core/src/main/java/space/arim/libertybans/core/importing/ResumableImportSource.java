@@ -0,0 +1,51 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+
+package space.arim.libertybans.core.importing;
+
+import java.util.stream.Stream;
+
+/**
+ * Import source whose punishments can be imported starting from a checkpoint
+ *
+ */
+public interface ResumableImportSource extends ImportSource {
+
+	/**
+	 * The name identifying this source's checkpoint
+	 *
+	 * @return the checkpoint name
+	 */
+	String checkpointName();
+
+	/**
+	 * Streams the punishments after the given checkpoint, in the order of their positions
+	 *
+	 * @param checkpoint the checkpoint after which to start, or null to stream all punishments
+	 * @return the punishments with their positions
+	 */
+	Stream<Positioned<PortablePunishment>> sourcePunishments(ImportCheckpoint checkpoint);
+
+	@Override
+	default Stream<PortablePunishment> sourcePunishments() {
+		return sourcePunishments(null).map(Positioned::value);
+	}
+
+}
@@ -16,7 +16,6 @@
  * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
  * and navigate to version 3 of the GNU Affero General Public License.
  */
-
 package space.arim.libertybans.core.importing;
 
 import jakarta.inject.Inject;
@@ -24,7 +23,10 @@ import jakarta.inject.Named;
 import jakarta.inject.Provider;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.ForeignKey;
+import org.jooq.Result;
 import org.jooq.Table;
+import org.jooq.UniqueKey;
 import org.jooq.impl.DSL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,16 +37,27 @@ import space.arim.libertybans.core.database.DatabaseResult;
 import space.arim.libertybans.core.database.DatabaseSettings;
 import space.arim.libertybans.core.database.StandardDatabase;
 import space.arim.libertybans.core.database.execute.QueryExecutor;
-import space.arim.libertybans.core.database.jooq.BatchTransfer;
+import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.database.jooq.BatchExecute;
 import space.arim.libertybans.core.database.sql.SequenceValue;
+import space.arim.libertybans.core.service.SimpleThreadFactory;
 import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
 
 import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_PUNISHMENT_IDS;
 import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_VICTIM_IDS;
@@ -57,16 +70,18 @@ public final class SelfImportProcess {
 
 	private final Path folder;
 	private final Configs configs;
+	private final FactoryOfTheFuture futuresFactory;
 	private final DatabaseManager databaseManager;
 	private final Provider<QueryExecutor> queryExecutor;
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
-	public SelfImportProcess(@Named("folder") Path folder, Configs configs,
+	public SelfImportProcess(@Named("folder") Path folder, Configs configs, FactoryOfTheFuture futuresFactory,
 							 DatabaseManager databaseManager, Provider<QueryExecutor> queryExecutor) {
 		this.folder = folder;
 		this.configs = configs;
+		this.futuresFactory = futuresFactory;
 		this.databaseManager = databaseManager;
 		this.queryExecutor = queryExecutor;
 	}
@@ -78,50 +93,145 @@ public final class SelfImportProcess {
 	public CentralisedFuture<Void> transferAllData(Path folder) {
 		logger.info("Beginning self-import process");
 
-		return queryExecutor.get().execute((target) -> {
-			ImportConfig importConfig = configs.getImportConfig();
-			DatabaseResult dbResult = new DatabaseSettings(folder, databaseManager).create(importConfig.self());
+		CentralisedFuture<Void> future = futuresFactory.newIncompleteFuture();
+		new Thread(() -> {
+			try {
+				runTransfer(folder);
+				future.complete(null);
+			} catch (Throwable ex) {
+				future.completeExceptionally(ex);
+			}
+		}, "LibertyBans-SelfImport").start();
+		return future;
+	}
+
+	private void runTransfer(Path folder) {
+		ImportConfig importConfig = configs.getImportConfig();
+		DatabaseResult dbResult = new DatabaseSettings(folder, databaseManager).create(importConfig.self());
 
-			try (StandardDatabase database = dbResult.database()) {
+		try (StandardDatabase database = dbResult.database()) {
 
-				if (!dbResult.success()) {
-					logger.warn("Failed to connect to import source");
-					return;
+			if (!dbResult.success()) {
+				logger.warn("Failed to connect to import source");
+				return;
+			}
+			QueryExecutor target = queryExecutor.get();
+			if (target.query(SQLFunction.readOnly(SelfImport::hasTransferredData)).join()) {
+				logger.warn("The database being imported into already contains data. Self-importing requires " +
+						"an empty database, so nothing will be imported.");
+				return;
+			}
+			var selfImport = new SelfImport(database, target, importConfig.batchSize());
+			try {
+				selfImport.runTransfer(importConfig.selfImportThreads());
+				target.execute(SelfImport::updateSequences).join();
+			} catch (RuntimeException ex) {
+				// Each page is committed separately, so partially transferred data must be removed
+				logger.error("Self-import failed. Removing the data transferred so far from the database " +
+						"being imported into, so that it is empty when you try again.");
+				try {
+					target.execute(SelfImport::clearTransferredData).join();
+				} catch (RuntimeException clearEx) {
+					ex.addSuppressed(clearEx);
+					logger.error("Unable to remove the data transferred so far. Empty the database being " +
+							"imported into yourself before trying again.");
 				}
-				database.execute((source) -> {
-					var selfImport = new SelfImport(source, target, importConfig.retrievalSize());
-					selfImport.runTransfer();
-					selfImport.updateSequences();
-				}).join();
+				throw ex;
 			}
-			logger.info("Completed self-import process");
-		});
+		}
+		logger.info("Completed self-import process");
 	}
 
 	private static final class SelfImport {
 
-		private final DSLContext source;
-		private final DSLContext target;
-		private final int maxBatchSize;
+		private final QueryExecutor source;
+		private final QueryExecutor target;
+		private final int pageSize;
+
+		private final LongAdder totalRows = new LongAdder();
+
+		private static final long PROGRESS_INTERVAL_NANOS = Duration.ofSeconds(5L).toNanos();
 
-		private SelfImport(DSLContext source, DSLContext target, int maxBatchSize) {
+		private SelfImport(QueryExecutor source, QueryExecutor target, int pageSize) {
 			this.source = source;
 			this.target = target;
-			this.maxBatchSize = maxBatchSize;
+			this.pageSize = pageSize;
+		}
+
+		private void runTransfer(int threads) {
+			long startNanos = System.nanoTime();
+			ExecutorService threadPool = Executors.newFixedThreadPool(threads, SimpleThreadFactory.create("SelfImport"));
+			try {
+				for (List<Table<?>> tier : dependencyTiers()) {
+					CompletableFuture<?>[] transfers = new CompletableFuture[tier.size()];
+					for (int n = 0; n < transfers.length; n++) {
+						Table<?> table = tier.get(n);
+						transfers[n] = CompletableFuture.runAsync(() -> transferTable(table), threadPool);
+					}
+					// The next tier refers to tables in this tier
+					CompletableFuture.allOf(transfers).join();
+				}
+			} finally {
+				threadPool.shutdownNow();
+			}
+			long rows = totalRows.sum();
+			logger.info("Transferred {} rows in total ({} rows per second)",
+					rows, rowsPerSecond(rows, System.nanoTime() - startNanos));
 		}
 
-		private void runTransfer() {
+		/**
+		 * Groups tables into tiers, such that tables only refer to tables in earlier tiers.
+		 * Tables in the same tier are independent and can be transferred concurrently
+		 *
+		 * @return the tiers of tables, in order
+		 */
+		private static List<List<Table<?>>> dependencyTiers() {
+			List<List<Table<?>>> tiers = new ArrayList<>();
+			Map<Table<?>, Integer> tierOfTable = new HashMap<>();
+			// Referenced tables come first, so their tiers are known before the tables referring to them
 			for (Table<?> table : DatabaseConstants.allTables(DatabaseConstants.TableOrder.REFERENTS_FIRST)) {
-				if (table.equals(REVISION) || table.equals(MESSAGES)) {
+				if (!isTransferred(table)) {
 					continue;
 				}
-				logger.info("Beginning transfer of data from table: {}", table.getName());
-				transferTable(table);
-				logger.info("Finished transfer of data from table: {}", table.getName());
+				int tier = 0;
+				for (ForeignKey<?, ?> reference : table.getReferences()) {
+					Integer referencedTier = tierOfTable.get(reference.getKey().getTable());
+					if (referencedTier != null) {
+						tier = Math.max(tier, referencedTier + 1);
+					}
+				}
+				tierOfTable.put(table, tier);
+				if (tier == tiers.size()) {
+					tiers.add(new ArrayList<>());
+				}
+				tiers.get(tier).add(table);
+			}
+			return tiers;
+		}
+
+		private static boolean isTransferred(Table<?> table) {
+			return !table.equals(REVISION) && !table.equals(MESSAGES);
+		}
+
+		private static boolean hasTransferredData(DSLContext target) {
+			for (Table<?> table : DatabaseConstants.allTables(DatabaseConstants.TableOrder.REFERENTS_FIRST)) {
+				if (isTransferred(table) && target.fetchExists(table)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private static void clearTransferredData(DSLContext target) {
+			for (Table<?> table : DatabaseConstants.allTables(DatabaseConstants.TableOrder.REFERENTS_LAST)) {
+				if (isTransferred(table)) {
+					target.deleteFrom(table).execute();
+				}
 			}
 		}
 
 		private <R extends org.jooq.Record> void transferTable(Table<R> table) {
+			logger.info("Beginning transfer of data from table: {}", table.getName());
 
 			// Table fields
 			Field<?>[] fields;
@@ -138,28 +248,90 @@ public final class SelfImportProcess {
 				feature. If the feature ever becomes part of the OSS edition, switch to it here.
 				 */
 			}
+			Field<?>[] keyFields = keyFields(table);
 
 			// Dummy null values for use with the batch API
 			Object[] emptyValues = new Object[fields.length];
 
-			new BatchTransfer<>(
-					source.selectFrom(table).fetchLazy(),
-					() -> target.batch(target
-							.insertInto(table)
-							.columns(fields)
-							.values(emptyValues)
-					),
-					(batch, record) -> {
-						Object[] bindValues = emptyValues.clone();
-						for (int n = 0; n < fields.length; n++) {
-							bindValues[n] = record.get(fields[n]);
+			long startNanos = System.nanoTime();
+			long lastProgressNanos = startNanos;
+			long rows = 0;
+			Object[] lastKey = null;
+			while (true) {
+				// Each page continues after the key of the last row, so no transaction is held open
+				Object[] afterKey = lastKey;
+				Result<R> page = source.query(SQLFunction.readOnly(
+						(context) -> selectPage(context, table, keyFields, afterKey)
+				)).join();
+				if (page.isEmpty()) {
+					break;
+				}
+				target.execute((context) -> new BatchExecute<R>(
+						() -> context.batch(context
+								.insertInto(table)
+								.columns(fields)
+								.values(emptyValues)
+						),
+						(batch, record) -> {
+							Object[] bindValues = emptyValues.clone();
+							for (int n = 0; n < fields.length; n++) {
+								bindValues[n] = record.get(fields[n]);
+							}
+							return batch.bind(bindValues);
 						}
-						return batch.bind(bindValues);
-					}
-			).execute(maxBatchSize);
+				).execute(page, pageSize)).join();
+
+				rows += page.size();
+				totalRows.add(page.size());
+				R lastRecord = page.get(page.size() - 1);
+				lastKey = new Object[keyFields.length];
+				for (int n = 0; n < keyFields.length; n++) {
+					lastKey[n] = lastRecord.get(keyFields[n]);
+				}
+				long currentNanos = System.nanoTime();
+				if (currentNanos - lastProgressNanos >= PROGRESS_INTERVAL_NANOS) {
+					lastProgressNanos = currentNanos;
+					logger.info("Transferred {} rows from table {} so far ({} rows per second)",
+							rows, table.getName(), rowsPerSecond(rows, currentNanos - startNanos));
+				}
+				if (page.size() < pageSize) {
+					break;
+				}
+			}
+			logger.info("Finished transfer of data from table: {} ({} rows, {} rows per second)",
+					table.getName(), rows, rowsPerSecond(rows, System.nanoTime() - startNanos));
+		}
+
+		private <R extends org.jooq.Record> Result<R> selectPage(DSLContext context, Table<R> table,
+																Field<?>[] keyFields, Object[] afterKey) {
+			var orderedRows = context.selectFrom(table).orderBy(keyFields);
+			if (afterKey == null) {
+				return orderedRows.limit(pageSize).fetch();
+			}
+			return orderedRows.seek(afterKey).limit(pageSize).fetch();
+		}
+
+		/**
+		 * Gets the fields of the narrowest unique key of a table, by which its rows are paginated
+		 *
+		 * @param table the table
+		 * @return the key fields
+		 */
+		private static Field<?>[] keyFields(Table<?> table) {
+			UniqueKey<?> key = table.getKeys().stream()
+					.min(Comparator.comparingInt((uniqueKey) -> uniqueKey.getFields().size()))
+					.orElseThrow(() -> new IllegalStateException("Table " + table.getName() + " has no unique key"));
+			return key.getFieldsArray();
+		}
+
+		private static long rowsPerSecond(long rows, long elapsedNanos) {
+			if (elapsedNanos <= 0) {
+				return 0L;
+			}
+			return rows * 1_000_000_000L / elapsedNanos;
 		}
 
-		private void updateSequences() {
+		private static void updateSequences(DSLContext target) {
 			// Make sure to select MAX + 1 of sequence value
 			long nextPunishmentId = target
 					.select(DSL.max(PUNISHMENTS.ID).plus(1))
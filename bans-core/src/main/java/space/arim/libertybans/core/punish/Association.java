@@ -20,6 +20,8 @@
 package space.arim.libertybans.core.punish;
 
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.impl.DSL;
 import space.arim.libertybans.api.NetworkAddress;
 
 import java.time.Instant;
@@ -27,6 +29,7 @@ import java.util.Objects;
 import java.util.UUID;
 
 import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
+import static space.arim.libertybans.core.schema.tables.LatestNames.LATEST_NAMES;
 import static space.arim.libertybans.core.schema.tables.Names.NAMES;
 
 public final class Association {
@@ -50,6 +53,15 @@ public final class Association {
 				.doUpdate()
 				.set(NAMES.UPDATED, currentTime)
 				.execute();
+		context
+				.insertInto(LATEST_NAMES)
+				.columns(LATEST_NAMES.UUID, LATEST_NAMES.NAME, LATEST_NAMES.UPDATED)
+				.values(uuid, name, currentTime)
+				.onConflict(LATEST_NAMES.UUID)
+				.doUpdate()
+				.set(LATEST_NAMES.NAME, name)
+				.set(LATEST_NAMES.UPDATED, currentTime)
+				.execute();
 	}
 
 	public void associatePastName(String name, Instant pastTime) {
@@ -62,6 +74,39 @@ public final class Association {
 				.onConflict(NAMES.UUID, NAMES.NAME)
 				.doNothing()
 				.execute();
+		// The past name is only the latest name if no more recent name is known
+		context
+				.insertInto(LATEST_NAMES)
+				.columns(LATEST_NAMES.UUID, LATEST_NAMES.NAME, LATEST_NAMES.UPDATED)
+				.values(uuid, name, pastTime)
+				.onConflict(LATEST_NAMES.UUID)
+				.doNothing()
+				.execute();
+		// If the name was known before, its stored time is kept, which may be earlier than the past time
+		Field<Instant> storedTime = storedNameTime(uuid, name);
+		context
+				.update(LATEST_NAMES)
+				.set(LATEST_NAMES.NAME, name)
+				.set(LATEST_NAMES.UPDATED, storedTime)
+				.where(LATEST_NAMES.UUID.eq(uuid))
+				.and(LATEST_NAMES.UPDATED.lessThan(storedTime))
+				.execute();
+	}
+
+	/**
+	 * The time at which a name is recorded in the names table
+	 *
+	 * @param uuid the uuid
+	 * @param name the name
+	 * @return a scalar subquery yielding the time
+	 */
+	public static Field<Instant> storedNameTime(UUID uuid, String name) {
+		return DSL.field(
+				DSL.select(NAMES.UPDATED)
+						.from(NAMES)
+						.where(NAMES.UUID.eq(uuid))
+						.and(NAMES.NAME.eq(name))
+		);
 	}
 
 	public void associateCurrentAddress(NetworkAddress address, Instant currentTime) {
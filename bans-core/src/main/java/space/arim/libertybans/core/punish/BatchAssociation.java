@@ -0,0 +1,144 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish;
+
+import org.jooq.DSLContext;
+import space.arim.libertybans.api.NetworkAddress;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static org.jooq.impl.DSL.excluded;
+import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
+import static space.arim.libertybans.core.schema.tables.LatestNames.LATEST_NAMES;
+import static space.arim.libertybans.core.schema.tables.Names.NAMES;
+
+/**
+ * Like {@link Association}, but for many users at once. Current names and addresses
+ * are gathered, then written using one multi-row upsert per table.
+ *
+ */
+public final class BatchAssociation {
+
+	private final DSLContext context;
+	/*
+	Rows are de-duplicated, since some databases reject upserts affecting the same row twice.
+	They are also sorted, so that concurrent batches acquire row locks in the same order.
+	 */
+	private final Set<NameEntry> names = new TreeSet<>(NameEntry.ORDER);
+	private final Set<AddressEntry> addresses = new TreeSet<>(AddressEntry.ORDER);
+	// At most one latest name per user. If a user is added twice, the last name added wins
+	private final Map<UUID, String> latestNames = new TreeMap<>();
+
+	public BatchAssociation(DSLContext context) {
+		this.context = Objects.requireNonNull(context, "context");
+	}
+
+	public void addCurrentName(UUID uuid, String name) {
+		names.add(new NameEntry(uuid, name));
+		latestNames.put(uuid, name);
+	}
+
+	public void addCurrentAddress(UUID uuid, NetworkAddress address) {
+		addresses.add(new AddressEntry(uuid, address));
+	}
+
+	public void associateAll(Instant currentTime) {
+		Objects.requireNonNull(currentTime, "currentTime");
+		if (!names.isEmpty()) {
+			var insert = context
+					.insertInto(NAMES)
+					.columns(NAMES.UUID, NAMES.NAME, NAMES.UPDATED);
+			for (NameEntry entry : names) {
+				insert = insert.values(entry.uuid, entry.name, currentTime);
+			}
+			insert
+					.onConflict(NAMES.UUID, NAMES.NAME)
+					.doUpdate()
+					.set(NAMES.UPDATED, currentTime)
+					.execute();
+			var insertLatest = context
+					.insertInto(LATEST_NAMES)
+					.columns(LATEST_NAMES.UUID, LATEST_NAMES.NAME, LATEST_NAMES.UPDATED);
+			for (Map.Entry<UUID, String> latestName : latestNames.entrySet()) {
+				insertLatest = insertLatest.values(latestName.getKey(), latestName.getValue(), currentTime);
+			}
+			insertLatest
+					.onConflict(LATEST_NAMES.UUID)
+					.doUpdate()
+					.set(LATEST_NAMES.NAME, excluded(LATEST_NAMES.NAME))
+					.set(LATEST_NAMES.UPDATED, currentTime)
+					.execute();
+		}
+		if (!addresses.isEmpty()) {
+			var insert = context
+					.insertInto(ADDRESSES)
+					.columns(ADDRESSES.UUID, ADDRESSES.ADDRESS, ADDRESSES.UPDATED);
+			for (AddressEntry entry : addresses) {
+				insert = insert.values(entry.uuid, entry.address, currentTime);
+			}
+			insert
+					.onConflict(ADDRESSES.UUID, ADDRESSES.ADDRESS)
+					.doUpdate()
+					.set(ADDRESSES.UPDATED, currentTime)
+					.execute();
+		}
+	}
+
+	private record NameEntry(UUID uuid, String name) {
+
+		static final Comparator<NameEntry> ORDER = Comparator
+				.comparing(NameEntry::uuid)
+				.thenComparing(NameEntry::name);
+
+		NameEntry {
+			Objects.requireNonNull(uuid, "uuid");
+			Objects.requireNonNull(name, "name");
+		}
+	}
+
+	private record AddressEntry(UUID uuid, NetworkAddress address) {
+
+		static final Comparator<AddressEntry> ORDER = Comparator
+				.comparing(AddressEntry::uuid)
+				.thenComparing(AddressEntry::address, (a1, a2) -> Arrays.compare(a1.getRawAddress(), a2.getRawAddress()));
+
+		AddressEntry {
+			Objects.requireNonNull(uuid, "uuid");
+			Objects.requireNonNull(address, "address");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "BatchAssociation{" +
+				"names=" + names +
+				", latestNames=" + latestNames +
+				", addresses=" + addresses +
+				'}';
+	}
+}
@@ -43,6 +43,7 @@ import space.arim.libertybans.core.database.execute.SQLTransactionalRunnable;
 import space.arim.libertybans.core.database.execute.Transaction;
 import space.arim.libertybans.core.scope.InternalScopeManager;
 import space.arim.libertybans.core.selector.InternalSelector;
+import space.arim.libertybans.core.selector.RenderedQueryCache;
 import space.arim.libertybans.core.selector.SelectionResources;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
@@ -62,16 +63,19 @@ public class Enactor implements PunishmentDrafter {
 	private final InternalSelector selector;
 	private final PunishmentCreator creator;
 	private final Time time;
+	private final RenderedQueryCache renderedQueryCache;
 
 	@Inject
 	public Enactor(FactoryOfTheFuture futuresFactory, InternalScopeManager scopeManager, Provider<InternalDatabase> dbProvider,
-				   InternalSelector selector, PunishmentCreator creator, Time time) {
+				   InternalSelector selector, PunishmentCreator creator, Time time,
+				   RenderedQueryCache renderedQueryCache) {
 		this.futuresFactory = futuresFactory;
 		this.scopeManager = scopeManager;
 		this.dbProvider = dbProvider;
 		this.selector = selector;
 		this.creator = creator;
 		this.time = time;
+		this.renderedQueryCache = renderedQueryCache;
 	}
 
 	@Override
@@ -204,7 +208,8 @@ public class Enactor implements PunishmentDrafter {
 				() -> contextualExecutor,
 				scopeManager,
 				creator,
-				time
+				time,
+				renderedQueryCache
 		);
 	}
 }
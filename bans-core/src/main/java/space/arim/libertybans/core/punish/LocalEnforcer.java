@@ -78,13 +78,4 @@ public interface LocalEnforcer {
 	 */
 	CentralisedFuture<Void> updateDetailsWithoutSynchronization(Punishment punishment);
 
-	/**
-	 * Updates punishment details. No punishment synchronization is performed (with regard to multiple
-	 * instances of LibertyBans). For synchronization see {@link GlobalEnforcement}
-	 *
-	 * @param id the id of the punishment updated
-	 * @return a future completed once updated
-	 */
-	CentralisedFuture<Void> updateDetailsWithoutSynchronization(long id);
-
 }
@@ -60,7 +60,7 @@ public final class MiscUtil {
 	 * @param victim the victim to check
 	 * @throws IllegalArgumentException if the victim is composite and uses wildcards
 	 */
-	static void checkNoCompositeVictimWildcards(Victim victim) {
+	public static void checkNoCompositeVictimWildcards(Victim victim) {
 		if (victim instanceof CompositeVictim compositeVictim) {
 			if (compositeVictim.getUUID().equals(CompositeVictim.WILDCARD_UUID)) {
 				throw new IllegalArgumentException("Punishments cannot be made with CompositeVictim.WILDCARD_UUID");
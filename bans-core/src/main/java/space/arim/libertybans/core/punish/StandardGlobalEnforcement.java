@@ -35,6 +35,8 @@ import space.arim.libertybans.core.punish.sync.PacketUpdateDetails;
 import space.arim.libertybans.core.punish.sync.SynchronizationMessenger;
 import space.arim.libertybans.core.punish.sync.SynchronizationPacket;
 import space.arim.libertybans.core.punish.sync.SynchronizationProtocol;
+import space.arim.libertybans.core.selector.cache.ActivePunishmentIndex;
+import space.arim.libertybans.core.selector.cache.PunishmentCountCache;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
@@ -51,19 +53,24 @@ public final class StandardGlobalEnforcement implements GlobalEnforcement {
 	private final SynchronizationProtocol synchronizationProtocol;
 	private final Provider<SynchronizationMessenger> synchronizationMessenger;
 	private final MessageReceiver messageReceiver;
+	private final ActivePunishmentIndex activePunishmentIndex;
+	private final PunishmentCountCache punishmentCountCache;
 	private final Time time;
 
 	@Inject
 	public StandardGlobalEnforcement(Configs configs, FactoryOfTheFuture futuresFactory, LocalEnforcer enforcer,
 									 SynchronizationProtocol synchronizationProtocol,
 									 Provider<SynchronizationMessenger> synchronizationMessenger,
-									 MessageReceiver messageReceiver, Time time) {
+									 MessageReceiver messageReceiver, ActivePunishmentIndex activePunishmentIndex,
+									 PunishmentCountCache punishmentCountCache, Time time) {
 		this.configs = configs;
 		this.futuresFactory = futuresFactory;
 		this.synchronizationProtocol = synchronizationProtocol;
 		this.enforcer = enforcer;
 		this.synchronizationMessenger = synchronizationMessenger;
 		this.messageReceiver = messageReceiver;
+		this.activePunishmentIndex = activePunishmentIndex;
+		this.punishmentCountCache = punishmentCountCache;
 		this.time = time;
 	}
 
@@ -72,6 +79,8 @@ public final class StandardGlobalEnforcement implements GlobalEnforcement {
 	// Comes from Punishment#enforcePunishment
 	@Override
 	public CentralisedFuture<Void> enforce(Punishment punishment, EnforcementOpts enforcementOptions) {
+		activePunishmentIndex.index(punishment);
+		punishmentCountCache.enforced(punishment);
 		return handleSynchronizedEnforcement(
 				() -> enforcer.enforceWithoutSynchronization(punishment, enforcementOptions),
 				enforcementOptions.enforcement(),
@@ -82,6 +91,8 @@ public final class StandardGlobalEnforcement implements GlobalEnforcement {
 	// Comes from Punishment#unenforcePunishment
 	@Override
 	public CentralisedFuture<Void> unenforce(Punishment punishment, EnforcementOpts enforcementOptions) {
+		activePunishmentIndex.remove(punishment.getIdentifier());
+		punishmentCountCache.unenforced(punishment);
 		return handleSynchronizedEnforcement(
 				() -> enforcer.unenforceWithoutSynchronization(punishment, enforcementOptions),
 				enforcementOptions.enforcement(),
@@ -92,6 +103,8 @@ public final class StandardGlobalEnforcement implements GlobalEnforcement {
 	// Comes from RevocationOrderImpl#undoPunishment
 	@Override
 	public CentralisedFuture<Void> unenforce(long id, PunishmentType type, EnforcementOpts enforcementOptions) {
+		activePunishmentIndex.remove(id);
+		punishmentCountCache.invalidate(type);
 		return handleSynchronizedEnforcement(
 				() -> enforcer.unenforceWithoutSynchronization(id, type, enforcementOptions),
 				enforcementOptions.enforcement(),
@@ -102,6 +115,8 @@ public final class StandardGlobalEnforcement implements GlobalEnforcement {
 	// Comes from ExpunctionOrderImpl#expunge
 	@Override
 	public CentralisedFuture<Void> clearExpunged(long id) {
+		activePunishmentIndex.remove(id);
+		punishmentCountCache.invalidateAll();
 		return handleSynchronizedEnforcement(
 				() -> enforcer.clearExpungedWithoutSynchronization(id),
 				EnforcementOptions.Enforcement.GLOBAL,
@@ -120,11 +135,13 @@ public final class StandardGlobalEnforcement implements GlobalEnforcement {
 		default:
 			break;
 		}
+		long id = punishment.getIdentifier();
 		if (punishment.isExpired(time.toJdkClock())) {
-			// No need to update anything. The punishment is expired
+			// The punishment may have been made to expire
+			activePunishmentIndex.remove(id);
 			return futuresFactory.completedFuture(null);
 		}
-		long id = punishment.getIdentifier();
+		activePunishmentIndex.update(punishment);
 		return handleSynchronizedEnforcement(
 				() -> enforcer.updateDetailsWithoutSynchronization(punishment),
 				EnforcementOptions.Enforcement.GLOBAL,
@@ -39,6 +39,7 @@ import space.arim.libertybans.api.punish.EnforcementOptions.Broadcasting;
 import space.arim.libertybans.api.punish.Punishment;
 import space.arim.libertybans.api.select.AddressStrictness;
 import space.arim.libertybans.api.select.PunishmentSelector;
+import space.arim.libertybans.core.alts.AccountGraph;
 import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.config.PunishmentAdditionSection;
@@ -58,7 +59,9 @@ import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
 
@@ -76,13 +79,15 @@ public final class StandardLocalEnforcer<@PlatformPlayer P> implements LocalEnfo
 	private final InternalFormatter formatter;
 	private final EnvEnforcer<P> envEnforcer;
 	private final MuteCache muteCache;
+	private final AccountGraph accountGraph;
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
 	public StandardLocalEnforcer(InstanceType instanceType, Configs configs, FactoryOfTheFuture futuresFactory,
 								 Provider<QueryExecutor> queryExecutor, PunishmentSelector selector,
-								 InternalFormatter formatter, EnvEnforcer<P> envEnforcer, MuteCache muteCache) {
+								 InternalFormatter formatter, EnvEnforcer<P> envEnforcer, MuteCache muteCache,
+								 AccountGraph accountGraph) {
 		this.instanceType = instanceType;
 		this.configs = configs;
 		this.futuresFactory = futuresFactory;
@@ -91,6 +96,7 @@ public final class StandardLocalEnforcer<@PlatformPlayer P> implements LocalEnfo
 		this.formatter = formatter;
 		this.envEnforcer = envEnforcer;
 		this.muteCache = muteCache;
+		this.accountGraph = accountGraph;
 	}
 
 	@Override
@@ -187,26 +193,16 @@ public final class StandardLocalEnforcer<@PlatformPlayer P> implements LocalEnfo
 
 	@Override
 	public CentralisedFuture<Void> updateDetailsWithoutSynchronization(Punishment punishment) {
-		return ((SecurePunishment) punishment).enforcePunishment(
-				punishment.enforcementOptionsBuilder()
+		// Enforce locally without going through GlobalEnforcement, which would re-index the punishment
+		return enforceWithoutSynchronization(
+				punishment,
+				EnforcementOpts.builder()
 						.broadcasting(Broadcasting.NONE)
 						.enforcement(EnforcementOptions.Enforcement.SINGLE_SERVER_ONLY)
 						.build()
 		);
 	}
 
-	@Override
-	public CentralisedFuture<Void> updateDetailsWithoutSynchronization(long id) {
-		return selector.getHistoricalPunishmentById(id).thenCompose((optPunishment) -> {
-			if (optPunishment.isEmpty()) {
-				// Possible race condition if punishment is expunged
-				logger.debug("Tried to update details of non-existent punishment with id {}", id);
-				return completedFuture(null);
-			}
-			return updateDetailsWithoutSynchronization(optPunishment.get());
-		}).toCompletableFuture();
-	}
-
 	private CentralisedFuture<Void> enforceArrestsAndNotices(Punishment punishment) {
 
 		return formatter.getPunishmentMessage(punishment).thenCompose((message) -> {
@@ -291,6 +287,13 @@ public final class StandardLocalEnforcer<@PlatformPlayer P> implements LocalEnfo
 
 	private CentralisedFuture<TargetMatcher<P>> matchAddressPunishmentSternOrStrict(
 			NetworkAddress address, Consumer<P> enforcementCallback) {
+		if (accountGraph.isLoaded()) {
+			Set<UUID> uuids = new HashSet<>();
+			for (UUID user : accountGraph.usersOf(address)) {
+				uuids.addAll(accountGraph.linkedUsers(user));
+			}
+			return completedFuture(new UUIDTargetMatcher<>(uuids, enforcementCallback));
+		}
 		return queryExecutor.get().query(SQLFunction.readOnly((context) -> {
 			return context
 					.select(STRICT_LINKS.UUID2)
@@ -306,6 +309,9 @@ public final class StandardLocalEnforcer<@PlatformPlayer P> implements LocalEnfo
 
 	private CentralisedFuture<TargetMatcher<P>> matchUserPunishmentStrict(
 			UUID uuid, Consumer<P> enforcementCallback) {
+		if (accountGraph.isLoaded()) {
+			return completedFuture(new UUIDTargetMatcher<>(accountGraph.linkedUsers(uuid), enforcementCallback));
+		}
 		return queryExecutor.get().query(SQLFunction.readOnly((context) -> {
 			return context
 					.select(STRICT_LINKS.UUID2)
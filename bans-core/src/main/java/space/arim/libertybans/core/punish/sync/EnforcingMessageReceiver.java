@@ -25,9 +25,14 @@ import org.slf4j.LoggerFactory;
 import space.arim.libertybans.api.punish.EnforcementOptions;
 import space.arim.libertybans.api.punish.Punishment;
 import space.arim.libertybans.api.select.PunishmentSelector;
+import space.arim.libertybans.core.alts.AccountGraph;
+import space.arim.libertybans.core.alts.ConnectionLimiter;
 import space.arim.libertybans.core.punish.EnforcementOpts;
 import space.arim.libertybans.core.punish.LocalEnforcer;
 import space.arim.libertybans.core.punish.Mode;
+import space.arim.libertybans.core.ranges.AddressRangeBans;
+import space.arim.libertybans.core.selector.cache.ActivePunishmentIndex;
+import space.arim.libertybans.core.selector.cache.PunishmentCountCache;
 import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 import space.arim.omnibus.util.concurrent.ReactionStage;
@@ -37,14 +42,27 @@ public final class EnforcingMessageReceiver implements MessageReceiver {
 	private final FactoryOfTheFuture futuresFactory;
 	private final PunishmentSelector selector;
 	private final LocalEnforcer enforcer;
+	private final ActivePunishmentIndex activePunishmentIndex;
+	private final PunishmentCountCache punishmentCountCache;
+	private final ConnectionLimiter connectionLimiter;
+	private final AccountGraph accountGraph;
+	private final AddressRangeBans addressRangeBans;
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
-	public EnforcingMessageReceiver(FactoryOfTheFuture futuresFactory, PunishmentSelector selector, LocalEnforcer enforcer) {
+	public EnforcingMessageReceiver(FactoryOfTheFuture futuresFactory, PunishmentSelector selector, LocalEnforcer enforcer,
+									ActivePunishmentIndex activePunishmentIndex, PunishmentCountCache punishmentCountCache,
+									ConnectionLimiter connectionLimiter, AccountGraph accountGraph,
+									AddressRangeBans addressRangeBans) {
 		this.futuresFactory = futuresFactory;
 		this.selector = selector;
 		this.enforcer = enforcer;
+		this.activePunishmentIndex = activePunishmentIndex;
+		this.punishmentCountCache = punishmentCountCache;
+		this.connectionLimiter = connectionLimiter;
+		this.accountGraph = accountGraph;
+		this.addressRangeBans = addressRangeBans;
 	}
 
 	@Override
@@ -52,15 +70,36 @@ public final class EnforcingMessageReceiver implements MessageReceiver {
 		if (message instanceof PacketEnforceUnenforce packetEnforceUnenforce) {
 			return onReception(packetEnforceUnenforce);
 		} else if (message instanceof PacketExpunge packetExpunge) {
+			activePunishmentIndex.remove(packetExpunge.id);
+			punishmentCountCache.invalidateAll();
 			return enforcer.clearExpungedWithoutSynchronization(packetExpunge.id);
 		} else if (message instanceof PacketUpdateDetails packetUpdateDetails) {
-			return enforcer.updateDetailsWithoutSynchronization(packetUpdateDetails.id);
+			return onReception(packetUpdateDetails);
+		} else if (message instanceof PacketConnection packetConnection) {
+			connectionLimiter.recordRemoteConnection(packetConnection.uuid, packetConnection.address, packetConnection.time);
+			accountGraph.record(packetConnection.uuid, packetConnection.address, packetConnection.time);
+			return futuresFactory.completedFuture(null);
+		} else if (message instanceof PacketAddressRange packetAddressRange) {
+			return addressRangeBans.refreshWithoutSynchronization(packetAddressRange.range);
 		} else {
 			logger.warn("Unknown packet {} ({})", message, message.getClass());
 			return futuresFactory.completedFuture(null);
 		}
 	}
 
+	private ReactionStage<?> onReception(PacketUpdateDetails message) {
+		return selector.getActivePunishmentById(message.id).thenCompose((optPunishment) -> {
+			if (optPunishment.isEmpty()) {
+				// The punishment was modified so as to expire, or it was since revoked or expunged
+				activePunishmentIndex.remove(message.id);
+				return futuresFactory.completedFuture(null);
+			}
+			Punishment punishment = optPunishment.get();
+			activePunishmentIndex.index(punishment);
+			return enforcer.updateDetailsWithoutSynchronization(punishment);
+		});
+	}
+
 	private ReactionStage<?> onReception(PacketEnforceUnenforce message) {
 		EnforcementOpts enforcementOptions = EnforcementOpts
 				.builder()
@@ -69,8 +108,12 @@ public final class EnforcingMessageReceiver implements MessageReceiver {
 				.targetArgument(message.targetArgument)
 				.unOperator(message.unOperator)
 				.build();
+		if (message.mode == Mode.UNDO) {
+			activePunishmentIndex.remove(message.id);
+		}
 		if (message.broadcasting == EnforcementOptions.Broadcasting.NONE && message.mode == Mode.UNDO) {
 			// Optimization: We do not need the full punishment details to simply undo a punishment
+			punishmentCountCache.invalidate(message.type);
 			return enforcer.unenforceWithoutSynchronization(message.id, message.type, enforcementOptions);
 		}
 		return selector.getHistoricalPunishmentByIdAndType(message.id, message.type).thenCompose((optPunishment) -> {
@@ -81,10 +124,13 @@ public final class EnforcingMessageReceiver implements MessageReceiver {
 			Punishment punishment = optPunishment.get();
 			if (message.mode == Mode.UNDO) {
 				// Unenforce this punishment
+				punishmentCountCache.unenforced(punishment);
 				return enforcer.unenforceWithoutSynchronization(punishment, enforcementOptions);
 			}
 			// Enforce this punishment
 			assert message.mode == Mode.DO : "Mode " + message.mode;
+			activePunishmentIndex.index(punishment);
+			punishmentCountCache.enforced(punishment);
 			return enforcer.enforceWithoutSynchronization(punishment, enforcementOptions);
 		});
 	}
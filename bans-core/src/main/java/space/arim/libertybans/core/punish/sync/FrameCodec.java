@@ -0,0 +1,184 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish.sync;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Length-prefixed framing for TCP synchronization. Each frame is the payload length, a sequence
+ * number, the payload itself, and an HMAC using the shared secret. <br>
+ * <br>
+ * To prevent replay, the receiving side of a connection first sends a random challenge, which is
+ * included in the HMAC of every frame on that connection. Frames recorded from one connection thus
+ * fail authentication on any other, and within a connection, sequence numbers must increase.
+ *
+ */
+final class FrameCodec {
+
+	static final int MAX_PAYLOAD_LENGTH = 64 * 1024;
+	static final int CHALLENGE_LENGTH = 16;
+	private static final String MAC_ALGORITHM = "HmacSHA256";
+	private static final int MAC_LENGTH = 32;
+	private static final int HEADER_LENGTH = Integer.BYTES + Long.BYTES;
+
+	private final SecretKeySpec key;
+	private final SecureRandom random = new SecureRandom();
+
+	FrameCodec(String secret) {
+		key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM);
+	}
+
+	private byte[] mac(byte[] challenge, long sequence, byte[] payload) {
+		try {
+			Mac mac = Mac.getInstance(MAC_ALGORITHM);
+			mac.init(key);
+			mac.update(challenge);
+			mac.update(ByteBuffer.allocate(Long.BYTES).putLong(sequence).array());
+			return mac.doFinal(payload);
+		} catch (GeneralSecurityException ex) {
+			throw new IllegalStateException(MAC_ALGORITHM + " is required to be supported", ex);
+		}
+	}
+
+	/**
+	 * Creates a random challenge, to be sent by the receiving side of a new connection
+	 *
+	 * @return the challenge
+	 */
+	byte[] newChallenge() {
+		byte[] challenge = new byte[CHALLENGE_LENGTH];
+		random.nextBytes(challenge);
+		return challenge;
+	}
+
+	Encoder newEncoder(byte[] challenge) {
+		return new Encoder(challenge);
+	}
+
+	Decoder newDecoder(byte[] challenge) {
+		return new Decoder(challenge);
+	}
+
+	/**
+	 * Encodes frames for a single connection. Not thread safe
+	 *
+	 */
+	final class Encoder {
+
+		private final byte[] challenge;
+		private long sequence;
+
+		private Encoder(byte[] challenge) {
+			this.challenge = challenge.clone();
+		}
+
+		ByteBuffer encode(byte[] payload) {
+			if (payload.length > MAX_PAYLOAD_LENGTH) {
+				throw new IllegalArgumentException("Payload too large: " + payload.length);
+			}
+			long sequence = ++this.sequence;
+			return ByteBuffer.allocate(HEADER_LENGTH + payload.length + MAC_LENGTH)
+					.putInt(payload.length)
+					.putLong(sequence)
+					.put(payload)
+					.put(mac(challenge, sequence, payload))
+					.flip();
+		}
+
+	}
+
+	/**
+	 * Reassembles frames from the stream of bytes of a single connection. Not thread safe
+	 *
+	 */
+	final class Decoder {
+
+		private final byte[] challenge;
+		private final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		private long sequence;
+		private long lastSequence;
+		private ByteBuffer body;
+
+		private Decoder(byte[] challenge) {
+			this.challenge = challenge.clone();
+		}
+
+		/**
+		 * Consumes all the given bytes, returning the payloads of frames completed by them
+		 *
+		 * @param input the bytes received
+		 * @return the payloads of any completed frames
+		 * @throws IOException if a frame is too large, fails authentication, or is replayed
+		 */
+		List<byte[]> decode(ByteBuffer input) throws IOException {
+			List<byte[]> payloads = new ArrayList<>(1);
+			while (input.hasRemaining()) {
+				if (body == null) {
+					transfer(input, header);
+					if (header.hasRemaining()) {
+						break;
+					}
+					header.flip();
+					int length = header.getInt();
+					sequence = header.getLong();
+					header.clear();
+					if (length < 0 || length > MAX_PAYLOAD_LENGTH) {
+						throw new IOException("Invalid frame length " + length);
+					}
+					body = ByteBuffer.allocate(length + MAC_LENGTH);
+				}
+				transfer(input, body);
+				if (body.hasRemaining()) {
+					break;
+				}
+				byte[] payload = new byte[body.capacity() - MAC_LENGTH];
+				byte[] receivedMac = new byte[MAC_LENGTH];
+				body.flip().get(payload).get(receivedMac);
+				body = null;
+				if (!MessageDigest.isEqual(mac(challenge, sequence, payload), receivedMac)) {
+					throw new IOException("Frame failed authentication. Is the secret the same on all instances?");
+				}
+				if (sequence <= lastSequence) {
+					throw new IOException("Frame was replayed: sequence " + sequence + " follows " + lastSequence);
+				}
+				lastSequence = sequence;
+				payloads.add(payload);
+			}
+			return payloads;
+		}
+
+	}
+
+	private static void transfer(ByteBuffer source, ByteBuffer destination) {
+		int length = Math.min(source.remaining(), destination.remaining());
+		destination.put(source.slice(source.position(), length));
+		source.position(source.position() + length);
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish.sync;
+
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.ranges.AddressRange;
+
+import java.io.IOException;
+import java.util.Objects;
+
+public final class PacketAddressRange implements SynchronizationPacket {
+
+	final AddressRange range;
+
+	static final byte PACKET_ID = (byte) 5;
+
+	public PacketAddressRange(AddressRange range) {
+		this.range = Objects.requireNonNull(range, "range");
+	}
+
+	@Override
+	public byte packetId() {
+		return PACKET_ID;
+	}
+
+	@Override
+	public void writeTo(ProtocolOutputStream output) throws IOException {
+		byte[] rawAddress = range.address().getRawAddress();
+		output.writeByte(rawAddress.length);
+		output.write(rawAddress);
+		output.writeByte(range.prefixLength());
+	}
+
+	static PacketAddressRange readFrom(ProtocolInputStream input) throws IOException {
+		byte[] rawAddress = new byte[input.readUnsignedByte()];
+		input.readFully(rawAddress);
+		int prefixLength = input.readUnsignedByte();
+		return new PacketAddressRange(AddressRange.of(NetworkAddress.of(rawAddress), prefixLength));
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		PacketAddressRange that = (PacketAddressRange) o;
+		return range.equals(that.range);
+	}
+
+	@Override
+	public int hashCode() {
+		return range.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "PacketAddressRange{" +
+				"range=" + range +
+				'}';
+	}
+
+}
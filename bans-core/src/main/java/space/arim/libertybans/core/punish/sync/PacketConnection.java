@@ -0,0 +1,91 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish.sync;
+
+import space.arim.libertybans.api.NetworkAddress;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+public final class PacketConnection implements SynchronizationPacket {
+
+	final UUID uuid;
+	final NetworkAddress address;
+	final Instant time;
+
+	static final byte PACKET_ID = (byte) 4;
+
+	public PacketConnection(UUID uuid, NetworkAddress address, Instant time) {
+		this.uuid = Objects.requireNonNull(uuid, "uuid");
+		this.address = Objects.requireNonNull(address, "address");
+		this.time = Objects.requireNonNull(time, "time");
+	}
+
+	@Override
+	public byte packetId() {
+		return PACKET_ID;
+	}
+
+	@Override
+	public void writeTo(ProtocolOutputStream output) throws IOException {
+		output.writeUUID(uuid);
+		byte[] rawAddress = address.getRawAddress();
+		output.writeByte(rawAddress.length);
+		output.write(rawAddress);
+		output.writeLong(time.getEpochSecond());
+	}
+
+	static PacketConnection readFrom(ProtocolInputStream input) throws IOException {
+		UUID uuid = input.readUUID();
+		byte[] rawAddress = new byte[input.readUnsignedByte()];
+		input.readFully(rawAddress);
+		NetworkAddress address = NetworkAddress.of(rawAddress);
+		Instant time = Instant.ofEpochSecond(input.readLong());
+		return new PacketConnection(uuid, address, time);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		PacketConnection that = (PacketConnection) o;
+		return uuid.equals(that.uuid) && address.equals(that.address) && time.equals(that.time);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = uuid.hashCode();
+		result = 31 * result + address.hashCode();
+		result = 31 * result + time.hashCode();
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "PacketConnection{" +
+				"uuid=" + uuid +
+				", address=" + address +
+				", time=" + time +
+				'}';
+	}
+
+}
@@ -0,0 +1,340 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish.sync;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.core.Part;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.database.Vendor;
+import space.arim.libertybans.core.service.SimpleThreadFactory;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.ReactionStage;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes messages to other instances using PostgreSQL's LISTEN and NOTIFY. Notifications are
+ * received on a single connection kept outside the connection pool. <br>
+ * <br>
+ * Messages are still written to the database, which is used as a catch-up log: it is polled
+ * only while the listening connection is lost, and once after it is restored. If the database
+ * is not PostgreSQL, this messenger behaves like the SQL messenger.
+ *
+ */
+@Singleton
+public final class PostgresSynchronizationMessenger implements SynchronizationMessenger, Part {
+
+	private final Configs configs;
+	private final FactoryOfTheFuture futuresFactory;
+	private final Provider<InternalDatabase> database;
+	private final SQLSynchronizationMessenger catchUpLog;
+	private final SynchronizationProtocol synchronizationProtocol;
+	private final Provider<MessageReceiver> messageReceiver;
+
+	private final PushedMessages pushedMessages = new PushedMessages();
+	/** Whether the catch-up log must be read, because messages may have been missed */
+	private final AtomicBoolean catchUpRequested = new AtomicBoolean();
+	private volatile Listener listener;
+	private volatile boolean listening;
+	/** Accessed only from the polling thread */
+	private boolean caughtUp;
+	/** Accessed only from the listener thread */
+	private ReactionStage<?> lastReception;
+
+	static final String CHANNEL = "libertybans_sync";
+	/** Identifies the listening connection, such as in pg_stat_activity */
+	public static final String LISTENER_APPLICATION_NAME = "LibertyBans synchronization listener";
+	/** Notification payloads must be shorter than 8000 bytes */
+	static final int MAX_PAYLOAD_LENGTH = 7999;
+	private static final int AWAIT_MILLIS = 10_000;
+	private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+	private static final long RECONNECT_DELAY_MILLIS = 5_000L;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public PostgresSynchronizationMessenger(Configs configs, FactoryOfTheFuture futuresFactory,
+											Provider<InternalDatabase> database,
+											SQLSynchronizationMessenger catchUpLog,
+											SynchronizationProtocol synchronizationProtocol,
+											Provider<MessageReceiver> messageReceiver) {
+		this.configs = configs;
+		this.futuresFactory = futuresFactory;
+		this.database = database;
+		this.catchUpLog = catchUpLog;
+		this.synchronizationProtocol = synchronizationProtocol;
+		this.messageReceiver = messageReceiver;
+	}
+
+	@Override
+	public void startup() {
+		SqlConfig.Synchronization conf = configs.getSqlConfig().synchronization();
+		if (conf.mode() != SqlConfig.Synchronization.SyncMode.POSTGRES_NOTIFY) {
+			return;
+		}
+		InternalDatabase database = this.database.get();
+		if (database.getVendor() != Vendor.POSTGRES) {
+			logger.warn("The POSTGRES_NOTIFY synchronization mode requires PostgreSQL, but you are using {}. " +
+					"The database will be polled for synchronization messages instead.", database.getVendor());
+			return;
+		}
+		Listener listener = new Listener(database);
+		listener.start();
+		this.listener = listener;
+	}
+
+	@Override
+	public void restart() {
+		shutdown();
+		startup();
+	}
+
+	@Override
+	public void shutdown() {
+		Listener listener = this.listener;
+		if (listener != null) {
+			this.listener = null;
+			listener.stop();
+		}
+	}
+
+	static String encodePayload(byte[] message) {
+		String payload = Base64.getEncoder().encodeToString(message);
+		// An empty payload tells other instances to read the message from the catch-up log
+		return (payload.length() > MAX_PAYLOAD_LENGTH) ? "" : payload;
+	}
+
+	static byte[] decodePayload(String payload) {
+		return Base64.getDecoder().decode(payload);
+	}
+
+	@Override
+	public CentralisedFuture<Void> dispatch(byte[] message) {
+		if (listener == null) {
+			return catchUpLog.dispatch(message);
+		}
+		String payload = encodePayload(message);
+		return database.get().execute((context) -> {
+			// In the same transaction, so that the notification is sent only if the message is written
+			catchUpLog.insertMessage(context, message);
+			context
+					.resultQuery("SELECT pg_notify({0}, {1})", DSL.val(CHANNEL), DSL.val(payload))
+					.fetch();
+		});
+	}
+
+	@Override
+	public CentralisedFuture<byte[][]> poll() {
+		if (catchUpRequested.getAndSet(false)) {
+			caughtUp = false;
+		}
+		// Read before polling, so that the poll covers every message sent before listening resumed
+		boolean listening = this.listening;
+		if (listening && caughtUp) {
+			return futuresFactory.completedFuture(new byte[][] {});
+		}
+		caughtUp = listening;
+		return catchUpLog.poll().thenApply(pushedMessages::exclude);
+	}
+
+	private void receivePayload(String payload) {
+		if (payload.isEmpty()) {
+			// The message was too large to be sent as a notification
+			catchUpRequested.set(true);
+			return;
+		}
+		byte[] message;
+		try {
+			message = decodePayload(payload);
+		} catch (IllegalArgumentException ex) {
+			logger.warn("Received a malformed synchronization notification", ex);
+			return;
+		}
+		pushedMessages.record(message);
+		// Receive messages in the order they arrive
+		ReactionStage<?> previous = lastReception;
+		if (previous == null) {
+			previous = futuresFactory.completedFuture(null);
+		}
+		lastReception = previous
+				.thenCompose((ignore) -> synchronizationProtocol.receiveMessage(message, messageReceiver.get()))
+				.exceptionally((ex) -> {
+					logger.warn("Exception while receiving pushed synchronization message", ex);
+					return null;
+				});
+	}
+
+	/**
+	 * Holds the listening connection, reconnecting whenever it is lost
+	 *
+	 */
+	private final class Listener implements Runnable {
+
+		private final InternalDatabase database;
+		private final Thread thread;
+		private volatile boolean stopped;
+		private volatile Connection connection;
+
+		Listener(InternalDatabase database) {
+			this.database = database;
+			thread = SimpleThreadFactory.create("Synchronization-Listener").newThread(this);
+		}
+
+		void start() {
+			thread.start();
+		}
+
+		void stop() {
+			stopped = true;
+			Connection connection = this.connection;
+			if (connection != null) {
+				try {
+					// Unblocks the listener thread if it is waiting for notifications
+					connection.abort(Runnable::run);
+				} catch (SQLException ex) {
+					logger.debug("Failed to abort listening connection", ex);
+				}
+			}
+			thread.interrupt();
+			try {
+				thread.join(AWAIT_MILLIS);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public void run() {
+			while (!stopped) {
+				listen();
+				try {
+					Thread.sleep(RECONNECT_DELAY_MILLIS);
+				} catch (InterruptedException ex) {
+					return;
+				}
+			}
+		}
+
+		private void listen() {
+			boolean wasListening = false;
+			try (Connection connection = database.openUnpooledConnection()) {
+				this.connection = connection;
+				connection.setClientInfo("ApplicationName", LISTENER_APPLICATION_NAME);
+				connection.setAutoCommit(true);
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("LISTEN " + CHANNEL);
+				}
+				Notifications notifications = Notifications.of(connection);
+				wasListening = true;
+				listening = true;
+				while (!stopped) {
+					List<String> payloads = notifications.await(AWAIT_MILLIS);
+					if (payloads.isEmpty() && !connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+						throw new SQLException("Listening connection is no longer valid");
+					}
+					for (String payload : payloads) {
+						receivePayload(payload);
+					}
+				}
+			} catch (SQLException ex) {
+				if (!stopped) {
+					logger.warn("Lost the connection listening for synchronization messages. Until it is " +
+							"re-established, the database will be polled for synchronization messages.", ex);
+				}
+			} finally {
+				this.connection = null;
+				if (wasListening) {
+					listening = false;
+					// Messages may have been missed since the connection was last known to work
+					catchUpRequested.set(true);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Reflective access to notifications, since the PostgreSQL driver is only available at runtime
+	 *
+	 */
+	private record Notifications(Object pgConnection, Method getNotifications, Method getParameter) {
+
+		static Notifications of(Connection connection) throws SQLException {
+			ClassLoader driverLoader = connection.getClass().getClassLoader();
+			try {
+				Class<?> pgConnectionClass = Class.forName("org.postgresql.PGConnection", true, driverLoader);
+				Class<?> notificationClass = Class.forName("org.postgresql.PGNotification", true, driverLoader);
+				return new Notifications(
+						connection.unwrap(pgConnectionClass),
+						pgConnectionClass.getMethod("getNotifications", int.class),
+						notificationClass.getMethod("getParameter")
+				);
+			} catch (ReflectiveOperationException ex) {
+				throw new SQLException("The PostgreSQL driver does not support notifications", ex);
+			}
+		}
+
+		/**
+		 * Waits for notifications
+		 *
+		 * @param timeoutMillis the maximum time to wait
+		 * @return the payloads of the notifications received, empty if the timeout elapsed
+		 * @throws SQLException if the connection failed
+		 */
+		List<String> await(int timeoutMillis) throws SQLException {
+			try {
+				Object[] notifications = (Object[]) getNotifications.invoke(pgConnection, timeoutMillis);
+				if (notifications == null) {
+					return List.of();
+				}
+				List<String> payloads = new ArrayList<>(notifications.length);
+				for (Object notification : notifications) {
+					payloads.add((String) getParameter.invoke(notification));
+				}
+				return payloads;
+			} catch (InvocationTargetException ex) {
+				if (ex.getCause() instanceof SQLException sqlEx) {
+					throw sqlEx;
+				}
+				throw new SQLException(ex.getCause());
+			} catch (IllegalAccessException ex) {
+				throw new SQLException(ex);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish.sync;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Counts of messages received by push, which must not be received again from the catch-up log.
+ * Thread safe
+ *
+ */
+final class PushedMessages {
+
+	private final Cache<ByteBuffer, Integer> counts = Caffeine.newBuilder()
+			.expireAfterWrite(Duration.ofMinutes(2L))
+			.build();
+
+	void record(byte[] message) {
+		counts.asMap().merge(ByteBuffer.wrap(message), 1, Integer::sum);
+	}
+
+	/**
+	 * Removes messages which were already received by push
+	 *
+	 * @param messages the messages from the catch-up log
+	 * @return the messages which were not yet received
+	 */
+	byte[][] exclude(byte[][] messages) {
+		List<byte[]> remaining = new ArrayList<>(messages.length);
+		for (byte[] message : messages) {
+			if (!consume(ByteBuffer.wrap(message))) {
+				remaining.add(message);
+			}
+		}
+		return remaining.toArray(byte[][]::new);
+	}
+
+	private boolean consume(ByteBuffer message) {
+		ConcurrentMap<ByteBuffer, Integer> counts = this.counts.asMap();
+		while (true) {
+			Integer count = counts.get(message);
+			if (count == null) {
+				return false;
+			}
+			boolean consumed = (count == 1) ?
+					counts.remove(message, count) : counts.replace(message, count, count - 1);
+			if (consumed) {
+				return true;
+			}
+		}
+	}
+
+}
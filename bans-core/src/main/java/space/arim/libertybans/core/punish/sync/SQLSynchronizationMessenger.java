@@ -17,76 +17,159 @@
  * and navigate to version 3 of the GNU Affero General Public License.
  */
 
+
 package space.arim.libertybans.core.punish.sync;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
 import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Record2;
+import org.jooq.Result;
+import org.jooq.impl.DSL;
+import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.database.execute.QueryExecutor;
 import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.database.sql.SequenceValue;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
-import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import static org.jooq.impl.DSL.val;
+import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_MESSAGE_IDS;
 import static space.arim.libertybans.core.schema.tables.Messages.MESSAGES;
 
 @Singleton
 public final class SQLSynchronizationMessenger implements SynchronizationMessenger {
 
-	private final FactoryOfTheFuture futuresFactory;
+	private final Configs configs;
 	private final Provider<QueryExecutor> queryExecutor;
 	private final Time time;
 
-	private Instant lastTimestamp;
+	/** The greatest message id consumed, or null if not yet known. Guarded by this */
+	private Long lastId;
+	/**
+	 * Ids below the last id which have not yet been seen, mapped to when they were first missed.
+	 * A message can become visible after one with a greater id, if its transaction commits later.
+	 * Guarded by this
+	 */
+	private final Map<Long, Instant> missingIds = new HashMap<>();
+
+	/** Larger gaps are assumed to be skipped sequence values, rather than uncommitted messages */
+	private static final int MAX_MISSING_IDS = 64;
+	private static final Duration MISSING_ID_EXPIRATION = Duration.ofSeconds(10L);
 
 	@Inject
-	public SQLSynchronizationMessenger(FactoryOfTheFuture futuresFactory,
-									   Provider<QueryExecutor> queryExecutor, Time time) {
-		this.futuresFactory = futuresFactory;
+	public SQLSynchronizationMessenger(Configs configs, Provider<QueryExecutor> queryExecutor, Time time) {
+		this.configs = configs;
 		this.queryExecutor = queryExecutor;
 		this.time = time;
 	}
 
 	@Override
 	public CentralisedFuture<Void> dispatch(byte[] message) {
-		return queryExecutor.get().execute((context) -> {
-			context
-					.insertInto(MESSAGES)
-					.columns(MESSAGES.MESSAGE, MESSAGES.TIME)
-					.values(message, time.currentTimestamp())
-					.execute();
-		});
+		return queryExecutor.get().execute((context) -> insertMessage(context, message));
+	}
+
+	void insertMessage(DSLContext context, byte[] message) {
+		context
+				.insertInto(MESSAGES)
+				.columns(MESSAGES.ID, MESSAGES.MESSAGE, MESSAGES.TIME)
+				.values(
+						new SequenceValue<>(context, LIBERTYBANS_MESSAGE_IDS).nextValue(),
+						val(message, MESSAGES.MESSAGE), val(time.currentTimestamp(), MESSAGES.TIME)
+				)
+				.execute();
 	}
 
 	@Override
 	public CentralisedFuture<byte[][]> poll() {
-		Instant currentTime = time.currentTimestamp();
-		if (lastTimestamp == null) {
+		int pageSize = configs.getSqlConfig().synchronization().pollPageSize();
+		return queryExecutor.get().query(SQLFunction.readOnly((context) -> {
+			// Polls may overlap if the database is slow
+			synchronized (this) {
+				return pollMessages(context, pageSize);
+			}
+		}));
+	}
+
+	private byte[][] pollMessages(DSLContext context, int pageSize) {
+		if (lastId == null) {
 			// The server has recently started up or LibertyBans has restarted
-			lastTimestamp = currentTime;
-			return futuresFactory.completedFuture(new byte[][] {});
+			lastId = selectLatestId(context);
+			return new byte[][] {};
 		}
-		Condition timeCondition = MESSAGES.TIME.lessOrEqual(currentTime).and(MESSAGES.TIME.greaterThan(lastTimestamp));
-		var future = queryExecutor.get().query(SQLFunction.readOnly((context) -> {
-			return context
-					.select(MESSAGES.MESSAGE)
+		Instant currentTime = time.currentTimestamp();
+		missingIds.values().removeIf((missedAt) -> currentTime.isAfter(missedAt.plus(MISSING_ID_EXPIRATION)));
+
+		Condition condition = MESSAGES.ID.greaterThan(lastId);
+		if (!missingIds.isEmpty()) {
+			condition = condition.or(MESSAGES.ID.in(missingIds.keySet()));
+		}
+		List<byte[]> messages = new ArrayList<>();
+		while (true) {
+			Result<Record2<Long, byte[]>> page = context
+					.select(MESSAGES.ID, MESSAGES.MESSAGE)
 					.from(MESSAGES)
-					.where(timeCondition)
-					.orderBy(MESSAGES.TIME.asc())
-					.fetchArray(MESSAGES.MESSAGE);
-		}));
-		lastTimestamp = currentTime;
-		return future;
+					.where(condition)
+					.orderBy(MESSAGES.ID.asc())
+					.limit(pageSize)
+					.fetch();
+			for (Record2<Long, byte[]> record : page) {
+				long id = record.value1();
+				if (missingIds.remove(id) == null) {
+					long gap = id - lastId - 1;
+					if (gap > 0 && gap <= MAX_MISSING_IDS) {
+						for (long missingId = lastId + 1; missingId < id; missingId++) {
+							missingIds.put(missingId, currentTime);
+						}
+					}
+					lastId = id;
+				}
+				messages.add(record.value2());
+			}
+			if (page.size() < pageSize) {
+				break;
+			}
+			condition = MESSAGES.ID.greaterThan(lastId);
+		}
+		return messages.toArray(byte[][]::new);
+	}
+
+	private static long selectLatestId(DSLContext context) {
+		Long latestId = context
+				.select(DSL.max(MESSAGES.ID))
+				.from(MESSAGES)
+				.fetchSingle()
+				.value1();
+		return (latestId == null) ? 0L : latestId;
 	}
 
-	public void setInitialTimestamp() {
-		lastTimestamp = time.currentTimestamp();
+	/**
+	 * Skips all existing messages, so that the next poll receives only messages dispatched after
+	 * this call. Blocks until complete
+	 *
+	 */
+	public void setInitialPosition() {
+		queryExecutor.get().query(SQLFunction.readOnly((context) -> {
+			long latestId = selectLatestId(context);
+			synchronized (this) {
+				lastId = latestId;
+				missingIds.clear();
+			}
+			return null;
+		})).join();
 	}
 
-	public void resetLastTimestamp() {
-		lastTimestamp = null;
+	public synchronized void resetPosition() {
+		lastId = null;
+		missingIds.clear();
 	}
 }
@@ -77,6 +77,8 @@ public final class SynchronizationProtocol {
 				case PacketEnforceUnenforce.PACKET_ID -> PacketEnforceUnenforce.readFrom(input);
 				case PacketExpunge.PACKET_ID -> PacketExpunge.readFrom(input);
 				case PacketUpdateDetails.PACKET_ID -> PacketUpdateDetails.readFrom(input);
+				case PacketConnection.PACKET_ID -> PacketConnection.readFrom(input);
+				case PacketAddressRange.PACKET_ID -> PacketAddressRange.readFrom(input);
 				default -> null; // Exit below
 			};
 			if (message == null) {
@@ -0,0 +1,178 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish.sync;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.core.Part;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.ReactionStage;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pushes messages directly to other instances over TCP. Messages are still written to the
+ * database, which is used as a catch-up log: it is polled only while a peer is disconnected. <br>
+ * <br>
+ * If TCP synchronization cannot be started, this messenger behaves like the SQL messenger.
+ *
+ */
+@Singleton
+public final class TCPSynchronizationMessenger implements SynchronizationMessenger, Part {
+
+	private final Configs configs;
+	private final FactoryOfTheFuture futuresFactory;
+	private final SQLSynchronizationMessenger catchUpLog;
+	private final SynchronizationProtocol synchronizationProtocol;
+	private final Provider<MessageReceiver> messageReceiver;
+
+	private final PushedMessages pushedMessages = new PushedMessages();
+	private volatile TCPTransport transport;
+	/** Accessed only from the receiver thread */
+	private ReactionStage<?> lastReception;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public TCPSynchronizationMessenger(Configs configs, FactoryOfTheFuture futuresFactory,
+									   SQLSynchronizationMessenger catchUpLog,
+									   SynchronizationProtocol synchronizationProtocol,
+									   Provider<MessageReceiver> messageReceiver) {
+		this.configs = configs;
+		this.futuresFactory = futuresFactory;
+		this.catchUpLog = catchUpLog;
+		this.synchronizationProtocol = synchronizationProtocol;
+		this.messageReceiver = messageReceiver;
+	}
+
+	@Override
+	public void startup() {
+		SqlConfig.Synchronization conf = configs.getSqlConfig().synchronization();
+		if (conf.mode() != SqlConfig.Synchronization.SyncMode.TCP) {
+			return;
+		}
+		SqlConfig.Synchronization.Tcp tcpConf = conf.tcp();
+		if (tcpConf.secret().isBlank()) {
+			logger.error("TCP synchronization requires a secret to be configured. " +
+					"Until then, the database will be polled for synchronization messages.");
+			return;
+		}
+		try {
+			List<InetSocketAddress> peers = new ArrayList<>(tcpConf.peers().size());
+			for (String peer : tcpConf.peers()) {
+				peers.add(parseAddress(peer));
+			}
+			InetSocketAddress bindAddress = parseAddress(tcpConf.bindAddress());
+			TCPTransport transport = new TCPTransport(
+					new FrameCodec(tcpConf.secret()),
+					new InetSocketAddress(bindAddress.getHostString(), bindAddress.getPort()),
+					peers,
+					Duration.ofSeconds(tcpConf.heartbeatSeconds()),
+					this::receivePushedMessage
+			);
+			transport.start();
+			this.transport = transport;
+		} catch (IOException | IllegalArgumentException ex) {
+			logger.error("Failed to start TCP synchronization. " +
+					"Until this is fixed, the database will be polled for synchronization messages.", ex);
+		}
+	}
+
+	@Override
+	public void restart() {
+		shutdown();
+		startup();
+	}
+
+	@Override
+	public void shutdown() {
+		TCPTransport transport = this.transport;
+		if (transport != null) {
+			this.transport = null;
+			transport.close();
+		}
+	}
+
+	static InetSocketAddress parseAddress(String address) {
+		int separator = address.lastIndexOf(':');
+		if (separator == -1) {
+			throw new IllegalArgumentException("Address " + address + " must be in the form host:port");
+		}
+		String host = address.substring(0, separator);
+		if (host.startsWith("[") && host.endsWith("]")) {
+			// IPv6 literal
+			host = host.substring(1, host.length() - 1);
+		}
+		int port;
+		try {
+			port = Integer.parseInt(address.substring(separator + 1));
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Address " + address + " has an invalid port", ex);
+		}
+		return InetSocketAddress.createUnresolved(host, port);
+	}
+
+	@Override
+	public CentralisedFuture<Void> dispatch(byte[] message) {
+		TCPTransport transport = this.transport;
+		if (transport != null) {
+			transport.broadcast(message);
+		}
+		return catchUpLog.dispatch(message);
+	}
+
+	@Override
+	public CentralisedFuture<byte[][]> poll() {
+		TCPTransport transport = this.transport;
+		if (transport != null && transport.isFullyConnected()) {
+			// Every peer is pushing to us, so there is nothing to catch up on. If a peer disconnects,
+			// the next poll resumes from the last message read, skipping those already pushed
+			return futuresFactory.completedFuture(new byte[][] {});
+		}
+		return catchUpLog.poll().thenApply(pushedMessages::exclude);
+	}
+
+	private void receivePushedMessage(byte[] message) {
+		pushedMessages.record(message);
+		// Receive messages in the order they arrive
+		ReactionStage<?> previous = lastReception;
+		if (previous == null) {
+			previous = futuresFactory.completedFuture(null);
+		}
+		lastReception = previous
+				.thenCompose((ignore) -> synchronizationProtocol.receiveMessage(message, messageReceiver.get()))
+				.exceptionally((ex) -> {
+					logger.warn("Exception while receiving pushed synchronization message", ex);
+					return null;
+				});
+	}
+
+}
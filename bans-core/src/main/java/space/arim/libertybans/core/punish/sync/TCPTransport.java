@@ -0,0 +1,482 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish.sync;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.core.service.SimpleThreadFactory;
+import space.arim.omnibus.util.ThisClass;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Pushes synchronization messages to peers over TCP, and receives messages pushed by them. <br>
+ * <br>
+ * Every instance connects to each of its peers, and sends messages only over its own outgoing
+ * connections. Incoming connections are read by a single selector thread, which first sends
+ * each of them the challenge used to authenticate its frames. Heartbeats are sent periodically,
+ * so that an instance may tell whether all its peers are still connected to it. <br>
+ * <br>
+ * Writes to a peer time out, so that an unresponsive peer cannot hold up messages to the others.
+ *
+ */
+final class TCPTransport implements AutoCloseable {
+
+	private static final byte FRAME_HEARTBEAT = (byte) 0;
+	private static final byte FRAME_MESSAGE = (byte) 1;
+	private static final int HEARTBEAT_LENGTH = 1 + 2 * Long.BYTES;
+	private static final int CONNECT_TIMEOUT_MILLIS = 2_000;
+	private static final int IO_TIMEOUT_MILLIS = 2_000;
+	private static final int MISSED_HEARTBEATS_UNTIL_DISCONNECT = 3;
+
+	private final FrameCodec codec;
+	private final List<OutboundPeer> peers;
+	private final Duration heartbeatInterval;
+	private final Consumer<byte[]> messageHandler;
+	private final byte[] heartbeatPayload;
+
+	private final Selector selector;
+	private final ServerSocketChannel serverChannel;
+	private final Thread receiverThread;
+	private final ScheduledExecutorService sender;
+
+	private volatile boolean closed;
+	private volatile int connectedPeers;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	TCPTransport(FrameCodec codec, InetSocketAddress bindAddress, List<InetSocketAddress> peerAddresses,
+				 Duration heartbeatInterval, Consumer<byte[]> messageHandler) throws IOException {
+		this.codec = codec;
+		this.peers = peerAddresses.stream().map(OutboundPeer::new).toList();
+		this.heartbeatInterval = heartbeatInterval;
+		this.messageHandler = messageHandler;
+
+		UUID transportId = UUID.randomUUID();
+		heartbeatPayload = ByteBuffer.allocate(HEARTBEAT_LENGTH)
+				.put(FRAME_HEARTBEAT)
+				.putLong(transportId.getMostSignificantBits())
+				.putLong(transportId.getLeastSignificantBits())
+				.array();
+
+		selector = Selector.open();
+		try {
+			serverChannel = ServerSocketChannel.open();
+			serverChannel.bind(bindAddress);
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException | RuntimeException ex) {
+			selector.close();
+			throw ex;
+		}
+		receiverThread = SimpleThreadFactory.create("Synchronization-Receiver").newThread(this::receive);
+		sender = Executors.newSingleThreadScheduledExecutor(SimpleThreadFactory.create("Synchronization-Sender"));
+	}
+
+	void start() {
+		receiverThread.start();
+		sender.scheduleWithFixedDelay(
+				this::sendHeartbeats, 0L, heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS
+		);
+	}
+
+	/**
+	 * Whether every peer is currently connected to this instance, meaning no messages can have been missed
+	 *
+	 * @return true if all peers are connected
+	 */
+	boolean isFullyConnected() {
+		return connectedPeers >= peers.size();
+	}
+
+	/**
+	 * The time after which a silent peer is considered disconnected
+	 *
+	 * @return the disconnection timeout
+	 */
+	Duration disconnectionTimeout() {
+		return heartbeatInterval.multipliedBy(MISSED_HEARTBEATS_UNTIL_DISCONNECT);
+	}
+
+	// Sending
+
+	/**
+	 * Pushes a message to all peers. Peers which cannot be reached are skipped
+	 *
+	 * @param message the message
+	 */
+	void broadcast(byte[] message) {
+		if (1 + message.length > FrameCodec.MAX_PAYLOAD_LENGTH) {
+			throw new IllegalArgumentException("Message too large: " + message.length);
+		}
+		byte[] payload = new byte[1 + message.length];
+		payload[0] = FRAME_MESSAGE;
+		System.arraycopy(message, 0, payload, 1, message.length);
+		try {
+			sender.execute(() -> {
+				for (OutboundPeer peer : peers) {
+					peer.send(payload);
+				}
+			});
+		} catch (RejectedExecutionException ignored) {
+			// Shutting down
+		}
+	}
+
+	private void sendHeartbeats() {
+		for (OutboundPeer peer : peers) {
+			peer.send(heartbeatPayload);
+		}
+	}
+
+	/**
+	 * An outgoing connection. Accessed only from the sender thread
+	 *
+	 */
+	private final class OutboundPeer {
+
+		private final InetSocketAddress address;
+		private SocketChannel channel;
+		private Selector channelSelector;
+		private SelectionKey channelKey;
+		private FrameCodec.Encoder encoder;
+		private long retryAfter = System.nanoTime();
+
+		OutboundPeer(InetSocketAddress address) {
+			this.address = address;
+		}
+
+		void send(byte[] payload) {
+			boolean reconnected = false;
+			if (channel == null) {
+				if (System.nanoTime() - retryAfter < 0) {
+					return;
+				}
+				if (!connect()) {
+					return;
+				}
+				reconnected = true;
+			}
+			try {
+				write(encoder.encode(payload));
+			} catch (SocketTimeoutException ex) {
+				logger.debug("Timed out sending to synchronization peer {}", address);
+				disconnect();
+				backOff();
+			} catch (IOException ex) {
+				disconnect();
+				// The existing connection may have been stale. Try once more with a new one
+				if (!reconnected && connect()) {
+					try {
+						write(encoder.encode(payload));
+					} catch (IOException retryEx) {
+						logger.debug("Failed to send to synchronization peer {}", address, retryEx);
+						disconnect();
+						backOff();
+					}
+				}
+			}
+		}
+
+		private boolean connect() {
+			SocketChannel channel = null;
+			try {
+				channel = SocketChannel.open();
+				// Resolve again on every attempt, in case the peer's address has changed
+				channel.socket().connect(
+						new InetSocketAddress(address.getHostString(), address.getPort()), CONNECT_TIMEOUT_MILLIS
+				);
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+				channel.configureBlocking(false);
+				this.channel = channel;
+				channelSelector = Selector.open();
+				channelKey = channel.register(channelSelector, 0);
+				encoder = codec.newEncoder(readChallenge());
+				// Identify ourselves immediately, so that the peer counts this connection
+				write(encoder.encode(heartbeatPayload));
+				logger.debug("Connected to synchronization peer {}", address);
+				return true;
+			} catch (IOException ex) {
+				logger.debug("Unable to connect to synchronization peer {}", address, ex);
+				if (channel != null) {
+					closeQuietly(channel);
+				}
+				disconnect();
+				backOff();
+				return false;
+			}
+		}
+
+		private byte[] readChallenge() throws IOException {
+			ByteBuffer challenge = ByteBuffer.allocate(FrameCodec.CHALLENGE_LENGTH);
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(IO_TIMEOUT_MILLIS);
+			while (challenge.hasRemaining()) {
+				if (channel.read(challenge) == -1) {
+					throw new IOException("Connection closed before receiving challenge");
+				}
+				if (challenge.hasRemaining()) {
+					await(SelectionKey.OP_READ, deadline);
+				}
+			}
+			return challenge.array();
+		}
+
+		private void write(ByteBuffer frame) throws IOException {
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(IO_TIMEOUT_MILLIS);
+			while (frame.hasRemaining()) {
+				channel.write(frame);
+				if (frame.hasRemaining()) {
+					await(SelectionKey.OP_WRITE, deadline);
+				}
+			}
+		}
+
+		private void await(int operation, long deadline) throws IOException {
+			long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (remainingMillis <= 0) {
+				throw new SocketTimeoutException("Timed out communicating with synchronization peer " + address);
+			}
+			channelKey.interestOps(operation);
+			channelSelector.select(remainingMillis);
+			channelSelector.selectedKeys().clear();
+			channelKey.interestOps(0);
+		}
+
+		private void backOff() {
+			retryAfter = System.nanoTime() + heartbeatInterval.toNanos();
+		}
+
+		void disconnect() {
+			if (channelSelector != null) {
+				closeQuietly(channelSelector);
+				channelSelector = null;
+				channelKey = null;
+			}
+			if (channel != null) {
+				closeQuietly(channel);
+				channel = null;
+			}
+			encoder = null;
+		}
+	}
+
+	// Receiving
+
+	/**
+	 * An incoming connection. Accessed only from the receiver thread
+	 *
+	 */
+	private final class InboundConnection {
+
+		final SocketChannel channel;
+		final FrameCodec.Decoder decoder;
+		long lastHeardFrom = System.nanoTime();
+		UUID peerId;
+
+		InboundConnection(SocketChannel channel, byte[] challenge) {
+			this.channel = channel;
+			decoder = codec.newDecoder(challenge);
+		}
+	}
+
+	private void receive() {
+		ByteBuffer readBuffer = ByteBuffer.allocate(8192);
+		try {
+			while (!closed) {
+				selector.select(heartbeatInterval.toMillis());
+				Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+				while (selectedKeys.hasNext()) {
+					SelectionKey key = selectedKeys.next();
+					selectedKeys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+					} else if (key.isReadable()) {
+						read(key, readBuffer);
+					}
+				}
+				checkConnections();
+			}
+		} catch (IOException | ClosedSelectorException ex) {
+			if (!closed) {
+				logger.warn("Synchronization receiver stopped unexpectedly", ex);
+			}
+		} finally {
+			connectedPeers = 0;
+			closeAllIncoming();
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		byte[] challenge = codec.newChallenge();
+		try {
+			channel.configureBlocking(false);
+			ByteBuffer challengeBuffer = ByteBuffer.wrap(challenge);
+			channel.write(challengeBuffer);
+			if (challengeBuffer.hasRemaining()) {
+				// The send buffer of a new connection always has room for the challenge
+				throw new IOException("Unable to send challenge");
+			}
+		} catch (IOException ex) {
+			logger.debug("Failed to send challenge to {}", channel.socket().getRemoteSocketAddress(), ex);
+			closeQuietly(channel);
+			return;
+		}
+		channel.register(selector, SelectionKey.OP_READ, new InboundConnection(channel, challenge));
+	}
+
+	private void read(SelectionKey key, ByteBuffer readBuffer) {
+		InboundConnection connection = (InboundConnection) key.attachment();
+		try {
+			readBuffer.clear();
+			if (connection.channel.read(readBuffer) == -1) {
+				key.cancel();
+				closeQuietly(connection.channel);
+				return;
+			}
+			readBuffer.flip();
+			for (byte[] payload : connection.decoder.decode(readBuffer)) {
+				// Only authenticated frames count as activity
+				connection.lastHeardFrom = System.nanoTime();
+				handleFrame(connection, payload);
+			}
+		} catch (IOException ex) {
+			logger.warn("Closing synchronization connection from {}: {}", connection.channel.socket().getRemoteSocketAddress(), ex.getMessage());
+			key.cancel();
+			closeQuietly(connection.channel);
+		}
+	}
+
+	private void handleFrame(InboundConnection connection, byte[] payload) {
+		if (payload.length == 0) {
+			logger.warn("Received empty synchronization frame");
+			return;
+		}
+		switch (payload[0]) {
+		case FRAME_HEARTBEAT -> {
+			if (payload.length != HEARTBEAT_LENGTH) {
+				logger.warn("Received malformed synchronization heartbeat");
+				return;
+			}
+			ByteBuffer heartbeat = ByteBuffer.wrap(payload, 1, payload.length - 1);
+			connection.peerId = new UUID(heartbeat.getLong(), heartbeat.getLong());
+		}
+		case FRAME_MESSAGE -> {
+			try {
+				messageHandler.accept(Arrays.copyOfRange(payload, 1, payload.length));
+			} catch (RuntimeException ex) {
+				logger.warn("Exception while receiving synchronization message", ex);
+			}
+		}
+		default -> logger.warn("Unknown synchronization frame type {}", payload[0]);
+		}
+	}
+
+	private void checkConnections() {
+		long disconnectAfter = System.nanoTime() - disconnectionTimeout().toNanos();
+		Set<UUID> peerIds = new HashSet<>();
+		for (SelectionKey key : selector.keys()) {
+			if (!(key.attachment() instanceof InboundConnection connection)) {
+				continue;
+			}
+			if (connection.lastHeardFrom - disconnectAfter < 0) {
+				logger.debug("Synchronization peer {} missed its heartbeats", connection.peerId);
+				key.cancel();
+				closeQuietly(connection.channel);
+			} else if (connection.peerId != null) {
+				peerIds.add(connection.peerId);
+			}
+		}
+		connectedPeers = peerIds.size();
+	}
+
+	private void closeAllIncoming() {
+		try {
+			for (SelectionKey key : selector.keys()) {
+				closeQuietly(key.channel());
+			}
+		} catch (ClosedSelectorException ignored) {}
+		closeQuietly(serverChannel);
+		closeQuietly(selector);
+	}
+
+	private static void closeQuietly(AutoCloseable closeable) {
+		try {
+			closeable.close();
+		} catch (Exception ex) {
+			logger.debug("Failed to close {}", closeable, ex);
+		}
+	}
+
+	@Override
+	public void close() {
+		sender.shutdown();
+		try {
+			if (!sender.awaitTermination(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+				logger.warn("Reached timeout while waiting for synchronization sender");
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		for (OutboundPeer peer : peers) {
+			peer.disconnect();
+		}
+		closed = true;
+		selector.wakeup();
+		if (receiverThread.getState() == Thread.State.NEW) {
+			closeAllIncoming();
+			return;
+		}
+		try {
+			receiverThread.join(CONNECT_TIMEOUT_MILLIS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
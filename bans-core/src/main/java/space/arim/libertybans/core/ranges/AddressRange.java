@@ -0,0 +1,192 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.ranges;
+
+import space.arim.libertybans.api.NetworkAddress;
+
+import java.util.Arrays;
+
+/**
+ * A range of network addresses sharing a common prefix, as written in CIDR notation
+ *
+ */
+public final class AddressRange {
+
+	private final NetworkAddress address;
+	private final byte[] rawAddress;
+	private final int prefixLength;
+
+	/** Length of the range encoding used in the database */
+	private static final int ENCODED_LENGTH = 16;
+	/** Where IPv4 addresses are placed within the encoding */
+	private static final int IPV4_MAPPED_OFFSET = ENCODED_LENGTH - 4;
+
+	private AddressRange(byte[] rawAddress, int prefixLength) {
+		this.address = NetworkAddress.of(rawAddress);
+		this.rawAddress = rawAddress;
+		this.prefixLength = prefixLength;
+	}
+
+	/**
+	 * Creates a range from an address within it and a prefix length. The bits of the address
+	 * beyond the prefix are ignored.
+	 *
+	 * @param address an address within the range
+	 * @param prefixLength the prefix length, at most 32 for IPv4 and 128 for IPv6
+	 * @return the address range
+	 * @throws IllegalArgumentException if the prefix length is out of bounds
+	 */
+	public static AddressRange of(NetworkAddress address, int prefixLength) {
+		byte[] rawAddress = address.getRawAddress();
+		int totalBits = rawAddress.length * Byte.SIZE;
+		if (prefixLength < 0 || prefixLength > totalBits) {
+			throw new IllegalArgumentException("Prefix length " + prefixLength + " out of bounds for " + address);
+		}
+		for (int bit = prefixLength; bit < totalBits; bit++) {
+			rawAddress[bit / Byte.SIZE] &= (byte) ~(0x80 >>> (bit % Byte.SIZE));
+		}
+		return new AddressRange(rawAddress, prefixLength);
+	}
+
+	/**
+	 * The first address of the range, also known as the network address
+	 *
+	 * @return the network address
+	 */
+	public NetworkAddress address() {
+		return address;
+	}
+
+	public int prefixLength() {
+		return prefixLength;
+	}
+
+	/**
+	 * Whether this range contains the given address. IPv4 ranges contain only IPv4 addresses,
+	 * and IPv6 ranges only IPv6 addresses.
+	 *
+	 * @param address the address
+	 * @return true if contained
+	 */
+	public boolean contains(NetworkAddress address) {
+		byte[] otherAddress = address.getRawAddress();
+		if (otherAddress.length != rawAddress.length) {
+			return false;
+		}
+		int wholeBytes = prefixLength / Byte.SIZE;
+		for (int n = 0; n < wholeBytes; n++) {
+			if (otherAddress[n] != rawAddress[n]) {
+				return false;
+			}
+		}
+		int remainingBits = prefixLength % Byte.SIZE;
+		if (remainingBits == 0) {
+			return true;
+		}
+		int mask = (0xFF << (Byte.SIZE - remainingBits)) & 0xFF;
+		return (otherAddress[wholeBytes] & mask) == (rawAddress[wholeBytes] & mask);
+	}
+
+	/**
+	 * Whether the given bit of the network address is set. Used to index ranges by prefix
+	 *
+	 * @param bit the bit index, starting from the most significant bit
+	 * @return true if set
+	 */
+	boolean bitAt(int bit) {
+		return bitAt(rawAddress, bit);
+	}
+
+	static boolean bitAt(byte[] rawAddress, int bit) {
+		return (rawAddress[bit / Byte.SIZE] & (0x80 >>> (bit % Byte.SIZE))) != 0;
+	}
+
+	boolean isIpv4() {
+		return rawAddress.length == 4;
+	}
+
+	/**
+	 * Encodes an address for range comparisons in the database. IPv4 addresses are mapped into
+	 * ::ffff:0:0/96, so that every encoded address has the same length.
+	 *
+	 * @param address the address
+	 * @return the encoded address
+	 */
+	static byte[] encode(NetworkAddress address) {
+		return encode(address.getRawAddress());
+	}
+
+	private static byte[] encode(byte[] rawAddress) {
+		if (rawAddress.length == ENCODED_LENGTH) {
+			return rawAddress;
+		}
+		byte[] encoded = new byte[ENCODED_LENGTH];
+		encoded[IPV4_MAPPED_OFFSET - 2] = (byte) 0xFF;
+		encoded[IPV4_MAPPED_OFFSET - 1] = (byte) 0xFF;
+		System.arraycopy(rawAddress, 0, encoded, IPV4_MAPPED_OFFSET, rawAddress.length);
+		return encoded;
+	}
+
+	/**
+	 * The encoded first address of the range
+	 *
+	 * @return the encoded range start
+	 */
+	byte[] encodedStart() {
+		return encode(rawAddress.clone());
+	}
+
+	/**
+	 * The encoded last address of the range
+	 *
+	 * @return the encoded range end
+	 */
+	byte[] encodedEnd() {
+		byte[] encoded = encode(rawAddress.clone());
+		int firstHostBit = (ENCODED_LENGTH - rawAddress.length) * Byte.SIZE + prefixLength;
+		for (int bit = firstHostBit; bit < ENCODED_LENGTH * Byte.SIZE; bit++) {
+			encoded[bit / Byte.SIZE] |= (byte) (0x80 >>> (bit % Byte.SIZE));
+		}
+		return encoded;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		AddressRange that = (AddressRange) o;
+		return prefixLength == that.prefixLength && Arrays.equals(rawAddress, that.rawAddress);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(rawAddress) + prefixLength;
+	}
+
+	/**
+	 * Returns the range in CIDR notation
+	 *
+	 */
+	@Override
+	public String toString() {
+		return address + "/" + prefixLength;
+	}
+
+}
@@ -0,0 +1,44 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.ranges;
+
+import space.arim.libertybans.api.Operator;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A ban on an address range
+ *
+ * @param range the banned range
+ * @param reason the reason for the ban
+ * @param operator the staff member who banned the range
+ * @param start when the range was banned
+ */
+public record AddressRangeBan(AddressRange range, String reason, Operator operator, Instant start) {
+
+	public AddressRangeBan {
+		Objects.requireNonNull(range, "range");
+		Objects.requireNonNull(reason, "reason");
+		Objects.requireNonNull(operator, "operator");
+		Objects.requireNonNull(start, "start");
+	}
+
+}
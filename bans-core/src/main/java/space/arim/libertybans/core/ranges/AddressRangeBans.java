@@ -0,0 +1,294 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.ranges;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import net.kyori.adventure.text.Component;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.Operator;
+import space.arim.libertybans.core.Part;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.InternalFormatter;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.env.EnvEnforcer;
+import space.arim.libertybans.core.punish.sync.PacketAddressRange;
+import space.arim.libertybans.core.punish.sync.SynchronizationMessenger;
+import space.arim.libertybans.core.punish.sync.SynchronizationProtocol;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+
+import java.time.Instant;
+import java.util.List;
+
+import static space.arim.libertybans.core.schema.tables.AddressRanges.ADDRESS_RANGES;
+
+/**
+ * Bans on address ranges, which are checked when players log in. <br>
+ * <br>
+ * Banned ranges are held in memory once loaded at startup. Until then, login checks query
+ * the database using the encoded range bounds.
+ *
+ */
+@Singleton
+public final class AddressRangeBans implements Part {
+
+	private final FactoryOfTheFuture futuresFactory;
+	private final Configs configs;
+	private final Provider<QueryExecutor> queryExecutor;
+	private final InternalFormatter formatter;
+	private final EnvEnforcer<?> envEnforcer;
+	private final SynchronizationProtocol synchronizationProtocol;
+	private final Provider<SynchronizationMessenger> synchronizationMessenger;
+	private final Time time;
+
+	private volatile AddressRangeIndex index;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public AddressRangeBans(FactoryOfTheFuture futuresFactory, Configs configs, Provider<QueryExecutor> queryExecutor,
+							InternalFormatter formatter, EnvEnforcer<?> envEnforcer,
+							SynchronizationProtocol synchronizationProtocol,
+							Provider<SynchronizationMessenger> synchronizationMessenger, Time time) {
+		this.futuresFactory = futuresFactory;
+		this.configs = configs;
+		this.queryExecutor = queryExecutor;
+		this.formatter = formatter;
+		this.envEnforcer = envEnforcer;
+		this.synchronizationProtocol = synchronizationProtocol;
+		this.synchronizationMessenger = synchronizationMessenger;
+		this.time = time;
+	}
+
+	@Override
+	public void startup() {
+		AddressRangeIndex index = new AddressRangeIndex();
+		this.index = index;
+		listBans().thenAccept(index::load).exceptionally((ex) -> {
+			logger.warn("Failed to load banned address ranges. Logins will be checked using the database.", ex);
+			return null;
+		});
+	}
+
+	@Override
+	public void restart() {
+		shutdown();
+		startup();
+	}
+
+	@Override
+	public void shutdown() {
+		index = null;
+	}
+
+	/**
+	 * Finds the ban on the narrowest range containing an address
+	 *
+	 * @param context the database access, used if the index is not yet loaded
+	 * @param address the address
+	 * @return the range ban or null if the address is not in a banned range
+	 */
+	public @Nullable AddressRangeBan findBan(DSLContext context, NetworkAddress address) {
+		AddressRangeIndex index = this.index;
+		if (index != null && index.isLoaded()) {
+			return index.find(address);
+		}
+		byte[] encodedAddress = AddressRange.encode(address);
+		AddressRangeBan found = null;
+		for (AddressRangeBan ban : context
+				.select(ADDRESS_RANGES.fields())
+				.from(ADDRESS_RANGES)
+				.where(ADDRESS_RANGES.RANGE_START.lessOrEqual(encodedAddress))
+				.and(ADDRESS_RANGES.RANGE_END.greaterOrEqual(encodedAddress))
+				.fetch(this::mapBan)) {
+			// IPv6 ranges may overlap the encoding of IPv4 addresses
+			if (ban.range().contains(address)
+					&& (found == null || ban.range().prefixLength() > found.range().prefixLength())) {
+				found = ban;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Gets the message shown to players denied from joining by a range ban
+	 *
+	 * @param ban the range ban
+	 * @return the denial message
+	 */
+	public Component denialMessage(AddressRangeBan ban) {
+		return configs.getMessagesConfig().addressRanges().denialMessage()
+				.replaceText("%RANGE%", ban.range().toString())
+				.replaceText("%REASON%", ban.reason())
+				.replaceText("%DATE%", formatter.formatAbsoluteDate(ban.start()))
+				.asComponent();
+	}
+
+	private AddressRangeBan mapBan(Record record) {
+		AddressRange range = AddressRange.of(
+				record.get(ADDRESS_RANGES.ADDRESS), record.get(ADDRESS_RANGES.PREFIX_LENGTH)
+		);
+		return new AddressRangeBan(
+				range, record.get(ADDRESS_RANGES.REASON),
+				record.get(ADDRESS_RANGES.OPERATOR), record.get(ADDRESS_RANGES.START)
+		);
+	}
+
+	/**
+	 * Lists all banned ranges
+	 *
+	 * @return the range bans, ordered by address and prefix length
+	 */
+	public CentralisedFuture<List<AddressRangeBan>> listBans() {
+		return queryExecutor.get().query(SQLFunction.readOnly((context) -> {
+			return context
+					.select(ADDRESS_RANGES.fields())
+					.from(ADDRESS_RANGES)
+					.orderBy(ADDRESS_RANGES.RANGE_START, ADDRESS_RANGES.PREFIX_LENGTH)
+					.fetch(this::mapBan);
+		}));
+	}
+
+	/**
+	 * Bans an address range. Players online from within the range are kicked
+	 *
+	 * @param range the range
+	 * @param reason the reason
+	 * @param operator the operator
+	 * @return a future yielding the ban, or null if the range is already banned
+	 */
+	public CentralisedFuture<@Nullable AddressRangeBan> banRange(AddressRange range, String reason, Operator operator) {
+		Instant start = time.currentTimestamp();
+		AddressRangeBan ban = new AddressRangeBan(range, reason, operator, start);
+		return queryExecutor.get().queryWithRetry((context, transaction) -> {
+			return context
+					.insertInto(ADDRESS_RANGES)
+					.columns(
+							ADDRESS_RANGES.ADDRESS, ADDRESS_RANGES.PREFIX_LENGTH,
+							ADDRESS_RANGES.RANGE_START, ADDRESS_RANGES.RANGE_END,
+							ADDRESS_RANGES.REASON, ADDRESS_RANGES.OPERATOR, ADDRESS_RANGES.START
+					)
+					.values(
+							range.address(), (short) range.prefixLength(),
+							range.encodedStart(), range.encodedEnd(),
+							reason, operator, start
+					)
+					.onDuplicateKeyIgnore()
+					.execute();
+		}).thenCompose((updateCount) -> {
+			if (updateCount == 0) {
+				return futuresFactory.completedFuture(null);
+			}
+			AddressRangeIndex index = this.index;
+			if (index != null) {
+				index.add(ban);
+			}
+			dispatchUpdate(range);
+			return kickPlayersInRange(envEnforcer, ban).thenApply((ignore) -> ban);
+		});
+	}
+
+	/**
+	 * Unbans an address range
+	 *
+	 * @param range the range
+	 * @return a future yielding true if the range was banned and is now unbanned
+	 */
+	public CentralisedFuture<Boolean> unbanRange(AddressRange range) {
+		return queryExecutor.get().queryWithRetry((context, transaction) -> {
+			return context
+					.deleteFrom(ADDRESS_RANGES)
+					.where(ADDRESS_RANGES.ADDRESS.eq(range.address()))
+					.and(ADDRESS_RANGES.PREFIX_LENGTH.eq((short) range.prefixLength()))
+					.execute() != 0;
+		}).thenApply((unbanned) -> {
+			if (unbanned) {
+				AddressRangeIndex index = this.index;
+				if (index != null) {
+					index.remove(range);
+				}
+				dispatchUpdate(range);
+			}
+			return unbanned;
+		});
+	}
+
+	/**
+	 * Refreshes a range which was banned or unbanned on another instance
+	 *
+	 * @param range the range
+	 * @return a future completed once refreshed
+	 */
+	public CentralisedFuture<Void> refreshWithoutSynchronization(AddressRange range) {
+		return queryExecutor.get().query(SQLFunction.readOnly((context) -> {
+			return context
+					.select(ADDRESS_RANGES.fields())
+					.from(ADDRESS_RANGES)
+					.where(ADDRESS_RANGES.ADDRESS.eq(range.address()))
+					.and(ADDRESS_RANGES.PREFIX_LENGTH.eq((short) range.prefixLength()))
+					.fetchOne(this::mapBan);
+		})).thenCompose((ban) -> {
+			AddressRangeIndex index = this.index;
+			if (ban == null) {
+				if (index != null) {
+					index.remove(range);
+				}
+				return futuresFactory.completedFuture(null);
+			}
+			if (index != null) {
+				index.add(ban);
+			}
+			return kickPlayersInRange(envEnforcer, ban);
+		});
+	}
+
+	private void dispatchUpdate(AddressRange range) {
+		if (!configs.getSqlConfig().synchronization().enabled()) {
+			return;
+		}
+		byte[] message = synchronizationProtocol.serializeMessage(new PacketAddressRange(range));
+		synchronizationMessenger.get().dispatch(message).exceptionally((ex) -> {
+			logger.warn("Failed to dispatch address range update to other instances", ex);
+			return null;
+		});
+	}
+
+	private <P> CentralisedFuture<Void> kickPlayersInRange(EnvEnforcer<P> envEnforcer, AddressRangeBan ban) {
+		Component message = denialMessage(ban);
+		return envEnforcer.doForAllPlayers((players) -> {
+			for (P player : players) {
+				if (ban.range().contains(NetworkAddress.of(envEnforcer.getAddressFor(player)))) {
+					envEnforcer.kickPlayer(player, message);
+				}
+			}
+		});
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.ranges;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import space.arim.libertybans.api.NetworkAddress;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Binary trie of banned ranges, keyed by the bits of each range's prefix. Finding the ranges
+ * containing an address takes at most one step per bit of the address, regardless of how many
+ * ranges are banned. <br>
+ * <br>
+ * Lookups are lock-free. Modifications are synchronized and never remove nodes, so that
+ * concurrent lookups always see a consistent path.
+ *
+ */
+final class AddressRangeIndex {
+
+	private final Node ipv4Root = new Node();
+	private final Node ipv6Root = new Node();
+
+	private volatile boolean loaded;
+	// Guarded by this; used to avoid resurrecting ranges removed during loading
+	private final Set<AddressRange> removedWhileLoading = new HashSet<>();
+
+	boolean isLoaded() {
+		return loaded;
+	}
+
+	synchronized void load(List<AddressRangeBan> bans) {
+		for (AddressRangeBan ban : bans) {
+			AddressRange range = ban.range();
+			if (!removedWhileLoading.contains(range) && nodeFor(range, false) == null) {
+				nodeFor(range, true).ban = ban;
+			}
+		}
+		removedWhileLoading.clear();
+		loaded = true;
+	}
+
+	synchronized void add(AddressRangeBan ban) {
+		nodeFor(ban.range(), true).ban = ban;
+	}
+
+	synchronized void remove(AddressRange range) {
+		if (!loaded) {
+			removedWhileLoading.add(range);
+		}
+		Node node = nodeFor(range, false);
+		if (node != null) {
+			node.ban = null;
+		}
+	}
+
+	private Node nodeFor(AddressRange range, boolean create) {
+		Node node = (range.isIpv4()) ? ipv4Root : ipv6Root;
+		for (int bit = 0; bit < range.prefixLength(); bit++) {
+			boolean set = range.bitAt(bit);
+			Node child = (set) ? node.one : node.zero;
+			if (child == null) {
+				if (!create) {
+					return null;
+				}
+				child = new Node();
+				if (set) {
+					node.one = child;
+				} else {
+					node.zero = child;
+				}
+			}
+			node = child;
+		}
+		if (!create && node.ban == null) {
+			return null;
+		}
+		return node;
+	}
+
+	/**
+	 * Finds the narrowest banned range containing an address
+	 *
+	 * @param address the address
+	 * @return the ban on the narrowest range containing the address, or null if none
+	 */
+	@Nullable AddressRangeBan find(NetworkAddress address) {
+		byte[] rawAddress = address.getRawAddress();
+		Node node = (rawAddress.length == 4) ? ipv4Root : ipv6Root;
+		AddressRangeBan found = node.ban;
+		int totalBits = rawAddress.length * Byte.SIZE;
+		for (int bit = 0; bit < totalBits; bit++) {
+			node = (AddressRange.bitAt(rawAddress, bit)) ? node.one : node.zero;
+			if (node == null) {
+				break;
+			}
+			AddressRangeBan ban = node.ban;
+			if (ban != null) {
+				found = ban;
+			}
+		}
+		return found;
+	}
+
+	private static final class Node {
+
+		volatile Node zero;
+		volatile Node one;
+		volatile AddressRangeBan ban;
+
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.ranges;
+
+import net.kyori.adventure.text.Component;
+import space.arim.api.jsonchat.adventure.util.ComponentText;
+import space.arim.dazzleconf.annote.ConfComments;
+import space.arim.dazzleconf.annote.ConfDefault;
+import space.arim.dazzleconf.annote.ConfHeader;
+import space.arim.dazzleconf.annote.ConfKey;
+
+@ConfHeader({
+		"Configuration for banning address ranges with /libertybans range",
+		"",
+		"Available variables for range bans:",
+		"%RANGE% - the range in CIDR notation, such as 192.0.2.0/24",
+		"%REASON% - the reason for the ban",
+		"%DATE% - when the range was banned"
+})
+public interface AddressRangesSection {
+
+	@ConfDefault.DefaultStrings({
+			"&cUsage: /libertybans range <ban|unban|list>",
+			"&7Ranges are written in CIDR notation, such as 192.0.2.0/24 or 2001:db8::/32"})
+	Component usage();
+
+	@ConfKey("ban-usage")
+	@ConfDefault.DefaultString("&cUsage: /libertybans range ban <range> [reason]")
+	Component banUsage();
+
+	@ConfKey("unban-usage")
+	@ConfDefault.DefaultString("&cUsage: /libertybans range unban <range>")
+	Component unbanUsage();
+
+	@ConfKey("invalid-range")
+	@ConfDefault.DefaultString("&c%TARGET% is not a valid address range.")
+	ComponentText invalidRange();
+
+	@ConfKey("already-banned")
+	@ConfDefault.DefaultString("&c%RANGE% is already banned.")
+	ComponentText alreadyBanned();
+
+	@ConfKey("not-banned")
+	@ConfDefault.DefaultString("&c%RANGE% is not banned.")
+	ComponentText notBanned();
+
+	@ConfDefault.DefaultString("&7Banned the address range &e%RANGE%&7 for &e%REASON%")
+	ComponentText banned();
+
+	@ConfDefault.DefaultString("&7Unbanned the address range &e%RANGE%")
+	ComponentText unbanned();
+
+	@ConfKey("list-header")
+	@ConfDefault.DefaultString("&b&lBanned Address Ranges")
+	Component listHeader();
+
+	@ConfKey("list-layout")
+	@ConfComments("How a single banned range should be displayed in the listing")
+	@ConfDefault.DefaultString("&7- &e%RANGE% &7for %REASON% &7on %DATE%||ttp:&7Click to unban this range||cmd:/libertybans range unban %RANGE%")
+	ComponentText listLayout();
+
+	@ConfKey("list-empty")
+	@ConfDefault.DefaultString("&7No address ranges are banned.")
+	Component listEmpty();
+
+	@ConfKey("denial-message")
+	@ConfComments("The message when a player is denied from joining because their address is in a banned range")
+	@ConfDefault.DefaultStrings({
+			"&7&lBanned&8 - &7Your address range %RANGE% is banned",
+			"&cReason: &7%REASON%"})
+	ComponentText denialMessage();
+
+}
@@ -0,0 +1,55 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector;
+
+import org.jooq.SQLDialect;
+
+/**
+ * How applicability is determined for the NORMAL address strictness
+ *
+ */
+enum ApplicabilityStrategy {
+	/**
+	 * Uses the applicable views, which join punishments with addresses on a disjunction of
+	 * the victim's columns. PostgreSQL plans this join well.
+	 */
+	VIEW,
+	/**
+	 * Selects from the simple views, restricted to the punishment IDs found by two indexable
+	 * branches combined with UNION ALL: one by the user's UUID, and the other by the user's
+	 * recorded addresses. This avoids the disjunctive join, which MariaDB, MySQL, and HSQLDB
+	 * cannot resolve using an index.
+	 */
+	UNION_ALL;
+
+	/**
+	 * Chooses the strategy suited to the database vendor
+	 *
+	 * @param family the SQL dialect family
+	 * @return the strategy
+	 */
+	static ApplicabilityStrategy forDialect(SQLDialect family) {
+		return switch (family) {
+			case POSTGRES -> VIEW;
+			default -> UNION_ALL;
+		};
+	}
+
+}
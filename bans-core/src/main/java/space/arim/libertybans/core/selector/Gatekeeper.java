@@ -22,26 +22,43 @@ package space.arim.libertybans.core.selector;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import net.kyori.adventure.text.Component;
+import org.jooq.DSLContext;
 import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.punish.Punishment;
 import space.arim.libertybans.api.scope.ServerScope;
+import space.arim.libertybans.api.select.AddressStrictness;
 import space.arim.libertybans.api.select.SelectionPredicate;
 import space.arim.libertybans.api.select.SortPunishments;
+import space.arim.libertybans.core.alts.AccountGraph;
 import space.arim.libertybans.core.alts.AltDetection;
 import space.arim.libertybans.core.alts.AltNotification;
 import space.arim.libertybans.core.alts.ConnectionLimiter;
 import space.arim.libertybans.core.alts.DetectedAlt;
+import space.arim.libertybans.core.commands.extra.OfflineNameIndex;
 import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.config.InternalFormatter;
+import space.arim.libertybans.core.config.SqlConfig;
 import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.env.UUIDAndAddress;
 import space.arim.libertybans.core.punish.Association;
+import space.arim.libertybans.core.punish.BatchAssociation;
+import space.arim.libertybans.core.ranges.AddressRangeBan;
+import space.arim.libertybans.core.ranges.AddressRangeBans;
+import space.arim.libertybans.core.selector.LoginBatcher.PendingLogin;
+import space.arim.libertybans.core.selector.cache.ActivePunishmentIndex;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -53,64 +70,204 @@ public final class Gatekeeper {
 	private final InternalFormatter formatter;
 	private final ConnectionLimiter connectionLimiter;
 	private final AltDetection altDetection;
+	private final AccountGraph accountGraph;
 	private final AltNotification altNotification;
+	private final ActivePunishmentIndex activePunishmentIndex;
+	private final AddressRangeBans addressRangeBans;
+	private final OfflineNameIndex offlineNameIndex;
 	private final Time time;
 
+	private final LoginBatcher loginBatcher;
+
 	@Inject
 	public Gatekeeper(Configs configs, FactoryOfTheFuture futuresFactory, Provider<QueryExecutor> queryExecutor,
 					  InternalFormatter formatter, ConnectionLimiter connectionLimiter, AltDetection altDetection,
-					  AltNotification altNotification, Time time) {
+					  AccountGraph accountGraph, AltNotification altNotification,
+					  ActivePunishmentIndex activePunishmentIndex, AddressRangeBans addressRangeBans,
+					  OfflineNameIndex offlineNameIndex, EnhancedExecutor enhancedExecutor, Time time) {
 		this.configs = configs;
 		this.futuresFactory = futuresFactory;
 		this.queryExecutor = queryExecutor;
 		this.formatter = formatter;
 		this.connectionLimiter = connectionLimiter;
 		this.altDetection = altDetection;
+		this.accountGraph = accountGraph;
 		this.altNotification = altNotification;
+		this.activePunishmentIndex = activePunishmentIndex;
+		this.addressRangeBans = addressRangeBans;
+		this.offlineNameIndex = offlineNameIndex;
 		this.time = time;
+		loginBatcher = new LoginBatcher(enhancedExecutor, this::checkBatch);
 	}
 
 	CentralisedFuture<Component> executeAndCheckConnection(UUID uuid, String name, NetworkAddress address,
 														   Set<ServerScope> scopes, SelectorImpl selector) {
-		return queryExecutor.get().queryWithRetry((context, transaction) -> {
-			Instant currentTime = time.currentTimestamp();
+		CentralisedFuture<Object> banOrLimitMessageOrDetectedAltsOrNullFuture;
+		SqlConfig.LoginBatching loginBatching = configs.getSqlConfig().loginBatching();
+		// The name is about to be associated, so it can be tab completed right away
+		offlineNameIndex.record(name, time.currentTimestamp());
+		if (loginBatching.enable()) {
+			banOrLimitMessageOrDetectedAltsOrNullFuture = futuresFactory.newIncompleteFuture();
+			loginBatcher.submit(
+					new PendingLogin(uuid, name, address, scopes, selector, banOrLimitMessageOrDetectedAltsOrNullFuture),
+					Duration.ofMillis(loginBatching.windowMillis()), loginBatching.maxBatchSize()
+			);
+		} else {
+			banOrLimitMessageOrDetectedAltsOrNullFuture = checkSingle(uuid, name, address, scopes, selector);
+		}
+		return banOrLimitMessageOrDetectedAltsOrNullFuture.thenCompose((banOrLimitMessageOrDetectedAltsOrNull) -> {
+			if (banOrLimitMessageOrDetectedAltsOrNull instanceof Punishment) {
+				return formatter.getPunishmentMessage((Punishment) banOrLimitMessageOrDetectedAltsOrNull);
+			}
+			if (banOrLimitMessageOrDetectedAltsOrNull instanceof Component) {
+				return futuresFactory.completedFuture((Component) banOrLimitMessageOrDetectedAltsOrNull);
+			}
+			if (banOrLimitMessageOrDetectedAltsOrNull instanceof List) {
+				@SuppressWarnings("unchecked")
+				List<DetectedAlt> detectedAlts = (List<DetectedAlt>) banOrLimitMessageOrDetectedAltsOrNull;
+				altNotification.notifyFoundAlts(uuid, name, address, detectedAlts);
+			}
+			return futuresFactory.completedFuture(null);
+		});
+	}
 
+	private CentralisedFuture<Object> checkSingle(UUID uuid, String name, NetworkAddress address,
+												  Set<ServerScope> scopes, SelectorImpl selector) {
+		Instant currentTime = time.currentTimestamp();
+		return queryExecutor.get().queryWithRetry((context, transaction) -> {
 			Association association = new Association(uuid, context);
 			association.associateCurrentName(name, currentTime);
 			association.associateCurrentAddress(address, currentTime);
+			// Count every login, as other instances do, even if the player turns out to be banned
+			Component connectionLimitMessage = connectionLimiter.recordConnection(uuid, address, currentTime);
 
-			Punishment ban = selector.selectionByApplicabilityBuilder(uuid, address)
-					.type(PunishmentType.BAN)
-					.scopes(SelectionPredicate.matchingAnyOf(scopes))
-					.build()
-					.findFirstSpecificPunishment(context, () -> currentTime, SortPunishments.LATEST_END_DATE_FIRST);
+			Punishment ban = findBan(context, uuid, address, scopes, selector, currentTime);
 			if (ban != null) {
 				return ban;
 			}
-			Component connectionLimitMessage = connectionLimiter.hasExceededLimit(context, address, currentTime);
-			if (connectionLimitMessage != null) {
-				return connectionLimitMessage;
+			return checkAfterBan(context, uuid, address, connectionLimitMessage);
+		}).thenApply((result) -> {
+			// Only once the address is stored, and never again upon a retry
+			accountGraph.record(uuid, address, currentTime);
+			connectionLimiter.shareConnection(uuid, address, currentTime);
+			return result;
+		});
+	}
+
+	private Punishment findBan(DSLContext context, UUID uuid, NetworkAddress address, Set<ServerScope> scopes,
+							   SelectorImpl selector, Instant currentTime) {
+		AddressStrictness strictness = configs.getMainConfig().enforcement().addressStrictness();
+		if (activePunishmentIndex.canAnswer(strictness)) {
+			return activePunishmentIndex.findApplicable(
+					context, PunishmentType.BAN, uuid, address, strictness, scopes, currentTime
+			);
+		}
+		return selector.selectionByApplicabilityBuilder(uuid, address)
+				.type(PunishmentType.BAN)
+				.scopes(SelectionPredicate.matchingAnyOf(scopes))
+				.build()
+				.findFirstSpecificPunishment(context, () -> currentTime, SortPunishments.LATEST_END_DATE_FIRST);
+	}
+
+	private Object checkAfterBan(DSLContext context, UUID uuid, NetworkAddress address,
+								 Component connectionLimitMessage) {
+		AddressRangeBan rangeBan = addressRangeBans.findBan(context, address);
+		if (rangeBan != null) {
+			return addressRangeBans.denialMessage(rangeBan);
+		}
+		if (connectionLimitMessage != null) {
+			return connectionLimitMessage;
+		}
+		// The player may join, but should be checked for alts
+		EnforcementConfig.AltsAutoShow altsAutoShow = configs.getMainConfig().enforcement().altsAutoShow();
+		if (altsAutoShow.enable()) {
+			List<DetectedAlt> detectedAlts = altDetection.detectAlts(context, uuid, address, altsAutoShow.showWhichAlts());
+			return detectedAlts;
+		}
+		return null;
+	}
+
+	private void checkBatch(List<PendingLogin> batch) {
+		Instant currentTime = time.currentTimestamp();
+		queryExecutor.get().queryWithRetry((context, transaction) -> {
+			BatchAssociation association = new BatchAssociation(context);
+			for (PendingLogin login : batch) {
+				association.addCurrentName(login.uuid(), login.name());
+				association.addCurrentAddress(login.uuid(), login.address());
 			}
-			// The player may join, but should be checked for alts
-			EnforcementConfig.AltsAutoShow altsAutoShow = configs.getMainConfig().enforcement().altsAutoShow();
-			if (altsAutoShow.enable()) {
-				List<DetectedAlt> detectedAlts = altDetection.detectAlts(context, uuid, address, altsAutoShow.showWhichAlts());
-				return detectedAlts;
+			association.associateAll(currentTime);
+			Map<PendingLogin, Component> connectionLimitMessages = new HashMap<>();
+			for (PendingLogin login : batch) {
+				Component connectionLimitMessage = connectionLimiter.recordConnection(
+						login.uuid(), login.address(), currentTime
+				);
+				if (connectionLimitMessage != null) {
+					connectionLimitMessages.put(login, connectionLimitMessage);
+				}
 			}
-			return null;
-		}).thenCompose((banOrLimitMessageOrDetectedAltsOrNull) -> {
-			if (banOrLimitMessageOrDetectedAltsOrNull instanceof Punishment) {
-				return formatter.getPunishmentMessage((Punishment) banOrLimitMessageOrDetectedAltsOrNull);
+
+			Map<PendingLogin, Punishment> bans = findBans(context, batch, currentTime);
+			Map<PendingLogin, Object> results = new HashMap<>();
+			for (PendingLogin login : batch) {
+				Punishment ban = bans.get(login);
+				results.put(login, (ban != null) ? ban : checkAfterBan(
+						context, login.uuid(), login.address(), connectionLimitMessages.get(login)
+				));
 			}
-			if (banOrLimitMessageOrDetectedAltsOrNull instanceof Component) {
-				return futuresFactory.completedFuture((Component) banOrLimitMessageOrDetectedAltsOrNull);
+			return results;
+		}).whenComplete((results, ex) -> {
+			if (ex != null) {
+				// Check each login by itself, so that one failing login does not fail the others
+				for (PendingLogin login : batch) {
+					checkSingle(
+							login.uuid(), login.name(), login.address(), login.scopes(), login.selector()
+					).whenComplete((result, singleEx) -> {
+						if (singleEx != null) {
+							login.result().completeExceptionally(singleEx);
+						} else {
+							login.result().complete(result);
+						}
+					});
+				}
+				return;
 			}
-			if (banOrLimitMessageOrDetectedAltsOrNull instanceof List) {
-				@SuppressWarnings("unchecked")
-				List<DetectedAlt> detectedAlts = (List<DetectedAlt>) banOrLimitMessageOrDetectedAltsOrNull;
-				altNotification.notifyFoundAlts(uuid, name, address, detectedAlts);
+			for (PendingLogin login : batch) {
+				accountGraph.record(login.uuid(), login.address(), currentTime);
+				connectionLimiter.shareConnection(login.uuid(), login.address(), currentTime);
+				login.result().complete(results.get(login));
 			}
-			return futuresFactory.completedFuture(null);
 		});
 	}
+
+	private Map<PendingLogin, Punishment> findBans(DSLContext context, List<PendingLogin> batch, Instant currentTime) {
+		Map<PendingLogin, Punishment> bans = new HashMap<>();
+		AddressStrictness strictness = configs.getMainConfig().enforcement().addressStrictness();
+		if (activePunishmentIndex.canAnswer(strictness) || !SelectionByApplicabilityBatch.supportsStrictness(strictness)) {
+			// Either no query is needed, or the strictness requires a query per login
+			for (PendingLogin login : batch) {
+				Punishment ban = findBan(
+						context, login.uuid(), login.address(), login.scopes(), login.selector(), currentTime
+				);
+				if (ban != null) {
+					bans.put(login, ban);
+				}
+			}
+			return bans;
+		}
+		List<UUIDAndAddress> users = new ArrayList<>(batch.size());
+		Set<ServerScope> allScopes = new HashSet<>();
+		for (PendingLogin login : batch) {
+			users.add(new UUIDAndAddress(login.uuid(), login.address()));
+			allScopes.addAll(login.scopes());
+		}
+		Map<UUIDAndAddress, List<Punishment>> applicable = SelectionByApplicabilityBatch
+				.activeBans(batch.get(0).selector().selectionResources(), users, allScopes, strictness)
+				.findApplicablePunishments(context, currentTime);
+		for (PendingLogin login : batch) {
+			SelectionByApplicabilityBatch.latestEndingInScopes(
+					applicable.get(new UUIDAndAddress(login.uuid(), login.address())), login.scopes()
+			).ifPresent((ban) -> bans.put(login, ban));
+		}
+		return bans;
+	}
 }
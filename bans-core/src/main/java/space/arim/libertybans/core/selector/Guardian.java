@@ -97,4 +97,19 @@ public interface Guardian {
 		return checkChat(uuid, NetworkAddress.of(address), command);
 	}
 
+	/**
+	 * Enforces a chat message or executed command without waiting, returning a punishment message if denied,
+	 * null if allowed. This requires a mute cache which always has a cached value for online players. <br>
+	 * <br>
+	 * If this corresponds to an executed command, the configured commands whose access to muted players to block
+	 * are taken into account.
+	 *
+	 * @param uuid the player's uuid
+	 * @param address the player's network address
+	 * @param command the command executed, or {@code null} if this is a chat message
+	 * @return the punishment message if denied, else null if allowed
+	 * @throws IllegalStateException if there is no cached value for the player, such as if the player is offline
+	 */
+	@Nullable Component checkChatNow(UUID uuid, InetAddress address, String command);
+
 }
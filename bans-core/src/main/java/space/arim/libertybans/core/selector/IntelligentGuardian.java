@@ -128,6 +128,23 @@ public final class IntelligentGuardian implements Guardian {
 		return muteCache.getCachedMuteMessage(uuid, address).thenApply((opt) -> opt.orElse(null));
 	}
 
+	@Override
+	public CentralisedFuture<Component> checkChat(UUID uuid, InetAddress address, String command) {
+		if (command != null && !blockForMuted(command)) {
+			return futuresFactory.completedFuture(null);
+		}
+		// Called for every chat message, so avoid wrapping the address and result
+		return muteCache.lookupMuteMessage(uuid, address);
+	}
+
+	@Override
+	public @Nullable Component checkChatNow(UUID uuid, InetAddress address, String command) {
+		if (command != null && !blockForMuted(command)) {
+			return null;
+		}
+		return muteCache.cachedMuteMessage(uuid, address);
+	}
+
 	private boolean blockForMuted(String command) {
 		String[] words = command.split(" ");
 		// Handle commands with colons
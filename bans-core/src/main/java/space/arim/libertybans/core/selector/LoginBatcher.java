@@ -0,0 +1,92 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector;
+
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.scope.ServerScope;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Gathers incoming logins which arrive within a short window, so that they may be
+ * checked together in a single transaction. Thread safe.
+ *
+ */
+final class LoginBatcher {
+
+	private final EnhancedExecutor enhancedExecutor;
+	private final Consumer<List<PendingLogin>> batchExecutor;
+
+	// Guarded by this
+	private List<PendingLogin> pending = new ArrayList<>();
+
+	LoginBatcher(EnhancedExecutor enhancedExecutor, Consumer<List<PendingLogin>> batchExecutor) {
+		this.enhancedExecutor = enhancedExecutor;
+		this.batchExecutor = batchExecutor;
+	}
+
+	/**
+	 * Adds a login to the current batch. The batch is executed once the window elapses,
+	 * or immediately if the maximum batch size is reached.
+	 *
+	 * @param login the pending login
+	 * @param window the batching window
+	 * @param maxBatchSize the maximum batch size
+	 */
+	void submit(PendingLogin login, Duration window, int maxBatchSize) {
+		List<PendingLogin> fullBatch = null;
+		synchronized (this) {
+			pending.add(login);
+			if (pending.size() >= maxBatchSize) {
+				fullBatch = pending;
+				pending = new ArrayList<>();
+			} else if (pending.size() == 1) {
+				// First login of a new batch
+				List<PendingLogin> batch = pending;
+				enhancedExecutor.schedule(() -> executeAfterWindow(batch), window);
+			}
+		}
+		if (fullBatch != null) {
+			batchExecutor.accept(fullBatch);
+		}
+	}
+
+	private void executeAfterWindow(List<PendingLogin> batch) {
+		synchronized (this) {
+			if (pending != batch) {
+				// Already executed because it reached the maximum size
+				return;
+			}
+			pending = new ArrayList<>();
+		}
+		batchExecutor.accept(batch);
+	}
+
+	record PendingLogin(UUID uuid, String name, NetworkAddress address, Set<ServerScope> scopes,
+						SelectorImpl selector, CentralisedFuture<Object> result) { }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.jooq.DSLContext;
+import org.jooq.Select;
+import org.jooq.conf.Settings;
+import org.jooq.conf.SettingsTools;
+import org.jooq.conf.StatementType;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.select.AddressStrictness;
+import space.arim.libertybans.api.select.SelectionOrder;
+import space.arim.libertybans.api.select.SelectionOrderBuilder;
+import space.arim.libertybans.api.select.SortPunishments;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.jooq.impl.DSL.count;
+
+/**
+ * Asks the database how it would execute the queries which the selector issues most frequently.
+ * Intended for diagnosing slow queries with the data sizes of a particular server
+ *
+ */
+@Singleton
+public final class QueryPlanExplainer {
+
+	private final Configs configs;
+	private final SelectionResources resources;
+
+	/*
+	Arbitrary sample values. Query plans depend on the shape of the query, not on these values
+	 */
+	private static final UUID SAMPLE_UUID = new UUID(0L, 0L);
+	private static final NetworkAddress SAMPLE_ADDRESS = NetworkAddress.of(InetAddress.getLoopbackAddress());
+	private static final int SAMPLE_PAGE_SIZE = 10;
+
+	@Inject
+	public QueryPlanExplainer(Configs configs, SelectionResources resources) {
+		this.configs = configs;
+		this.resources = resources;
+	}
+
+	/**
+	 * Explains the query plan of each canonical selector query
+	 *
+	 * @return a future yielding the explained queries
+	 */
+	public CentralisedFuture<List<ExplainedQuery>> explainSelectorQueries() {
+		return resources.dbProvider().get().query(SQLFunction.readOnly((context) -> {
+			/*
+			Some vendors cannot explain statements with bind parameters. Inlining values
+			may yield a different plan than a prepared statement would, but rarely does.
+			 */
+			Settings inlineSettings = SettingsTools.clone(context.settings())
+					.withStatementType(StatementType.STATIC_STATEMENT);
+			DSLContext inlineContext = context.configuration().derive(inlineSettings).dsl();
+
+			List<ExplainedQuery> explainedQueries = new ArrayList<>();
+			for (CanonicalQuery canonicalQuery : CanonicalQuery.values()) {
+				Select<?> select = canonicalQuery.select(this, inlineContext);
+				explainedQueries.add(new ExplainedQuery(
+						canonicalQuery.description(this), inlineContext.explain(select).plan()
+				));
+			}
+			return explainedQueries;
+		}));
+	}
+
+	private AddressStrictness addressStrictness() {
+		return configs.getMainConfig().enforcement().addressStrictness();
+	}
+
+	/**
+	 * A query and the plan chosen for it
+	 *
+	 * @param description what the query is used for
+	 * @param plan the plan as described by the database
+	 */
+	public record ExplainedQuery(String description, String plan) {}
+
+	private enum CanonicalQuery {
+		APPLICABLE_BAN {
+			@Override
+			String description(QueryPlanExplainer explainer) {
+				return "Applicable ban of a joining player, with " + explainer.addressStrictness() + " strictness";
+			}
+
+			@Override
+			Select<?> select(QueryPlanExplainer explainer, DSLContext context) {
+				SelectionBaseSQL selection = new SelectionByApplicabilityBuilderImpl(
+						explainer.resources, SAMPLE_UUID, SAMPLE_ADDRESS, explainer.addressStrictness()
+				).type(PunishmentType.BAN).build();
+				return selection.requestQuery(new SelectionBaseSQL.QueryParameters(
+						context, 1, explainer.resources.time()::currentTimestamp,
+						SortPunishments.LATEST_END_DATE_FIRST
+				)).select();
+			}
+		},
+		HISTORY_OF_PLAYER {
+			@Override
+			String description(QueryPlanExplainer explainer) {
+				return "Punishment history of a player";
+			}
+
+			@Override
+			Select<?> select(QueryPlanExplainer explainer, DSLContext context) {
+				return query(explainer, context, new SelectionOrderBuilderImpl(explainer.resources)
+						.victim(PlayerVictim.of(SAMPLE_UUID))
+						.selectAll()
+						.build());
+			}
+		},
+		ACTIVE_BANS_PAGE {
+			@Override
+			String description(QueryPlanExplainer explainer) {
+				return "Second page of the ban list";
+			}
+
+			@Override
+			Select<?> select(QueryPlanExplainer explainer, DSLContext context) {
+				return query(explainer, context, activeBans(explainer)
+						.skipFirstRetrieved(SAMPLE_PAGE_SIZE)
+						.limitToRetrieve(SAMPLE_PAGE_SIZE)
+						.build());
+			}
+		},
+		ACTIVE_BANS_COUNT {
+			@Override
+			String description(QueryPlanExplainer explainer) {
+				return "Count of active bans";
+			}
+
+			@Override
+			Select<?> select(QueryPlanExplainer explainer, DSLContext context) {
+				return context
+						.select(count())
+						.from(query(explainer, context, activeBans(explainer).build()));
+			}
+		};
+
+		abstract String description(QueryPlanExplainer explainer);
+
+		abstract Select<?> select(QueryPlanExplainer explainer, DSLContext context);
+
+		private static SelectionOrderBuilder activeBans(QueryPlanExplainer explainer) {
+			return new SelectionOrderBuilderImpl(explainer.resources)
+					.type(PunishmentType.BAN)
+					.selectActiveOnly();
+		}
+
+		private static Select<?> query(QueryPlanExplainer explainer, DSLContext context, SelectionOrder selection) {
+			SelectionBaseSQL selectionSQL = (SelectionBaseSQL) selection;
+			return selectionSQL.requestQuery(new SelectionBaseSQL.QueryParameters(
+					context, selectionSQL.limitToRetrieve(), explainer.resources.time()::currentTimestamp
+			)).select();
+		}
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.jooq.DSLContext;
+import org.jooq.DataType;
+import org.jooq.Field;
+import org.jooq.Param;
+import org.jooq.Record;
+import org.jooq.RecordMapper;
+import org.jooq.ResultQuery;
+import org.jooq.SQLDialect;
+import org.jooq.conf.ParamCastMode;
+import org.jooq.conf.SettingsTools;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.select.SortPunishments;
+import space.arim.omnibus.util.ThisClass;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Caches the rendered SQL of single punishment lookups, such as those made for every incoming
+ * login and every chat message. Such queries differ only in the victim and the current time,
+ * so rendering them anew through the jOOQ DSL each time is wasteful. <br>
+ * <br>
+ * Templates are keyed by the structure of the selection: its details, its subclass and the
+ * additional shape it reports, the dialect, and the ordering. When a template is first created,
+ * it is validated against the query it replaces; if the SQL or bind values would differ in any
+ * way, the shape is marked uncacheable and queries are rendered normally.
+ *
+ */
+@Singleton
+public final class RenderedQueryCache {
+
+	private final Cache<TemplateKey, Optional<Template>> templates = Caffeine.newBuilder()
+			.maximumSize(256L)
+			.build();
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public RenderedQueryCache() {}
+
+	private record TemplateKey(Class<?> selectionType, SQLDialect dialect, SelectionBaseImpl.Details details,
+							   Object shape, List<SortPunishments> ordering) {}
+
+	record Template(String sql, List<Param<?>> fixedBindValues, List<DataType<?>> varyingBindTypes,
+					Field<?>[] fields, RecordMapper<Record, Punishment> mapper) {
+
+		ResultQuery<Record> bind(DSLContext context, List<Object> varyingBindValues) {
+			// Must be an Object[] so that the Object... overload is selected
+			Object[] bindings = new Object[fixedBindValues.size() + varyingBindTypes.size()];
+			int index = 0;
+			for (Param<?> fixedBindValue : fixedBindValues) {
+				bindings[index++] = fixedBindValue;
+			}
+			for (int n = 0; n < varyingBindTypes.size(); n++) {
+				bindings[index++] = DSL.val(varyingBindValues.get(n), varyingBindTypes.get(n));
+			}
+			return context.resultQuery(sql, bindings).coerce(fields);
+		}
+
+		Punishment fetchOne(DSLContext context, List<Object> varyingBindValues) {
+			return bind(context, varyingBindValues).fetchOne(mapper);
+		}
+	}
+
+	/**
+	 * Finds a single punishment from the selection, using a cached template where possible
+	 *
+	 * @param selection the selection
+	 * @param parameters the query parameters
+	 * @return the punishment or {@code null} if not found
+	 */
+	Punishment fetchOne(SelectionBaseSQL selection, SelectionBaseSQL.QueryParameters parameters) {
+		// The current time must be consistent between the template and the query
+		Instant currentTime = parameters.timeSupplier().get();
+		parameters = new SelectionBaseSQL.QueryParameters(
+				parameters.context(), parameters.limit(), () -> currentTime, parameters.ordering()
+		);
+		Object shape = selection.renderedShape();
+		if (shape == null || !isCacheable(selection, parameters)) {
+			return selection.requestQuery(parameters).fetchOne();
+		}
+		DSLContext context = parameters.context();
+		TemplateKey key = new TemplateKey(
+				selection.getClass(), context.dialect(), selection.details(), shape, List.of(parameters.ordering())
+		);
+		List<Object> varyingBindValues = selection.varyingBindValues(context.family(), currentTime);
+		Optional<Template> existingTemplate = templates.getIfPresent(key);
+		if (existingTemplate != null) {
+			if (existingTemplate.isPresent()) {
+				return existingTemplate.get().fetchOne(context, varyingBindValues);
+			}
+			return selection.requestQuery(parameters).fetchOne();
+		}
+		SelectionBaseSQL.Query<?> query = selection.requestQuery(parameters);
+		Optional<Template> template = createTemplate(query, context, varyingBindValues);
+		if (template.isEmpty()) {
+			logger.warn(
+					"Unable to cache the rendered SQL of selection {}. Queries will be rendered normally. " +
+							"Please report this as a bug.", selection);
+		}
+		templates.put(key, template);
+		return query.fetchOne();
+	}
+
+	private static boolean isCacheable(SelectionBaseSQL selection, SelectionBaseSQL.QueryParameters parameters) {
+		// Seek conditions are rendered between the current time and the subclass's predication
+		return parameters.limit() == 1
+				&& selection.skipCount() == 0
+				&& selection.seekAfterStartTime().equals(Instant.EPOCH)
+				&& selection.seekBeforeStartTime().equals(Instant.MAX);
+	}
+
+	static Optional<Template> createTemplate(SelectionBaseSQL.Query<?> query, DSLContext context,
+											  List<Object> varyingBindValues) {
+		// Bind values are substituted into the template when executing it, at which point they render their casts
+		DSLContext templateContext = DSL.using(
+				context.dialect(),
+				SettingsTools.clone(context.settings()).withParamCastMode(ParamCastMode.NEVER)
+		);
+		String sql = templateContext.render(query.select());
+
+		List<Param<?>> bindValues = new ArrayList<>();
+		for (Param<?> param : query.select().getParams().values()) {
+			if (!param.isInline()) {
+				bindValues.add(param);
+			}
+		}
+		int fixedCount = bindValues.size() - varyingBindValues.size();
+		if (fixedCount < 0) {
+			return Optional.empty();
+		}
+		List<Param<?>> fixedBindValues = List.copyOf(bindValues.subList(0, fixedCount));
+		List<DataType<?>> varyingBindTypes = new ArrayList<>(varyingBindValues.size());
+		for (int n = 0; n < varyingBindValues.size(); n++) {
+			Param<?> varyingParam = bindValues.get(fixedCount + n);
+			if (!Objects.equals(varyingParam.getValue(), varyingBindValues.get(n))) {
+				return Optional.empty();
+			}
+			varyingBindTypes.add(varyingParam.getDataType());
+		}
+		@SuppressWarnings("unchecked")
+		RecordMapper<Record, Punishment> mapper = (RecordMapper<Record, Punishment>) query.mapper();
+		Template template = new Template(
+				sql, fixedBindValues, List.copyOf(varyingBindTypes),
+				query.select().getSelect().toArray(Field<?>[]::new), mapper
+		);
+		// Validate that the template reproduces the query exactly
+		ResultQuery<Record> bound = template.bind(context, varyingBindValues);
+		if (!bound.getSQL().equals(query.renderSQL())
+				|| !bound.getBindValues().equals(query.select().getBindValues())) {
+			return Optional.empty();
+		}
+		return Optional.of(template);
+	}
+
+	@Override
+	public String toString() {
+		return "RenderedQueryCache{" +
+				"templates=" + templates.estimatedSize() +
+				'}';
+	}
+
+}
@@ -58,6 +58,10 @@ abstract class SelectionBaseImpl implements SelectionBase {
 
 	}
 
+	Details details() {
+		return details;
+	}
+
 	@Override
 	public SelectionPredicate<PunishmentType> getTypes() {
 		return details.types;
@@ -329,6 +329,42 @@ public abstract class SelectionBaseSQL extends SelectionBaseImpl {
 
 	abstract Query<?> requestQuery(QueryParameters parameters);
 
+	/**
+	 * Describes the structure of the query, beyond the selection details, for the purpose
+	 * of caching its rendered SQL. Selections which cannot be cached should return null.
+	 *
+	 * @return the shape of the rendered query, or null if not cacheable
+	 */
+	Object renderedShape() {
+		return null;
+	}
+
+	/**
+	 * Adds the bind values of the additional predication passed to {@code constructSelect},
+	 * in the order they are rendered. These bind values change between otherwise equal queries.
+	 *
+	 * @param family the SQL dialect family, which may determine the additional predication
+	 * @param bindValues the bind values to add to
+	 */
+	void addAdditionalBindValues(SQLDialect family, List<Object> bindValues) {}
+
+	/**
+	 * Gets the bind values which change between queries with the same rendered shape. These
+	 * are always rendered last, provided there are no seek conditions.
+	 *
+	 * @param family the SQL dialect family
+	 * @param currentTime the current time
+	 * @return the varying bind values
+	 */
+	List<Object> varyingBindValues(SQLDialect family, Instant currentTime) {
+		List<Object> bindValues = new ArrayList<>(3);
+		if (selectActiveOnly()) {
+			bindValues.add(currentTime);
+		}
+		addAdditionalBindValues(family, bindValues);
+		return bindValues;
+	}
+
 	private boolean selectActiveKicks() {
 		return selectActiveOnly()
 				&& getTypes().isSimpleEquality()
@@ -358,9 +394,9 @@ public abstract class SelectionBaseSQL extends SelectionBaseImpl {
 	 */
 	public Punishment findFirstSpecificPunishment(DSLContext context, Supplier<Instant> timeSupplier,
 												  SortPunishments...prioritization) {
-		return requestQuery(
-				new QueryParameters(context, 1, timeSupplier, prioritization)
-		).fetchOne();
+		return resources.renderedQueryCache().fetchOne(
+				this, new QueryParameters(context, 1, timeSupplier, prioritization)
+		);
 	}
 
 	@Override
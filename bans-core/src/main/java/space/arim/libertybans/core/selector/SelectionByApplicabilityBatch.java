@@ -0,0 +1,237 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector;
+
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.Victim.VictimType;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.scope.ServerScope;
+import space.arim.libertybans.api.select.AddressStrictness;
+import space.arim.libertybans.api.select.SelectionPredicate;
+import space.arim.libertybans.core.database.sql.ApplicableViewFields;
+import space.arim.libertybans.core.database.sql.DeserializedVictim;
+import space.arim.libertybans.core.database.sql.PunishmentFields;
+import space.arim.libertybans.core.database.sql.SimpleViewFields;
+import space.arim.libertybans.core.env.UUIDAndAddress;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+import static org.jooq.impl.DSL.inline;
+
+/**
+ * Selects applicable bans for many users at once, as used when checking a batch of incoming logins.
+ * Only the LENIENT and NORMAL strictness settings are supported, since they do not require
+ * transitive links between accounts.
+ *
+ */
+final class SelectionByApplicabilityBatch extends SelectionBaseSQL {
+
+	private final Collection<UUIDAndAddress> users;
+	private final AddressStrictness strictness;
+
+	private SelectionByApplicabilityBatch(Details details, SelectionResources resources,
+										  Collection<UUIDAndAddress> users, AddressStrictness strictness) {
+		super(details, resources);
+		this.users = users;
+		this.strictness = strictness;
+	}
+
+	static boolean supportsStrictness(AddressStrictness strictness) {
+		return strictness == AddressStrictness.LENIENT || strictness == AddressStrictness.NORMAL;
+	}
+
+	static SelectionByApplicabilityBatch activeBans(SelectionResources resources, Collection<UUIDAndAddress> users,
+													Set<ServerScope> scopes, AddressStrictness strictness) {
+		if (!supportsStrictness(strictness)) {
+			throw new IllegalArgumentException("Unsupported strictness " + strictness);
+		}
+		Details details = new Details(
+				SelectionPredicate.matchingOnly(PunishmentType.BAN), SelectionPredicate.matchingAll(),
+				SelectionPredicate.matchingAnyOf(scopes), SelectionPredicate.matchingAll(),
+				true, 0, 0, Instant.EPOCH, 0L, Instant.MAX, 0L
+		);
+		return new SelectionByApplicabilityBatch(details, resources, users, strictness);
+	}
+
+	private Set<UUID> uuids() {
+		Set<UUID> uuids = new HashSet<>();
+		for (UUIDAndAddress user : users) {
+			uuids.add(user.uuid());
+		}
+		return uuids;
+	}
+
+	private Set<NetworkAddress> addresses() {
+		Set<NetworkAddress> addresses = new HashSet<>();
+		for (UUIDAndAddress user : users) {
+			addresses.add(user.address());
+		}
+		return addresses;
+	}
+
+	@Override
+	Query<?> requestQuery(QueryParameters parameters) {
+		PunishmentFields fields;
+		Condition additionalPredication;
+		List<Field<?>> additionalColumns = new ArrayList<>(4);
+		if (strictness == AddressStrictness.LENIENT) {
+			SimpleViewFields<?> simpleView = requestSimpleView();
+			fields = simpleView;
+			Condition matchesUUID = fields.victimUuid().in(uuids());
+			Condition matchesAddress = fields.victimAddress().in(addresses());
+			// Same as VictimCondition#simplyMatches, but for many users
+			additionalPredication = fields.victimType().eq(inline(VictimType.PLAYER)).and(matchesUUID)
+					.or(
+							fields.victimType().eq(inline(VictimType.ADDRESS)).and(matchesAddress)
+					).or(
+							fields.victimType().eq(inline(VictimType.COMPOSITE)).and(matchesUUID.or(matchesAddress))
+					);
+		} else {
+			ApplicableViewFields<?> applView = requestApplicableView();
+			fields = applView;
+			additionalPredication = applView.uuid().in(uuids());
+			additionalColumns.add(applView.uuid());
+		}
+		additionalColumns.add(fields.victimType());
+		additionalColumns.add(fields.victimUuid());
+		additionalColumns.add(fields.victimAddress());
+		return new QueryBuilder(parameters, fields, fields.table()) {
+			@Override
+			Victim victimFromRecord(Record record) {
+				return new DeserializedVictim(
+						record.get(fields.victimUuid()),
+						record.get(fields.victimAddress())
+				).victim(
+						record.get(fields.victimType())
+				);
+			}
+
+			@Override
+			boolean mightRepeatIds() {
+				// Repeated IDs are tolerated, since the same ban may apply to many users
+				return false;
+			}
+		}.constructSelect(additionalColumns, additionalPredication);
+	}
+
+	private static <R extends Record> void forEachRow(Query<R> query, BiConsumer<R, Punishment> action) {
+		for (R record : query.select().fetch()) {
+			action.accept(record, query.mapper().map(record));
+		}
+	}
+
+	/**
+	 * Finds all bans applicable to each user in this batch
+	 *
+	 * @param context the database access
+	 * @param currentTime the current time
+	 * @return the applicable bans for each user, possibly containing duplicates
+	 */
+	Map<UUIDAndAddress, List<Punishment>> findApplicablePunishments(DSLContext context, Instant currentTime) {
+		Map<UUIDAndAddress, List<Punishment>> applicable = new HashMap<>();
+		Query<?> query = requestQuery(new QueryParameters(context, 0, () -> currentTime));
+		if (strictness == AddressStrictness.LENIENT) {
+			forEachRow(query, (record, punishment) -> {
+				for (UUIDAndAddress user : users) {
+					if (simplyMatches(punishment.getVictim(), user)) {
+						applicable.computeIfAbsent(user, (u) -> new ArrayList<>()).add(punishment);
+					}
+				}
+			});
+		} else {
+			Field<UUID> applicableUuid = requestApplicableView().uuid();
+			Map<UUID, List<Punishment>> byUuid = new HashMap<>();
+			forEachRow(query, (record, punishment) -> {
+				byUuid.computeIfAbsent(record.get(applicableUuid), (u) -> new ArrayList<>()).add(punishment);
+			});
+			for (UUIDAndAddress user : users) {
+				List<Punishment> punishments = byUuid.get(user.uuid());
+				if (punishments != null) {
+					applicable.put(user, punishments);
+				}
+			}
+		}
+		return applicable;
+	}
+
+	private static boolean simplyMatches(Victim victim, UUIDAndAddress user) {
+		if (victim instanceof PlayerVictim playerVictim) {
+			return playerVictim.getUUID().equals(user.uuid());
+		} else if (victim instanceof AddressVictim addressVictim) {
+			return addressVictim.getAddress().equals(user.address());
+		} else if (victim instanceof CompositeVictim compositeVictim) {
+			return compositeVictim.getUUID().equals(user.uuid())
+					|| compositeVictim.getAddress().equals(user.address());
+		}
+		return false;
+	}
+
+	/**
+	 * Chooses, among applicable bans, the ban which ends latest and is in one of the given scopes
+	 *
+	 * @param punishments the applicable bans, nullable
+	 * @param scopes the scopes to match
+	 * @return the chosen ban if any
+	 */
+	static Optional<Punishment> latestEndingInScopes(List<Punishment> punishments, Set<ServerScope> scopes) {
+		if (punishments == null) {
+			return Optional.empty();
+		}
+		Punishment chosen = null;
+		for (Punishment punishment : punishments) {
+			if (!scopes.contains(punishment.getScope())) {
+				continue;
+			}
+			if (chosen == null || punishment.getEndDate().isAfter(chosen.getEndDate())) {
+				chosen = punishment;
+			}
+		}
+		return Optional.ofNullable(chosen);
+	}
+
+	@Override
+	public String toString() {
+		return "SelectionByApplicabilityBatch{" +
+				"users=" + users +
+				", strictness=" + strictness +
+				", scopes=" + getScopes() +
+				'}';
+	}
+
+}
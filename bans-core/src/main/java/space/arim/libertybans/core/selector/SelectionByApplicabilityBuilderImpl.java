@@ -39,6 +39,7 @@ public final class SelectionByApplicabilityBuilderImpl
 	private final NetworkAddress address;
 	private AddressStrictness strictness;
 	private final AddressStrictness defaultStrictness;
+	private ApplicabilityStrategy strategy;
 
 	SelectionByApplicabilityBuilderImpl(SelectionResources resources,
 										UUID uuid, NetworkAddress address, AddressStrictness defaultStrictness) {
@@ -60,6 +61,17 @@ public final class SelectionByApplicabilityBuilderImpl
 		return addressStrictness(defaultStrictness);
 	}
 
+	/**
+	 * Overrides the strategy otherwise chosen by database vendor. Visible for benchmarking and testing
+	 *
+	 * @param strategy the strategy, or null to choose by vendor
+	 * @return this builder
+	 */
+	SelectionByApplicabilityBuilderImpl strategy(ApplicabilityStrategy strategy) {
+		this.strategy = strategy;
+		return this;
+	}
+
 	@Override
 	SelectionByApplicabilityBuilder yieldSelf() {
 		return this;
@@ -68,7 +80,7 @@ public final class SelectionByApplicabilityBuilderImpl
 	@Override
 	SelectionByApplicability buildWith(SelectionBaseImpl.Details details) {
 		return new SelectionByApplicabilityImpl(
-				details, resources, uuid, address, strictness
+				details, resources, uuid, address, strictness, strategy
 		);
 	}
 
@@ -22,6 +22,9 @@ package space.arim.libertybans.core.selector;
 import org.jooq.Condition;
 import org.jooq.Field;
 import org.jooq.Record;
+import org.jooq.Record1;
+import org.jooq.SQLDialect;
+import org.jooq.Select;
 import org.jooq.Table;
 import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.Victim;
@@ -31,6 +34,7 @@ import space.arim.libertybans.api.select.SelectionByApplicability;
 import space.arim.libertybans.core.database.sql.ApplicableViewFields;
 import space.arim.libertybans.core.database.sql.DeserializedVictim;
 import space.arim.libertybans.core.database.sql.PunishmentFields;
+import space.arim.libertybans.core.database.sql.SimpleViewFields;
 import space.arim.libertybans.core.database.sql.VictimCondition;
 
 import java.util.List;
@@ -38,6 +42,8 @@ import java.util.Objects;
 import java.util.UUID;
 
 import static org.jooq.impl.DSL.inline;
+import static org.jooq.impl.DSL.select;
+import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
 import static space.arim.libertybans.core.schema.tables.StrictLinks.STRICT_LINKS;
 
 public final class SelectionByApplicabilityImpl extends SelectionBaseSQL implements SelectionByApplicability {
@@ -45,13 +51,22 @@ public final class SelectionByApplicabilityImpl extends SelectionBaseSQL impleme
 	private final UUID uuid;
 	private final NetworkAddress address;
 	private final AddressStrictness strictness;
+	// Null to choose by database vendor
+	private final ApplicabilityStrategy strategy;
 
 	SelectionByApplicabilityImpl(Details details, SelectionResources resources,
 								 UUID uuid, NetworkAddress address, AddressStrictness strictness) {
+		this(details, resources, uuid, address, strictness, null);
+	}
+
+	SelectionByApplicabilityImpl(Details details, SelectionResources resources,
+								 UUID uuid, NetworkAddress address, AddressStrictness strictness,
+								 ApplicabilityStrategy strategy) {
 		super(details, resources);
 		this.uuid = Objects.requireNonNull(uuid, "uuid");
 		this.address = Objects.requireNonNull(address, "address");
 		this.strictness = Objects.requireNonNull(strictness, "strictness");
+		this.strategy = strategy;
 	}
 
 	@Override
@@ -69,8 +84,22 @@ public final class SelectionByApplicabilityImpl extends SelectionBaseSQL impleme
 		return strictness;
 	}
 
+	private boolean useUnionAll(SQLDialect family) {
+		if (strictness != AddressStrictness.NORMAL) {
+			return false;
+		}
+		ApplicabilityStrategy strategy = this.strategy;
+		if (strategy == null) {
+			strategy = ApplicabilityStrategy.forDialect(family);
+		}
+		return strategy == ApplicabilityStrategy.UNION_ALL;
+	}
+
 	@Override
 	Query<?> requestQuery(QueryParameters parameters) {
+		if (useUnionAll(parameters.context().family())) {
+			return requestUnionAllQuery(parameters);
+		}
 		PunishmentFields fields = null;
 		Table<?> table = null;
 		Condition additionalPredication = switch (strictness) {
@@ -130,13 +159,84 @@ public final class SelectionByApplicabilityImpl extends SelectionBaseSQL impleme
 		}.constructSelect(additionalColumns, additionalPredication);
 	}
 
+	private Query<?> requestUnionAllQuery(QueryParameters parameters) {
+		SimpleViewFields<?> simpleView = requestSimpleView();
+		SimpleViewFields<?> byUuid = simpleView.as("by_uuid");
+		SimpleViewFields<?> byAddress = simpleView.as("by_address");
+		// Each branch is resolvable using an index on the victims table
+		Select<Record1<Long>> applicableIds = select(byUuid.id())
+				.from(byUuid.table())
+				.where(byUuid.victimType().eq(inline(VictimType.PLAYER))
+						.or(byUuid.victimType().eq(inline(VictimType.COMPOSITE))))
+				.and(byUuid.victimUuid().eq(uuid))
+				.unionAll(
+						select(byAddress.id())
+								.from(byAddress.table())
+								.where(byAddress.victimType().eq(inline(VictimType.ADDRESS))
+										.or(byAddress.victimType().eq(inline(VictimType.COMPOSITE))))
+								.and(byAddress.victimAddress().in(
+										select(ADDRESSES.ADDRESS).from(ADDRESSES).where(ADDRESSES.UUID.eq(uuid))
+								))
+				);
+		List<Field<?>> additionalColumns = List.of(
+				simpleView.victimType(), simpleView.victimUuid(), simpleView.victimAddress()
+		);
+		return new QueryBuilder(parameters, simpleView, simpleView.table()) {
+			@Override
+			Victim victimFromRecord(Record record) {
+				return new DeserializedVictim(
+						record.get(fields.victimUuid()),
+						record.get(fields.victimAddress())
+				).victim(
+						record.get(fields.victimType())
+				);
+			}
+
+			@Override
+			boolean mightRepeatIds() {
+				// Filtering by ID does not repeat rows
+				return false;
+			}
+		}.constructSelect(additionalColumns, simpleView.id().in(applicableIds));
+	}
+
+	@Override
+	Object renderedShape() {
+		// The strategy is otherwise determined by the dialect, which is part of the cache key
+		return (strategy == null) ? strictness : List.of(strictness, strategy);
+	}
+
+	@Override
+	void addAdditionalBindValues(SQLDialect family, List<Object> bindValues) {
+		switch (strictness) {
+			case LENIENT -> {
+				bindValues.add(uuid);
+				bindValues.add(address);
+				bindValues.add(uuid);
+				bindValues.add(address);
+			}
+			case NORMAL -> {
+				bindValues.add(uuid);
+				if (useUnionAll(family)) {
+					bindValues.add(uuid);
+				}
+			}
+			case STRICT -> bindValues.add(uuid);
+			case STERN -> {
+				bindValues.add(uuid);
+				bindValues.add(uuid);
+			}
+		}
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		if (!super.equals(o)) return false;
 		SelectionByApplicabilityImpl that = (SelectionByApplicabilityImpl) o;
-		return uuid.equals(that.uuid) && address.equals(that.address) && strictness == that.strictness;
+		return uuid.equals(that.uuid) && address.equals(that.address) && strictness == that.strictness
+				&& strategy == that.strategy;
 	}
 
 	@Override
@@ -145,6 +245,7 @@ public final class SelectionByApplicabilityImpl extends SelectionBaseSQL impleme
 		result = 31 * result + uuid.hashCode();
 		result = 31 * result + address.hashCode();
 		result = 31 * result + strictness.hashCode();
+		result = 31 * result + Objects.hashCode(strategy);
 		return result;
 	}
 
@@ -154,6 +255,7 @@ public final class SelectionByApplicabilityImpl extends SelectionBaseSQL impleme
 				"uuid=" + uuid +
 				", address=" + address +
 				", strictness=" + strictness +
+				", strategy=" + strategy +
 				", types=" + getTypes() +
 				", operators=" + getOperators() +
 				", scopes=" + getScopes() +
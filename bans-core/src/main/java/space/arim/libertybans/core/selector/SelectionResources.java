@@ -31,7 +31,8 @@ public record SelectionResources(FactoryOfTheFuture futuresFactory,
 								 Provider<QueryExecutor> dbProvider,
 								 InternalScopeManager scopeManager,
 								 PunishmentCreator creator,
-								 Time time) {
+								 Time time,
+								 RenderedQueryCache renderedQueryCache) {
 
 	@Inject
 	public SelectionResources {
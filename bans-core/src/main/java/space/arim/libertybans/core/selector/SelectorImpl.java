@@ -58,6 +58,10 @@ public class SelectorImpl implements InternalSelector {
 		this.resources = resources;
 	}
 
+	SelectionResources selectionResources() {
+		return resources;
+	}
+
 	@Override
 	public SelectionOrderBuilder selectionBuilder() {
 		return new SelectionOrderBuilderImpl(resources);
@@ -0,0 +1,399 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector.cache;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.scope.ServerScope;
+import space.arim.libertybans.api.select.AddressStrictness;
+import space.arim.libertybans.api.select.SelectionPredicate;
+import space.arim.libertybans.core.Part;
+import space.arim.libertybans.core.alts.AccountGraph;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.selector.InternalSelector;
+import space.arim.omnibus.util.ThisClass;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
+
+/**
+ * In-memory index of active bans and mutes, by which login checks may be answered
+ * without querying the applicability views. <br>
+ * <br>
+ * The index is loaded asynchronously at startup, and until then, {@link #canAnswer(AddressStrictness)}
+ * will return false. Thereafter, it is kept current by {@code GlobalEnforcement} and the receipt
+ * of synchronization packets. STERN and STRICT checks additionally rely on the {@link AccountGraph}
+ * for the links between accounts.
+ *
+ */
+@Singleton
+public final class ActivePunishmentIndex implements Part {
+
+	private final Configs configs;
+	private final Provider<InternalSelector> selector;
+	private final AccountGraph accountGraph;
+
+	private volatile Index index;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public ActivePunishmentIndex(Configs configs, Provider<InternalSelector> selector, AccountGraph accountGraph) {
+		this.configs = configs;
+		this.selector = selector;
+		this.accountGraph = accountGraph;
+	}
+
+	@Override
+	public void startup() {
+		if (!configs.getSqlConfig().activePunishmentIndex().enable()) {
+			return;
+		}
+		Index index = new Index();
+		this.index = index;
+		selector.get()
+				.selectionBuilder()
+				.types(SelectionPredicate.matchingAnyOf(PunishmentType.BAN, PunishmentType.MUTE))
+				.build()
+				.getAllSpecificPunishments()
+				.thenAccept(index::load)
+				.exceptionally((ex) -> {
+					logger.warn("Failed to load the active punishment index. Logins will be checked using the database.", ex);
+					return null;
+				});
+	}
+
+	@Override
+	public void restart() {
+		shutdown();
+		startup();
+	}
+
+	@Override
+	public void shutdown() {
+		index = null;
+	}
+
+	/**
+	 * Whether the index is loaded and can be used to answer queries for the given strictness
+	 *
+	 * @param strictness the address strictness
+	 * @return true if the index can be used
+	 */
+	public boolean canAnswer(AddressStrictness strictness) {
+		Index index = this.index;
+		if (index == null || !index.loaded) {
+			return false;
+		}
+		return switch (strictness) {
+			case LENIENT, NORMAL -> true;
+			// Links between accounts are known only to the account graph
+			case STERN, STRICT -> accountGraph.isLoaded();
+		};
+	}
+
+	/**
+	 * Whether the index is loaded, regardless of address strictness
+	 *
+	 * @return true if loaded
+	 */
+	public boolean isLoaded() {
+		Index index = this.index;
+		return index != null && index.loaded;
+	}
+
+	/**
+	 * Determines whether a user has an active punishment in any scope, as would be displayed
+	 * by alt detection. Only punishments of a player or composite victim are considered. The
+	 * caller must first check {@link #isLoaded()}
+	 *
+	 * @param type the punishment type, either ban or mute
+	 * @param uuid the user's uuid
+	 * @param currentTime the current time
+	 * @return true if the user has such a punishment
+	 */
+	public boolean hasActive(PunishmentType type, UUID uuid, Instant currentTime) {
+		Index index = this.index;
+		if (index == null) {
+			throw new IllegalStateException("Index not enabled");
+		}
+		Set<Punishment> punishments = index.byUUID.get(uuid);
+		if (punishments == null) {
+			return false;
+		}
+		for (Punishment punishment : punishments) {
+			if (punishment.getType() == type && punishment.getEndDate().isAfter(currentTime)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds an applicable punishment using the index. The caller must first check
+	 * {@link #canAnswer(AddressStrictness)}. <br>
+	 * <br>
+	 * If multiple punishments apply, the one with the latest end date is returned.
+	 *
+	 * @param context the database access, used to retrieve past addresses if the account graph is not loaded
+	 * @param type the punishment type, either ban or mute
+	 * @param uuid the user's uuid
+	 * @param address the user's current address
+	 * @param strictness the address strictness
+	 * @param scopes the scopes to match
+	 * @param currentTime the current time
+	 * @return the applicable punishment or null if there is none
+	 */
+	public @Nullable Punishment findApplicable(DSLContext context, PunishmentType type, UUID uuid, NetworkAddress address,
+											   AddressStrictness strictness, Set<ServerScope> scopes, Instant currentTime) {
+		Index index = this.index;
+		if (index == null) {
+			throw new IllegalStateException("Index not enabled");
+		}
+		if (strictness == AddressStrictness.LENIENT) {
+			return index.find(type, uuid, Set.of(address), true, scopes, currentTime, null);
+		}
+		Set<NetworkAddress> addresses = addressesOf(context, index, uuid, address);
+		Punishment found = index.find(type, uuid, addresses, true, scopes, currentTime, null);
+		if (strictness == AddressStrictness.NORMAL) {
+			return found;
+		}
+		// With STERN, linked accounts only pass on punishments which are not solely of a player
+		boolean includePlayerVictims = strictness == AddressStrictness.STRICT;
+		// The current connection is only recorded in the graph once it is stored
+		for (UUID linked : accountGraph.linkedUsers(uuid, address)) {
+			if (linked.equals(uuid)) {
+				continue;
+			}
+			Set<NetworkAddress> linkedAddresses = (index.byAddress.isEmpty()) ? Set.of() : accountGraph.addressesOf(linked);
+			found = index.find(type, linked, linkedAddresses, includePlayerVictims, scopes, currentTime, found);
+		}
+		return found;
+	}
+
+	private Set<NetworkAddress> addressesOf(DSLContext context, Index index, UUID uuid, NetworkAddress address) {
+		if (index.byAddress.isEmpty()) {
+			return Set.of(address);
+		}
+		// Any of the user's past addresses may be punished
+		Set<NetworkAddress> addresses;
+		if (accountGraph.isLoaded()) {
+			addresses = accountGraph.addressesOf(uuid);
+		} else {
+			addresses = new HashSet<>(
+					context
+							.select(ADDRESSES.ADDRESS)
+							.from(ADDRESSES)
+							.where(ADDRESSES.UUID.eq(uuid))
+							.fetch(ADDRESSES.ADDRESS)
+			);
+		}
+		addresses.add(address);
+		return addresses;
+	}
+
+	/**
+	 * Adds or updates an active punishment
+	 *
+	 * @param punishment the punishment
+	 */
+	public void index(Punishment punishment) {
+		Index index = this.index;
+		if (index == null) {
+			return;
+		}
+		switch (punishment.getType()) {
+			case BAN, MUTE -> index.add(punishment);
+			default -> {}
+		}
+	}
+
+	/**
+	 * Updates the details of a punishment if, and only if, it is already indexed. Unlike
+	 * {@link #index(Punishment)}, this will not add a punishment which is no longer active,
+	 * such as a revoked punishment whose details were modified.
+	 *
+	 * @param punishment the punishment with its new details
+	 */
+	public void update(Punishment punishment) {
+		Index index = this.index;
+		if (index == null) {
+			return;
+		}
+		switch (punishment.getType()) {
+			case BAN, MUTE -> index.update(punishment);
+			default -> {}
+		}
+	}
+
+	/**
+	 * Removes a punishment if it is indexed
+	 *
+	 * @param id the punishment ID
+	 */
+	public void remove(long id) {
+		Index index = this.index;
+		if (index == null) {
+			return;
+		}
+		index.remove(id);
+	}
+
+	private static final class Index {
+
+		private final Map<Long, Punishment> byId = new ConcurrentHashMap<>();
+		private final Map<UUID, Set<Punishment>> byUUID = new ConcurrentHashMap<>();
+		private final Map<NetworkAddress, Set<Punishment>> byAddress = new ConcurrentHashMap<>();
+
+		private volatile boolean loaded;
+		// Guarded by this; used to avoid resurrecting punishments removed during loading
+		private final Set<Long> removedWhileLoading = new HashSet<>();
+		// Guarded by this; used to avoid loading stale details of punishments updated during loading
+		private final Map<Long, Punishment> updatedWhileLoading = new HashMap<>();
+
+		synchronized void load(List<Punishment> punishments) {
+			for (Punishment punishment : punishments) {
+				long id = punishment.getIdentifier();
+				if (!removedWhileLoading.contains(id) && !byId.containsKey(id)) {
+					add0(updatedWhileLoading.getOrDefault(id, punishment));
+				}
+			}
+			removedWhileLoading.clear();
+			updatedWhileLoading.clear();
+			loaded = true;
+			logger.debug("Loaded {} active punishments into the index", punishments.size());
+		}
+
+		synchronized void add(Punishment punishment) {
+			// The punishment details may have been updated
+			remove0(punishment.getIdentifier());
+			add0(punishment);
+		}
+
+		synchronized void update(Punishment punishment) {
+			long id = punishment.getIdentifier();
+			if (!loaded) {
+				updatedWhileLoading.put(id, punishment);
+			}
+			if (byId.containsKey(id)) {
+				remove0(id);
+				add0(punishment);
+			}
+		}
+
+		synchronized void remove(long id) {
+			if (!loaded) {
+				removedWhileLoading.add(id);
+				updatedWhileLoading.remove(id);
+			}
+			remove0(id);
+		}
+
+		private void add0(Punishment punishment) {
+			byId.put(punishment.getIdentifier(), punishment);
+			Victim victim = punishment.getVictim();
+			if (victim instanceof PlayerVictim playerVictim) {
+				addTo(byUUID, playerVictim.getUUID(), punishment);
+			} else if (victim instanceof AddressVictim addressVictim) {
+				addTo(byAddress, addressVictim.getAddress(), punishment);
+			} else if (victim instanceof CompositeVictim compositeVictim) {
+				addTo(byUUID, compositeVictim.getUUID(), punishment);
+				addTo(byAddress, compositeVictim.getAddress(), punishment);
+			}
+		}
+
+		private void remove0(long id) {
+			Punishment punishment = byId.remove(id);
+			if (punishment == null) {
+				return;
+			}
+			Victim victim = punishment.getVictim();
+			if (victim instanceof PlayerVictim playerVictim) {
+				removeFrom(byUUID, playerVictim.getUUID(), punishment);
+			} else if (victim instanceof AddressVictim addressVictim) {
+				removeFrom(byAddress, addressVictim.getAddress(), punishment);
+			} else if (victim instanceof CompositeVictim compositeVictim) {
+				removeFrom(byUUID, compositeVictim.getUUID(), punishment);
+				removeFrom(byAddress, compositeVictim.getAddress(), punishment);
+			}
+		}
+
+		private static <K> void addTo(Map<K, Set<Punishment>> map, K key, Punishment punishment) {
+			map.computeIfAbsent(key, (k) -> ConcurrentHashMap.newKeySet()).add(punishment);
+		}
+
+		private static <K> void removeFrom(Map<K, Set<Punishment>> map, K key, Punishment punishment) {
+			map.computeIfPresent(key, (k, punishments) -> {
+				punishments.remove(punishment);
+				return punishments.isEmpty() ? null : punishments;
+			});
+		}
+
+		Punishment find(PunishmentType type, UUID uuid, Set<NetworkAddress> addresses, boolean includePlayerVictims,
+						Set<ServerScope> scopes, Instant currentTime, Punishment found) {
+			found = findAmong(byUUID.get(uuid), found, type, includePlayerVictims, scopes, currentTime);
+			for (NetworkAddress address : addresses) {
+				found = findAmong(byAddress.get(address), found, type, includePlayerVictims, scopes, currentTime);
+			}
+			return found;
+		}
+
+		private static Punishment findAmong(Set<Punishment> candidates, Punishment found, PunishmentType type,
+											boolean includePlayerVictims, Set<ServerScope> scopes, Instant currentTime) {
+			if (candidates == null) {
+				return found;
+			}
+			for (Punishment candidate : candidates) {
+				if (candidate.getType() != type
+						|| !includePlayerVictims && candidate.getVictim() instanceof PlayerVictim
+						|| !scopes.contains(candidate.getScope())
+						|| !candidate.getEndDate().isAfter(currentTime)) {
+					continue;
+				}
+				// Prefer the punishment which ends latest
+				if (found == null || candidate.getEndDate().isAfter(found.getEndDate())) {
+					found = candidate;
+				}
+			}
+			return found;
+		}
+	}
+
+}
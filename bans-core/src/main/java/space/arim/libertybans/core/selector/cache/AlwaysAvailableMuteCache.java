@@ -17,34 +17,41 @@
  * and navigate to version 3 of the GNU Affero General Public License.
  */
 
+
 package space.arim.libertybans.core.selector.cache;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import net.kyori.adventure.text.Component;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.punish.Punishment;
 import space.arim.libertybans.api.select.PunishmentSelector;
 import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.config.SqlConfig;
-import space.arim.libertybans.core.env.EnvUserResolver;
+import space.arim.libertybans.core.env.EnvEnforcer;
 import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.DelayCalculators;
 import space.arim.omnibus.util.concurrent.EnhancedExecutor;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 import space.arim.omnibus.util.concurrent.ScheduledTask;
 
+import java.net.InetAddress;
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -53,7 +60,9 @@ import java.util.function.Predicate;
  * For offline players no such guarantee is made. <br>
  * <br>
  * This is used for platforms such as Bukkit and Sponge where mute information must be available
- * synchronously.
+ * synchronously. Since it is consulted for every chat message and command, reading a cached value
+ * through {@link #cachedMuteMessage(UUID, InetAddress)} involves only volatile reads and allocates
+ * nothing. Expired values are refreshed in the background, while the previous value continues to be used.
  *
  */
 @Singleton
@@ -61,7 +70,7 @@ public final class AlwaysAvailableMuteCache extends BaseMuteCache {
 
 	private final FactoryOfTheFuture futuresFactory;
 	private final EnhancedExecutor enhancedExecutor;
-	private final EnvUserResolver envUserResolver;
+	private final EnvEnforcer<?> envEnforcer;
 	private final InternalFormatter formatter;
 	private final Time time;
 
@@ -70,22 +79,23 @@ public final class AlwaysAvailableMuteCache extends BaseMuteCache {
 	static final long GRACE_PERIOD_NANOS = TimeUnit.MINUTES.toNanos(4);
 	static final Duration PURGE_TASK_INTERVAL = Duration.ofMinutes(3L);
 
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
 	@Inject
 	public AlwaysAvailableMuteCache(Configs configs, FactoryOfTheFuture futuresFactory,
 									PunishmentSelector selector, EnhancedExecutor enhancedExecutor,
-									EnvUserResolver envUserResolver, InternalFormatter formatter, Time time) {
+									EnvEnforcer<?> envEnforcer, InternalFormatter formatter, Time time) {
 		super(configs, selector);
 		this.futuresFactory = futuresFactory;
 		this.enhancedExecutor = enhancedExecutor;
-		this.envUserResolver = envUserResolver;
+		this.envEnforcer = envEnforcer;
 		this.formatter = formatter;
 		this.time = time;
 	}
 
 	@Override
 	void installCache(Duration expirationTime, SqlConfig.MuteCaching.ExpirationSemantic expirationSemantic) {
-		ConcurrentHashMap<MuteCacheKey, Entry> map = new ConcurrentHashMap<>();
-		Cache cache = new Cache(map, expirationTime);
+		Cache cache = new Cache(expirationTime);
 		cache.startPurgeTask();
 		this.cache = cache;
 	}
@@ -125,61 +135,50 @@ public final class AlwaysAvailableMuteCache extends BaseMuteCache {
 
 	private <T> CentralisedFuture<Optional<T>> cacheRequestTo(UUID uuid, NetworkAddress address,
 															  Function<MuteAndMessage, T> toWhich) {
-		return cacheRequest(new MuteCacheKey(uuid, address))
-				.thenApply((muteAndMessage) -> muteAndMessage.map(toWhich));
-	}
-
-	private CentralisedFuture<Optional<MuteAndMessage>> cacheRequest(MuteCacheKey cacheKey) {
 		Cache cache = this.cache;
-		Entry cacheEntry = cache.map.computeIfPresent(cacheKey, (key, entry) -> {
-
-			MuteAndMessage currentValue = entry.currentValue;
-			long lastUpdated = entry.lastUpdated;
-			CentralisedFuture<MuteAndMessage> nextValue = entry.nextValue;
-
-			// If the next value is ready, replace the current value with it
-			if (nextValue != null && nextValue.isDone()) {
-				currentValue = nextValue.join();
-				nextValue = null;
-			}
-			// If the current value is old, begin to compute a new value for it
-			final long currentTime = nanoTime();
-			long updatedAgo = currentTime - lastUpdated;
-			if (updatedAgo >= cache.expirationTimeNanos) {
-				nextValue = queryPunishmentAndMessage(key);
-				lastUpdated = currentTime;
-			}
-			return new Entry(currentValue, lastUpdated, nextValue);
-		});
-		if (cacheEntry == null) {
+		Entry entry = cache.map.get(uuid);
+		if (entry == null || !entry.address.equals(address)) {
 			// The player is offline. This should only happen through an API request.
 			// In that case, we query the database and skip caching
-			return queryPunishmentAndMessage(cacheKey).thenApply(Optional::ofNullable);
+			return queryPunishmentAndMessage(new MuteCacheKey(uuid, address))
+					.thenApply((muteAndMessage) -> Optional.ofNullable(muteAndMessage).map(toWhich));
 		}
-		return futuresFactory.completedFuture(Optional.ofNullable(cacheEntry.currentValue));
+		MuteAndMessage muteAndMessage = cache.read(uuid, entry).muteAndMessage;
+		return futuresFactory.completedFuture(Optional.ofNullable(muteAndMessage).map(toWhich));
 	}
 
 	@Override
-	void clearCachedMuteIf(Predicate<Punishment> removeIfMatches) {
-		ConcurrentHashMap<MuteCacheKey, Entry> map = cache.map;
+	public @Nullable Component cachedMuteMessage(UUID uuid, InetAddress address) {
+		Cache cache = this.cache;
+		Entry entry = cache.map.get(uuid);
+		if (entry == null || !entry.inetAddress.equals(address)) {
+			throw new IllegalStateException("No cached mute for " + uuid + ". Perhaps the player logged off?");
+		}
+		return cache.read(uuid, entry).message();
+	}
 
-		for (Map.Entry<MuteCacheKey, Entry> mapEntry : map.entrySet()) {
-			MuteCacheKey key = mapEntry.getKey();
-			Entry entry = mapEntry.getValue();
+	@Override
+	public CentralisedFuture<@Nullable Component> lookupMuteMessage(UUID uuid, InetAddress address) {
+		Cache cache = this.cache;
+		Entry entry = cache.map.get(uuid);
+		if (entry == null || !entry.inetAddress.equals(address)) {
+			// The player is offline; see above
+			return queryPunishmentAndMessage(new MuteCacheKey(uuid, NetworkAddress.of(address)))
+					.thenApply((muteAndMessage) -> (muteAndMessage == null) ? null : muteAndMessage.message());
+		}
+		return futuresFactory.completedFuture(cache.read(uuid, entry).message());
+	}
 
-			// Replace the current value with NULL if it matches the predicate
+	@Override
+	void clearCachedMuteIf(Predicate<Punishment> removeIfMatches) {
+		Cache cache = this.cache;
+		for (Entry entry : cache.map.values()) {
+			// Replace the current value if it matches the predicate
 			// However, perform the operation atomically with respect to entry updates
-			MuteAndMessage currentValue;
-			while ((currentValue = entry.currentValue) != null && removeIfMatches.test(currentValue.mute())) {
-				Entry newEntry = new Entry(null, entry.lastUpdated, entry.nextValue);
-				// Compare-and-swap the old entry with the new one
-				if (map.replace(key, entry, newEntry)) {
-					// Success
-					break;
-				}
-				entry = map.get(key);
-				if (entry == null) {
-					// Player logged off
+			Value value;
+			while ((value = entry.value.get()).muteAndMessage != null
+					&& removeIfMatches.test(value.muteAndMessage.mute())) {
+				if (entry.value.compareAndSet(value, cache.notMuted)) {
 					break;
 				}
 			}
@@ -188,114 +187,133 @@ public final class AlwaysAvailableMuteCache extends BaseMuteCache {
 
 	@Override
 	public CentralisedFuture<?> cacheOnLogin(UUID uuid, NetworkAddress address) {
+		Cache cache = this.cache;
 		final long currentTime = nanoTime();
+		Entry newEntry = new Entry(address, cache.notMuted, currentTime);
+		newEntry.refreshing.set(true);
 		// There might be an existing entry if the player rejoins before periodic invalidation
-		Entry entry = cache.map.compute(new MuteCacheKey(uuid, address), (key, existingEntry) -> {
-			if (existingEntry == null) {
-				// Most common
-				return new Entry(null, currentTime, queryPunishmentAndMessage(key));
-			}
-			// Use the existing entry; refresh it if necessary
-			MuteAndMessage currentValue = existingEntry.currentValue;
-			CentralisedFuture<MuteAndMessage> nextValue = existingEntry.nextValue;
-			// If the next value is ready, replace the current value with it
-			if (nextValue != null && nextValue.isDone()) {
-				currentValue = nextValue.join();
-				nextValue = null;
-			}
-			long originallyUpdatedAgo = currentTime - existingEntry.lastUpdated;
-			if (originallyUpdatedAgo >= cache.expirationTimeNanos) {
-				nextValue = queryPunishmentAndMessage(key);
+		Entry existingEntry = cache.map.putIfAbsent(uuid, newEntry);
+		if (existingEntry != null) {
+			if (existingEntry.address.equals(address)) {
+				// Use the existing entry; refresh it if necessary
+				// Always update the login time, to prevent periodic invalidation
+				existingEntry.lastLogin = currentTime;
+				cache.read(uuid, existingEntry);
+				// There's no need to wait: we have an existing entry
+				return futuresFactory.completedFuture(null);
 			}
-			// Always update lastUpdated, to prevent periodic invalidation
-			// But subtract 1 to signal to ourselves outside the lambda
-			return new Entry(currentValue, currentTime - 1, nextValue);
-		});
-		if (entry.lastUpdated == currentTime) {
-			// Wait for our newly-entered computation
-			return entry.nextValue;
+			// The player's address changed, so the existing entry is unusable
+			cache.map.put(uuid, newEntry);
 		}
-		// There's no need to wait: we have an existing entry
-		return futuresFactory.completedFuture(null);
+		// Wait for our newly-entered computation
+		return cache.refresh(uuid, newEntry);
 	}
 
 	@Override
 	void setCachedMute(MuteCacheKey cacheKey, Punishment mute) {
-		cache.map.compute(cacheKey, (key, entry) -> {
-			// If there is no existing entry, store the new entry
-			if (entry == null) {
-				return new Entry(null, nanoTime(), formatMessage(mute));
-			}
-
-			// Update the old entry, if needed, with the new mute
-			MuteAndMessage currentValue = entry.currentValue;
-			long lastUpdated = entry.lastUpdated;
-			CentralisedFuture<MuteAndMessage> nextValue = entry.nextValue;
-
-			if (nextValue != null) {
-				// If the next value is ready, replace the current value with it
-				if (nextValue.isDone()) {
-					currentValue = nextValue.join();
-					nextValue = null;
-				} else {
-					// There is a next value in-progress but not yet ready
-					// Keep it, as it will be more accurate in case there are multiple applicable mutes
-					return entry;
-				}
-			}
-			// If there is no current mute, or the new mute will expire less soon, use the new mute
-			if (currentValue == null || mute.getEndDate().isAfter(currentValue.mute().getEndDate())) {
-				nextValue = formatMessage(mute);
-				lastUpdated = nanoTime();
-			}
-			return new Entry(currentValue, lastUpdated, nextValue);
-		});
+		Cache cache = this.cache;
+		UUID uuid = cacheKey.uuid();
+		Entry entry = cache.map.get(uuid);
+		if (entry == null || !entry.address.equals(cacheKey.address())) {
+			// The player is offline, or logged in from a different address
+			return;
+		}
+		if (entry.refreshing.get()) {
+			// There is a refresh in-progress but not yet ready
+			// Keep it, as it will be more accurate in case there are multiple applicable mutes
+			return;
+		}
+		MuteAndMessage currentValue = entry.value.get().muteAndMessage;
+		// If there is no current mute, or the new mute will expire less soon, use the new mute
+		if (currentValue == null || mute.getEndDate().isAfter(currentValue.mute().getEndDate())) {
+			formatMessage(mute).thenAccept((muteAndMessage) -> {
+				entry.value.set(cache.valueOf(muteAndMessage));
+			});
+		}
 	}
 
 	private final class Cache {
 
-		private final ConcurrentHashMap<MuteCacheKey, Entry> map;
+		private final ConcurrentHashMap<UUID, Entry> map = new ConcurrentHashMap<>();
 		private final long expirationTimeNanos;
+		/** Shared by all players who are not muted */
+		private final Value notMuted = new Value(null);
 		private ScheduledTask purgeTask;
 
-		private Cache(ConcurrentHashMap<MuteCacheKey, Entry> map, Duration expirationTime) {
-			this.map = map;
+		private Cache(Duration expirationTime) {
 			this.expirationTimeNanos = expirationTime.toNanos();
 		}
 
+		private Value valueOf(@Nullable MuteAndMessage muteAndMessage) {
+			if (muteAndMessage == null) {
+				return notMuted;
+			}
+			return new Value(muteAndMessage);
+		}
+
+		/**
+		 * Reads the current value of an entry, starting a refresh if it is old
+		 *
+		 * @param uuid the player's uuid
+		 * @param entry the entry
+		 * @return the current value
+		 */
+		private Value read(UUID uuid, Entry entry) {
+			if (nanoTime() - entry.lastUpdated >= expirationTimeNanos
+					&& entry.refreshing.compareAndSet(false, true)) {
+				refresh(uuid, entry);
+			}
+			return entry.value.get();
+		}
+
+		/**
+		 * Refreshes an entry. The caller must have set the entry's refreshing flag
+		 *
+		 * @param uuid the player's uuid
+		 * @param entry the entry
+		 * @return a future completed when the entry is refreshed
+		 */
+		private CentralisedFuture<?> refresh(UUID uuid, Entry entry) {
+			entry.lastUpdated = nanoTime();
+			return queryPunishmentAndMessage(new MuteCacheKey(uuid, entry.address)).handle((muteAndMessage, ex) -> {
+				if (ex == null) {
+					entry.value.set(valueOf(muteAndMessage));
+				} else {
+					logger.warn("Failed to refresh cached mute. The previous value will continue to be used.", ex);
+				}
+				entry.refreshing.set(false);
+				return null;
+			});
+		}
+
 		private void startPurgeTask() {
 			purgeTask = enhancedExecutor.scheduleRepeating(() -> {
 
-				Collection<CentralisedFuture<Void>> removalFutures = new ArrayList<>(map.size() + 10);
+				// A single platform call, rather than one lookup per entry
+				Set<UUID> onlinePlayers = onlinePlayerIds(envEnforcer).join();
 				long currentTime = nanoTime();
 
-				for (Map.Entry<MuteCacheKey, Entry> mapEntry : map.entrySet()) {
-					MuteCacheKey key = mapEntry.getKey();
-					var thisFuture = envUserResolver.lookupName(key.uuid()).thenAccept((nameIfOnline) -> {
-						if (nameIfOnline.isPresent()) {
-							// The player is online
-							return;
-						}
-						Entry entry = mapEntry.getValue();
-						if (currentTime - entry.lastUpdated <= GRACE_PERIOD_NANOS) {
-							/*
-							Not enough time has passed. This allows a grace period in which cache entries may exist
-							despite the player is not logged in.
-
-							This solves the login process conundrum which occurs when the client is between
-							the login event and join event (AsyncPlayerPreLoginEvent and PlayerJoinEvent on Bukkit).
-							We reasonably assume the time between login event and join event < 4 minutes.
-							 */
-							return;
-						}
-						// The player is offline and the grace period has passed
-						// IMPORTANT: This relies on the exact Entry instance for concurrent correctness
-						map.remove(key, entry);
-					});
-					removalFutures.add(thisFuture);
+				for (Map.Entry<UUID, Entry> mapEntry : map.entrySet()) {
+					UUID uuid = mapEntry.getKey();
+					if (onlinePlayers.contains(uuid)) {
+						continue;
+					}
+					Entry entry = mapEntry.getValue();
+					if (currentTime - entry.lastLogin <= GRACE_PERIOD_NANOS) {
+						/*
+						Not enough time has passed. This allows a grace period in which cache entries may exist
+						despite the player is not logged in.
+
+						This solves the login process conundrum which occurs when the client is between
+						the login event and join event (AsyncPlayerPreLoginEvent and PlayerJoinEvent on Bukkit).
+						We reasonably assume the time between login event and join event < 4 minutes.
+						 */
+						continue;
+					}
+					// The player is offline and the grace period has passed
+					// IMPORTANT: This relies on the exact Entry instance for concurrent correctness
+					map.remove(uuid, entry);
 				}
-				// Wait for all futures to complete
-				futuresFactory.allOf(removalFutures).join();
 
 			}, PURGE_TASK_INTERVAL, DelayCalculators.fixedDelay());
 		}
@@ -305,7 +323,44 @@ public final class AlwaysAvailableMuteCache extends BaseMuteCache {
 		}
 	}
 
-	private record Entry(@Nullable MuteAndMessage currentValue, long lastUpdated,
-						 @Nullable CentralisedFuture<MuteAndMessage> nextValue) { }
+	private static <P> CentralisedFuture<Set<UUID>> onlinePlayerIds(EnvEnforcer<P> envEnforcer) {
+		Set<UUID> onlinePlayers = new HashSet<>();
+		return envEnforcer.doForAllPlayers((players) -> {
+			for (P player : players) {
+				onlinePlayers.add(envEnforcer.getUniqueIdFor(player));
+			}
+		}).thenApply((ignore) -> onlinePlayers);
+	}
+
+	/**
+	 * A player's cached mute
+	 *
+	 */
+	private record Value(@Nullable MuteAndMessage muteAndMessage) {
+
+		@Nullable Component message() {
+			return (muteAndMessage == null) ? null : muteAndMessage.message();
+		}
+	}
+
+	private static final class Entry {
+
+		final NetworkAddress address;
+		/** Compared against on the chat path, which has an InetAddress at hand */
+		final InetAddress inetAddress;
+		final AtomicReference<Value> value;
+		final AtomicBoolean refreshing = new AtomicBoolean();
+		/** When the last refresh was started */
+		volatile long lastUpdated;
+		volatile long lastLogin;
+
+		Entry(NetworkAddress address, Value value, long currentTime) {
+			this.address = address;
+			inetAddress = address.toInetAddress();
+			this.value = new AtomicReference<>(value);
+			lastUpdated = currentTime;
+			lastLogin = currentTime;
+		}
+	}
 
 }
@@ -20,11 +20,13 @@
 package space.arim.libertybans.core.selector.cache;
 
 import net.kyori.adventure.text.Component;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.punish.Punishment;
 import space.arim.libertybans.core.Part;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 
+import java.net.InetAddress;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -34,6 +36,32 @@ public interface MuteCache extends Part {
 
 	CentralisedFuture<Optional<Component>> getCachedMuteMessage(UUID uuid, NetworkAddress address);
 
+	/**
+	 * Reads the cached mute message of a player who is chatting, without waiting. Only implementations
+	 * which always have a cached value available for online players support this.
+	 *
+	 * @param uuid the user's uuid
+	 * @param address the user's address
+	 * @return the mute message, or null if not muted
+	 * @throws IllegalStateException if there is no cached value, such as if the player is offline
+	 * @throws UnsupportedOperationException if this implementation does not always cache values
+	 */
+	default @Nullable Component cachedMuteMessage(UUID uuid, InetAddress address) {
+		throw new UnsupportedOperationException("Mutes are not always cached by " + getClass());
+	}
+
+	/**
+	 * Looks up the mute message for a player who is chatting. Implementations which always have
+	 * a cached value available should return an already completed future.
+	 *
+	 * @param uuid the user's uuid
+	 * @param address the user's address
+	 * @return a future yielding the mute message, or null if not muted
+	 */
+	default CentralisedFuture<@Nullable Component> lookupMuteMessage(UUID uuid, InetAddress address) {
+		return getCachedMuteMessage(uuid, NetworkAddress.of(address)).thenApply((opt) -> opt.orElse(null));
+	}
+
 	/**
 	 * Fills the cache, as needed, upon player login
 	 *
@@ -0,0 +1,257 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.select.SelectionBase;
+import space.arim.libertybans.api.select.SelectionOrder;
+import space.arim.libertybans.api.select.SelectionPredicate;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.ReactionStage;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts of the punishments matching list selections, so that list commands can show the amount
+ * of pages without counting punishments for every page viewed. <br>
+ * <br>
+ * When a punishment is enforced or unenforced, the counts of selections filtered only by type and
+ * scope are adjusted in place. Counts of selections filtered by victim or operator cannot be
+ * checked against the punishment without the database, so they are invalidated instead. However,
+ * active punishments also expire with time, which nothing signals, so counts are only kept briefly.
+ *
+ */
+@Singleton
+public final class PunishmentCountCache {
+
+	private final FactoryOfTheFuture futuresFactory;
+	private final Time time;
+
+	private final Cache<SelectionBase, CachedCount> counts = Caffeine.newBuilder()
+			.expireAfter(new ExpiryFromCount())
+			.maximumSize(1000L)
+			.build();
+	/**
+	 * Incremented upon every change, so that a count which was being queried while
+	 * a punishment was enforced or unenforced is not cached
+	 */
+	private final AtomicLong generation = new AtomicLong();
+
+	private static final long LIFETIME_NANOS = TimeUnit.MINUTES.toNanos(1L);
+
+	@Inject
+	public PunishmentCountCache(FactoryOfTheFuture futuresFactory, Time time) {
+		this.futuresFactory = futuresFactory;
+		this.time = time;
+	}
+
+	/**
+	 * Counts the punishments matching a selection, using a cached count if there is one
+	 *
+	 * @param selection the selection, which should not be limited or offset
+	 * @return a future yielding the count
+	 */
+	public ReactionStage<Integer> count(SelectionBase selection) {
+		CachedCount cached = counts.getIfPresent(selection);
+		if (cached != null) {
+			return futuresFactory.completedFuture(cached.count);
+		}
+		long generationBeforeCounting = generation.get();
+		Instant countStarted = time.currentTimestamp();
+		return selection.countNumberOfPunishments().thenApply((count) -> {
+			if (generation.get() == generationBeforeCounting) {
+				counts.put(selection, new CachedCount(count, countStarted));
+			}
+			return count;
+		});
+	}
+
+	/**
+	 * Adds a newly enforced punishment to the counts which include it
+	 *
+	 * @param punishment the punishment
+	 */
+	public void enforced(Punishment punishment) {
+		generation.incrementAndGet();
+		for (SelectionBase selection : counts.asMap().keySet()) {
+			if (!isAdjustable(selection, punishment)) {
+				continue;
+			}
+			if (selection.selectActiveOnly() && punishment.getType() == PunishmentType.KICK) {
+				// Kicks are never active
+				continue;
+			}
+			counts.asMap().computeIfPresent(selection, (s, cached) -> cached.withEnforced(punishment));
+		}
+	}
+
+	/**
+	 * Removes an unenforced punishment from the counts of active punishments which include it
+	 *
+	 * @param punishment the punishment
+	 */
+	public void unenforced(Punishment punishment) {
+		generation.incrementAndGet();
+		for (SelectionBase selection : counts.asMap().keySet()) {
+			if (!isAdjustable(selection, punishment) || !selection.selectActiveOnly()) {
+				// Unenforced punishments remain in the history
+				continue;
+			}
+			counts.asMap().computeIfPresent(selection, (s, cached) -> cached.withUnenforced(punishment));
+		}
+	}
+
+	private boolean isAdjustable(SelectionBase selection, Punishment punishment) {
+		if (!matches(selection.getTypes(), punishment.getType())) {
+			return false;
+		}
+		if (!isFilteredOnlyByTypeAndScope(selection)) {
+			counts.invalidate(selection);
+			return false;
+		}
+		return matches(selection.getScopes(), punishment.getScope());
+	}
+
+	/**
+	 * Invalidates the counts of selections which may include punishments of the given type. Used
+	 * when the details of the punishment are unknown
+	 *
+	 * @param type the type of punishment which was added or removed
+	 */
+	public void invalidate(PunishmentType type) {
+		generation.incrementAndGet();
+		counts.asMap().keySet().removeIf((selection) -> matches(selection.getTypes(), type));
+	}
+
+	/**
+	 * Invalidates all counts, such as when the type of a removed punishment is unknown
+	 *
+	 */
+	public void invalidateAll() {
+		generation.incrementAndGet();
+		counts.invalidateAll();
+	}
+
+	private static boolean isFilteredOnlyByTypeAndScope(SelectionBase selection) {
+		// Selections by applicability concern a particular user
+		return selection instanceof SelectionOrder order
+				&& matchesAll(order.getVictims()) && matchesAll(order.getVictimTypes())
+				&& matchesAll(order.getOperators()) && matchesAll(order.getEscalationTracks());
+	}
+
+	private static boolean matchesAll(SelectionPredicate<?> predicate) {
+		return predicate.acceptedValues().isEmpty() && predicate.rejectedValues().isEmpty();
+	}
+
+	private static <U> boolean matches(SelectionPredicate<U> predicate, U value) {
+		if (predicate.rejectedValues().contains(value)) {
+			return false;
+		}
+		return predicate.acceptedValues().isEmpty() || predicate.acceptedValues().contains(value);
+	}
+
+	/**
+	 * A count, and the punishments it was since adjusted for. Immutable
+	 *
+	 */
+	private static final class CachedCount {
+
+		final int count;
+		private final Instant countStarted;
+		private final Set<Long> added;
+		private final Set<Long> removed;
+
+		CachedCount(int count, Instant countStarted) {
+			this(count, countStarted, Set.of(), Set.of());
+		}
+
+		private CachedCount(int count, Instant countStarted, Set<Long> added, Set<Long> removed) {
+			this.count = count;
+			this.countStarted = countStarted;
+			this.added = added;
+			this.removed = removed;
+		}
+
+		CachedCount withEnforced(Punishment punishment) {
+			long id = punishment.getIdentifier();
+			// Punishments created before the count are already included, and details may be re-enforced
+			if (punishment.getStartDate().isBefore(countStarted) || added.contains(id)) {
+				return this;
+			}
+			return new CachedCount(count + 1, countStarted, plus(added, id), removed);
+		}
+
+		CachedCount withUnenforced(Punishment punishment) {
+			long id = punishment.getIdentifier();
+			if (removed.contains(id)) {
+				return this;
+			}
+			// Included if it was active when counted, or if it was added since
+			boolean included = added.contains(id) || (punishment.getStartDate().isBefore(countStarted)
+					&& punishment.getEndDate().isAfter(countStarted));
+			if (!included) {
+				return this;
+			}
+			return new CachedCount(count - 1, countStarted, added, plus(removed, id));
+		}
+
+		private static Set<Long> plus(Set<Long> ids, long id) {
+			Set<Long> result = new HashSet<>(ids);
+			result.add(id);
+			return Set.copyOf(result);
+		}
+	}
+
+	/**
+	 * Expires counts a fixed time after they are queried, regardless of later adjustments
+	 *
+	 */
+	private static final class ExpiryFromCount implements Expiry<SelectionBase, CachedCount> {
+
+		@Override
+		public long expireAfterCreate(SelectionBase key, CachedCount value, long currentTime) {
+			return LIFETIME_NANOS;
+		}
+
+		@Override
+		public long expireAfterUpdate(SelectionBase key, CachedCount value,
+									  long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+
+		@Override
+		public long expireAfterRead(SelectionBase key, CachedCount value,
+									long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+
+}
@@ -32,6 +32,7 @@ import space.arim.libertybans.core.database.InternalDatabase;
 
 import static org.jooq.impl.DSL.lower;
 import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
+import static space.arim.libertybans.core.schema.tables.LatestNames.LATEST_NAMES;
 import static space.arim.libertybans.core.schema.tables.Names.NAMES;
 
 class QueryingImpl {
@@ -59,12 +60,10 @@ class QueryingImpl {
 		InternalDatabase database = dbProvider.get();
 		return database.query(SQLFunction.readOnly((context) -> {
 			return context
-					.select(NAMES.NAME)
-					.from(NAMES)
-					.where(NAMES.UUID.eq(uuid))
-					.orderBy(NAMES.UPDATED.desc())
-					.limit(1)
-					.fetchOne(NAMES.NAME);
+					.select(LATEST_NAMES.NAME)
+					.from(LATEST_NAMES)
+					.where(LATEST_NAMES.UUID.eq(uuid))
+					.fetchOne(LATEST_NAMES.NAME);
 		}));
 	}
 
@@ -0,0 +1,13 @@
+-- Number messages so that they can be polled by identifier rather than by time
+-- Messages are only kept for a short while, so the table is recreated rather than altered
+
+DROP TABLE "${tableprefix}messages";
+
+CREATE TABLE "${tableprefix}messages" (
+  "id" BIGINT NOT NULL,
+  "message" ${arbitrarybinarytype} NOT NULL,
+  "time" BIGINT NOT NULL,
+  CONSTRAINT "${tableprefix}message_id_uniqueness" UNIQUE ("id")
+)${extratableoptions};
+
+CREATE INDEX "${tableprefix}messages_time_index" ON "${tableprefix}messages" ("time");
@@ -0,0 +1,9 @@
+-- Records how far an import has progressed, so that a failed import can be resumed
+
+CREATE TABLE "${tableprefix}import_checkpoints" (
+  "source" CHARACTER VARYING(32) NOT NULL,
+  "source_table" CHARACTER VARYING(64) NOT NULL,
+  "last_key" BIGINT NOT NULL,
+  "updated" BIGINT NOT NULL,
+  CONSTRAINT "${tableprefix}import_checkpoint_uniqueness" UNIQUE ("source")
+)${extratableoptions};
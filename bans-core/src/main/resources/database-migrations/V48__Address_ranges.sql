@@ -0,0 +1,16 @@
+-- Bans on whole address ranges, written in CIDR notation
+-- The range start and end use a fixed-length encoding in which IPv4 addresses are mapped into ::ffff:0:0/96,
+-- so that the ranges containing an address can be found with a range comparison
+
+CREATE TABLE "${tableprefix}address_ranges" (
+  "address" ${inettype} NOT NULL,
+  "prefix_length" SMALLINT NOT NULL,
+  "range_start" ${inettype} NOT NULL,
+  "range_end" ${inettype} NOT NULL,
+  "reason" CHARACTER VARYING(256) NOT NULL,
+  "operator" ${uuidtype} NOT NULL,
+  "start" BIGINT NOT NULL,
+  CONSTRAINT "${tableprefix}address_range_uniqueness" UNIQUE ("address", "prefix_length")
+)${extratableoptions};
+
+CREATE INDEX "${tableprefix}address_range_index" ON "${tableprefix}address_ranges" ("range_start", "range_end");
@@ -0,0 +1,6 @@
+-- Indexes for looking up victims by UUID or address
+-- The victim uniqueness constraint leads with the victim type, so it cannot serve these lookups by itself.
+-- They allow the union-based applicability queries to seek each branch instead of scanning all victims.
+
+CREATE INDEX "${tableprefix}victim_uuid_index" ON "${tableprefix}victims" ("uuid");
+CREATE INDEX "${tableprefix}victim_address_index" ON "${tableprefix}victims" ("address");
@@ -0,0 +1,22 @@
+-- Replaces the latest_names view with a table kept up to date whenever a current name is recorded
+-- The view re-derived the most recent name of each player using an exclusive outer join over all names
+
+DROP VIEW "${tableprefix}latest_names";
+
+CREATE TABLE "${tableprefix}latest_names" (
+  "uuid" ${uuidtype} NOT NULL,
+  "name" CHARACTER VARYING(16) NOT NULL,
+  "updated" BIGINT NOT NULL,
+  CONSTRAINT "${tableprefix}latest_name_uniqueness" UNIQUE ("uuid")
+)${extratableoptions};
+
+-- Names recorded at the same time for the same player are tied, so one of them is chosen
+
+INSERT INTO "${tableprefix}latest_names" ("uuid", "name", "updated")
+  SELECT "names1"."uuid", MAX("names1"."name"), "names1"."updated"
+  FROM "${tableprefix}names" "names1"
+  LEFT JOIN "${tableprefix}names" "names2"
+  ON "names1"."uuid" = "names2"."uuid"
+  AND "names1"."updated" < "names2"."updated"
+  WHERE "names2"."uuid" IS NULL
+  GROUP BY "names1"."uuid", "names1"."updated";
@@ -0,0 +1,12 @@
+-- Composite indexes matching the shapes of frequent queries
+-- The single-column indexes they extend are kept, since some vendors rely on them for foreign keys
+
+-- Finding the users of an address, or the addresses of a user, in order of when they were recorded
+CREATE INDEX "${tableprefix}address_updated_index" ON "${tableprefix}addresses" ("address", "updated");
+CREATE INDEX "${tableprefix}uuid_updated_index" ON "${tableprefix}addresses" ("uuid", "updated");
+
+-- Punishment history of a victim, in order of ID
+CREATE INDEX "${tableprefix}history_victim_id_index" ON "${tableprefix}history" ("victim", "id");
+
+-- Paging through punishments by start time, with the ID breaking ties
+CREATE INDEX "${tableprefix}punishment_start_id_index" ON "${tableprefix}punishments" ("start", "id");
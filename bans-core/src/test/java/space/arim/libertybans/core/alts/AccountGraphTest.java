@@ -0,0 +1,167 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.alts;
+
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.api.NetworkAddress;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AccountGraphTest {
+
+	private final AccountGraph.Graph graph = new AccountGraph.Graph();
+	private final Instant time = Instant.parse("2022-05-01T12:00:00Z");
+
+	private static NetworkAddress address(String address) {
+		try {
+			return NetworkAddress.of(InetAddress.getByName(address));
+		} catch (UnknownHostException ex) {
+			throw new AssertionError(ex);
+		}
+	}
+
+	@Test
+	public void findAltsOnSharedAddress() {
+		UUID user = UUID.randomUUID();
+		UUID alt = UUID.randomUUID();
+		UUID unrelated = UUID.randomUUID();
+		NetworkAddress shared = address("198.51.100.1");
+		graph.put(new AccountGraph.Edge(user, shared, time));
+		graph.put(new AccountGraph.Edge(user, address("198.51.100.2"), time));
+		graph.put(new AccountGraph.Edge(alt, shared, time.plusSeconds(1L)));
+		graph.put(new AccountGraph.Edge(unrelated, address("198.51.100.3"), time));
+
+		assertEquals(
+				List.of(new AccountGraph.Edge(alt, shared, time.plusSeconds(1L))),
+				graph.findAlts(user)
+		);
+		assertEquals(
+				List.of(new AccountGraph.Edge(user, shared, time)),
+				graph.findAlts(alt)
+		);
+		assertEquals(List.of(), graph.findAlts(unrelated));
+	}
+
+	@Test
+	public void findAltsOnUnrecordedAddress() {
+		UUID user = UUID.randomUUID();
+		UUID alt = UUID.randomUUID();
+		NetworkAddress previous = address("198.51.100.1");
+		NetworkAddress current = address("198.51.100.2");
+		graph.put(new AccountGraph.Edge(user, previous, time));
+		graph.put(new AccountGraph.Edge(alt, current, time));
+
+		assertEquals(List.of(), graph.findAlts(user));
+		assertEquals(List.of(new AccountGraph.Edge(alt, current, time)), graph.findAlts(user, current));
+		// Not counted twice once recorded
+		graph.put(new AccountGraph.Edge(user, current, time.plusSeconds(1L)));
+		assertEquals(List.of(new AccountGraph.Edge(alt, current, time)), graph.findAlts(user, current));
+	}
+
+	@Test
+	public void findAltsAcrossAddresses() {
+		UUID user = UUID.randomUUID();
+		UUID alt = UUID.randomUUID();
+		NetworkAddress first = address("198.51.100.1");
+		NetworkAddress second = address("2001:db8::1");
+		graph.put(new AccountGraph.Edge(user, first, time));
+		graph.put(new AccountGraph.Edge(user, second, time));
+		graph.put(new AccountGraph.Edge(alt, first, time));
+		graph.put(new AccountGraph.Edge(alt, second, time));
+
+		assertEquals(
+				Set.of(new AccountGraph.Edge(alt, first, time), new AccountGraph.Edge(alt, second, time)),
+				Set.copyOf(graph.findAlts(user))
+		);
+	}
+
+	@Test
+	public void keepLatestUpdate() {
+		UUID user = UUID.randomUUID();
+		UUID alt = UUID.randomUUID();
+		NetworkAddress address = address("198.51.100.1");
+		graph.put(new AccountGraph.Edge(user, address, time));
+		graph.put(new AccountGraph.Edge(alt, address, time.plusSeconds(10L)));
+		graph.put(new AccountGraph.Edge(alt, address, time.plusSeconds(5L)));
+
+		assertEquals(
+				List.of(new AccountGraph.Edge(alt, address, time.plusSeconds(10L))),
+				graph.findAlts(user)
+		);
+		graph.put(new AccountGraph.Edge(alt, address, time.plusSeconds(20L)));
+		assertEquals(
+				List.of(new AccountGraph.Edge(alt, address, time.plusSeconds(20L))),
+				graph.findAlts(user)
+		);
+	}
+
+	@Test
+	public void removeRecordedAccount() {
+		UUID user = UUID.randomUUID();
+		UUID alt = UUID.randomUUID();
+		NetworkAddress first = address("198.51.100.1");
+		NetworkAddress second = address("198.51.100.2");
+		graph.put(new AccountGraph.Edge(user, first, time));
+		graph.put(new AccountGraph.Edge(user, second, time));
+		graph.put(new AccountGraph.Edge(alt, first, time));
+		graph.put(new AccountGraph.Edge(alt, second, time.plusSeconds(1L)));
+
+		graph.remove(alt, time);
+		assertEquals(List.of(new AccountGraph.Edge(alt, second, time.plusSeconds(1L))), graph.findAlts(user));
+		graph.remove(alt, time.plusSeconds(1L));
+		assertEquals(List.of(), graph.findAlts(user));
+	}
+
+	@Test
+	public void removedWhileLoadingNotResurrected() {
+		UUID user = UUID.randomUUID();
+		UUID alt = UUID.randomUUID();
+		NetworkAddress address = address("198.51.100.1");
+
+		graph.remove(alt, time);
+		graph.load(List.of(new AccountGraph.Edge(user, address, time), new AccountGraph.Edge(alt, address, time)));
+		graph.finishLoading();
+		assertTrue(graph.loaded);
+		assertEquals(List.of(), graph.findAlts(user));
+	}
+
+	@Test
+	public void recordedWhileLoadingRetained() {
+		UUID user = UUID.randomUUID();
+		UUID alt = UUID.randomUUID();
+		NetworkAddress address = address("198.51.100.1");
+
+		graph.put(new AccountGraph.Edge(alt, address, time.plusSeconds(30L)));
+		graph.load(List.of(new AccountGraph.Edge(user, address, time), new AccountGraph.Edge(alt, address, time)));
+		graph.finishLoading();
+		assertEquals(
+				List.of(new AccountGraph.Edge(alt, address, time.plusSeconds(30L))),
+				graph.findAlts(user)
+		);
+	}
+}
@@ -73,7 +73,7 @@ public class AccountHistoryFormatterTest {
 		String address = "207.144.101.102";
 		Instant date = Instant.parse("2021-07-23T02:15:23.000000Z");
 
-		AccountHistory accountHistory = new AccountHistory(() -> mock(QueryExecutor.class));
+		AccountHistory accountHistory = new AccountHistory(() -> mock(QueryExecutor.class), mock(AccountGraph.class));
 		KnownAccount knownAccount = accountHistory.newAccount(
 				userId, username, NetworkAddress.of(InetAddress.getByName(address)), date);
 
@@ -0,0 +1,226 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.alts;
+
+import net.kyori.adventure.text.Component;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.MainConfig;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.punish.sync.PacketConnection;
+import space.arim.libertybans.core.punish.sync.SynchronizationMessenger;
+import space.arim.libertybans.core.punish.sync.SynchronizationProtocol;
+import space.arim.libertybans.core.selector.EnforcementConfig;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static space.arim.libertybans.it.util.RandomUtil.randomAddress;
+
+@ExtendWith(MockitoExtension.class)
+public class ConnectionLimiterTest {
+
+	private final ConnectionLimitConfig conf;
+	private final SqlConfig.Synchronization synchronizationConf;
+	private final SqlConfig.AltDetectionIndexing altDetectionIndexConf;
+	private final SynchronizationMessenger messenger;
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final SynchronizationProtocol synchronizationProtocol = new SynchronizationProtocol(futuresFactory);
+	private final Component denialMessage = Component.text("Denied due to limit");
+
+	private ConnectionLimiter limiter;
+	private Instant time = Instant.parse("2022-05-01T12:00:00Z");
+
+	public ConnectionLimiterTest(@Mock ConnectionLimitConfig conf, @Mock SqlConfig.Synchronization synchronizationConf,
+								 @Mock SqlConfig.AltDetectionIndexing altDetectionIndexConf,
+								 @Mock SynchronizationMessenger messenger) {
+		this.conf = conf;
+		this.synchronizationConf = synchronizationConf;
+		this.altDetectionIndexConf = altDetectionIndexConf;
+		this.messenger = messenger;
+	}
+
+	@BeforeEach
+	public void setLimiter(@Mock Configs configs, @Mock MainConfig mainConfig,
+						   @Mock EnforcementConfig enforcementConfig, @Mock SqlConfig sqlConfig) {
+		lenient().when(configs.getMainConfig()).thenReturn(mainConfig);
+		lenient().when(mainConfig.enforcement()).thenReturn(enforcementConfig);
+		lenient().when(enforcementConfig.connectionLimiter()).thenReturn(conf);
+		lenient().when(configs.getSqlConfig()).thenReturn(sqlConfig);
+		lenient().when(sqlConfig.synchronization()).thenReturn(synchronizationConf);
+		lenient().when(sqlConfig.altDetectionIndex()).thenReturn(altDetectionIndexConf);
+		lenient().when(conf.enable()).thenReturn(true);
+		lenient().when(conf.message()).thenReturn(denialMessage);
+		lenient().when(conf.limit()).thenReturn(2);
+		lenient().when(conf.ipv4PrefixLength()).thenReturn(32);
+		lenient().when(conf.ipv6PrefixLength()).thenReturn(128);
+		lenient().when(messenger.dispatch(any())).thenReturn(futuresFactory.completedFuture(null));
+
+		limiter = new ConnectionLimiter(configs, () -> null, mock(Time.class), synchronizationProtocol, () -> messenger);
+	}
+
+	private Component connect(UUID uuid, NetworkAddress address) {
+		Component result = limiter.recordConnection(uuid, address, time);
+		time = time.plus(Duration.ofHours(1L));
+		return result;
+	}
+
+	private static NetworkAddress address(String address) {
+		try {
+			return NetworkAddress.of(InetAddress.getByName(address));
+		} catch (UnknownHostException ex) {
+			throw new AssertionError(ex);
+		}
+	}
+
+	@Test
+	public void exceededLimit() {
+		when(conf.durationSeconds()).thenReturn(Duration.ofHours(4L).toSeconds());
+		NetworkAddress address = randomAddress();
+
+		assertNull(connect(UUID.randomUUID(), address));
+		assertNull(connect(UUID.randomUUID(), address));
+		assertEquals(denialMessage, connect(UUID.randomUUID(), address));
+	}
+
+	@Test
+	public void sufficientTimePassed() {
+		when(conf.durationSeconds()).thenReturn(Duration.ofHours(2L).toSeconds());
+		NetworkAddress address = randomAddress();
+
+		assertNull(connect(UUID.randomUUID(), address));
+		assertNull(connect(UUID.randomUUID(), address));
+		assertNull(connect(UUID.randomUUID(), address));
+		assertNull(connect(UUID.randomUUID(), address));
+	}
+
+	@Test
+	public void samePlayerCountedOnce() {
+		when(conf.durationSeconds()).thenReturn(Duration.ofHours(4L).toSeconds());
+		NetworkAddress address = randomAddress();
+		UUID uuid = UUID.randomUUID();
+
+		assertNull(connect(uuid, address));
+		assertNull(connect(uuid, address));
+		assertNull(connect(uuid, address));
+		assertNull(connect(UUID.randomUUID(), address));
+	}
+
+	@Test
+	public void disabled() {
+		when(conf.enable()).thenReturn(false);
+		NetworkAddress address = randomAddress();
+
+		assertNull(connect(UUID.randomUUID(), address));
+		assertNull(connect(UUID.randomUUID(), address));
+		assertNull(connect(UUID.randomUUID(), address));
+	}
+
+	@Test
+	public void subnetCountedTogether() {
+		when(conf.durationSeconds()).thenReturn(Duration.ofHours(4L).toSeconds());
+		when(conf.ipv4PrefixLength()).thenReturn(24);
+
+		assertNull(connect(UUID.randomUUID(), address("203.0.113.5")));
+		assertNull(connect(UUID.randomUUID(), address("203.0.113.60")));
+		assertNull(connect(UUID.randomUUID(), address("203.0.114.60")));
+		assertEquals(denialMessage, connect(UUID.randomUUID(), address("203.0.113.200")));
+	}
+
+	@Test
+	public void maskAddress() {
+		when(conf.ipv4PrefixLength()).thenReturn(20);
+		when(conf.ipv6PrefixLength()).thenReturn(64);
+
+		assertEquals(address("203.0.112.0"), ConnectionLimiter.maskAddress(address("203.0.119.77"), conf));
+		assertArrayEquals(
+				address("2001:db8:85a3:8d3::").getRawAddress(),
+				ConnectionLimiter.maskAddress(address("2001:db8:85a3:8d3:1319:8a2e:370:7348"), conf).getRawAddress()
+		);
+	}
+
+	@Test
+	public void remoteConnectionsCounted() {
+		when(conf.durationSeconds()).thenReturn(Duration.ofHours(4L).toSeconds());
+		NetworkAddress address = randomAddress();
+
+		limiter.recordRemoteConnection(UUID.randomUUID(), address, time);
+		limiter.recordRemoteConnection(UUID.randomUUID(), address, time);
+		assertEquals(denialMessage, connect(UUID.randomUUID(), address));
+	}
+
+	@Test
+	public void dispatchWhenSynchronized() {
+		when(synchronizationConf.enabled()).thenReturn(true);
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = randomAddress();
+
+		limiter.shareConnection(uuid, address, time);
+		verify(messenger).dispatch(synchronizationProtocol.serializeMessage(new PacketConnection(uuid, address, time)));
+	}
+
+	@Test
+	public void dispatchForAltDetectionIndex() {
+		when(synchronizationConf.enabled()).thenReturn(true);
+		when(conf.enable()).thenReturn(false);
+		when(altDetectionIndexConf.enable()).thenReturn(true);
+
+		limiter.shareConnection(UUID.randomUUID(), randomAddress(), time);
+		verify(messenger).dispatch(any());
+	}
+
+	@Test
+	public void noDispatchWhenUnneeded() {
+		when(synchronizationConf.enabled()).thenReturn(true);
+		when(conf.enable()).thenReturn(false);
+		when(altDetectionIndexConf.enable()).thenReturn(false);
+
+		limiter.shareConnection(UUID.randomUUID(), randomAddress(), time);
+		verify(messenger, never()).dispatch(any());
+	}
+
+	@Test
+	public void noDispatchWhenUnsynchronized() {
+		when(synchronizationConf.enabled()).thenReturn(false);
+
+		limiter.shareConnection(UUID.randomUUID(), randomAddress(), time);
+		verify(messenger, never()).dispatch(any());
+	}
+}
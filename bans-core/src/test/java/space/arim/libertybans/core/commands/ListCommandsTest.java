@@ -28,11 +28,15 @@ import space.arim.libertybans.api.select.PunishmentSelector;
 import space.arim.libertybans.core.commands.extra.TabCompletion;
 import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.env.CmdSender;
+import space.arim.libertybans.core.selector.cache.PunishmentCountCache;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
 
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -53,13 +57,16 @@ public class ListCommandsTest {
 
 	@BeforeEach
 	public void setListCommands(AbstractSubCommandGroup.Dependencies dependencies) {
-		listCommands = new ListCommands(dependencies, selector, formatter, tabCompletion);
+		listCommands = new ListCommands(
+				dependencies, selector, formatter, tabCompletion,
+				new PunishmentCountCache(new IndifferentFactoryOfTheFuture(), mock(Time.class))
+		);
 	}
 
 	@Test
 	public void suggest(@Mock CmdSender sender) {
 		Set<String> playerNames = Set.of("player1", "player2");
-		when(tabCompletion.completeOfflinePlayerNames(sender)).thenReturn(playerNames.stream());
-		assertEquals(playerNames, listCommands.suggest(sender, "history", 0).collect(Collectors.toUnmodifiableSet()));
+		when(tabCompletion.completeOfflinePlayerNames(sender, "")).thenReturn(playerNames.stream());
+		assertEquals(playerNames, listCommands.suggest(sender, "history", 0, "").collect(Collectors.toUnmodifiableSet()));
 	}
 }
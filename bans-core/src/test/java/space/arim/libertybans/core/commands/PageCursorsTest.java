@@ -0,0 +1,85 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.commands;
+
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.api.ConsoleOperator;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.select.SelectionBase;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PageCursorsTest {
+
+	private final PageCursors pageCursors = new PageCursors();
+	private final PageCursors.Listing listing = new PageCursors.Listing(
+			ConsoleOperator.INSTANCE, mock(SelectionBase.class), 10
+	);
+
+	private static Punishment punishment(long startSeconds, long id) {
+		Punishment punishment = mock(Punishment.class);
+		when(punishment.getStartDate()).thenReturn(Instant.ofEpochSecond(startSeconds));
+		when(punishment.getIdentifier()).thenReturn(id);
+		return punishment;
+	}
+
+	@Test
+	public void skipWithoutKnownPages() {
+		assertEquals(new PageCursors.Position(null, 0), pageCursors.position(listing, 1));
+		assertEquals(new PageCursors.Position(null, 40), pageCursors.position(listing, 5));
+	}
+
+	@Test
+	public void seekAfterPreviousPage() {
+		pageCursors.position(listing, 1);
+		pageCursors.recordPage(listing, 1, List.of(punishment(300L, 9L), punishment(200L, 4L)));
+
+		PageCursors.Cursor cursor = new PageCursors.Cursor(Instant.ofEpochSecond(200L), 4L);
+		assertEquals(new PageCursors.Position(cursor, 0), pageCursors.position(listing, 2));
+		assertEquals(new PageCursors.Position(cursor, 20), pageCursors.position(listing, 4));
+	}
+
+	@Test
+	public void seekAfterNearestEarlierPage() {
+		pageCursors.recordPage(listing, 1, List.of(punishment(300L, 9L)));
+		pageCursors.recordPage(listing, 3, List.of(punishment(100L, 2L)));
+
+		PageCursors.Cursor cursor = new PageCursors.Cursor(Instant.ofEpochSecond(100L), 2L);
+		assertEquals(new PageCursors.Position(cursor, 10), pageCursors.position(listing, 5));
+	}
+
+	@Test
+	public void firstPageStartsOver() {
+		pageCursors.recordPage(listing, 1, List.of(punishment(300L, 9L)));
+		pageCursors.position(listing, 1);
+		assertEquals(new PageCursors.Position(null, 10), pageCursors.position(listing, 2));
+	}
+
+	@Test
+	public void emptyPageNotRecorded() {
+		pageCursors.recordPage(listing, 1, List.of());
+		assertEquals(new PageCursors.Position(null, 10), pageCursors.position(listing, 2));
+	}
+}
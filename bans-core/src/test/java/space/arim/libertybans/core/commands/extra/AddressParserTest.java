@@ -21,6 +21,10 @@ package space.arim.libertybans.core.commands.extra;
 
 import org.junit.jupiter.api.Test;
 import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.ranges.AddressRange;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -28,6 +32,7 @@ import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 public class AddressParserTest {
 
@@ -51,4 +56,34 @@ public class AddressParserTest {
 		NetworkAddress address = randomIpv4();
 		assertEquals(address, AddressParser.parseIpv4(ipv4ToString(address)));
 	}
+
+	@Test
+	public void parseIpv4Range() throws UnknownHostException {
+		assertEquals(
+				AddressRange.of(NetworkAddress.of(InetAddress.getByName("192.0.2.0")), 24),
+				AddressParser.parseRange("192.0.2.77/24"));
+	}
+
+	@Test
+	public void parseIpv6Range() throws UnknownHostException {
+		assertEquals(
+				AddressRange.of(NetworkAddress.of(InetAddress.getByName("2001:db8::")), 32),
+				AddressParser.parseRange("2001:db8::/32"));
+	}
+
+	@Test
+	public void parseSingleAddressAsRange() {
+		NetworkAddress address = randomIpv4();
+		assertEquals(AddressRange.of(address, 32), AddressParser.parseRange(ipv4ToString(address)));
+	}
+
+	@Test
+	public void rejectInvalidRanges() {
+		assertNull(AddressParser.parseRange("192.0.2.0/33"));
+		assertNull(AddressParser.parseRange("192.0.2.0/-1"));
+		assertNull(AddressParser.parseRange("192.0.2.0/"));
+		assertNull(AddressParser.parseRange("2001:db8::/129"));
+		assertNull(AddressParser.parseRange("example.com/24"));
+		assertNull(AddressParser.parseRange("A248User"));
+	}
 }
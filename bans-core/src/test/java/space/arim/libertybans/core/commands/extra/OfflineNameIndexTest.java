@@ -0,0 +1,85 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+
+package space.arim.libertybans.core.commands.extra;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OfflineNameIndexTest {
+
+	private final OfflineNameIndex nameIndex = new OfflineNameIndex();
+	private final Instant now = Instant.ofEpochSecond(1628954750);
+
+	@BeforeEach
+	public void enable() {
+		nameIndex.enable();
+	}
+
+	private List<String> complete(String prefix, Instant cutoff, int limit) {
+		return nameIndex.complete(prefix, cutoff, limit).collect(Collectors.toUnmodifiableList());
+	}
+
+	@Test
+	public void completePrefixIgnoringCase() {
+		nameIndex.record("Player2", now);
+		nameIndex.record("Sender", now);
+		nameIndex.record("player1", now);
+		nameIndex.record("Playwright", now);
+		Instant cutoff = now.minusSeconds(1L);
+		assertEquals(List.of("player1", "Player2", "Playwright", "Sender"), complete("", cutoff, 10));
+		assertEquals(List.of("player1", "Player2"), complete("playe", cutoff, 10));
+		assertEquals(List.of("player1"), complete("play", cutoff, 1));
+		assertEquals(List.of(), complete("x", cutoff, 10));
+	}
+
+	@Test
+	public void latestNameCaseWins() {
+		nameIndex.record("PLAYER", now.minusSeconds(5L));
+		nameIndex.record("Player", now);
+		nameIndex.record("player", now.minusSeconds(10L));
+		assertEquals(List.of("Player"), complete("p", now.minusSeconds(20L), 10));
+	}
+
+	@Test
+	public void retention() {
+		nameIndex.record("Old", now.minus(Duration.ofHours(5L)));
+		nameIndex.record("Recent", now);
+		Instant cutoff = now.minus(Duration.ofHours(3L));
+		assertEquals(List.of("Recent"), complete("", cutoff, 10));
+		nameIndex.trim(cutoff);
+		assertEquals(List.of("Recent"), complete("", Instant.EPOCH, 10));
+	}
+
+	@Test
+	public void disabled() {
+		nameIndex.disable();
+		nameIndex.record("Player", now);
+		assertEquals(List.of(), complete("", Instant.EPOCH, 10));
+	}
+
+}
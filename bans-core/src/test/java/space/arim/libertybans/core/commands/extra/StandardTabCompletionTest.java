@@ -57,7 +57,7 @@ public class StandardTabCompletionTest {
 
 	@BeforeEach
 	public void setTabCompletion() {
-		tabCompletion = new StandardTabCompletion(configs, dbProvider, time);
+		tabCompletion = new StandardTabCompletion(configs, dbProvider, time, new OfflineNameIndex());
 	}
 
 	private void setUseOnlyPlayersOnSameServer(boolean useOnlyPlayersOnSameServer) {
@@ -0,0 +1,83 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+
+package space.arim.libertybans.core.database.sql;
+
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.core.database.jooq.JooqContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class IdCacheTest {
+
+	private final IdCache idCache = new IdCache();
+	private DSLContext context;
+
+	@BeforeEach
+	public void setContext() {
+		context = new JooqContext(SQLDialect.HSQLDB, false, null, idCache).createRenderOnlyContext();
+	}
+
+	private DSLContext otherContext() {
+		return new JooqContext(SQLDialect.HSQLDB, false, null, idCache).createRenderOnlyContext();
+	}
+
+	@Test
+	public void attachedToContext() {
+		assertSame(idCache, IdCache.attachedTo(context));
+		assertNull(IdCache.attachedTo(new JooqContext(SQLDialect.HSQLDB).createRenderOnlyContext()));
+	}
+
+	@Test
+	public void cachedOnlyAfterCommit() {
+		idCache.putAfterCommit(context, "key", 3);
+		assertNull(idCache.get(otherContext(), "key"));
+		IdCache.transactionCommitted(context);
+		assertEquals(3, idCache.get(otherContext(), "key"));
+	}
+
+	@Test
+	public void visibleInSameTransaction() {
+		idCache.putAfterCommit(context, "key", 3);
+		assertEquals(3, idCache.get(context, "key"));
+	}
+
+	@Test
+	public void forgottenAfterRollback() {
+		idCache.putAfterCommit(context, "key", 3);
+		IdCache.transactionRolledBack(context);
+		IdCache.transactionCommitted(context);
+		assertNull(idCache.get(otherContext(), "key"));
+	}
+
+	@Test
+	public void clearAttached() {
+		idCache.putAfterCommit(context, "key", 3);
+		IdCache.transactionCommitted(context);
+		IdCache.clearAttached(context);
+		assertNull(idCache.get(otherContext(), "key"));
+	}
+
+}
@@ -0,0 +1,215 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.importing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.junit.jupiter.MockitoExtension;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.scope.ServerScope;
+import space.arim.libertybans.core.scope.InternalScopeManager;
+import space.arim.libertybans.core.scope.ScopeType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(MockitoExtension.class)
+public class ArchiveImportSourceTest {
+
+	@TempDir
+	public Path folder;
+
+	private Path archive;
+	private ServerScope globalScope;
+	private ServerScope lobbyScope;
+	private ArchiveFormat format;
+	private ImportSource importSource;
+
+	@BeforeEach
+	public void setup() {
+		archive = folder.resolve(ArchiveFormat.FILE_NAME);
+		globalScope = mock(ServerScope.class);
+		lobbyScope = mock(ServerScope.class);
+		InternalScopeManager scopeManager = mock(InternalScopeManager.class);
+		mockScope(scopeManager, globalScope, ScopeType.GLOBAL, "");
+		mockScope(scopeManager, lobbyScope, ScopeType.SERVER, "lobby");
+
+		format = new ArchiveFormat(scopeManager);
+		importSource = new ArchiveImportSource(archive, format);
+	}
+
+	private static void mockScope(InternalScopeManager scopeManager, ServerScope scope,
+								  ScopeType type, String value) {
+		lenient().when(scopeManager.deconstruct(eq(scope), any())).thenAnswer(
+				(invocation) -> invocation.<BiFunction<ScopeType, String, ?>>getArgument(1).apply(type, value)
+		);
+		lenient().when(scopeManager.deserialize(type, value)).thenReturn(scope);
+	}
+
+	private void writeArchive(List<PortablePunishment> punishments, List<NameAddressRecord> nameAddressRecords,
+							  boolean finish) throws IOException {
+		try (ArchiveWriter writer = new ArchiveWriter(format, Files.newOutputStream(archive))) {
+			// Interleave entries to check that readers skip unneeded entries
+			int maxSize = Math.max(punishments.size(), nameAddressRecords.size());
+			for (int n = 0; n < maxSize; n++) {
+				if (n < punishments.size()) {
+					writer.writePunishment(punishments.get(n));
+				}
+				if (n < nameAddressRecords.size()) {
+					writer.writeNameAddressRecord(nameAddressRecords.get(n));
+				}
+			}
+			if (finish) {
+				writer.finish();
+			}
+		}
+	}
+
+	private List<PortablePunishment> sourcePunishments() {
+		try (Stream<PortablePunishment> punishments = importSource.sourcePunishments()) {
+			return punishments.toList();
+		}
+	}
+
+	private List<NameAddressRecord> sourceNameAddressHistory() {
+		try (Stream<NameAddressRecord> nameAddressRecords = importSource.sourceNameAddressHistory()) {
+			return nameAddressRecords.toList();
+		}
+	}
+
+	private static NetworkAddress address(int lastByte) {
+		return NetworkAddress.of(new byte[] {(byte) 192, (byte) 168, 0, (byte) lastByte});
+	}
+
+	@Test
+	public void empty() throws IOException {
+		writeArchive(List.of(), List.of(), true);
+		assertEquals(List.of(), sourcePunishments());
+		assertEquals(List.of(), sourceNameAddressHistory());
+	}
+
+	@Test
+	public void punishments() throws IOException {
+		UUID uuid = UUID.randomUUID();
+		UUID operatorUuid = UUID.randomUUID();
+		List<PortablePunishment> punishments = List.of(
+				new PortablePunishment(
+						null,
+						new PortablePunishment.KnownDetails(
+								PunishmentType.BAN, "permanent ban", globalScope,
+								Instant.ofEpochSecond(1_600_000_000L), Instant.MAX),
+						PortablePunishment.VictimInfo.simpleVictim(PlayerVictim.of(uuid)),
+						PortablePunishment.OperatorInfo.createConsole(),
+						true),
+				new PortablePunishment(
+						null,
+						new PortablePunishment.KnownDetails(
+								PunishmentType.MUTE, "temporary mute", lobbyScope,
+								Instant.ofEpochSecond(1_600_000_000L), Instant.ofEpochSecond(1_600_086_400L)),
+						PortablePunishment.VictimInfo.simpleVictim(AddressVictim.of(address(1))),
+						PortablePunishment.OperatorInfo.createUser(operatorUuid, null),
+						false),
+				new PortablePunishment(
+						null,
+						new PortablePunishment.KnownDetails(
+								PunishmentType.WARN, "", globalScope,
+								Instant.ofEpochSecond(1_600_000_000L), Instant.MAX),
+						PortablePunishment.VictimInfo.simpleVictim(CompositeVictim.of(uuid, address(2))),
+						PortablePunishment.OperatorInfo.createUser(null, "Operator"),
+						true),
+				new PortablePunishment(
+						null,
+						new PortablePunishment.KnownDetails(
+								PunishmentType.KICK, "kicked by name", globalScope,
+								Instant.ofEpochSecond(1_600_000_000L), Instant.MAX),
+						new PortablePunishment.VictimInfo(null, "Victim", address(3)),
+						PortablePunishment.OperatorInfo.createUser(operatorUuid, "Operator"),
+						false)
+		);
+		writeArchive(punishments, List.of(
+				new NameAddressRecord(uuid, "Victim", null, Instant.ofEpochSecond(1_600_000_000L))
+		), true);
+		assertEquals(punishments, sourcePunishments());
+	}
+
+	@Test
+	public void nameAddressHistory() throws IOException {
+		UUID uuid = UUID.randomUUID();
+		List<NameAddressRecord> nameAddressRecords = List.of(
+				new NameAddressRecord(uuid, "Victim", null, Instant.ofEpochSecond(1_600_000_000L)),
+				new NameAddressRecord(uuid, null, address(1), Instant.ofEpochSecond(1_600_000_001L)),
+				new NameAddressRecord(UUID.randomUUID(), "Other", address(2), Instant.ofEpochSecond(1_600_000_002L))
+		);
+		writeArchive(List.of(
+				new PortablePunishment(
+						null,
+						new PortablePunishment.KnownDetails(
+								PunishmentType.BAN, "reason", globalScope,
+								Instant.ofEpochSecond(1_600_000_000L), Instant.MAX),
+						PortablePunishment.VictimInfo.simpleVictim(PlayerVictim.of(uuid)),
+						PortablePunishment.OperatorInfo.createConsole(),
+						true)
+		), nameAddressRecords, true);
+		assertEquals(nameAddressRecords, sourceNameAddressHistory());
+	}
+
+	@Test
+	public void truncatedArchive() throws IOException {
+		UUID uuid = UUID.randomUUID();
+		writeArchive(List.of(), List.of(
+				new NameAddressRecord(uuid, "Victim", null, Instant.ofEpochSecond(1_600_000_000L))
+		), false);
+		assertThrows(ImportException.class, this::sourceNameAddressHistory);
+	}
+
+	@Test
+	public void notAnArchive() throws IOException {
+		try (OutputStream output = Files.newOutputStream(archive)) {
+			output.write(new byte[] {1, 2, 3, 4});
+		}
+		assertThrows(ImportException.class, this::sourcePunishments);
+	}
+
+	@Test
+	public void missingArchive() {
+		assertThrows(ImportException.class, this::sourcePunishments);
+	}
+
+}
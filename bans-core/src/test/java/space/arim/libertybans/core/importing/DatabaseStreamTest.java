@@ -27,6 +27,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -89,6 +90,36 @@ public class DatabaseStreamTest {
 		}).collect(Collectors.toUnmodifiableSet());
 	}
 
+	private KeysetRowMapper<Row> keysetRowMapper() {
+		return new KeysetRowMapper<>() {
+
+			@Override
+			public String tableName() {
+				return "test_rows";
+			}
+
+			@Override
+			public String selectStatement() {
+				return "SELECT * FROM test_rows WHERE tally > ? ORDER BY tally ASC";
+			}
+
+			@Override
+			public long keyOf(ResultSet resultSet) throws SQLException {
+				return resultSet.getInt("tally");
+			}
+
+			@Override
+			public Optional<Row> mapRow(ResultSet resultSet) throws SQLException {
+				return Optional.of(new Row(
+						resultSet.getInt("tally"), resultSet.getString("textual"), resultSet.getBoolean("flag")));
+			}
+		};
+	}
+
+	private List<Positioned<Row>> sourcePages(long afterKey) {
+		return databaseStream.streamPages(keysetRowMapper(), afterKey).toList();
+	}
+
 	@Test
 	public void empty() {
 		assertEquals(Set.of(), sourceRows());
@@ -136,6 +167,31 @@ public class DatabaseStreamTest {
 		assertEquals(expectedRows, sourceRows());
 	}
 
+	@Test
+	public void fetchPagesInKeyOrder() {
+		Row first = new Row(-1, "some text", true);
+		Row second = new Row(14, "", true);
+		Row third = new Row(15, "bigger string values", false);
+		insertAllData(Set.of(third, first, second));
+		assertEquals(List.of(
+				new Positioned<>(first, new ImportCheckpoint("test_rows", -1L)),
+				new Positioned<>(second, new ImportCheckpoint("test_rows", 14L)),
+				new Positioned<>(third, new ImportCheckpoint("test_rows", 15L))
+		), sourcePages(Long.MIN_VALUE));
+	}
+
+	@Test
+	public void fetchPagesAfterKey() {
+		Row first = new Row(-1, "some text", true);
+		Row second = new Row(14, "", true);
+		Row third = new Row(15, "bigger string values", false);
+		Row fourth = new Row(50, "rows may be ordered any which way", true);
+		insertAllData(Set.of(first, second, third, fourth));
+		assertEquals(
+				List.of(third, fourth),
+				sourcePages(14L).stream().map(Positioned::value).toList());
+	}
+
 	private static class Row {
 		private final int tally;
 		private final String text;
@@ -0,0 +1,75 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+
+package space.arim.libertybans.core.importing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PipelinedReaderTest {
+
+	@Test
+	public void readInChunks() {
+		AtomicBoolean closed = new AtomicBoolean();
+		try (PipelinedReader<Integer> reader = new PipelinedReader<>(
+				() -> IntStream.range(0, 5).boxed().onClose(() -> closed.set(true)), 2)) {
+			assertEquals(List.of(0, 1), reader.nextChunk());
+			assertEquals(List.of(2, 3), reader.nextChunk());
+			assertEquals(List.of(4), reader.nextChunk());
+			assertEquals(List.of(), reader.nextChunk());
+			assertEquals(List.of(), reader.nextChunk());
+		}
+		assertTrue(closed.get());
+	}
+
+	@Test
+	public void rethrowReadFailure() {
+		ImportException failure = new ImportException("failure");
+		try (PipelinedReader<Integer> reader = new PipelinedReader<>(
+				() -> Stream.of(1, 2, 3).peek((element) -> {
+					if (element == 3) {
+						throw failure;
+					}
+				}), 2)) {
+			assertEquals(List.of(1, 2), reader.nextChunk());
+			assertSame(failure, assertThrows(ImportException.class, reader::nextChunk));
+		}
+	}
+
+	@Test
+	public void closeBeforeExhausted() {
+		AtomicBoolean closed = new AtomicBoolean();
+		try (PipelinedReader<Integer> reader = new PipelinedReader<>(
+				() -> IntStream.range(0, 1000).boxed().onClose(() -> closed.set(true)), 1)) {
+			assertEquals(List.of(0), reader.nextChunk());
+		}
+		assertTrue(closed.get());
+	}
+
+}
@@ -107,4 +107,15 @@ public class IntelligentGuardianTest {
 		assertEquals(denyMessage, guardian.checkChat(uuid, address, "msg Player1 hi").join(),
 				"ibid");
 	}
+
+	@Test
+	public void checkChatNowIsMuted() {
+		Component denyMessage = Component.text("You are forbidden to chat");
+		when(muteCache.cachedMuteMessage(uuid, address.toInetAddress())).thenReturn(denyMessage);
+
+		assertEquals(denyMessage, guardian.checkChatNow(uuid, address.toInetAddress(), null));
+		assertNull(guardian.checkChatNow(uuid, address.toInetAddress(), "help"),
+				"The /help command is not blocked from muted players");
+		assertEquals(denyMessage, guardian.checkChatNow(uuid, address.toInetAddress(), "msg Player1 hi"));
+	}
 }
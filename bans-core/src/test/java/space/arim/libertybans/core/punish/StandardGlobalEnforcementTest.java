@@ -29,11 +29,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.punish.EnforcementOptions;
 import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.alts.AccountGraph;
 import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.config.SqlConfig;
 import space.arim.libertybans.core.punish.sync.MessageReceiver;
 import space.arim.libertybans.core.punish.sync.SynchronizationMessenger;
 import space.arim.libertybans.core.punish.sync.SynchronizationProtocol;
+import space.arim.libertybans.core.selector.cache.ActivePunishmentIndex;
+import space.arim.libertybans.core.selector.cache.PunishmentCountCache;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
@@ -87,7 +90,8 @@ public class StandardGlobalEnforcementTest {
 		globalEnforcement = new StandardGlobalEnforcement(
 				configs, futuresFactory, enforcer,
 				synchronizationProtocol, () -> synchronizationMessenger, mock(MessageReceiver.class),
-				time
+				new ActivePunishmentIndex(configs, () -> null, mock(AccountGraph.class)),
+				new PunishmentCountCache(futuresFactory, time), time
 		);
 	}
 
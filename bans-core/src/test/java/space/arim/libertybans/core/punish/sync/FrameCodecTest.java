@@ -0,0 +1,118 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish.sync;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FrameCodecTest {
+
+	private final FrameCodec codec = new FrameCodec("secret");
+	private final byte[] challenge = codec.newChallenge();
+
+	private static ByteBuffer concat(ByteBuffer...frames) {
+		int length = 0;
+		for (ByteBuffer frame : frames) {
+			length += frame.remaining();
+		}
+		ByteBuffer stream = ByteBuffer.allocate(length);
+		for (ByteBuffer frame : frames) {
+			stream.put(frame);
+		}
+		return stream.flip();
+	}
+
+	@Test
+	public void decodeMultipleFrames() throws IOException {
+		byte[] first = {1, 2, 3};
+		byte[] second = {};
+		FrameCodec.Encoder encoder = codec.newEncoder(challenge);
+		List<byte[]> payloads = codec.newDecoder(challenge).decode(concat(encoder.encode(first), encoder.encode(second)));
+		assertEquals(2, payloads.size());
+		assertArrayEquals(first, payloads.get(0));
+		assertArrayEquals(second, payloads.get(1));
+	}
+
+	@Test
+	public void decodeByteByByte() throws IOException {
+		byte[] payload = {4, 5, 6, 7, 8};
+		ByteBuffer frame = codec.newEncoder(challenge).encode(payload);
+		FrameCodec.Decoder decoder = codec.newDecoder(challenge);
+		List<byte[]> payloads = new ArrayList<>();
+		while (frame.hasRemaining()) {
+			payloads.addAll(decoder.decode(ByteBuffer.wrap(new byte[] {frame.get()})));
+		}
+		assertEquals(1, payloads.size());
+		assertArrayEquals(payload, payloads.get(0));
+	}
+
+	@Test
+	public void rejectDifferentSecret() {
+		ByteBuffer frame = new FrameCodec("other secret").newEncoder(challenge).encode(new byte[] {9});
+		assertThrows(IOException.class, () -> codec.newDecoder(challenge).decode(frame));
+	}
+
+	@Test
+	public void rejectTamperedPayload() {
+		ByteBuffer frame = codec.newEncoder(challenge).encode(new byte[] {10, 11});
+		frame.put(Integer.BYTES + Long.BYTES, (byte) 12);
+		assertThrows(IOException.class, () -> codec.newDecoder(challenge).decode(frame));
+	}
+
+	@Test
+	public void rejectOversizedFrame() {
+		ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Long.BYTES)
+				.putInt(FrameCodec.MAX_PAYLOAD_LENGTH + 1).putLong(1L).flip();
+		assertThrows(IOException.class, () -> codec.newDecoder(challenge).decode(header));
+	}
+
+	@Test
+	public void rejectReplayedFrame() throws IOException {
+		ByteBuffer frame = codec.newEncoder(challenge).encode(new byte[] {13});
+		FrameCodec.Decoder decoder = codec.newDecoder(challenge);
+		assertEquals(1, decoder.decode(frame.duplicate()).size());
+		assertThrows(IOException.class, () -> decoder.decode(frame.duplicate()));
+	}
+
+	@Test
+	public void rejectFrameFromOtherConnection() {
+		ByteBuffer frame = codec.newEncoder(codec.newChallenge()).encode(new byte[] {14});
+		assertThrows(IOException.class, () -> codec.newDecoder(challenge).decode(frame));
+	}
+
+	@Test
+	public void parseAddress() {
+		var address = TCPSynchronizationMessenger.parseAddress("[::1]:38720");
+		assertEquals("::1", address.getHostString());
+		assertEquals(38720, address.getPort());
+		assertTrue(address.isUnresolved());
+		assertThrows(IllegalArgumentException.class, () -> TCPSynchronizationMessenger.parseAddress("localhost"));
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish.sync;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PostgresSynchronizationMessengerTest {
+
+	@Test
+	public void encodeDecodePayload() {
+		byte[] message = {0, 1, 2, -1, -128, 127};
+		String payload = PostgresSynchronizationMessenger.encodePayload(message);
+		assertArrayEquals(message, PostgresSynchronizationMessenger.decodePayload(payload));
+	}
+
+	@Test
+	public void oversizedPayloadIsEmpty() {
+		byte[] message = new byte[PostgresSynchronizationMessenger.MAX_PAYLOAD_LENGTH];
+		assertEquals("", PostgresSynchronizationMessenger.encodePayload(message));
+	}
+
+	@Test
+	public void excludePushedMessages() {
+		PushedMessages pushedMessages = new PushedMessages();
+		byte[] pushed = {1, 2};
+		byte[] notPushed = {3, 4};
+		pushedMessages.record(pushed);
+		byte[][] remaining = pushedMessages.exclude(new byte[][] {pushed.clone(), notPushed, pushed.clone()});
+		assertEquals(2, remaining.length);
+		assertArrayEquals(notPushed, remaining[0]);
+		assertArrayEquals(pushed, remaining[1]);
+	}
+
+}
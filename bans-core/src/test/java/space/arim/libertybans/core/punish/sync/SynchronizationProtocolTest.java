@@ -30,13 +30,16 @@ import space.arim.libertybans.api.PlayerOperator;
 import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.punish.EnforcementOptions;
 import space.arim.libertybans.core.punish.Mode;
+import space.arim.libertybans.core.ranges.AddressRange;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
 
+import java.time.Instant;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static space.arim.libertybans.it.util.RandomUtil.randomAddress;
 
 @ExtendWith(MockitoExtension.class)
 public class SynchronizationProtocolTest {
@@ -92,6 +95,18 @@ public class SynchronizationProtocolTest {
 		communicateMessageSuccessfully(new PacketUpdateDetails(id));
 	}
 
+	@Test
+	public void connection() {
+		communicateMessageSuccessfully(new PacketConnection(
+				UUID.randomUUID(), randomAddress(), Instant.ofEpochSecond(1651406400L)
+		));
+	}
+
+	@Test
+	public void addressRange() {
+		communicateMessageSuccessfully(new PacketAddressRange(AddressRange.of(randomAddress(), 20)));
+	}
+
 	private void communicateMessageSuccessfully(SynchronizationPacket message) {
 		byte[] serializedMessage = synchronizationProtocol.serializeMessage(message);
 
@@ -0,0 +1,85 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.ranges;
+
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.api.ConsoleOperator;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static space.arim.libertybans.core.ranges.AddressRangeTest.address;
+
+public class AddressRangeIndexTest {
+
+	private final AddressRangeIndex index = new AddressRangeIndex();
+
+	private static AddressRangeBan ban(String address, int prefixLength) {
+		return new AddressRangeBan(
+				AddressRange.of(address(address), prefixLength), "reason", ConsoleOperator.INSTANCE, Instant.EPOCH
+		);
+	}
+
+	@Test
+	public void findNarrowestRange() {
+		AddressRangeBan wide = ban("10.0.0.0", 8);
+		AddressRangeBan narrow = ban("10.20.0.0", 16);
+		index.load(List.of(wide, narrow));
+		assertTrue(index.isLoaded());
+
+		assertEquals(narrow, index.find(address("10.20.30.40")));
+		assertEquals(wide, index.find(address("10.21.30.40")));
+		assertNull(index.find(address("11.20.30.40")));
+	}
+
+	@Test
+	public void separateFamilies() {
+		AddressRangeBan everyIpv6 = ban("::", 0);
+		index.load(List.of(everyIpv6));
+
+		assertEquals(everyIpv6, index.find(address("2001:db8::1")));
+		assertNull(index.find(address("192.0.2.1")));
+	}
+
+	@Test
+	public void addAndRemove() {
+		index.load(List.of());
+		AddressRangeBan ban = ban("2001:db8::", 32);
+		index.add(ban);
+		assertEquals(ban, index.find(address("2001:db8::1")));
+
+		index.remove(ban.range());
+		assertNull(index.find(address("2001:db8::1")));
+	}
+
+	@Test
+	public void removedWhileLoading() {
+		AddressRangeBan ban = ban("192.0.2.0", 24);
+		index.remove(ban.range());
+		assertFalse(index.isLoaded());
+		index.load(List.of(ban));
+
+		assertNull(index.find(address("192.0.2.1")));
+	}
+}
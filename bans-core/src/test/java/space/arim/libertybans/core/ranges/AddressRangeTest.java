@@ -0,0 +1,97 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.ranges;
+
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.api.NetworkAddress;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AddressRangeTest {
+
+	static NetworkAddress address(String address) {
+		try {
+			return NetworkAddress.of(InetAddress.getByName(address));
+		} catch (UnknownHostException ex) {
+			throw new AssertionError(ex);
+		}
+	}
+
+	@Test
+	public void masksHostBits() {
+		AddressRange range = AddressRange.of(address("203.0.119.77"), 20);
+		assertEquals(address("203.0.112.0"), range.address());
+		assertEquals("203.0.112.0/20", range.toString());
+	}
+
+	@Test
+	public void containsIpv4() {
+		AddressRange range = AddressRange.of(address("203.0.112.0"), 20);
+		assertTrue(range.contains(address("203.0.112.0")));
+		assertTrue(range.contains(address("203.0.127.255")));
+		assertFalse(range.contains(address("203.0.128.0")));
+		assertFalse(range.contains(address("203.0.111.255")));
+	}
+
+	@Test
+	public void containsIpv6() {
+		AddressRange range = AddressRange.of(address("2001:db8::"), 32);
+		assertTrue(range.contains(address("2001:db8:85a3::8a2e:370:7348")));
+		assertFalse(range.contains(address("2001:db9::1")));
+	}
+
+	@Test
+	public void familiesDoNotOverlap() {
+		assertFalse(AddressRange.of(address("::"), 0).contains(address("192.0.2.1")));
+		assertFalse(AddressRange.of(address("0.0.0.0"), 0).contains(address("2001:db8::1")));
+	}
+
+	@Test
+	public void encodedBoundsIpv4() {
+		AddressRange range = AddressRange.of(address("192.0.2.0"), 24);
+		assertArrayEquals(
+				new byte[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 192, 0, 2, 0},
+				range.encodedStart());
+		assertArrayEquals(
+				new byte[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 192, 0, 2, (byte) 0xFF},
+				range.encodedEnd());
+		assertArrayEquals(range.encodedStart(), AddressRange.encode(address("192.0.2.0")));
+	}
+
+	@Test
+	public void encodedBoundsIpv6() {
+		AddressRange range = AddressRange.of(address("2001:db8::"), 32);
+		assertArrayEquals(address("2001:db8::").getRawAddress(), range.encodedStart());
+		assertArrayEquals(address("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff").getRawAddress(), range.encodedEnd());
+	}
+
+	@Test
+	public void rejectPrefixOutOfBounds() {
+		assertThrows(IllegalArgumentException.class, () -> AddressRange.of(address("192.0.2.0"), 33));
+		assertThrows(IllegalArgumentException.class, () -> AddressRange.of(address("2001:db8::"), -1));
+	}
+}
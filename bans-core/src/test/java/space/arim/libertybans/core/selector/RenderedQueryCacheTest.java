@@ -0,0 +1,92 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector;
+
+import org.jooq.DSLContext;
+import org.jooq.ResultQuery;
+import org.jooq.SQLDialect;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.select.AddressStrictness;
+import space.arim.libertybans.api.select.SortPunishments;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.database.jooq.JooqContext;
+import space.arim.libertybans.core.punish.PunishmentCreator;
+import space.arim.libertybans.core.scope.InternalScopeManager;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class RenderedQueryCacheTest {
+
+	private SelectionResources selectionResources;
+	private final DSLContext context = new JooqContext(SQLDialect.HSQLDB).createRenderOnlyContext();
+
+	@BeforeEach
+	public void setSelectionResources() {
+		selectionResources = new SelectionResources(
+				new IndifferentFactoryOfTheFuture(), () -> mock(QueryExecutor.class),
+				mock(InternalScopeManager.class), mock(PunishmentCreator.class), mock(Time.class),
+				new RenderedQueryCache()
+		);
+	}
+
+	private SelectionByApplicabilityImpl selection(AddressStrictness strictness, String address) throws Exception {
+		return new SelectionByApplicabilityBuilderImpl(
+				selectionResources, UUID.randomUUID(), NetworkAddress.of(InetAddress.getByName(address)), strictness
+		).type(PunishmentType.BAN).build();
+	}
+
+	private SelectionBaseSQL.Query<?> requestQuery(SelectionBaseSQL selection, Instant currentTime) {
+		return selection.requestQuery(new SelectionBaseSQL.QueryParameters(
+				context, 1, () -> currentTime, SortPunishments.LATEST_END_DATE_FIRST
+		));
+	}
+
+	@ParameterizedTest
+	@EnumSource(AddressStrictness.class)
+	public void templateReproducesQuery(AddressStrictness strictness) throws Exception {
+		SelectionByApplicabilityImpl prototype = selection(strictness, "127.0.0.2");
+		Instant prototypeTime = Instant.ofEpochSecond(1_600_000_000L);
+		Optional<RenderedQueryCache.Template> template = RenderedQueryCache.createTemplate(
+				requestQuery(prototype, prototypeTime), context, prototype.varyingBindValues(context.family(), prototypeTime)
+		);
+		assertTrue(template.isPresent(), "Template should be cacheable");
+
+		SelectionByApplicabilityImpl selection = selection(strictness, "127.0.0.3");
+		Instant currentTime = Instant.ofEpochSecond(1_700_000_000L);
+		SelectionBaseSQL.Query<?> query = requestQuery(selection, currentTime);
+		ResultQuery<?> bound = template.get().bind(context, selection.varyingBindValues(context.family(), currentTime));
+		assertEquals(query.renderSQL(), bound.getSQL());
+		assertEquals(query.select().getBindValues(), bound.getBindValues());
+	}
+
+}
@@ -21,6 +21,7 @@ package space.arim.libertybans.core.selector;
 
 import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
@@ -39,23 +40,27 @@ import java.net.InetAddress;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 
 @ExtendWith(MockitoExtension.class)
 public class SelectionBaseSQLTest {
 
+	private final SelectionResources selectionResources = new SelectionResources(
+			new IndifferentFactoryOfTheFuture(), () -> mock(QueryExecutor.class),
+			mock(InternalScopeManager.class), mock(PunishmentCreator.class), mock(Time.class),
+			new RenderedQueryCache()
+	);
+	private final UUID uuid = UUID.randomUUID();
+	private final NetworkAddress address = NetworkAddress.of(InetAddress.getLoopbackAddress());
+	private final DSLContext context = new JooqContext(SQLDialect.HSQLDB).createRenderOnlyContext();
+
 	@ParameterizedTest
 	@EnumSource(AddressStrictness.class)
 	public void optimizedApplicabilityQuery(AddressStrictness strictness) {
-		SelectionResources selectionResources = new SelectionResources(
-				new IndifferentFactoryOfTheFuture(), () -> mock(QueryExecutor.class),
-				mock(InternalScopeManager.class), mock(PunishmentCreator.class), mock(Time.class)
-		);
-		UUID uuid = UUID.randomUUID();
-		NetworkAddress address = NetworkAddress.of(InetAddress.getLoopbackAddress());
-		DSLContext context = new JooqContext(SQLDialect.HSQLDB).createRenderOnlyContext();
-
 		String sql = new SelectionByApplicabilityBuilderImpl(selectionResources, uuid, address, strictness)
+				.strategy(ApplicabilityStrategy.VIEW)
 				.type(PunishmentType.BAN)
 				.build()
 				.renderSingleApplicablePunishmentSQL(context);
@@ -65,6 +70,28 @@ public class SelectionBaseSQLTest {
 		);
 	}
 
+	@Test
+	public void unionAllApplicabilityQuery() {
+		String sql = new SelectionByApplicabilityBuilderImpl(selectionResources, uuid, address, AddressStrictness.NORMAL)
+				.strategy(ApplicabilityStrategy.UNION_ALL)
+				.type(PunishmentType.BAN)
+				.build()
+				.renderSingleApplicablePunishmentSQL(context);
+		assertFalse(sql.contains("libertybans_applicable_bans"), sql);
+		assertTrue(sql.contains("\"libertybans_simple_bans\".\"id\" in ("), sql);
+		assertTrue(sql.contains("union all"), sql);
+		assertTrue(sql.contains("\"by_uuid\".\"victim_uuid\" = cast(? as uuid)"), sql);
+		assertTrue(sql.contains("\"by_address\".\"victim_address\" in (select \"libertybans_addresses\".\"address\""), sql);
+	}
+
+	@Test
+	public void applicabilityStrategyByVendor() {
+		assertEquals(ApplicabilityStrategy.VIEW, ApplicabilityStrategy.forDialect(SQLDialect.POSTGRES));
+		assertEquals(ApplicabilityStrategy.UNION_ALL, ApplicabilityStrategy.forDialect(SQLDialect.MARIADB));
+		assertEquals(ApplicabilityStrategy.UNION_ALL, ApplicabilityStrategy.forDialect(SQLDialect.MYSQL));
+		assertEquals(ApplicabilityStrategy.UNION_ALL, ApplicabilityStrategy.forDialect(SQLDialect.HSQLDB));
+	}
+
 	private String expectedSql(AddressStrictness strictness) {
 		return switch (strictness) {
 			case LENIENT -> """
@@ -0,0 +1,292 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.scope.ServerScope;
+import space.arim.libertybans.api.select.AddressStrictness;
+import space.arim.libertybans.api.select.SelectionOrder;
+import space.arim.libertybans.api.select.SelectionOrderBuilder;
+import space.arim.libertybans.core.alts.AccountGraph;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.selector.InternalSelector;
+import space.arim.libertybans.it.util.RandomUtil;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ActivePunishmentIndexTest {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final SelectionOrder selection;
+	private final ServerScope scope;
+	private final AccountGraph accountGraph;
+
+	private ActivePunishmentIndex index;
+
+	private static final Instant NOW = Instant.ofEpochSecond(1_600_000_000L);
+
+	public ActivePunishmentIndexTest(@Mock SelectionOrder selection, @Mock ServerScope scope,
+									 @Mock AccountGraph accountGraph) {
+		this.selection = selection;
+		this.scope = scope;
+		this.accountGraph = accountGraph;
+	}
+
+	@BeforeEach
+	public void setIndex(@Mock Configs configs, @Mock SqlConfig sqlConfig,
+						 @Mock SqlConfig.ActivePunishmentIndexing indexing, @Mock InternalSelector selector,
+						 @Mock(answer = Answers.RETURNS_SELF) SelectionOrderBuilder selectionBuilder) {
+		when(configs.getSqlConfig()).thenReturn(sqlConfig);
+		when(sqlConfig.activePunishmentIndex()).thenReturn(indexing);
+		when(indexing.enable()).thenReturn(true);
+		when(selector.selectionBuilder()).thenReturn(selectionBuilder);
+		when(selectionBuilder.build()).thenReturn(selection);
+
+		index = new ActivePunishmentIndex(configs, () -> selector, accountGraph);
+	}
+
+	private Punishment punishment(PunishmentType type, Victim victim, Instant end) {
+		Punishment punishment = mock(Punishment.class);
+		lenient().when(punishment.getIdentifier()).thenReturn(ThreadLocalRandom.current().nextLong());
+		lenient().when(punishment.getType()).thenReturn(type);
+		lenient().when(punishment.getVictim()).thenReturn(victim);
+		lenient().when(punishment.getScope()).thenReturn(scope);
+		lenient().when(punishment.getEndDate()).thenReturn(end);
+		return punishment;
+	}
+
+	private Punishment modified(Punishment original, ServerScope newScope) {
+		Punishment punishment = punishment(original.getType(), original.getVictim(), original.getEndDate());
+		lenient().when(punishment.getIdentifier()).thenReturn(original.getIdentifier());
+		lenient().when(punishment.getScope()).thenReturn(newScope);
+		return punishment;
+	}
+
+	private void startWith(Punishment...punishments) {
+		when(selection.getAllSpecificPunishments()).thenReturn(futuresFactory.completedFuture(List.of(punishments)));
+		index.startup();
+	}
+
+	private Punishment findBan(UUID uuid, NetworkAddress address) {
+		return findBan(uuid, address, AddressStrictness.LENIENT);
+	}
+
+	private Punishment findBan(UUID uuid, NetworkAddress address, AddressStrictness strictness) {
+		return index.findApplicable(
+				null, PunishmentType.BAN, uuid, address, strictness, Set.of(scope), NOW
+		);
+	}
+
+	private void linkAccounts(UUID uuid, UUID alt, NetworkAddress sharedAddress, NetworkAddress...altAddresses) {
+		Set<NetworkAddress> allAltAddresses = new HashSet<>(Set.of(altAddresses));
+		allAltAddresses.add(sharedAddress);
+		lenient().when(accountGraph.isLoaded()).thenReturn(true);
+		lenient().when(accountGraph.linkedUsers(uuid)).thenReturn(Set.of(uuid, alt));
+		lenient().when(accountGraph.addressesOf(uuid)).thenReturn(new HashSet<>(Set.of(sharedAddress)));
+		lenient().when(accountGraph.addressesOf(alt)).thenReturn(allAltAddresses);
+	}
+
+	@Test
+	public void cannotAnswerUntilLoaded() {
+		CentralisedFuture<List<Punishment>> loading = futuresFactory.newIncompleteFuture();
+		when(selection.getAllSpecificPunishments()).thenReturn(loading);
+		index.startup();
+		assertFalse(index.canAnswer(AddressStrictness.LENIENT));
+
+		loading.complete(List.of());
+		assertTrue(index.canAnswer(AddressStrictness.LENIENT));
+		assertTrue(index.canAnswer(AddressStrictness.NORMAL));
+		assertFalse(index.canAnswer(AddressStrictness.STERN));
+		assertFalse(index.canAnswer(AddressStrictness.STRICT));
+	}
+
+	@Test
+	public void answerSternAndStrictWithAccountGraph() {
+		when(accountGraph.isLoaded()).thenReturn(true);
+		startWith();
+		assertTrue(index.canAnswer(AddressStrictness.STERN));
+		assertTrue(index.canAnswer(AddressStrictness.STRICT));
+	}
+
+	@Test
+	public void findLoadedBans() {
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = RandomUtil.randomAddress();
+		Punishment userBan = punishment(PunishmentType.BAN, PlayerVictim.of(uuid), Instant.MAX);
+		Punishment addressBan = punishment(PunishmentType.BAN, AddressVictim.of(address), Instant.MAX);
+		startWith(userBan, addressBan);
+
+		assertEquals(userBan, findBan(uuid, RandomUtil.randomAddress()));
+		assertEquals(addressBan, findBan(UUID.randomUUID(), address));
+		assertNull(findBan(UUID.randomUUID(), RandomUtil.randomAddress()));
+	}
+
+	@Test
+	public void findCompositeBan() {
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = RandomUtil.randomAddress();
+		startWith();
+		Punishment compositeBan = punishment(PunishmentType.BAN, CompositeVictim.of(uuid, address), Instant.MAX);
+		index.index(compositeBan);
+
+		assertEquals(compositeBan, findBan(uuid, RandomUtil.randomAddress()));
+		assertEquals(compositeBan, findBan(UUID.randomUUID(), address));
+	}
+
+	@Test
+	public void ignoreOtherTypesScopesAndExpired() {
+		UUID uuid = UUID.randomUUID();
+		startWith();
+		index.index(punishment(PunishmentType.MUTE, PlayerVictim.of(uuid), Instant.MAX));
+		index.index(punishment(PunishmentType.BAN, PlayerVictim.of(uuid), NOW.minusSeconds(1L)));
+		Punishment otherScopeBan = punishment(PunishmentType.BAN, PlayerVictim.of(uuid), Instant.MAX);
+		lenient().when(otherScopeBan.getScope()).thenReturn(mock(ServerScope.class));
+		index.index(otherScopeBan);
+
+		assertNull(findBan(uuid, RandomUtil.randomAddress()));
+	}
+
+	@Test
+	public void preferLatestEndDate() {
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = RandomUtil.randomAddress();
+		Punishment temporaryBan = punishment(PunishmentType.BAN, PlayerVictim.of(uuid), NOW.plusSeconds(60L));
+		Punishment permanentBan = punishment(PunishmentType.BAN, AddressVictim.of(address), Instant.MAX);
+		startWith(temporaryBan, permanentBan);
+
+		assertEquals(permanentBan, findBan(uuid, address));
+	}
+
+	@Test
+	public void findStrictBanOfLinkedAccount() {
+		UUID uuid = UUID.randomUUID();
+		UUID alt = UUID.randomUUID();
+		NetworkAddress sharedAddress = RandomUtil.randomAddress();
+		Punishment altBan = punishment(PunishmentType.BAN, PlayerVictim.of(alt), Instant.MAX);
+		startWith(altBan);
+		linkAccounts(uuid, alt, sharedAddress);
+
+		assertNull(findBan(uuid, sharedAddress, AddressStrictness.NORMAL));
+		assertNull(findBan(uuid, sharedAddress, AddressStrictness.STERN));
+		assertEquals(altBan, findBan(uuid, sharedAddress, AddressStrictness.STRICT));
+	}
+
+	@Test
+	public void findSternBanOfLinkedAddress() {
+		UUID uuid = UUID.randomUUID();
+		UUID alt = UUID.randomUUID();
+		NetworkAddress sharedAddress = RandomUtil.randomAddress();
+		NetworkAddress altAddress = RandomUtil.randomAddress();
+		Punishment addressBan = punishment(PunishmentType.BAN, AddressVictim.of(altAddress), Instant.MAX);
+		startWith(addressBan);
+		linkAccounts(uuid, alt, sharedAddress, altAddress);
+
+		assertNull(findBan(uuid, sharedAddress, AddressStrictness.NORMAL));
+		assertEquals(addressBan, findBan(uuid, sharedAddress, AddressStrictness.STERN));
+		assertEquals(addressBan, findBan(uuid, sharedAddress, AddressStrictness.STRICT));
+	}
+
+	@Test
+	public void removeBan() {
+		UUID uuid = UUID.randomUUID();
+		Punishment ban = punishment(PunishmentType.BAN, PlayerVictim.of(uuid), Instant.MAX);
+		startWith(ban);
+		index.remove(ban.getIdentifier());
+
+		assertNull(findBan(uuid, RandomUtil.randomAddress()));
+	}
+
+	@Test
+	public void removeWhileLoading() {
+		UUID uuid = UUID.randomUUID();
+		Punishment ban = punishment(PunishmentType.BAN, PlayerVictim.of(uuid), Instant.MAX);
+		CentralisedFuture<List<Punishment>> loading = futuresFactory.newIncompleteFuture();
+		when(selection.getAllSpecificPunishments()).thenReturn(loading);
+		index.startup();
+
+		index.remove(ban.getIdentifier());
+		loading.complete(List.of(ban));
+		assertNull(findBan(uuid, RandomUtil.randomAddress()), "Removed ban must not be resurrected");
+	}
+
+	@Test
+	public void updateChangesLoginOutcome() {
+		UUID uuid = UUID.randomUUID();
+		Punishment ban = punishment(PunishmentType.BAN, PlayerVictim.of(uuid), Instant.MAX);
+		startWith(ban);
+		assertEquals(ban, findBan(uuid, RandomUtil.randomAddress()));
+
+		index.update(modified(ban, mock(ServerScope.class)));
+		assertNull(findBan(uuid, RandomUtil.randomAddress()), "Ban moved to another scope must no longer apply");
+	}
+
+	@Test
+	public void updateDoesNotResurrect() {
+		UUID uuid = UUID.randomUUID();
+		Punishment revokedBan = punishment(PunishmentType.BAN, PlayerVictim.of(uuid), Instant.MAX);
+		startWith();
+
+		index.update(revokedBan);
+		assertNull(findBan(uuid, RandomUtil.randomAddress()), "Updating a revoked ban must not index it");
+	}
+
+	@Test
+	public void updateWhileLoading() {
+		UUID uuid = UUID.randomUUID();
+		Punishment ban = punishment(PunishmentType.BAN, PlayerVictim.of(uuid), Instant.MAX);
+		CentralisedFuture<List<Punishment>> loading = futuresFactory.newIncompleteFuture();
+		when(selection.getAllSpecificPunishments()).thenReturn(loading);
+		index.startup();
+
+		index.update(modified(ban, mock(ServerScope.class)));
+		loading.complete(List.of(ban));
+		assertNull(findBan(uuid, RandomUtil.randomAddress()), "Stale details must not be loaded");
+	}
+}
@@ -32,7 +32,7 @@ import space.arim.libertybans.api.punish.Punishment;
 import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.config.SqlConfig;
-import space.arim.libertybans.core.env.EnvUserResolver;
+import space.arim.libertybans.core.env.EnvEnforcer;
 import space.arim.libertybans.core.selector.InternalSelector;
 import space.arim.libertybans.core.service.SettableTime;
 import space.arim.libertybans.core.service.SettableTimeImpl;
@@ -45,14 +45,20 @@ import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -66,7 +72,8 @@ public class AlwaysAvailableMuteCacheTest {
 	private final InternalSelector selector;
 	private final EnhancedExecutor enhancedExecutor;
 	private final List<Runnable> scheduledTasks = new ArrayList<>();
-	private final EnvUserResolver envUserResolver;
+	private final EnvEnforcer<UUID> envEnforcer;
+	private final Set<UUID> onlinePlayers = new HashSet<>();
 	private final InternalFormatter formatter;
 	private final SettableTime time = new SettableTimeImpl(Instant.EPOCH);
 
@@ -80,10 +87,10 @@ public class AlwaysAvailableMuteCacheTest {
 			.plus(Duration.ofSeconds(20L));
 
 	public AlwaysAvailableMuteCacheTest(@Mock InternalSelector selector, @Mock EnhancedExecutor enhancedExecutor,
-										@Mock EnvUserResolver envUserResolver, @Mock InternalFormatter formatter) {
+										@Mock EnvEnforcer<UUID> envEnforcer, @Mock InternalFormatter formatter) {
 		this.selector = selector;
 		this.enhancedExecutor = enhancedExecutor;
-		this.envUserResolver = envUserResolver;
+		this.envEnforcer = envEnforcer;
 		this.formatter = formatter;
 	}
 
@@ -103,12 +110,19 @@ public class AlwaysAvailableMuteCacheTest {
 		});
 
 		muteCache = new AlwaysAvailableMuteCache(
-				configs, futuresFactory, selector, enhancedExecutor, envUserResolver, formatter, time);
+				configs, futuresFactory, selector, enhancedExecutor, envEnforcer, formatter, time);
 		muteCache.startup();
 
 		uuid = UUID.randomUUID();
 		address = RandomUtil.randomAddress();
-		when(envUserResolver.lookupName(uuid)).thenReturn(futuresFactory.completedFuture(Optional.of("Username")));
+		onlinePlayers.add(uuid);
+		// Players are represented by their UUIDs
+		lenient().when(envEnforcer.doForAllPlayers(any())).thenAnswer((invocation) -> {
+			Consumer<Collection<? extends UUID>> action = invocation.getArgument(0);
+			action.accept(List.copyOf(onlinePlayers));
+			return futuresFactory.completedFuture(null);
+		});
+		lenient().when(envEnforcer.getUniqueIdFor(any())).thenAnswer((invocation) -> invocation.getArgument(0));
 	}
 
 	private void assertAvailableCacheResult(@Nullable Component muteMessage) {
@@ -207,6 +221,31 @@ public class AlwaysAvailableMuteCacheTest {
 		assertAvailableCacheResult(null);
 	}
 
+	@Test
+	public void lookupMuteMessageIsCompletedAfterLogin(@Mock Punishment mute) {
+		Component muteMessage = Component.text("You are muted");
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE))
+				.thenReturn(futuresFactory.completedFuture(Optional.of(mute)));
+		when(formatter.getPunishmentMessage(mute)).thenReturn(futuresFactory.completedFuture(muteMessage));
+		muteCache.cacheOnLogin(uuid, address).join();
+
+		CentralisedFuture<Component> lookup = muteCache.lookupMuteMessage(uuid, address.toInetAddress());
+		assertTrue(lookup.isDone());
+		assertEquals(muteMessage, lookup.join());
+	}
+
+	@Test
+	public void cachedMuteMessageAfterLogin(@Mock Punishment mute) {
+		Component muteMessage = Component.text("You are muted");
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE))
+				.thenReturn(futuresFactory.completedFuture(Optional.of(mute)));
+		when(formatter.getPunishmentMessage(mute)).thenReturn(futuresFactory.completedFuture(muteMessage));
+		assertThrows(IllegalStateException.class, () -> muteCache.cachedMuteMessage(uuid, address.toInetAddress()));
+
+		muteCache.cacheOnLogin(uuid, address).join();
+		assertEquals(muteMessage, muteCache.cachedMuteMessage(uuid, address.toInetAddress()));
+	}
+
 	// cacheRequest
 
 	@Test
@@ -391,7 +430,7 @@ public class AlwaysAvailableMuteCacheTest {
 		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE))
 				.thenReturn(databaseQuery);
 
-		when(envUserResolver.lookupName(uuid)).thenReturn(futuresFactory.completedFuture(Optional.empty()));
+		onlinePlayers.remove(uuid);
 		// Player is now logged out, but mute is still cached
 		assertAvailableCacheResult(null);
 
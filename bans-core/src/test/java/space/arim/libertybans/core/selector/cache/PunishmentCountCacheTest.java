@@ -0,0 +1,210 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector.cache;
+
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.api.Operator;
+import space.arim.libertybans.api.PlayerOperator;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.scope.ServerScope;
+import space.arim.libertybans.api.select.SelectionBase;
+import space.arim.libertybans.api.select.SelectionOrder;
+import space.arim.libertybans.api.select.SelectionPredicate;
+import space.arim.libertybans.core.service.SettableTime;
+import space.arim.libertybans.core.service.SettableTimeImpl;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.ReactionStage;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PunishmentCountCacheTest {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final SettableTime time = new SettableTimeImpl(Instant.parse("2022-05-01T12:00:00Z"));
+	private final PunishmentCountCache countCache = new PunishmentCountCache(futuresFactory, time);
+	private final ServerScope globalScope = mock(ServerScope.class);
+	private final ServerScope lobbyScope = mock(ServerScope.class);
+
+	private SelectionOrder selection(SelectionPredicate<PunishmentType> types, boolean activeOnly, int count) {
+		SelectionOrder selection = mock(SelectionOrder.class);
+		lenient().when(selection.getTypes()).thenReturn(types);
+		lenient().when(selection.getVictims()).thenReturn(SelectionPredicate.matchingAll());
+		lenient().when(selection.getVictimTypes()).thenReturn(SelectionPredicate.matchingAll());
+		lenient().when(selection.getOperators()).thenReturn(SelectionPredicate.matchingAll());
+		lenient().when(selection.getEscalationTracks()).thenReturn(SelectionPredicate.matchingAll());
+		lenient().when(selection.getScopes()).thenReturn(SelectionPredicate.matchingAll());
+		lenient().when(selection.selectActiveOnly()).thenReturn(activeOnly);
+		when(selection.countNumberOfPunishments()).thenReturn(futuresFactory.completedFuture(count));
+		return selection;
+	}
+
+	private SelectionOrder activeBans(int count) {
+		return selection(SelectionPredicate.matchingOnly(PunishmentType.BAN), true, count);
+	}
+
+	private Punishment punishment(PunishmentType type, ServerScope scope) {
+		Punishment punishment = mock(Punishment.class);
+		lenient().when(punishment.getIdentifier()).thenReturn(ThreadLocalRandom.current().nextLong());
+		lenient().when(punishment.getType()).thenReturn(type);
+		lenient().when(punishment.getScope()).thenReturn(scope);
+		lenient().when(punishment.getStartDate()).thenReturn(time.currentTimestamp());
+		lenient().when(punishment.getEndDate()).thenReturn(Punishment.PERMANENT_END_DATE);
+		return punishment;
+	}
+
+	private Punishment existingBan() {
+		Punishment punishment = punishment(PunishmentType.BAN, globalScope);
+		lenient().when(punishment.getStartDate()).thenReturn(time.currentTimestamp().minus(Duration.ofDays(1L)));
+		return punishment;
+	}
+
+	private Punishment newBan() {
+		time.advanceBy(Duration.ofSeconds(1L));
+		return punishment(PunishmentType.BAN, globalScope);
+	}
+
+	private int count(SelectionBase selection) {
+		return countCache.count(selection).toCompletableFuture().join();
+	}
+
+	@Test
+	public void reuseCount() {
+		SelectionBase bans = activeBans(12);
+		assertEquals(12, count(bans));
+		assertEquals(12, count(bans));
+		verify(bans, times(1)).countNumberOfPunishments();
+	}
+
+	@Test
+	public void adjustForEnforcedAndUnenforced() {
+		Punishment existingBan = existingBan();
+		SelectionBase bans = activeBans(12);
+		SelectionBase history = selection(SelectionPredicate.matchingAll(), false, 20);
+		count(bans);
+		count(history);
+
+		Punishment ban = newBan();
+		countCache.enforced(ban);
+		assertEquals(13, count(bans));
+		assertEquals(21, count(history));
+
+		countCache.unenforced(ban);
+		countCache.unenforced(existingBan);
+		assertEquals(11, count(bans));
+		assertEquals(21, count(history), "Unenforced punishments remain in the history");
+
+		verify(bans, times(1)).countNumberOfPunishments();
+		verify(history, times(1)).countNumberOfPunishments();
+	}
+
+	@Test
+	public void ignoreOtherTypesAndScopes() {
+		SelectionOrder bans = activeBans(12);
+		SelectionOrder serverBans = activeBans(4);
+		when(serverBans.getScopes()).thenReturn(SelectionPredicate.matchingOnly(lobbyScope));
+		count(bans);
+		count(serverBans);
+
+		time.advanceBy(Duration.ofSeconds(1L));
+		countCache.enforced(punishment(PunishmentType.MUTE, globalScope));
+		countCache.enforced(newBan());
+		assertEquals(13, count(bans));
+		assertEquals(4, count(serverBans));
+	}
+
+	@Test
+	public void countEachPunishmentOnce() {
+		Punishment existingBan = existingBan();
+		SelectionBase bans = activeBans(12);
+		count(bans);
+
+		// Enforced again, such as when its details are updated
+		countCache.enforced(existingBan);
+		Punishment ban = newBan();
+		countCache.enforced(ban);
+		countCache.enforced(ban);
+		assertEquals(13, count(bans));
+		countCache.unenforced(existingBan);
+		countCache.unenforced(existingBan);
+		assertEquals(12, count(bans));
+	}
+
+	@Test
+	public void invalidateWhenFilteredByOperator() {
+		SelectionOrder blame = activeBans(3);
+		Operator operator = PlayerOperator.of(UUID.randomUUID());
+		when(blame.getOperators()).thenReturn(SelectionPredicate.matchingOnly(operator));
+		count(blame);
+
+		countCache.enforced(newBan());
+		count(blame);
+		verify(blame, times(2)).countNumberOfPunishments();
+	}
+
+	@Test
+	public void invalidateMatchingType() {
+		SelectionBase bans = activeBans(12);
+		SelectionBase mutes = selection(SelectionPredicate.matchingOnly(PunishmentType.MUTE), true, 3);
+		count(bans);
+		count(mutes);
+
+		countCache.invalidate(PunishmentType.BAN);
+		count(bans);
+		count(mutes);
+		verify(bans, times(2)).countNumberOfPunishments();
+		verify(mutes, times(1)).countNumberOfPunishments();
+	}
+
+	@Test
+	public void invalidateAll() {
+		SelectionBase warns = selection(SelectionPredicate.matchingOnly(PunishmentType.WARN), true, 5);
+		count(warns);
+		countCache.invalidateAll();
+		count(warns);
+		verify(warns, times(2)).countNumberOfPunishments();
+	}
+
+	@Test
+	public void doNotCacheCountRacingChange() {
+		SelectionOrder bans = activeBans(0);
+		CentralisedFuture<Integer> pendingCount = futuresFactory.newIncompleteFuture();
+		when(bans.countNumberOfPunishments()).thenReturn(pendingCount, futuresFactory.completedFuture(13));
+
+		ReactionStage<Integer> firstCount = countCache.count(bans);
+		countCache.enforced(newBan());
+		pendingCount.complete(12);
+		assertEquals(12, firstCount.toCompletableFuture().join());
+		assertEquals(13, count(bans));
+	}
+
+}
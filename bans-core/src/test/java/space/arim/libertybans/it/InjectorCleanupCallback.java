@@ -41,6 +41,6 @@ final class InjectorCleanupCallback implements AfterEachCallback {
 		// Reset global clock
 		injector.request(SettableTime.class).reset();
 		// Reset synchronization
-		injector.request(SQLSynchronizationMessenger.class).resetLastTimestamp();
+		injector.request(SQLSynchronizationMessenger.class).resetPosition();
 	}
 }
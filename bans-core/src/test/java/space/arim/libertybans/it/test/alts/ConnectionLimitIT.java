@@ -1,6 +1,6 @@
 /*
  * LibertyBans
- * Copyright © 2022 Anand Beh
+ * Copyright © 2023 Anand Beh
  *
  * LibertyBans is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as
@@ -28,23 +28,46 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.punish.PunishmentDrafter;
+import space.arim.libertybans.api.scope.ScopeManager;
+import space.arim.libertybans.api.select.AddressStrictness;
+import space.arim.libertybans.core.alts.AccountGraph;
+import space.arim.libertybans.core.alts.AltDetection;
+import space.arim.libertybans.core.alts.AltNotification;
 import space.arim.libertybans.core.alts.ConnectionLimitConfig;
 import space.arim.libertybans.core.alts.ConnectionLimiter;
+import space.arim.libertybans.core.commands.extra.OfflineNameIndex;
 import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.config.MainConfig;
+import space.arim.libertybans.core.config.SqlConfig;
 import space.arim.libertybans.core.database.execute.QueryExecutor;
-import space.arim.libertybans.core.selector.Guardian;
+import space.arim.libertybans.core.punish.sync.SynchronizationMessenger;
+import space.arim.libertybans.core.punish.sync.SynchronizationProtocol;
+import space.arim.libertybans.core.ranges.AddressRangeBans;
 import space.arim.libertybans.core.selector.EnforcementConfig;
+import space.arim.libertybans.core.selector.Gatekeeper;
+import space.arim.libertybans.core.selector.IDImpl;
+import space.arim.libertybans.core.selector.SelectionResources;
+import space.arim.libertybans.core.selector.SelectorImpl;
+import space.arim.libertybans.core.selector.cache.ActivePunishmentIndex;
+import space.arim.libertybans.core.selector.cache.MuteCache;
 import space.arim.libertybans.core.service.SettableTime;
 import space.arim.libertybans.it.DontInject;
 import space.arim.libertybans.it.InjectionInvocationContextProvider;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
 import java.time.Duration;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
-import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static space.arim.libertybans.it.util.RandomUtil.randomAddress;
@@ -54,41 +77,104 @@ import static space.arim.libertybans.it.util.RandomUtil.randomName;
 @ExtendWith(MockitoExtension.class)
 public class ConnectionLimitIT {
 
+	private final FactoryOfTheFuture futuresFactory;
 	private final Provider<QueryExecutor> queryExecutor;
+	private final InternalFormatter formatter;
+	private final AltDetection altDetection;
+	private final AccountGraph accountGraph;
+	private final AltNotification altNotification;
+	private final ActivePunishmentIndex activePunishmentIndex;
+	private final AddressRangeBans addressRangeBans;
+	private final EnhancedExecutor enhancedExecutor;
+	private final SynchronizationProtocol synchronizationProtocol;
+	private final Provider<SynchronizationMessenger> synchronizationMessenger;
+	private final IDImpl idImpl;
+	private final Provider<MuteCache> muteCache;
+	private final SelectionResources selectionResources;
+	private final ScopeManager scopeManager;
+	private final PunishmentDrafter drafter;
 	private final SettableTime time;
 	private final ConnectionLimitConfig conf;
 
-	private ConnectionLimiter limiter;
+	private Configs configs;
+	private SelectorImpl selector;
 
 	@Inject
-	public ConnectionLimitIT(Provider<QueryExecutor> queryExecutor, SettableTime time,
+	public ConnectionLimitIT(FactoryOfTheFuture futuresFactory, Provider<QueryExecutor> queryExecutor,
+							 InternalFormatter formatter, AltDetection altDetection, AccountGraph accountGraph,
+							 AltNotification altNotification, ActivePunishmentIndex activePunishmentIndex,
+							 AddressRangeBans addressRangeBans, EnhancedExecutor enhancedExecutor,
+							 SynchronizationProtocol synchronizationProtocol,
+							 Provider<SynchronizationMessenger> synchronizationMessenger,
+							 IDImpl idImpl, Provider<MuteCache> muteCache, SelectionResources selectionResources,
+							 ScopeManager scopeManager, PunishmentDrafter drafter, SettableTime time,
 							 @Mock @DontInject ConnectionLimitConfig conf) {
+		this.futuresFactory = futuresFactory;
 		this.queryExecutor = queryExecutor;
+		this.formatter = formatter;
+		this.altDetection = altDetection;
+		this.accountGraph = accountGraph;
+		this.altNotification = altNotification;
+		this.activePunishmentIndex = activePunishmentIndex;
+		this.addressRangeBans = addressRangeBans;
+		this.enhancedExecutor = enhancedExecutor;
+		this.synchronizationProtocol = synchronizationProtocol;
+		this.synchronizationMessenger = synchronizationMessenger;
+		this.idImpl = idImpl;
+		this.muteCache = muteCache;
+		this.selectionResources = selectionResources;
+		this.scopeManager = scopeManager;
+		this.drafter = drafter;
 		this.time = time;
 		this.conf = conf;
 	}
 
 	@BeforeEach
 	public void setupConfiguration() {
-		Configs configs = mock(Configs.class);
+		configs = mock(Configs.class);
 		MainConfig mainConfig = mock(MainConfig.class);
 		EnforcementConfig enforcementConfig = mock(EnforcementConfig.class);
-		when(configs.getMainConfig()).thenReturn(mainConfig);
-		when(mainConfig.enforcement()).thenReturn(enforcementConfig);
-		when(enforcementConfig.connectionLimiter()).thenReturn(conf);
+		SqlConfig sqlConfig = mock(SqlConfig.class);
+		SqlConfig.LoginBatching loginBatching = mock(SqlConfig.LoginBatching.class);
+		SqlConfig.Synchronization synchronization = mock(SqlConfig.Synchronization.class);
+		EnforcementConfig.AltsAutoShow altsAutoShow = mock(EnforcementConfig.AltsAutoShow.class);
+		lenient().when(configs.getMainConfig()).thenReturn(mainConfig);
+		lenient().when(configs.getSqlConfig()).thenReturn(sqlConfig);
+		lenient().when(mainConfig.enforcement()).thenReturn(enforcementConfig);
+		lenient().when(enforcementConfig.connectionLimiter()).thenReturn(conf);
+		lenient().when(enforcementConfig.addressStrictness()).thenReturn(AddressStrictness.NORMAL);
+		lenient().when(enforcementConfig.altsAutoShow()).thenReturn(altsAutoShow);
+		lenient().when(sqlConfig.loginBatching()).thenReturn(loginBatching);
+		lenient().when(sqlConfig.synchronization()).thenReturn(synchronization);
 		when(conf.enable()).thenReturn(true);
+		lenient().when(conf.ipv4PrefixLength()).thenReturn(32);
+		lenient().when(conf.ipv6PrefixLength()).thenReturn(128);
 
-		limiter = new ConnectionLimiter(configs);
+		// Connections are counted in memory, so the limiter is specific to this test
+		useLimiter(newLimiter());
 	}
 
-	private Component exceededLimit(NetworkAddress address) {
-		return queryExecutor.get().query((context) -> {
-			return limiter.hasExceededLimit(context, address, time.currentTimestamp());
-		}).join();
+	private ConnectionLimiter newLimiter() {
+		return new ConnectionLimiter(configs, queryExecutor, time, synchronizationProtocol, synchronizationMessenger);
+	}
+
+	private void useLimiter(ConnectionLimiter limiter) {
+		Gatekeeper gatekeeper = new Gatekeeper(
+				configs, futuresFactory, queryExecutor, formatter, limiter, altDetection, accountGraph,
+				altNotification, activePunishmentIndex, addressRangeBans, new OfflineNameIndex(),
+				enhancedExecutor, time
+		);
+		selector = new SelectorImpl(configs, idImpl, gatekeeper, muteCache, selectionResources);
+	}
+
+	private Component connect(UUID uuid, NetworkAddress address) {
+		return selector.executeAndCheckConnection(
+				uuid, randomName(), address, scopeManager.scopesApplicableToCurrentServer()
+		).join();
 	}
 
 	@TestTemplate
-	public void exceededLimit(Guardian guardian) {
+	public void exceededLimit() {
 		Component denialMessage = Component.text("Denied due to limit");
 		when(conf.message()).thenReturn(denialMessage);
 		when(conf.durationSeconds()).thenReturn(Duration.ofHours(4L).toSeconds());
@@ -96,32 +182,71 @@ public class ConnectionLimitIT {
 
 		NetworkAddress address = randomAddress();
 
-		assumeTrue(null == guardian.executeAndCheckConnection(UUID.randomUUID(), randomName(), address).join());
+		assertNull(connect(UUID.randomUUID(), address));
 		time.advanceBy(Duration.ofHours(1L));
-		assumeTrue(null == guardian.executeAndCheckConnection(UUID.randomUUID(), randomName(), address).join());
+		assertNull(connect(UUID.randomUUID(), address));
 		time.advanceBy(Duration.ofHours(1L));
-		assumeTrue(null == guardian.executeAndCheckConnection(UUID.randomUUID(), randomName(), address).join());
+		assertEquals(denialMessage, connect(UUID.randomUUID(), address));
+	}
+
+	@TestTemplate
+	public void sufficientTimePassed() {
+		when(conf.durationSeconds()).thenReturn(Duration.ofHours(2L).toSeconds());
+		when(conf.limit()).thenReturn(2);
+
+		NetworkAddress address = randomAddress();
+
+		assertNull(connect(UUID.randomUUID(), address));
 		time.advanceBy(Duration.ofHours(1L));
+		assertNull(connect(UUID.randomUUID(), address));
+		time.advanceBy(Duration.ofHours(1L).plusSeconds(1L));
+		assertNull(connect(UUID.randomUUID(), address));
+	}
+
+	@TestTemplate
+	public void bannedLoginCounts() {
+		Component denialMessage = Component.text("Denied due to limit");
+		when(conf.message()).thenReturn(denialMessage);
+		when(conf.durationSeconds()).thenReturn(Duration.ofHours(4L).toSeconds());
+		when(conf.limit()).thenReturn(2);
+
+		UUID bannedUuid = UUID.randomUUID();
+		assertNotNull(drafter.draftBuilder()
+				.type(PunishmentType.BAN)
+				.victim(PlayerVictim.of(bannedUuid))
+				.reason("Banned before joining")
+				.build()
+				.enactPunishment().toCompletableFuture().join().orElse(null));
+		NetworkAddress address = randomAddress();
 
-		assertEquals(denialMessage, exceededLimit(address));
+		Component banMessage = connect(bannedUuid, address);
+		assertNotNull(banMessage);
+		assertNotEquals(denialMessage, banMessage);
+		time.advanceBy(Duration.ofMinutes(1L));
+		assertNull(connect(UUID.randomUUID(), address));
+		time.advanceBy(Duration.ofMinutes(1L));
+		// The banned player's login is counted, as it is on other instances
+		assertEquals(denialMessage, connect(UUID.randomUUID(), address));
 	}
 
 	@TestTemplate
-	public void sufficientTimePassed(Guardian guardian) {
+	public void countConnectionsBeforeRestart() {
 		Component denialMessage = Component.text("Denied due to limit");
 		when(conf.message()).thenReturn(denialMessage);
-		when(conf.durationSeconds()).thenReturn(Duration.ofHours(2L).toSeconds());
+		when(conf.durationSeconds()).thenReturn(Duration.ofHours(4L).toSeconds());
 		when(conf.limit()).thenReturn(2);
 
 		NetworkAddress address = randomAddress();
 
-		assumeTrue(null == guardian.executeAndCheckConnection(UUID.randomUUID(), randomName(), address).join());
-		time.advanceBy(Duration.ofHours(1L));
-		assumeTrue(null == guardian.executeAndCheckConnection(UUID.randomUUID(), randomName(), address).join());
+		assertNull(connect(UUID.randomUUID(), address));
 		time.advanceBy(Duration.ofHours(1L));
-		assumeTrue(null == guardian.executeAndCheckConnection(UUID.randomUUID(), randomName(), address).join());
+		assertNull(connect(UUID.randomUUID(), address));
 		time.advanceBy(Duration.ofHours(1L));
 
-		assertNull(exceededLimit(address));
+		// A fresh limiter, as after a restart, counts the connections recorded in the database
+		ConnectionLimiter limiter = newLimiter();
+		limiter.seedRecentConnections().join();
+		useLimiter(limiter);
+		assertEquals(denialMessage, connect(UUID.randomUUID(), address));
 	}
 }
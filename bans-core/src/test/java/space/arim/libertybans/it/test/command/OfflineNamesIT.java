@@ -26,6 +26,7 @@ import org.junit.jupiter.api.TestTemplate;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import space.arim.libertybans.core.commands.extra.OfflineNameIndex;
 import space.arim.libertybans.core.commands.extra.StandardTabCompletion;
 import space.arim.libertybans.core.commands.extra.TabCompletion;
 import space.arim.libertybans.core.commands.extra.TabCompletionConfig;
@@ -68,7 +69,7 @@ public class OfflineNamesIT {
 
 	@BeforeEach
 	public void setTabCompletion() {
-		tabCompletion = new StandardTabCompletion(configs, dbProvider, time);
+		tabCompletion = new StandardTabCompletion(configs, dbProvider, time, new OfflineNameIndex());
 	}
 
 	private static final long CURRENT_TIME = 1628954750;
@@ -90,6 +91,7 @@ public class OfflineNamesIT {
 		when(config.enable()).thenReturn(true);
 		when(config.retentionMinutes()).thenReturn(Duration.ofHours(3L).toMinutes());
 		when(config.cacheRefreshSeconds()).thenReturn(Duration.ofMinutes(1L).toSeconds());
+		when(config.maxCompletions()).thenReturn(100);
 
 		Instant now = Instant.ofEpochSecond(CURRENT_TIME);
 		dbProvider.get().execute((context) -> {
@@ -106,6 +108,8 @@ public class OfflineNamesIT {
 		tabCompletion.startup();
 
 		assertEquals(Set.of("Sender", "Player1", "Player2"),
-				tabCompletion.completeOfflinePlayerNames(sender).collect(Collectors.toUnmodifiableSet()));
+				tabCompletion.completeOfflinePlayerNames(sender, "").collect(Collectors.toUnmodifiableSet()));
+		assertEquals(Set.of("Player1", "Player2"),
+				tabCompletion.completeOfflinePlayerNames(sender, "play").collect(Collectors.toUnmodifiableSet()));
 	}
 }
@@ -0,0 +1,145 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+
+package space.arim.libertybans.it.test.database;
+
+import jakarta.inject.Inject;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.junit.jupiter.api.TestTemplate;
+import org.junit.jupiter.api.extension.ExtendWith;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.database.Vendor;
+import space.arim.libertybans.core.database.jooq.JooqContext;
+import space.arim.libertybans.core.database.sql.IdBlockAllocator;
+import space.arim.libertybans.core.database.sql.SequenceValue;
+import space.arim.libertybans.it.InjectionInvocationContextProvider;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_MESSAGE_IDS;
+import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_PUNISHMENT_IDS;
+
+@ExtendWith(InjectionInvocationContextProvider.class)
+public class IdBlockAllocatorIT {
+
+	private final InternalDatabase database;
+
+	@Inject
+	public IdBlockAllocatorIT(InternalDatabase database) {
+		this.database = database;
+	}
+
+	private static long nextPunishmentId(DSLContext context) {
+		return context
+				.select(new SequenceValue<>(context, LIBERTYBANS_PUNISHMENT_IDS).nextValue())
+				.fetchSingle()
+				.value1();
+	}
+
+	private static long nextMessageId(DSLContext context) {
+		return context
+				.select(new SequenceValue<>(context, LIBERTYBANS_MESSAGE_IDS).nextValue())
+				.fetchSingle()
+				.value1();
+	}
+
+	@TestTemplate
+	public void allocateFromBlocks() throws SQLException {
+		assumeTrue(database.getVendor() == Vendor.MYSQL);
+
+		JooqContext jooqContext = new JooqContext(SQLDialect.MYSQL);
+		IdBlockAllocator idBlockAllocator = new IdBlockAllocator(jooqContext, database::openUnpooledConnection, 10);
+		JooqContext allocatingContext = new JooqContext(SQLDialect.MYSQL, false, idBlockAllocator, null);
+		try (Connection connection = database.openUnpooledConnection()) {
+			DSLContext context = allocatingContext.createContext(connection);
+			long firstId = nextPunishmentId(context);
+			for (int n = 1; n < 15; n++) {
+				assertEquals(firstId + n, nextPunishmentId(context));
+			}
+			// Two blocks are reserved, so other instances continue after them
+			assertEquals(firstId + 20, nextPunishmentId(jooqContext.createContext(connection)));
+		}
+	}
+
+	@TestTemplate
+	public void messageIdsInterleaveConsecutively() throws SQLException {
+		assumeTrue(database.getVendor() == Vendor.MYSQL);
+
+		JooqContext jooqContext = new JooqContext(SQLDialect.MYSQL);
+		// Two instances sharing the database
+		IdBlockAllocator allocator1 = new IdBlockAllocator(jooqContext, database::openUnpooledConnection, 10);
+		IdBlockAllocator allocator2 = new IdBlockAllocator(jooqContext, database::openUnpooledConnection, 10);
+		try (Connection connection1 = database.openUnpooledConnection();
+			 Connection connection2 = database.openUnpooledConnection()) {
+			connection1.setAutoCommit(true);
+			connection2.setAutoCommit(true);
+			DSLContext context1 = new JooqContext(SQLDialect.MYSQL, false, allocator1, null).createContext(connection1);
+			DSLContext context2 = new JooqContext(SQLDialect.MYSQL, false, allocator2, null).createContext(connection2);
+
+			long firstId = nextMessageId(context1);
+			assertEquals(firstId + 1, nextMessageId(context2));
+			assertEquals(firstId + 2, nextMessageId(context1));
+			assertEquals(firstId + 3, nextMessageId(context2));
+			// Punishment identifiers are still reserved in blocks
+			long punishmentId = nextPunishmentId(context1);
+			assertEquals(punishmentId + 10, nextPunishmentId(context2));
+		}
+	}
+
+	@TestTemplate
+	public void reserveSeveralValues() throws SQLException {
+		JooqContext jooqContext = new JooqContext(database.getVendor().dialect());
+		try (Connection connection = database.openUnpooledConnection()) {
+			DSLContext context = jooqContext.createContext(connection);
+			List<Long> reserved = new SequenceValue<>(context, LIBERTYBANS_PUNISHMENT_IDS).nextValues(5);
+			assertEquals(5, Set.copyOf(reserved).size());
+			long nextId = nextPunishmentId(context);
+			for (long id : reserved) {
+				assertTrue(id < nextId, "Reserved " + reserved + " but next is " + nextId);
+			}
+		}
+	}
+
+	@TestTemplate
+	public void reserveSeveralValuesFromBlocks() throws SQLException {
+		assumeTrue(database.getVendor() == Vendor.MYSQL);
+
+		JooqContext jooqContext = new JooqContext(SQLDialect.MYSQL);
+		IdBlockAllocator idBlockAllocator = new IdBlockAllocator(jooqContext, database::openUnpooledConnection, 10);
+		JooqContext allocatingContext = new JooqContext(SQLDialect.MYSQL, false, idBlockAllocator, null);
+		try (Connection connection = database.openUnpooledConnection()) {
+			DSLContext context = allocatingContext.createContext(connection);
+			long firstId = nextPunishmentId(context);
+			assertEquals(
+					List.of(firstId + 1, firstId + 2, firstId + 3),
+					new SequenceValue<>(context, LIBERTYBANS_PUNISHMENT_IDS).nextValues(3)
+			);
+			assertEquals(firstId + 4, nextPunishmentId(context));
+		}
+	}
+
+}
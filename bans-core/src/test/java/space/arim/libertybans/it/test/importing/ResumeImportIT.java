@@ -0,0 +1,192 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.it.test.importing;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.TestTemplate;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import space.arim.libertybans.api.scope.ScopeManager;
+import space.arim.libertybans.core.alts.AccountGraph;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.importing.ConnectionSource;
+import space.arim.libertybans.core.importing.ImportCheckpoint;
+import space.arim.libertybans.core.importing.ImportConfig;
+import space.arim.libertybans.core.importing.ImportException;
+import space.arim.libertybans.core.importing.ImportExecutor;
+import space.arim.libertybans.core.importing.ImportFunction;
+import space.arim.libertybans.core.importing.ImportStatistics;
+import space.arim.libertybans.core.importing.LocalDatabaseSetup;
+import space.arim.libertybans.core.importing.PluginDatabaseSetup;
+import space.arim.libertybans.core.importing.PortablePunishment;
+import space.arim.libertybans.core.importing.Positioned;
+import space.arim.libertybans.core.importing.ResumableImportSource;
+import space.arim.libertybans.core.punish.PunishmentCreator;
+import space.arim.libertybans.core.service.Time;
+import space.arim.libertybans.core.uuid.ServerType;
+import space.arim.libertybans.it.DontInject;
+import space.arim.libertybans.it.InjectionInvocationContextProvider;
+import space.arim.libertybans.it.PlatformSpecs;
+import space.arim.libertybans.it.SetTime;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static space.arim.libertybans.core.schema.tables.ImportCheckpoints.IMPORT_CHECKPOINTS;
+import static space.arim.libertybans.core.schema.tables.SimpleActive.SIMPLE_ACTIVE;
+import static space.arim.libertybans.core.schema.tables.SimpleHistory.SIMPLE_HISTORY;
+
+@ExtendWith(InjectionInvocationContextProvider.class)
+@ExtendWith(MockitoExtension.class)
+@ExtendWith(LocalDatabaseSetup.class)
+@LocalDatabaseSetup.Hsqldb
+public class ResumeImportIT {
+
+	private final ImportExecutor importExecutor;
+	private final ScopeManager scopeManager;
+	private final InternalDatabase database;
+	private PluginDatabaseSetup pluginDatabaseSetup;
+
+	private static final int BATCH_SIZE = 25;
+
+	@Inject
+	public ResumeImportIT(FactoryOfTheFuture futuresFactory, ImportFunction importFunction,
+						  Provider<InternalDatabase> dbProvider, PunishmentCreator creator,
+						  AccountGraph accountGraph, Time time, ScopeManager scopeManager) {
+		Configs configs = mock(Configs.class);
+		ImportConfig importConfig = mock(ImportConfig.class);
+		when(configs.getImportConfig()).thenReturn(importConfig);
+		when(importConfig.batchSize()).thenReturn(BATCH_SIZE);
+		importExecutor = new ImportExecutor(
+				configs, futuresFactory, importFunction, dbProvider, creator, accountGraph, time
+		);
+		this.scopeManager = scopeManager;
+		database = dbProvider.get();
+	}
+
+	@BeforeEach
+	public void setup(@DontInject ConnectionSource connectionSource) {
+		PluginDatabaseSetup pluginDatabaseSetup = new PluginDatabaseSetup(connectionSource);
+		pluginDatabaseSetup.initAdvancedBanSchema();
+		pluginDatabaseSetup.runSqlFromResource("import-data/advancedban/sample-one-offline.sql");
+		this.pluginDatabaseSetup = pluginDatabaseSetup;
+	}
+
+	private ResumableImportSource createImportSource() {
+		return (ResumableImportSource) pluginDatabaseSetup.createAdvancedBanImportSource(scopeManager);
+	}
+
+	private record ImportedPunishments(List<List<Object>> history, List<List<Object>> active) { }
+
+	private ImportedPunishments importedPunishments() {
+		// Identifiers are excluded, since they depend on how many were reserved
+		Field<?>[] historyFields = {
+				SIMPLE_HISTORY.TYPE, SIMPLE_HISTORY.VICTIM_TYPE, SIMPLE_HISTORY.VICTIM_UUID,
+				SIMPLE_HISTORY.VICTIM_ADDRESS, SIMPLE_HISTORY.OPERATOR, SIMPLE_HISTORY.REASON,
+				SIMPLE_HISTORY.START, SIMPLE_HISTORY.END
+		};
+		Field<?>[] activeFields = {
+				SIMPLE_ACTIVE.TYPE, SIMPLE_ACTIVE.VICTIM_TYPE, SIMPLE_ACTIVE.VICTIM_UUID,
+				SIMPLE_ACTIVE.VICTIM_ADDRESS, SIMPLE_ACTIVE.START
+		};
+		return database.query(SQLFunction.readOnly((context) -> new ImportedPunishments(
+				context.select(historyFields).from(SIMPLE_HISTORY).orderBy(historyFields).fetch(Record::intoList),
+				context.select(activeFields).from(SIMPLE_ACTIVE).orderBy(activeFields).fetch(Record::intoList)
+		))).join();
+	}
+
+	private String checkpointTable() {
+		return database.query(SQLFunction.readOnly((context) -> context
+				.select(IMPORT_CHECKPOINTS.SOURCE_TABLE)
+				.from(IMPORT_CHECKPOINTS)
+				.fetchSingle(IMPORT_CHECKPOINTS.SOURCE_TABLE)
+		)).join();
+	}
+
+	@TestTemplate
+	@SetTime(unixTime = SetTime.DEFAULT_TIME)
+	@PlatformSpecs(serverTypes = @PlatformSpecs.ServerTypes(ServerType.OFFLINE))
+	public void resumeAfterFailure() {
+		// All 103 active punishments, and some of the history, are imported before failing
+		int failAfter = 10 * BATCH_SIZE;
+		ImportStatistics failedImport = importExecutor.performImport(
+				new FailingImportSource(createImportSource(), failAfter)
+		).join();
+		assertFalse(failedImport.success(), "Import should fail");
+		assertEquals("PunishmentHistory", checkpointTable(),
+				"Duplicates of active punishments precede the checkpoint");
+		ImportedPunishments partiallyImported = importedPunishments();
+		assertFalse(partiallyImported.history().isEmpty());
+
+		ImportStatistics resumedImport = importExecutor.resumeImport(createImportSource()).join();
+		assertTrue(resumedImport.success(), "Resumed import should succeed");
+		assertNotEquals(new ImportStatistics(103, 332, 768), resumedImport,
+				"Punishments before the checkpoint should not be imported again");
+		ImportedPunishments resumed = importedPunishments();
+
+		database.truncateAllTables();
+		ImportStatistics uninterruptedImport = importExecutor.performImport(createImportSource()).join();
+		assertEquals(new ImportStatistics(103, 332, 768), uninterruptedImport);
+		assertEquals(importedPunishments(), resumed,
+				"Resumed import should have the same result as an uninterrupted import");
+	}
+
+	private static final class FailingImportSource implements ResumableImportSource {
+
+		private final ResumableImportSource delegate;
+		private final int failAfter;
+
+		private FailingImportSource(ResumableImportSource delegate, int failAfter) {
+			this.delegate = delegate;
+			this.failAfter = failAfter;
+		}
+
+		@Override
+		public String checkpointName() {
+			return delegate.checkpointName();
+		}
+
+		@Override
+		public Stream<Positioned<PortablePunishment>> sourcePunishments(ImportCheckpoint checkpoint) {
+			AtomicInteger count = new AtomicInteger();
+			return delegate.sourcePunishments(checkpoint).peek((punishment) -> {
+				if (count.incrementAndGet() > failAfter) {
+					throw new ImportException("Simulated failure after " + failAfter + " punishments");
+				}
+			});
+		}
+
+	}
+
+}
@@ -36,11 +36,15 @@ import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.punish.EnforcementOptions;
 import space.arim.libertybans.api.punish.PunishmentDrafter;
 import space.arim.libertybans.api.scope.ScopeManager;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.database.DatabaseManager;
 import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.importing.ImportConfig;
 import space.arim.libertybans.core.importing.SelfImportProcess;
 import space.arim.libertybans.core.punish.PunishmentCreator;
 import space.arim.libertybans.it.DontInject;
 import space.arim.libertybans.it.InjectionInvocationContextProvider;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
 import java.io.IOException;
 import java.net.InetAddress;
@@ -51,6 +55,9 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static space.arim.libertybans.core.schema.Tables.ADDRESSES;
 import static space.arim.libertybans.core.schema.Tables.BANS;
 import static space.arim.libertybans.core.schema.Tables.HISTORY;
@@ -94,6 +101,17 @@ public class SelfImportIT {
 		);
 	}
 
+	private static void assertBlueTree242Volume(DSLContext context) {
+		// Assert the volume of data transferred, based on line numbers in the .script file
+		assertCount(context, 18358, 27117, NAMES);
+		assertCount(context, 27118, 36076, ADDRESSES);
+		assertCount(context, 36077, 36330, PUNISHMENTS);
+		assertCount(context, 36331, 36430, VICTIMS);
+		assertCount(context, 36431, 36447, BANS);
+		assertCount(context, 36448, 36451, WARNS);
+		assertCount(context, 36452, 36705, HISTORY);
+	}
+
 	@TestTemplate
 	@Inject
 	public void blueTree242(PunishmentCreator creator) throws IOException {
@@ -102,14 +120,7 @@ public class SelfImportIT {
 		assertDoesNotThrow(selfImportProcess.transferAllData(folder)::join);
 
 		queryExecutor.get().execute((context) -> {
-			// Assert the volume of data transferred, based on line numbers in the .script file
-			assertCount(context, 18358, 27117, NAMES);
-			assertCount(context, 27118, 36076, ADDRESSES);
-			assertCount(context, 36077, 36330, PUNISHMENTS);
-			assertCount(context, 36331, 36430, VICTIMS);
-			assertCount(context, 36431, 36447, BANS);
-			assertCount(context, 36448, 36451, WARNS);
-			assertCount(context, 36452, 36705, HISTORY);
+			assertBlueTree242Volume(context);
 
 			// Assert some of the contents of the data
 			assertEquals(
@@ -202,6 +213,37 @@ public class SelfImportIT {
 		}).join();
 	}
 
+	@TestTemplate
+	@Inject
+	public void blueTree242SmallPages(Configs configs, FactoryOfTheFuture futuresFactory,
+									  DatabaseManager databaseManager) throws IOException {
+		Path folder = selfImportData.copyBlueTree242();
+		// Smaller than every table, so that each is copied in several pages
+		ImportConfig importConfig = mock(ImportConfig.class, delegatesTo(configs.getImportConfig()));
+		doReturn(3).when(importConfig).batchSize();
+		doReturn(3).when(importConfig).selfImportThreads();
+		Configs smallPageConfigs = mock(Configs.class, delegatesTo(configs));
+		doReturn(importConfig).when(smallPageConfigs).getImportConfig();
+		SelfImportProcess smallPageProcess = new SelfImportProcess(
+				folder, smallPageConfigs, futuresFactory, databaseManager, queryExecutor
+		);
+
+		assertDoesNotThrow(smallPageProcess.transferAllData(folder)::join);
+
+		queryExecutor.get().execute(SelfImportIT::assertBlueTree242Volume).join();
+	}
+
+	@TestTemplate
+	public void refuseNonEmptyTarget() throws IOException {
+		Path folder = selfImportData.copyBlueTree242();
+		selfImportProcess.transferAllData(folder).join();
+
+		// The second transfer would fail on conflicting rows, then remove the first transfer's data
+		assertDoesNotThrow(selfImportProcess.transferAllData(folder)::join);
+
+		queryExecutor.get().execute(SelfImportIT::assertBlueTree242Volume).join();
+	}
+
 	private static NetworkAddress addressUnchecked(String address) {
 		try {
 			return NetworkAddress.of(InetAddress.getByName(address));
@@ -0,0 +1,226 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.it.test.punish.sync;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.TestTemplate;
+import org.junit.jupiter.api.extension.ExtendWith;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.database.Vendor;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.punish.sync.PacketExpunge;
+import space.arim.libertybans.core.punish.sync.PostgresSynchronizationMessenger;
+import space.arim.libertybans.core.punish.sync.SQLSynchronizationMessenger;
+import space.arim.libertybans.core.punish.sync.SynchronizationPacket;
+import space.arim.libertybans.core.punish.sync.SynchronizationProtocol;
+import space.arim.libertybans.core.service.Time;
+import space.arim.libertybans.it.InjectionInvocationContextProvider;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.jooq.impl.DSL.val;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(InjectionInvocationContextProvider.class)
+public class PostgresSynchronizationIT {
+
+	private final FactoryOfTheFuture futuresFactory;
+	private final Provider<InternalDatabase> database;
+	private final Provider<QueryExecutor> queryExecutor;
+	private final Time time;
+	private final Configs configs;
+
+	private final List<Instance> instances = new ArrayList<>();
+
+	/** The listener waits this long before reconnecting, plus some leeway */
+	private static final long RECONNECT_MILLIS = 15_000L;
+	private static final long RECEIVE_MILLIS = 5_000L;
+
+	@Inject
+	public PostgresSynchronizationIT(FactoryOfTheFuture futuresFactory, Provider<InternalDatabase> database,
+									 Provider<QueryExecutor> queryExecutor, Time time) {
+		this.futuresFactory = futuresFactory;
+		this.database = database;
+		this.queryExecutor = queryExecutor;
+		this.time = time;
+
+		configs = mock(Configs.class);
+		SqlConfig sqlConfig = mock(SqlConfig.class);
+		SqlConfig.Synchronization synchronization = mock(SqlConfig.Synchronization.class);
+		when(configs.getSqlConfig()).thenReturn(sqlConfig);
+		when(sqlConfig.synchronization()).thenReturn(synchronization);
+		when(synchronization.mode()).thenReturn(SqlConfig.Synchronization.SyncMode.POSTGRES_NOTIFY);
+		when(synchronization.pollPageSize()).thenReturn(100);
+	}
+
+	@AfterEach
+	public void shutdownInstances() {
+		instances.forEach((instance) -> instance.messenger.shutdown());
+		instances.clear();
+	}
+
+	/**
+	 * An instance of LibertyBans sharing the database with the others
+	 *
+	 */
+	private final class Instance {
+
+		final PostgresSynchronizationMessenger messenger;
+		final SynchronizationProtocol protocol = new SynchronizationProtocol(futuresFactory);
+		final BlockingQueue<SynchronizationPacket> received = new LinkedBlockingQueue<>();
+
+		Instance() {
+			SQLSynchronizationMessenger catchUpLog = new SQLSynchronizationMessenger(configs, queryExecutor, time);
+			messenger = new PostgresSynchronizationMessenger(
+					configs, futuresFactory, database, catchUpLog, protocol, () -> (packet) -> {
+						received.add(packet);
+						return futuresFactory.completedFuture(null);
+					}
+			);
+			messenger.startup();
+			instances.add(this);
+		}
+
+		byte[] dispatch(SynchronizationPacket packet) {
+			byte[] message = protocol.serializeMessage(packet);
+			messenger.dispatch(message).join();
+			return message;
+		}
+
+		SynchronizationPacket awaitReception() throws InterruptedException {
+			return received.poll(RECEIVE_MILLIS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Waits until the receiver is listening, by dispatching probes until one is pushed to it.
+	 * Listening starts on a separate thread, so messages dispatched beforehand are not pushed
+	 *
+	 * @param sender the sender
+	 * @param receiver the receiver
+	 */
+	private static void awaitListening(Instance sender, Instance receiver) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + RECONNECT_MILLIS;
+		long probeId = -1L;
+		while (System.currentTimeMillis() < deadline) {
+			sender.dispatch(new PacketExpunge(probeId--));
+			if (receiver.received.poll(200L, TimeUnit.MILLISECONDS) != null) {
+				// Later probes may follow
+				Thread.sleep(500L);
+				receiver.received.clear();
+				return;
+			}
+		}
+		fail("Receiver did not start listening");
+	}
+
+	private int listenerConnections() {
+		return database.get().query((context) -> context
+				.resultQuery(
+						"SELECT COUNT(*) FROM pg_stat_activity WHERE application_name = {0}",
+						val(PostgresSynchronizationMessenger.LISTENER_APPLICATION_NAME)
+				)
+				.fetchSingle()
+				.get(0, Integer.class)
+		).join();
+	}
+
+	private void awaitListenerConnections(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + RECONNECT_MILLIS;
+		while (listenerConnections() != count) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("Expected " + count + " listening connections but found " + listenerConnections());
+			}
+			Thread.sleep(100L);
+		}
+	}
+
+	@TestTemplate
+	public void receiveWithoutPolling() throws InterruptedException {
+		assumeTrue(database.get().getVendor() == Vendor.POSTGRES);
+
+		Instance sender = new Instance();
+		Instance receiver = new Instance();
+		awaitListening(sender, receiver);
+
+		SynchronizationPacket packet1 = new PacketExpunge(1L);
+		SynchronizationPacket packet2 = new PacketExpunge(2L);
+		sender.dispatch(packet1);
+		sender.dispatch(packet2);
+		// Neither instance ever polls
+		assertEquals(packet1, receiver.awaitReception());
+		assertEquals(packet2, receiver.awaitReception());
+		assertNull(sender.received.poll(), "Own messages are ignored");
+	}
+
+	@TestTemplate
+	public void catchUpAfterReconnecting() throws InterruptedException {
+		assumeTrue(database.get().getVendor() == Vendor.POSTGRES);
+
+		Instance sender = new Instance();
+		Instance receiver = new Instance();
+		awaitListening(sender, receiver);
+		// The first poll sets the position of the catch-up log, as happens on startup
+		assertEquals(0, receiver.messenger.poll().join().length);
+		assertEquals(0, receiver.messenger.poll().join().length, "Not polled while listening");
+
+		// Both listening connections are lost
+		database.get().query((context) -> context
+				.resultQuery(
+						"SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE application_name = {0}",
+						val(PostgresSynchronizationMessenger.LISTENER_APPLICATION_NAME)
+				)
+				.fetch()
+		).join();
+		awaitListenerConnections(0);
+		SynchronizationPacket missedPacket = new PacketExpunge(3L);
+		byte[] missedMessage = sender.dispatch(missedPacket);
+		assertNull(receiver.received.poll(1L, TimeUnit.SECONDS), "Not listening");
+
+		awaitListenerConnections(2);
+		awaitListening(sender, receiver);
+		byte[][] caughtUp = receiver.messenger.poll().join();
+		assertEquals(
+				1, Arrays.stream(caughtUp).filter((message) -> Arrays.equals(missedMessage, message)).count(),
+				"Missed message is read from the catch-up log exactly once"
+		);
+		assertEquals(0, receiver.messenger.poll().join().length, "Caught up, so no longer polled");
+
+		SynchronizationPacket packet = new PacketExpunge(4L);
+		sender.dispatch(packet);
+		assertEquals(packet, receiver.awaitReception());
+	}
+
+}
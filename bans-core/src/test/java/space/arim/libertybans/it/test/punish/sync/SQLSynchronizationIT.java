@@ -24,6 +24,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.TestTemplate;
 import org.junit.jupiter.api.extension.ExtendWith;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.database.sql.SequenceValue;
 import space.arim.libertybans.core.punish.sync.SQLSynchronizationMessenger;
 import space.arim.libertybans.core.service.SettableTime;
 import space.arim.libertybans.it.InjectionInvocationContextProvider;
@@ -32,29 +34,35 @@ import space.arim.libertybans.it.util.RandomUtil;
 import java.time.Duration;
 import java.util.concurrent.ThreadLocalRandom;
 
+import static org.jooq.impl.DSL.val;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_MESSAGE_IDS;
+import static space.arim.libertybans.core.schema.tables.Messages.MESSAGES;
 
 @ExtendWith(InjectionInvocationContextProvider.class)
 public class SQLSynchronizationIT {
 
 	private final SQLSynchronizationMessenger synchronizationMessenger;
 	private final SettableTime time;
+	private final InternalDatabase database;
 
 	@Inject
-	public SQLSynchronizationIT(SQLSynchronizationMessenger synchronizationMessenger, SettableTime time) {
+	public SQLSynchronizationIT(SQLSynchronizationMessenger synchronizationMessenger, SettableTime time,
+								InternalDatabase database) {
 		this.synchronizationMessenger = synchronizationMessenger;
 		this.time = time;
+		this.database = database;
 	}
 
 	@BeforeEach
 	public void initialPoll() {
-		synchronizationMessenger.setInitialTimestamp();
+		synchronizationMessenger.setInitialPosition();
 		time.advanceBy(Duration.ofMinutes(1L));
 	}
 
 	@AfterEach
 	public void resetState() {
-		synchronizationMessenger.resetLastTimestamp();
+		synchronizationMessenger.resetPosition();
 	}
 
 	@TestTemplate
@@ -98,4 +106,39 @@ public class SQLSynchronizationIT {
 				synchronizationMessenger.poll().join()
 		);
 	}
+
+	private void insertMessage(long id, byte[] message) {
+		database.execute((context) -> {
+			context
+					.insertInto(MESSAGES)
+					.columns(MESSAGES.ID, MESSAGES.MESSAGE, MESSAGES.TIME)
+					.values(val(id, MESSAGES.ID), val(message, MESSAGES.MESSAGE), val(time.currentTimestamp(), MESSAGES.TIME))
+					.execute();
+		}).join();
+	}
+
+	@TestTemplate
+	public void receiveMessageCommittedLate() {
+		byte[] message0 = dispatchRandomMessage();
+		assertArrayEquals(
+				new byte[][] {message0},
+				synchronizationMessenger.poll().join()
+		);
+		long firstId = database.query((context) -> {
+			return context.select(new SequenceValue<>(context, LIBERTYBANS_MESSAGE_IDS).nextValue()).fetchSingle().value1();
+		}).join();
+		byte[] message1 = RandomUtil.randomBytes(20);
+		byte[] message2 = RandomUtil.randomBytes(20);
+		// The second message becomes visible before the first
+		insertMessage(firstId + 1, message2);
+		assertArrayEquals(
+				new byte[][] {message2},
+				synchronizationMessenger.poll().join()
+		);
+		insertMessage(firstId, message1);
+		assertArrayEquals(
+				new byte[][] {message1},
+				synchronizationMessenger.poll().join()
+		);
+	}
 }
@@ -0,0 +1,49 @@
+/*
+ * LibertyBans
+ * Copyright © 2023 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.it.test.select;
+
+import org.junit.jupiter.api.TestTemplate;
+import org.junit.jupiter.api.extension.ExtendWith;
+import space.arim.libertybans.core.selector.QueryPlanExplainer;
+import space.arim.libertybans.it.InjectionInvocationContextProvider;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@ExtendWith(InjectionInvocationContextProvider.class)
+public class QueryPlanExplainerIT {
+
+	private final QueryPlanExplainer queryPlanExplainer;
+
+	public QueryPlanExplainerIT(QueryPlanExplainer queryPlanExplainer) {
+		this.queryPlanExplainer = queryPlanExplainer;
+	}
+
+	@TestTemplate
+	public void explainSelectorQueries() {
+		List<QueryPlanExplainer.ExplainedQuery> explainedQueries = queryPlanExplainer.explainSelectorQueries().join();
+		assertEquals(4, explainedQueries.size());
+		for (QueryPlanExplainer.ExplainedQuery explainedQuery : explainedQueries) {
+			assertFalse(explainedQuery.plan().isBlank(), explainedQuery.description());
+		}
+	}
+}
@@ -24,12 +24,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.core.database.InternalDatabase;
 import space.arim.libertybans.core.env.UUIDAndAddress;
+import space.arim.libertybans.core.punish.Association;
 import space.arim.libertybans.core.selector.Guardian;
 import space.arim.libertybans.core.service.SettableTime;
 import space.arim.libertybans.core.uuid.UUIDManager;
 import space.arim.libertybans.it.InjectionInvocationContextProvider;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -117,6 +119,42 @@ public class UUIDStoreIT {
 		assertEquals(uuid, lookupUUID(name), "Should still be able to look up by past name");
 	}
 
+	@TestTemplate
+	public void returnToPastName(Guardian guardian, SettableTime time) {
+		UUID uuid = UUID.randomUUID();
+		String name = randomName();
+		String otherName = randomName();
+		NetworkAddress address = randomAddress();
+
+		assumeTrue(null == guardian.executeAndCheckConnection(uuid, name, address).join());
+		time.advanceBy(Duration.ofSeconds(2L));
+		assumeTrue(null == guardian.executeAndCheckConnection(uuid, otherName, address).join());
+		assumeTrue(otherName.equals(lookupName(uuid)));
+
+		time.advanceBy(Duration.ofSeconds(2L));
+		assumeTrue(null == guardian.executeAndCheckConnection(uuid, name, address).join());
+
+		assertEquals(name, lookupName(uuid), "Should use the past name once it is used again");
+	}
+
+	@TestTemplate
+	public void pastNameKeepsStoredTime(InternalDatabase database) {
+		UUID uuid = UUID.randomUUID();
+		String name = randomName();
+		String laterName = randomName();
+		Instant start = Instant.ofEpochSecond(1_600_000_000L);
+
+		database.execute((context) -> {
+			Association association = new Association(uuid, context);
+			association.associatePastName(name, start.plusSeconds(5L));
+			association.associatePastName(laterName, start.plusSeconds(10L));
+			// The name is already known, so its earlier time is kept
+			association.associatePastName(name, start.plusSeconds(20L));
+		}).join();
+
+		assertEquals(laterName, lookupName(uuid), "Should use the name with the latest stored time");
+	}
+
 	@TestTemplate
 	public void useLatestAddressInLookupPlayer(Guardian guardian, SettableTime time) {
 		UUID uuid = UUID.randomUUID();
@@ -8,3 +8,5 @@ CREATE SEQUENCE "libertybans_victim_ids" AS INT;
 CREATE SEQUENCE "libertybans_track_ids" AS INT;
 
 CREATE SEQUENCE "libertybans_scope_ids" AS INT;
+
+CREATE SEQUENCE "libertybans_message_ids" AS BIGINT;
@@ -38,8 +38,9 @@ import space.arim.api.env.AudienceRepresenter;
 import space.arim.libertybans.core.env.PlatformListener;
 import space.arim.libertybans.core.selector.Guardian;
 import space.arim.omnibus.util.ThisClass;
-import space.arim.omnibus.util.concurrent.CentralisedFuture;
 
+import java.net.InetAddress;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 public final class ChatListener implements PlatformListener, Listener {
@@ -83,21 +84,20 @@ public final class ChatListener implements PlatformListener, Listener {
 			return;
 		}
 		Player player = event.getPlayer();
-		CentralisedFuture<Component> futureMessage = guardian.checkChat(
-				player.getUniqueId(), player.getAddress().getAddress(), command
-		);
+		UUID uuid = player.getUniqueId();
+		InetAddress address = player.getAddress().getAddress();
 		Component message;
-		if (futureMessage.isDone()) {
-			message = futureMessage.join();
-
-		} else if (event.isAsynchronous()) {
+		try {
+			message = guardian.checkChatNow(uuid, address, command);
+		} catch (IllegalStateException notCached) {
+			if (!event.isAsynchronous()) {
+				throw new IllegalStateException("Cached mute unavailable for synchronous chat/command event", notCached);
+			}
 			logger.warn(
 					"Cached mute unavailable for asynchronous chat/command event. Perhaps {} logged off?",
 					player.getName()
 			);
-			message = futureMessage.orTimeout(4L, TimeUnit.SECONDS).join();
-		} else {
-			throw new IllegalStateException("Cached mute unavailable for synchronous chat/command event");
+			message = guardian.checkChat(uuid, address, command).orTimeout(4L, TimeUnit.SECONDS).join();
 		}
 		if (message == null) {
 			return;
@@ -29,8 +29,6 @@ import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import space.arim.libertybans.core.selector.Guardian;
-import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
-import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -47,7 +45,6 @@ import static org.mockito.Mockito.when;
 public class ChatListenerTest {
 
 	private final Guardian guardian;
-	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
 
 	@TempDir
 	public Path tempDir;
@@ -77,7 +74,7 @@ public class ChatListenerTest {
 
 		when(player.getUniqueId()).thenReturn(uuid);
 		when(player.getAddress()).thenReturn(new InetSocketAddress(address, 0));
-		when(guardian.checkChat(uuid, address, "msg")).thenReturn(futuresFactory.completedFuture(denyMessage));
+		when(guardian.checkChatNow(uuid, address, "msg")).thenReturn(denyMessage);
 
 		PlayerCommandPreprocessEvent commandEvent = new PlayerCommandPreprocessEvent(player, "/msg", Set.of());
 		chatListener.onCommand(commandEvent);
@@ -32,7 +32,6 @@ import org.spongepowered.api.event.message.PlayerChatEvent;
 import space.arim.libertybans.core.env.PlatformListener;
 import space.arim.libertybans.core.selector.Guardian;
 import space.arim.libertybans.env.sponge.listener.RegisterListeners;
-import space.arim.omnibus.util.concurrent.CentralisedFuture;
 
 @Singleton
 public final class ChatListener implements PlatformListener {
@@ -73,14 +72,13 @@ public final class ChatListener implements PlatformListener {
 		if (event.isCancelled()) {
 			return;
 		}
-		CentralisedFuture<Component> futureMessage = guardian.checkChat(
-				player.uniqueId(), player.connection().address().getAddress(), command
-		);
 		Component message;
-		if (futureMessage.isDone()) {
-			message = futureMessage.join();
-		} else {
-			throw new IllegalStateException("Cached mute unavailable for synchronous chat/command event");
+		try {
+			message = guardian.checkChatNow(
+					player.uniqueId(), player.connection().address().getAddress(), command
+			);
+		} catch (IllegalStateException notCached) {
+			throw new IllegalStateException("Cached mute unavailable for synchronous chat/command event", notCached);
 		}
 		if (message == null) {
 			return;